@@ -9,6 +9,7 @@ import com.oracle.maf.sample.mcs.shared.headers.HeaderConstants;
 import com.oracle.maf.sample.mcs.shared.log.MBELogger;
 import com.oracle.maf.sample.mcs.shared.mafrest.MCSRequest;
 import com.oracle.maf.sample.mcs.shared.mafrest.MCSResponse;
+import com.oracle.maf.sample.mcs.shared.mafrest.CircuitBreaker;
 import com.oracle.maf.sample.mcs.shared.mafrest.MCSRestClient;
 import com.oracle.maf.sample.mcs.shared.mbe.MBE;
 import com.oracle.maf.sample.mcs.shared.mbe.config.base.MBEConfiguration;
@@ -280,8 +281,12 @@ public final class UploadTask implements Runnable {
 
         jsonArray.put(mSessionEndEvent);
 
+        //an open circuit breaker indicates the mobile backend is not available. Events are saved without attempting to post
+        CircuitBreaker circuitBreaker = MCSRestClient.getCircuitBreaker(this.mbeConfig);
+        boolean backendAvailable = circuitBreaker == null || circuitBreaker.getState() != CircuitBreaker.State.OPEN;
+
         //network access available
-        if (MAFUtil.isNetworkAccess()) {
+        if (MAFUtil.isNetworkAccess() && backendAvailable) {
             mLogger.logFine("Network access available: ready to send", this.getClass().getSimpleName(), "sendRequest");
             //Create a request context to hold request configuration before calling MAF
             //REST Service Adapter to post events to the MBE
@@ -351,7 +356,8 @@ public final class UploadTask implements Runnable {
                 String combinedExceptionMessage =  "primary message:"+exceptionPrimaryMessage+(exceptionSecondaryMessage!=null?("; secondary message: "+exceptionSecondaryMessage):(""));
 
 
-                if (combinedExceptionMessage.contains("202")) {
+                //ServiceProxyExceptions are thrown by MCSRestClient for requests that have not been sent (circuit breaker open)
+                if (!(e instanceof ServiceProxyException) && combinedExceptionMessage.contains("202")) {
                     mLogger.logFine("Rest call finished successful" + exceptionSecondaryMessage != null ?exceptionSecondaryMessage : "", this.getClass().getSimpleName(), "sendRequest");
                     mLogger.logFine("Clearing event list " + this.mEventList.size() + " custom events",this.getClass().getSimpleName(), "sendRequest");
                     
@@ -393,7 +399,7 @@ public final class UploadTask implements Runnable {
         //offline use case
         else {
             //sending of message failed. Reading data from request object to save it in SQLite for later
-            mLogger.logFine("No network access available. Saving events for later post to server",this.getClass().getSimpleName(), "sendRequest");
+            mLogger.logFine((backendAvailable ? "No network access available" : "Circuit breaker open for mobile backend")+". Saving events for later post to server",this.getClass().getSimpleName(), "sendRequest");
             saveMessagesForLaterPosting(this.mbeConfig.getMobileBackendIdentifier(), jsonArray.toString(), this.mHeaderMap);
 
         }
@@ -483,7 +489,7 @@ public final class UploadTask implements Runnable {
                  
                 //HTTP 202 indicates success. If MAF fails then this exception handler ensures the functionality 
                 //in this section works as designed
-                if(combinedExceptionMessage.contains("202")){
+                if(!(e instanceof ServiceProxyException) && combinedExceptionMessage.contains("202")){
                     //the exception message shows that HTTP error 202 caused this. HTTP 202 however means that the 
                     //request succeeded. So We remove the saved event.
                     pendingMessages.remove(i);
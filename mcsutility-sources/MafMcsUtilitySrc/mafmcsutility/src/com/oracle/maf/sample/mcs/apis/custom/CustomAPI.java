@@ -9,6 +9,8 @@ import com.oracle.maf.sample.mcs.shared.mbe.error.OracleMobileErrorHelper;
 import com.oracle.maf.sample.mcs.shared.mbe.proxy.MBEServiceProxy;
 
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * *** INTERNAL FRAMEWORK CLASS ***
@@ -74,6 +76,30 @@ public class CustomAPI extends MBEServiceProxy {
         return handleSendReceiveCalls(request,true);
     }
 
+    /**
+     * Asynchronous variant of {@link #sendForStringResponse(MCSRequest)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<MCSResponse> sendForStringResponseAsync(final MCSRequest request) {
+        return executeAsync(new Callable<MCSResponse>() {
+            @Override
+            public MCSResponse call() throws Exception {
+                return sendForStringResponse(request);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #sendReceiveBytes(MCSRequest)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<MCSResponse> sendReceiveBytesAsync(final MCSRequest request) {
+        return executeAsync(new Callable<MCSResponse>() {
+            @Override
+            public MCSResponse call() throws Exception {
+                return sendReceiveBytes(request);
+            }
+        });
+    }
+
     /**
      * Method that sends a request to receicve a byte response from Oracle MCS
      * @param request   instance of com.oracle.maf.sample.mcs.shared.mafrest.MCSRequest that holds the request configuration
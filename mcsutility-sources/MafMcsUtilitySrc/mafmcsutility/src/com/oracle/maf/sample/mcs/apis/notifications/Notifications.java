@@ -11,6 +11,8 @@ import com.oracle.maf.sample.mcs.shared.utils.MAFUtil;
 
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 import oracle.adfmf.json.JSONException;
 import oracle.adfmf.json.JSONObject;
@@ -124,6 +126,30 @@ public class Notifications extends MBEServiceProxy {
         return handleDeviceMcsRegistrationDeRegistration(DEREGISTER_DEVICE_URL);
     }
 
+    /**
+     * Asynchronous variant of {@link #registerDeviceToMCS()}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<String> registerDeviceToMCSAsync() {
+        return executeAsync(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return registerDeviceToMCS();
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #deregisterDeviceFromMCS()}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<String> deregisterDeviceFromMCSAsync() {
+        return executeAsync(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return deregisterDeviceFromMCS();
+            }
+        });
+    }
+
     /**
      * Method that registers or de-registers the device. This method composes the JSON payload for the registration and de-registration.
      *
@@ -365,6 +391,11 @@ public class Notifications extends MBEServiceProxy {
      */
     private void handleExceptions(Exception e, String uri) throws ServiceProxyException {
 
+        //ServiceProxyExceptions, e.g. for requests rejected by the circuit breaker, are passed on unchanged
+        if (e instanceof ServiceProxyException) {
+            throw (ServiceProxyException) e;
+        }
+
         //Step 1: Is error AdfInvocationRuntimeException, AdfInvocationException or AdfException?
         String exceptionPrimaryMessage = e.getLocalizedMessage();
         String exceptionSecondaryMessage = e.getCause() != null ? e.getCause().getLocalizedMessage() : null;
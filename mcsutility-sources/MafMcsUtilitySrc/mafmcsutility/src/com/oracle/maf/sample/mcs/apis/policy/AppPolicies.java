@@ -9,9 +9,21 @@ import com.oracle.maf.sample.mcs.shared.mbe.proxy.MBEServiceProxy;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
 
 import oracle.adfmf.framework.api.JSONBeanSerializationHelper;
+import oracle.adfmf.java.beans.PropertyChangeListener;
+import oracle.adfmf.java.beans.PropertyChangeSupport;
 import oracle.adfmf.json.JSONObject;
 
 /**
@@ -22,6 +34,14 @@ import oracle.adfmf.json.JSONObject;
  * The AppPolicy class allows client applications built with MAF to read server side defined key/value pairs saved for
  * the MBE. The application policies are properties that mobile backend developers use e.g. to provide title strings,
  * license agreements, application version information and similar.
+ * <p>
+ * Policies are cached in memory. The first read queries MCS. Subsequent reads return the cached policies and, once
+ * the policy refresh interval configured in the MBEConfiguration expired, refresh them on a background thread
+ * (stale-while-revalidate). Call startBackgroundRefresh() to refresh policies periodically, e.g. when the application
+ * starts. Listeners added with addPolicyChangeListener(...) are notified with the policy name as the property name
+ * when a refresh changes the value of a policy. The typed getters read values that are converted once when the
+ * policies are cached. If refreshes overlap, the result of a query that started before the cached policies were
+ * queried is discarded.
  *
  * @author Frank Nimphius
  * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
@@ -31,6 +51,58 @@ public class AppPolicies extends MBEServiceProxy {
     
     private static int STATUS_RESPONSE_OK   = 200;
     
+    //cached policies. The snapshot is replaced on refresh and never modified, so it is read without locking
+    private volatile CachedPolicies cachedPolicies = null;
+    private final AtomicBoolean refreshInProgress = new AtomicBoolean(false);
+    
+    private ScheduledExecutorService refreshScheduler = null;
+    
+    private PropertyChangeSupport policyChangeSupport = new PropertyChangeSupport(this);
+    
+    /**
+     * Policies read from MCS together with their String, boolean and int values, which are converted once when the
+     * policies are cached
+     */
+    private static final class CachedPolicies {
+        private final HashMap<String,Object> policies;
+        private final HashMap<String,String> strings = new HashMap<String,String>();
+        private final HashMap<String,Boolean> booleans = new HashMap<String,Boolean>();
+        private final HashMap<String,Integer> integers = new HashMap<String,Integer>();
+        //start time of the query that read the policies
+        private final long cachedAtMillis;
+
+        CachedPolicies(HashMap<String,Object> policies, long cachedAtMillis) {
+            this.policies = policies;
+            this.cachedAtMillis = cachedAtMillis;
+
+            for (Map.Entry<String,Object> policy : policies.entrySet()) {
+                Object value = policy.getValue();
+                if (value == null) {
+                    continue;
+                }
+                strings.put(policy.getKey(), value.toString());
+
+                //Boolean values and the Strings "true" and "false" (case insensitive) are booleans
+                if (value instanceof Boolean) {
+                    booleans.put(policy.getKey(), (Boolean) value);
+                } else if (value instanceof String && ("true".equalsIgnoreCase((String) value) || "false".equalsIgnoreCase((String) value))) {
+                    booleans.put(policy.getKey(), Boolean.valueOf((String) value));
+                }
+
+                //Number values and Strings containing an integer are integers
+                if (value instanceof Number) {
+                    integers.put(policy.getKey(), ((Number) value).intValue());
+                } else if (value instanceof String) {
+                    try {
+                        integers.put(policy.getKey(), Integer.parseInt(((String) value).trim()));
+                    } catch (NumberFormatException e) {
+                        //not an integer policy
+                    }
+                }
+            }
+        }
+    }
+
     public AppPolicies() {
         super();
     }
@@ -50,15 +122,38 @@ public class AppPolicies extends MBEServiceProxy {
      *    "BackgroundImage":"/mobile/platform/storage/collections/appObjects/objects/bgImage42"
      *  }
      *  
+     * Policies are returned from the in-memory cache. See class documentation for details.
+     *  
      * @return HashMap a map containing key-value pairs with application configuration properties defined on the mobile
      * backend. 
-     * @throws ServiceProxyException for MCS error and transport layer exceptions
+     * @throws ServiceProxyException for MCS error and transport layer exceptions if no policies are cached
      */
     public HashMap<String,Object> getAppPoliciesMap() throws ServiceProxyException{
+        return new HashMap<String,Object>(getCachedPolicies());
+    }
+    
+    /**
+     * Queries the application policies from MCS, updates the policy cache and notifies policy change listeners about
+     * changed values. Use this method e.g. for a user initiated refresh
+     * 
+     * @return HashMap a map containing key-value pairs with application configuration properties defined on the mobile
+     * backend. 
+     * @throws ServiceProxyException for MCS error and transport layer exceptions
+     */
+    public HashMap<String,Object> refreshAppPolicies() throws ServiceProxyException{
+        return new HashMap<String,Object>(refreshPolicies());
+    }
+    
+    /**
+     * Reads the application policies from MCS
+     * @return HashMap with the policies
+     * @throws ServiceProxyException for MCS error and transport layer exceptions
+     */
+    private HashMap<String,Object> fetchAppPolicies() throws ServiceProxyException{
         
         String uri = "/mobile/platform/appconfig/client";
         
-        this.getMbe().getMbeConfiguration().getLogger().logFine("Reading application policies from MCS backend: "+uri, this.getClass().getSimpleName(), "getAppPoliciesMap");
+        this.getMbe().getMbeConfiguration().getLogger().logFine("Reading application policies from MCS backend: "+uri, this.getClass().getSimpleName(), "fetchAppPolicies");
         
         //prepare REST call
         MCSRequest requestObject = new MCSRequest(this.getMbe().getMbeConfiguration());
@@ -73,10 +168,12 @@ public class AppPolicies extends MBEServiceProxy {
         requestObject.setHttpHeaders(httpHeaders);
         //no payload needed for GET request
         requestObject.setPayload("");
+        //unchanged policies are answered with HTTP 304 on refresh
+        requestObject.setETagCachingEnabled(true);
 
         try {
             MCSResponse mcsResponse = MCSRestClient.sendForStringResponse(requestObject);
-            this.getMbe().getMbeConfiguration().getLogger().logFine("Successfully queried application policies from MCS backend. Response Code: "+mcsResponse.getHttpStatusCode()+" Response Message: "+mcsResponse.getMessage(), this.getClass().getSimpleName(), "getAppPoliciesMap");
+            this.getMbe().getMbeConfiguration().getLogger().logFine("Successfully queried application policies from MCS backend. Response Code: "+mcsResponse.getHttpStatusCode()+" Response Message: "+mcsResponse.getMessage(), this.getClass().getSimpleName(), "fetchAppPolicies");
             
             //handle request success
             if (mcsResponse != null && mcsResponse.getHttpStatusCode() == STATUS_RESPONSE_OK) { 
@@ -91,12 +188,12 @@ public class AppPolicies extends MBEServiceProxy {
             } else if (mcsResponse != null){
                 //if there is a mcsResponse, we pass it to the client to analyze the problem
                 this.getMbe().getMbeConfiguration().getLogger().logFine("MCS application returns error with status code: "+mcsResponse.getHttpStatusCode()
-                                                     +" and message: "+mcsResponse.getMessage(), this.getClass().getSimpleName(), "getAppPoliciesMap");
+                                                     +" and message: "+mcsResponse.getMessage(), this.getClass().getSimpleName(), "fetchAppPolicies");
                  throw new ServiceProxyException(mcsResponse.getHttpStatusCode(), (String) mcsResponse.getMessage(), mcsResponse.getHeaders());
             }
         } catch (Exception e) {
-            this.getMbe().getMbeConfiguration().getLogger().logFine("Exception thrown. Class: "+e.getClass().getSimpleName()+", Message="+e.getMessage(), this.getClass().getSimpleName(), "getAppPoliciesMap");
-            this.getMbe().getMbeConfiguration().getLogger().logFine("Delegating to exception handler", this.getClass().getSimpleName(), "getAppPoliciesMap");
+            this.getMbe().getMbeConfiguration().getLogger().logFine("Exception thrown. Class: "+e.getClass().getSimpleName()+", Message="+e.getMessage(), this.getClass().getSimpleName(), "fetchAppPolicies");
+            this.getMbe().getMbeConfiguration().getLogger().logFine("Delegating to exception handler", this.getClass().getSimpleName(), "fetchAppPolicies");
             throw new ServiceProxyException(e.getMessage(),ServiceProxyException.ERROR);         
         }
         
@@ -115,7 +212,7 @@ public class AppPolicies extends MBEServiceProxy {
         
         this.getMbe().getMbeConfiguration().getLogger().logFine("Calling getAppPoliciesMap method", this.getClass().getSimpleName(), "getAppPoliciesList");
         
-        HashMap<String,Object> policiesMap = this.getAppPoliciesMap();
+        HashMap<String,Object> policiesMap = this.getCachedPolicies();
         
         this.getMbe().getMbeConfiguration().getLogger().logFine("Policy map retrieved with length: "+policiesMap.size(), this.getClass().getSimpleName(), "getAppPoliciesList");
         
@@ -135,4 +232,257 @@ public class AppPolicies extends MBEServiceProxy {
         return policyList;
     }
         
+    /**
+     * Reads a String policy from the policy cache. Non-String values are returned as their String representation
+     * 
+     * @param policyName name of the policy
+     * @param defaultValue value returned if the policy does not exist or if policies cannot be read from MCS
+     * @return the policy value or the default value
+     */
+    public String getString(String policyName, String defaultValue) {
+        CachedPolicies policies = readCachedPolicies(policyName);
+        String value = policies != null ? policies.strings.get(policyName) : null;
+        return value != null ? value : defaultValue;
+    }
+    
+    /**
+     * Reads a boolean policy from the policy cache. Boolean values and the Strings "true" and "false" (case insensitive)
+     * are accepted
+     * 
+     * @param policyName name of the policy
+     * @param defaultValue value returned if the policy does not exist, is not a boolean or if policies cannot be read from MCS
+     * @return the policy value or the default value
+     */
+    public boolean getBoolean(String policyName, boolean defaultValue) {
+        CachedPolicies policies = readCachedPolicies(policyName);
+        Boolean value = policies != null ? policies.booleans.get(policyName) : null;
+        return value != null ? value.booleanValue() : defaultValue;
+    }
+    
+    /**
+     * Reads an integer policy from the policy cache. Number values and Strings containing an integer are accepted
+     * 
+     * @param policyName name of the policy
+     * @param defaultValue value returned if the policy does not exist, is not an integer or if policies cannot be read from MCS
+     * @return the policy value or the default value
+     */
+    public int getInt(String policyName, int defaultValue) {
+        CachedPolicies policies = readCachedPolicies(policyName);
+        Integer value = policies != null ? policies.integers.get(policyName) : null;
+        if (value == null && policies != null && policies.strings.containsKey(policyName)) {
+            this.getMbe().getMbeConfiguration().getLogger().logFine("Policy "+policyName+" is not an integer: "+policies.strings.get(policyName), this.getClass().getSimpleName(), "getInt");
+        }
+        return value != null ? value.intValue() : defaultValue;
+    }
+    
+    /**
+     * Adds a listener that is notified when a refresh changes the value of a policy. The property name of the event is
+     * the policy name. Added policies have an old value of null, removed policies a new value of null. Listeners are 
+     * called on the thread that refreshes the policies, which can be a background thread
+     * 
+     * @param l the listener
+     */
+    public void addPolicyChangeListener(PropertyChangeListener l) {
+        policyChangeSupport.addPropertyChangeListener(l);
+    }
+
+    public void removePolicyChangeListener(PropertyChangeListener l) {
+        policyChangeSupport.removePropertyChangeListener(l);
+    }
+    
+    /**
+     * Refreshes the policies periodically on a background thread using the policy refresh interval of the MBEConfiguration. 
+     * Calling this method again restarts the refresh, e.g. to apply a changed refresh interval
+     */
+    public synchronized void startBackgroundRefresh() {
+        
+        stopBackgroundRefresh();
+        
+        long intervalSeconds = this.getMbe().getMbeConfiguration().getPolicyRefreshIntervalSeconds();
+        this.getMbe().getMbeConfiguration().getLogger().logFine("Starting background refresh of application policies every "+intervalSeconds+" seconds", this.getClass().getSimpleName(), "startBackgroundRefresh");
+        
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "MAF MCS Utility (" + getMbe().getMbeConfiguration().getMobileBackendIdentifier() + ") policy-refresh");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                refreshQuietly();
+            }
+        }, cachedPolicies == null ? 0 : intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        refreshScheduler = scheduler;
+    }
+    
+    /**
+     * Stops the periodic background refresh of policies. Policies are still refreshed when they are read after the 
+     * refresh interval expired
+     */
+    public synchronized void stopBackgroundRefresh() {
+        if (refreshScheduler != null) {
+            this.getMbe().getMbeConfiguration().getLogger().logFine("Stopping background refresh of application policies", this.getClass().getSimpleName(), "stopBackgroundRefresh");
+            refreshScheduler.shutdownNow();
+            refreshScheduler = null;
+        }
+    }
+    
+    /**
+     * Returns the cached policies. If no policies are cached, they are queried from MCS. If the cached policies are
+     * older than the refresh interval, they are returned and refreshed on the MBE thread pool
+     * @return cached policies. The map must not be modified
+     * @throws ServiceProxyException if no policies are cached and the query fails
+     */
+    private HashMap<String,Object> getCachedPolicies() throws ServiceProxyException {
+        return getCachedPolicySnapshot().policies;
+    }
+    
+    /**
+     * @return cached policies with their converted values. See getCachedPolicies for details
+     * @throws ServiceProxyException if no policies are cached and the query fails
+     */
+    private CachedPolicies getCachedPolicySnapshot() throws ServiceProxyException {
+        
+        CachedPolicies policies = cachedPolicies;
+        
+        if (policies == null) {
+            this.getMbe().getMbeConfiguration().getLogger().logFine("No cached application policies. Querying MCS", this.getClass().getSimpleName(), "getCachedPolicies");
+            refreshPolicies();
+            return cachedPolicies;
+        }
+        
+        long ageMillis = System.currentTimeMillis() - policies.cachedAtMillis;
+        if (ageMillis >= this.getMbe().getMbeConfiguration().getPolicyRefreshIntervalSeconds() * 1000L) {
+            refreshInBackground();
+        }
+        return policies;
+    }
+    
+    /**
+     * @return the cached policies or null if policies cannot be read from MCS
+     */
+    private CachedPolicies readCachedPolicies(String policyName) {
+        try {
+            return getCachedPolicySnapshot();
+        } catch (ServiceProxyException e) {
+            this.getMbe().getMbeConfiguration().getLogger().logWarning("Application policies cannot be read, using default value for "+policyName+": "+e.getMessage(), this.getClass().getSimpleName(), "readCachedPolicies");
+            return null;
+        }
+    }
+    
+    /**
+     * Queries the policies from MCS and replaces the cached policies unless policies of a later query are cached
+     * @return the cached policies
+     * @throws ServiceProxyException for MCS error and transport layer exceptions
+     */
+    private HashMap<String,Object> refreshPolicies() throws ServiceProxyException {
+        long fetchStartMillis = System.currentTimeMillis();
+        HashMap<String,Object> policies = fetchAppPolicies();
+        return updateCachedPolicies(policies, fetchStartMillis);
+    }
+    
+    /**
+     * Refreshes the policies on the MBE thread pool unless a refresh is in progress
+     */
+    private void refreshInBackground() {
+        
+        if (!refreshInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        this.getMbe().getMbeConfiguration().getLogger().logFine("Cached application policies expired. Refreshing in background", this.getClass().getSimpleName(), "refreshInBackground");
+        
+        executeAsync(new Callable<HashMap<String,Object>>() {
+            @Override
+            public HashMap<String,Object> call() throws Exception {
+                return refreshPolicies();
+            }
+        }).whenComplete(new BiConsumer<HashMap<String,Object>, Throwable>() {
+            @Override
+            public void accept(HashMap<String,Object> policies, Throwable failure) {
+                refreshInProgress.set(false);
+                if (failure != null) {
+                    //stale policies are served until the next refresh succeeds
+                    getMbe().getMbeConfiguration().getLogger().logWarning("Background refresh of application policies failed: "+failure.getMessage(), AppPolicies.class.getSimpleName(), "refreshInBackground");
+                }
+            }
+        });
+    }
+    
+    /**
+     * Refreshes the policies on the calling thread unless a refresh is in progress. Failures are logged
+     */
+    private void refreshQuietly() {
+        
+        if (!refreshInProgress.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshPolicies();
+        } catch (Exception e) {
+            this.getMbe().getMbeConfiguration().getLogger().logWarning("Background refresh of application policies failed: "+e.getMessage(), this.getClass().getSimpleName(), "refreshQuietly");
+        } finally {
+            refreshInProgress.set(false);
+        }
+    }
+    
+    /**
+     * Replaces the cached policies and notifies listeners about the policies whose values changed. Policies of a query
+     * that started before the query of the cached policies are discarded
+     * @param policies the policies read from MCS
+     * @param fetchStartMillis time the query of the policies started
+     * @return the cached policies
+     */
+    private synchronized HashMap<String,Object> updateCachedPolicies(HashMap<String,Object> policies, long fetchStartMillis) {
+        
+        CachedPolicies currentPolicies = cachedPolicies;
+        if (currentPolicies != null && fetchStartMillis < currentPolicies.cachedAtMillis) {
+            this.getMbe().getMbeConfiguration().getLogger().logFine("Discarding application policies of a query that is older than the cached policies", this.getClass().getSimpleName(), "updateCachedPolicies");
+            return currentPolicies.policies;
+        }
+        
+        HashMap<String,Object> oldPolicies = currentPolicies != null ? currentPolicies.policies : new HashMap<String,Object>();
+        
+        cachedPolicies = new CachedPolicies(policies, fetchStartMillis);
+        
+        Set<String> policyNames = new HashSet<String>(oldPolicies.keySet());
+        policyNames.addAll(policies.keySet());
+        
+        for (String policyName : policyNames) {
+            Object oldValue = oldPolicies.get(policyName);
+            Object newValue = policies.get(policyName);
+            boolean changed = oldValue == null ? newValue != null : !oldValue.equals(newValue);
+            if (changed) {
+                this.getMbe().getMbeConfiguration().getLogger().logFine("Application policy "+policyName+" changed from "+oldValue+" to "+newValue, this.getClass().getSimpleName(), "updateCachedPolicies");
+                policyChangeSupport.firePropertyChange(policyName, oldValue, newValue);
+            }
+        }
+        return policies;
+    }
+
+    /**
+     * Asynchronous variant of {@link #getAppPoliciesMap()}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<HashMap<String,Object>> getAppPoliciesMapAsync() {
+        return executeAsync(new Callable<HashMap<String,Object>>() {
+            @Override
+            public HashMap<String,Object> call() throws Exception {
+                return getAppPoliciesMap();
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #getAppPoliciesList()}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<ArrayList<Policy>> getAppPoliciesListAsync() {
+        return executeAsync(new Callable<ArrayList<Policy>>() {
+            @Override
+            public ArrayList<Policy> call() throws Exception {
+                return getAppPoliciesList();
+            }
+        });
+    }
 }
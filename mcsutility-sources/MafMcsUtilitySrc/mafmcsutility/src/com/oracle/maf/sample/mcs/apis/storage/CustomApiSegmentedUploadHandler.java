@@ -0,0 +1,196 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+import com.oracle.maf.sample.mcs.shared.headers.HeaderConstants;
+import com.oracle.maf.sample.mcs.shared.log.MBELogger;
+import com.oracle.maf.sample.mcs.shared.mafrest.MCSRequest;
+import com.oracle.maf.sample.mcs.shared.mafrest.MCSResponse;
+import com.oracle.maf.sample.mcs.shared.mafrest.MCSRestClient;
+import com.oracle.maf.sample.mcs.shared.mbe.config.base.MBEConfiguration;
+
+import java.util.HashMap;
+
+import oracle.adfmf.framework.exception.IllegalArgumentException;
+import oracle.adfmf.json.JSONObject;
+
+
+/**
+ * Segmented upload handler for a custom API deployed to the mobile backend. MCS Storage does not accept partial
+ * uploads, so the custom API collects the segments and stores the object in the collection once the upload is
+ * complete. The custom API implements the following resources relative to the upload URI passed to the constructor
+ * (e.g. /mobile/custom/storageuploads/sessions)
+ * <p>
+ * <pre>
+ *  POST   {uploadURI}                 JSON body {"collection","id","name","contentType","contentLength","user"}.
+ *                                     Returns {"id": "&lt;sessionId&gt;"}
+ *  PUT    {uploadURI}/{sessionId}     Segment as application/octet-stream with a Content-Range header
+ *                                     "bytes first-last/contentLength". Content received from "first" on is replaced
+ *  GET    {uploadURI}/{sessionId}     Returns {"receivedBytes": n}. HTTP 404 if the session does not exist
+ *  POST   {uploadURI}/{sessionId}/complete  Stores the object in the collection and returns the Storage object JSON
+ *  DELETE {uploadURI}/{sessionId}     Discards the session
+ * </pre>
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class CustomApiSegmentedUploadHandler implements SegmentedUploadHandler {
+
+    public static final String SESSION_ID_KEY = "id";
+    public static final String RECEIVED_BYTES_KEY = "receivedBytes";
+    public static final String COLLECTION_KEY = "collection";
+
+    private static final String OCTET_STREAM = "application/octet-stream";
+    private static final String APPLICATION_JSON = "application/json";
+
+    private final String uploadApiURI;
+
+    /**
+     * @param uploadApiURI relative URI of the upload sessions resource of the custom API, e.g. /mobile/custom/storageuploads/sessions
+     * @throws IllegalArgumentException if the URI is null or empty
+     */
+    public CustomApiSegmentedUploadHandler(String uploadApiURI) throws IllegalArgumentException {
+        if (uploadApiURI == null || uploadApiURI.isEmpty()) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("uploadApiURI cannot be null or empty");
+            throw illegalArgumentException;
+        }
+        this.uploadApiURI = uploadApiURI.endsWith("/") ? uploadApiURI.substring(0, uploadApiURI.length() - 1) : uploadApiURI;
+    }
+
+    public String getUploadApiURI() {
+        return uploadApiURI;
+    }
+
+    @Override
+    public String beginUpload(StorageCollection storageCollection, StorageObject storageObject, long contentLength) throws ServiceProxyException {
+        try {
+            JSONObject session = new JSONObject();
+            session.put(COLLECTION_KEY, storageCollection.getCollectionID());
+            session.put(StorageConstants.OBJECT_PROPERTY_TAG_ID, storageObject.getID());
+            if (storageObject.getDisplayName() != null) {
+                session.put(StorageConstants.OBJECT_PROPERTY_TAG_DISPLAYNAME, storageObject.getDisplayName());
+            }
+            if (storageObject.getContentType() != null) {
+                session.put(StorageConstants.OBJECT_PROPERTY_CONTENT_TYPE, storageObject.getContentType());
+            }
+            session.put(StorageConstants.OBJECT_PROPERTY_CONTENT_LENGTH, contentLength);
+            if (storageCollection.isUserIsolated() && storageCollection.getObjectOwnerUserID() != null) {
+                session.put(StorageConstants.OBJECT_PROPERTY_USER, storageCollection.getObjectOwnerUserID());
+            }
+
+            MCSResponse mcsResponse = send(storageCollection, MCSRequest.HttpMethod.POST, uploadApiURI, APPLICATION_JSON, session.toString(), null);
+            String sessionId = new JSONObject((String) mcsResponse.getMessage()).optString(SESSION_ID_KEY, null);
+            if (sessionId == null || sessionId.isEmpty()) {
+                throw new ServiceProxyException("Upload API " + uploadApiURI + " did not return a session id", ServiceProxyException.ERROR);
+            }
+            getLogger(storageCollection).logFine("Upload session " + sessionId + " started for object " + storageObject.getID(), this.getClass().getSimpleName(), "beginUpload");
+            return sessionId;
+        } catch (Exception e) {
+            storageCollection.handleExceptions(e, uploadApiURI);
+        }
+        //we should not get here
+        return null;
+    }
+
+    @Override
+    public long getReceivedBytes(StorageCollection storageCollection, String sessionId) throws ServiceProxyException {
+        String uri = uploadApiURI + "/" + sessionId;
+        try {
+            MCSResponse mcsResponse = send(storageCollection, MCSRequest.HttpMethod.GET, uri, null, "", null);
+            return new JSONObject((String) mcsResponse.getMessage()).optLong(RECEIVED_BYTES_KEY, -1);
+        } catch (Exception e) {
+            try {
+                storageCollection.handleExceptions(e, uri);
+            } catch (ServiceProxyException serviceProxyException) {
+                if (serviceProxyException.getHttpResponseCode() == StorageConstants.HTTP_404) {
+                    getLogger(storageCollection).logFine("Upload session " + sessionId + " does not exist", this.getClass().getSimpleName(), "getReceivedBytes");
+                    return -1;
+                }
+                throw serviceProxyException;
+            }
+        }
+        //we should not get here
+        return -1;
+    }
+
+    @Override
+    public void uploadSegment(StorageCollection storageCollection, String sessionId, long offset, byte[] segment, long contentLength) throws ServiceProxyException {
+        String uri = uploadApiURI + "/" + sessionId;
+        HashMap<String, String> headers = new HashMap<String, String>();
+        headers.put(HeaderConstants.CONTENT_RANGE_HEADER, "bytes " + offset + "-" + (offset + segment.length - 1) + "/" + contentLength);
+        headers.put(HeaderConstants.CONTENT_LENGTH, Integer.toString(segment.length));
+        try {
+            send(storageCollection, MCSRequest.HttpMethod.PUT, uri, OCTET_STREAM, segment, headers);
+        } catch (Exception e) {
+            storageCollection.handleExceptions(e, uri);
+        }
+    }
+
+    @Override
+    public StorageObject completeUpload(StorageCollection storageCollection, String sessionId, StorageObject storageObject) throws ServiceProxyException {
+        String uri = uploadApiURI + "/" + sessionId + "/complete";
+        try {
+            MCSResponse mcsResponse = send(storageCollection, MCSRequest.HttpMethod.POST, uri, APPLICATION_JSON, "", null);
+            StorageObject storedObject = new StorageObject(storageObject.getID(), storageObject.getContentType());
+            storedObject.setDisplayName(storageObject.getDisplayName());
+            String body = (String) mcsResponse.getMessage();
+            if (body != null && !body.trim().isEmpty()) {
+                storedObject.updateProperties(body);
+            }
+            return storedObject;
+        } catch (Exception e) {
+            storageCollection.handleExceptions(e, uri);
+        }
+        //we should not get here
+        return null;
+    }
+
+    @Override
+    public void abortUpload(StorageCollection storageCollection, String sessionId) throws ServiceProxyException {
+        String uri = uploadApiURI + "/" + sessionId;
+        try {
+            send(storageCollection, MCSRequest.HttpMethod.DELETE, uri, null, "", null);
+        } catch (Exception e) {
+            storageCollection.handleExceptions(e, uri);
+        }
+    }
+
+    /**
+     * Sends a request to the upload API and throws a ServiceProxyException for responses other than HTTP 2XX
+     */
+    private MCSResponse send(StorageCollection storageCollection, MCSRequest.HttpMethod httpMethod, String uri, String contentType, Object payload, HashMap<String, String> headers) throws Exception {
+
+        MBEConfiguration mbeConfiguration = storageCollection.getStorage().getMbe().getMbeConfiguration();
+
+        MCSRequest requestObject = new MCSRequest(mbeConfiguration);
+        requestObject.setConnectionName(mbeConfiguration.getMafRestConnectionName());
+        requestObject.setRequestURI(uri);
+        requestObject.setHttpMethod(httpMethod);
+
+        HashMap<String, String> httpHeaders = new HashMap<String, String>();
+        if (headers != null) {
+            httpHeaders.putAll(headers);
+        }
+        httpHeaders.put(HeaderConstants.ACCEPT_HEADER, APPLICATION_JSON);
+        if (contentType != null) {
+            httpHeaders.put(HeaderConstants.CONTENT_TYPE_HEADER, contentType);
+        }
+        requestObject.setHttpHeaders(httpHeaders);
+        requestObject.setPayload(payload);
+
+        getLogger(storageCollection).logFine(httpMethod + " " + uri, this.getClass().getSimpleName(), "send");
+        MCSResponse mcsResponse = MCSRestClient.sendForStringResponse(requestObject);
+
+        if (mcsResponse == null) {
+            throw new ServiceProxyException("No response received from " + uri, ServiceProxyException.ERROR);
+        }
+        if (mcsResponse.getHttpStatusCode() < 200 || mcsResponse.getHttpStatusCode() > 299) {
+            throw new ServiceProxyException(mcsResponse.getHttpStatusCode(), (String) mcsResponse.getMessage(), mcsResponse.getHeaders());
+        }
+        return mcsResponse;
+    }
+
+    private MBELogger getLogger(StorageCollection storageCollection) {
+        return storageCollection.getStorage().getMbe().getMbeConfiguration().getLogger();
+    }
+}
@@ -0,0 +1,139 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.UUID;
+
+import oracle.adfmf.framework.exception.IllegalArgumentException;
+
+
+/**
+ * Segmented upload handler that writes the segments of an upload session to a file in a local folder instead of
+ * sending them to a server. The handler is used to test segmented uploads and their resume behavior without a custom
+ * API, e.g. by interrupting an upload with a handler subclass that throws an exception after a number of segments.
+ * Completed uploads are not stored in MCS Storage. Their content stays in the file returned by getUploadFile.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class LocalSegmentedUploadHandler implements SegmentedUploadHandler {
+
+    public static final String UPLOAD_FILE_SUFFIX = ".upload";
+
+    private final Path directory;
+
+    /**
+     * @param directory folder the upload session files are written to. The folder is created if it does not exist
+     * @throws IllegalArgumentException if the directory is null
+     */
+    public LocalSegmentedUploadHandler(Path directory) throws IllegalArgumentException {
+        if (directory == null) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("directory cannot be null");
+            throw illegalArgumentException;
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * @param sessionId the session id returned by beginUpload
+     * @return the file holding the content received for the session
+     */
+    public Path getUploadFile(String sessionId) {
+        return directory.resolve(sessionId + UPLOAD_FILE_SUFFIX);
+    }
+
+    @Override
+    public String beginUpload(StorageCollection storageCollection, StorageObject storageObject, long contentLength) throws ServiceProxyException {
+        String sessionId = UUID.randomUUID().toString();
+        try {
+            Files.createDirectories(directory);
+            Files.createFile(getUploadFile(sessionId));
+        } catch (IOException e) {
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+        return sessionId;
+    }
+
+    @Override
+    public long getReceivedBytes(StorageCollection storageCollection, String sessionId) throws ServiceProxyException {
+        Path uploadFile = getUploadFile(sessionId);
+        try {
+            return Files.exists(uploadFile) ? Files.size(uploadFile) : -1;
+        } catch (IOException e) {
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+    }
+
+    @Override
+    public void uploadSegment(StorageCollection storageCollection, String sessionId, long offset, byte[] segment, long contentLength) throws ServiceProxyException {
+        Path uploadFile = getUploadFile(sessionId);
+        if (!Files.exists(uploadFile)) {
+            throw new ServiceProxyException(StorageConstants.HTTP_404, "Upload session " + sessionId + " does not exist");
+        }
+        if (offset + segment.length > contentLength) {
+            throw new ServiceProxyException(StorageConstants.HTTP_416, "Segment ends after the content length " + contentLength);
+        }
+
+        FileChannel fileChannel = null;
+        try {
+            fileChannel = FileChannel.open(uploadFile, StandardOpenOption.WRITE);
+            if (offset > fileChannel.size()) {
+                throw new ServiceProxyException(StorageConstants.HTTP_416, "Segment at offset " + offset + " leaves a gap after " + fileChannel.size() + " received bytes");
+            }
+            //segments sent again replace the content received from their offset on
+            fileChannel.truncate(offset);
+            fileChannel.position(offset);
+            ByteBuffer buffer = ByteBuffer.wrap(segment);
+            while (buffer.hasRemaining()) {
+                fileChannel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        } finally {
+            closeChannel(fileChannel);
+        }
+    }
+
+    @Override
+    public StorageObject completeUpload(StorageCollection storageCollection, String sessionId, StorageObject storageObject) throws ServiceProxyException {
+        long receivedBytes = getReceivedBytes(storageCollection, sessionId);
+        if (receivedBytes < 0) {
+            throw new ServiceProxyException(StorageConstants.HTTP_404, "Upload session " + sessionId + " does not exist");
+        }
+        if (storageObject.getContentLength() > 0 && receivedBytes != storageObject.getContentLength()) {
+            throw new ServiceProxyException(StorageConstants.HTTP_400, "Upload session " + sessionId + " received " + receivedBytes + " of " + storageObject.getContentLength() + " bytes");
+        }
+        StorageObject storedObject = new StorageObject(storageObject.getID(), storageObject.getContentType());
+        storedObject.setDisplayName(storageObject.getDisplayName());
+        storedObject.setContentLength(receivedBytes);
+        return storedObject;
+    }
+
+    @Override
+    public void abortUpload(StorageCollection storageCollection, String sessionId) throws ServiceProxyException {
+        try {
+            Files.deleteIfExists(getUploadFile(sessionId));
+        } catch (IOException e) {
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+    }
+
+    private void closeChannel(FileChannel fileChannel) {
+        if (fileChannel != null) {
+            try {
+                fileChannel.close();
+            } catch (IOException e) {
+                //nothing we can do here
+            }
+        }
+    }
+}
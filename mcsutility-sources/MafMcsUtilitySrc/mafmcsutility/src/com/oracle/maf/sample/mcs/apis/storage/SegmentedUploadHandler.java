@@ -0,0 +1,75 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+
+
+/**
+ * Server side of a segmented upload (see StorageCollection.uploadSegmented). MCS Storage accepts an object with a
+ * single request only. Uploads that can be resumed after a loss of network connectivity or after the application is
+ * restarted therefore need a server that accepts the content in segments and that stores the object in the collection
+ * once all segments are received. CustomApiSegmentedUploadHandler implements this for a custom API deployed to the
+ * mobile backend. LocalSegmentedUploadHandler keeps segments in a local folder for testing.
+ * <p>
+ * An upload session is identified by the id returned from beginUpload. Session ids are saved in the SQLite database
+ * of the application to resume an upload, so implementations must accept the same session id in later application
+ * sessions. Implementations must be thread safe.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public interface SegmentedUploadHandler {
+
+    /**
+     * Starts a new upload session
+     *
+     * @param storageCollection the collection the object is stored in
+     * @param storageObject metadata of the object. The object id is set
+     * @param contentLength total number of bytes of the object
+     * @return the session id
+     * @throws ServiceProxyException if the session cannot be started
+     */
+    public String beginUpload(StorageCollection storageCollection, StorageObject storageObject, long contentLength) throws ServiceProxyException;
+
+    /**
+     * Reads the number of bytes of an upload session the server received. Uploads are resumed at this offset
+     *
+     * @param storageCollection the collection the object is stored in
+     * @param sessionId the session id returned by beginUpload
+     * @return number of bytes received or -1 if the session does not exist (anymore)
+     * @throws ServiceProxyException if the server cannot be reached
+     */
+    public long getReceivedBytes(StorageCollection storageCollection, String sessionId) throws ServiceProxyException;
+
+    /**
+     * Sends a segment. Segments are sent in order. A segment that starts before the number of received bytes replaces
+     * the content received from this offset on, so that a segment whose response was lost can be sent again
+     *
+     * @param storageCollection the collection the object is stored in
+     * @param sessionId the session id returned by beginUpload
+     * @param offset index of the first byte of the segment in the object
+     * @param segment the segment content
+     * @param contentLength total number of bytes of the object
+     * @throws ServiceProxyException if the segment is not accepted
+     */
+    public void uploadSegment(StorageCollection storageCollection, String sessionId, long offset, byte[] segment, long contentLength) throws ServiceProxyException;
+
+    /**
+     * Completes an upload session after all segments are received and stores the object in the collection
+     *
+     * @param storageCollection the collection the object is stored in
+     * @param sessionId the session id returned by beginUpload
+     * @param storageObject metadata of the object
+     * @return StorageObject with the metadata of the stored object
+     * @throws ServiceProxyException if the object cannot be stored
+     */
+    public StorageObject completeUpload(StorageCollection storageCollection, String sessionId, StorageObject storageObject) throws ServiceProxyException;
+
+    /**
+     * Discards an upload session and the segments received for it
+     *
+     * @param storageCollection the collection the object is stored in
+     * @param sessionId the session id returned by beginUpload
+     * @throws ServiceProxyException if the server cannot be reached
+     */
+    public void abortUpload(StorageCollection storageCollection, String sessionId) throws ServiceProxyException;
+}
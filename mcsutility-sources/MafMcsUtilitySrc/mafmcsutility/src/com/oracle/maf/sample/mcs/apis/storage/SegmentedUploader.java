@@ -0,0 +1,218 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.apis.storage.db.PendingUpload;
+import com.oracle.maf.sample.mcs.apis.storage.db.StorageDB;
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+import com.oracle.maf.sample.mcs.shared.log.MBELogger;
+import com.oracle.maf.sample.mcs.shared.mbe.config.base.MBEConfiguration;
+
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.UUID;
+
+
+/**
+ *
+ * *** INTERNAL FRAMEWORK CLASS ***
+ *
+ * Uploads a file in segments through a SegmentedUploadHandler for StorageCollection. The upload session and the number
+ * of bytes the server confirmed are saved in the SQLite database (see StorageDB) after each segment. If an upload of
+ * the same file to the same object is started again, e.g. after the application was restarted, the upload continues
+ * at the number of bytes the server reports for the saved session. Uploads of files that changed since the upload
+ * started are restarted.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+final class SegmentedUploader {
+
+    /**
+     * Maximum number of times an upload is continued within a single call after a segment failed
+     */
+    static final int MAX_RESUMES = 10;
+
+    private final StorageCollection storageCollection;
+    private final SegmentedUploadHandler uploadHandler;
+    private final UploadProgressListener progressListener;
+    private final MBEConfiguration mbeConfiguration;
+    private final MBELogger mLogger;
+
+    SegmentedUploader(StorageCollection storageCollection, SegmentedUploadHandler uploadHandler, UploadProgressListener progressListener) {
+        this.storageCollection = storageCollection;
+        this.uploadHandler = uploadHandler;
+        this.progressListener = progressListener;
+        this.mbeConfiguration = storageCollection.getStorage().getMbe().getMbeConfiguration();
+        this.mLogger = this.mbeConfiguration.getLogger();
+    }
+
+    /**
+     * Uploads a file or continues its pending upload
+     *
+     * @param storageObject metadata of the object. The object id must be set
+     * @param file the file to upload
+     * @return StorageObject returned by the upload handler for the completed upload
+     * @throws ServiceProxyException thrown by the upload handler or if the file cannot be read. The upload stays
+     * pending and is continued with the next call for the same file and object
+     */
+    StorageObject upload(StorageObject storageObject, Path file) throws ServiceProxyException {
+
+        long fileSize;
+        long fileModified;
+        try {
+            fileSize = Files.size(file);
+            fileModified = Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            mLogger.logError("File " + file + " cannot be read for upload: " + e.getMessage(), this.getClass().getSimpleName(), "upload");
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+
+        PendingUpload pendingUpload = StorageDB.getInstance().findPendingUpload(mbeConfiguration.getMobileBackendIdentifier(), storageCollection.getCollectionID(), storageObject.getID());
+        long offset = -1;
+
+        if (pendingUpload != null) {
+            if (file.toString().equals(pendingUpload.getFilePath()) && pendingUpload.getFileSize() == fileSize && pendingUpload.getFileModified() == fileModified) {
+                offset = uploadHandler.getReceivedBytes(storageCollection, pendingUpload.getSessionId());
+                if (offset > fileSize) {
+                    offset = -1;
+                }
+                mLogger.logFine("Pending upload " + pendingUpload.getUploadId() + " of " + file + " found. Server received " + offset + " bytes", this.getClass().getSimpleName(), "upload");
+            } else {
+                mLogger.logFine("File " + file + " changed since upload " + pendingUpload.getUploadId() + " started. Restarting upload", this.getClass().getSimpleName(), "upload");
+            }
+            if (offset < 0) {
+                discard(pendingUpload);
+            }
+        }
+
+        if (offset < 0) {
+            String sessionId = uploadHandler.beginUpload(storageCollection, storageObject, fileSize);
+
+            pendingUpload = new PendingUpload();
+            pendingUpload.setUploadId(UUID.randomUUID().toString());
+            pendingUpload.setMobileBackendId(mbeConfiguration.getMobileBackendIdentifier());
+            pendingUpload.setCollectionId(storageCollection.getCollectionID());
+            pendingUpload.setObjectId(storageObject.getID());
+            pendingUpload.setDisplayName(storageObject.getDisplayName());
+            pendingUpload.setContentType(storageObject.getContentType());
+            pendingUpload.setObjectOwner(storageCollection.getObjectOwnerUserID());
+            pendingUpload.setFilePath(file.toString());
+            pendingUpload.setFileSize(fileSize);
+            pendingUpload.setFileModified(fileModified);
+            pendingUpload.setSessionId(sessionId);
+            pendingUpload.setUploadedBytes(0);
+
+            if (!StorageDB.getInstance().savePendingUpload(pendingUpload)) {
+                mLogger.logWarning("Upload " + pendingUpload.getUploadId() + " could not be saved and cannot be resumed after the application restarts", this.getClass().getSimpleName(), "upload");
+            }
+            offset = 0;
+        }
+
+        sendSegments(pendingUpload, file, offset);
+
+        StorageObject uploadedObject = new StorageObject(storageObject.getID(), storageObject.getContentType());
+        uploadedObject.setDisplayName(storageObject.getDisplayName());
+        uploadedObject.setContentLength(fileSize);
+
+        StorageObject storedObject = uploadHandler.completeUpload(storageCollection, pendingUpload.getSessionId(), uploadedObject);
+        StorageDB.getInstance().deletePendingUpload(pendingUpload.getUploadId());
+
+        mLogger.logFine("Upload of " + file + " to object " + storageObject.getID() + " completed", this.getClass().getSimpleName(), "upload");
+        return storedObject;
+    }
+
+    /**
+     * Discards a pending upload on the server and in the SQLite database. Failures to abort the server session are
+     * ignored as the session is not used anymore
+     *
+     * @param pendingUpload the pending upload
+     */
+    void discard(PendingUpload pendingUpload) {
+        try {
+            uploadHandler.abortUpload(storageCollection, pendingUpload.getSessionId());
+        } catch (ServiceProxyException e) {
+            mLogger.logFine("Upload session " + pendingUpload.getSessionId() + " could not be aborted: " + e.getMessage(), this.getClass().getSimpleName(), "discard");
+        }
+        StorageDB.getInstance().deletePendingUpload(pendingUpload.getUploadId());
+    }
+
+    /**
+     * Sends the file content from the offset on. If a segment fails with a network error or a server error, the
+     * number of received bytes is read from the server and the upload is continued
+     */
+    private void sendSegments(PendingUpload pendingUpload, Path file, long offset) throws ServiceProxyException {
+
+        long fileSize = pendingUpload.getFileSize();
+        int segmentSize = mbeConfiguration.getUploadSegmentSize();
+        long startTime = System.currentTimeMillis();
+        long startOffset = offset;
+        int resumes = 0;
+
+        FileChannel fileChannel = null;
+        try {
+            fileChannel = FileChannel.open(file, StandardOpenOption.READ);
+
+            while (offset < fileSize) {
+
+                byte[] segment = new byte[(int) Math.min(segmentSize, fileSize - offset)];
+                ByteBuffer buffer = ByteBuffer.wrap(segment);
+                while (buffer.hasRemaining()) {
+                    if (fileChannel.read(buffer, offset + buffer.position()) < 0) {
+                        throw new IOException("File " + file + " is shorter than " + fileSize + " bytes");
+                    }
+                }
+
+                try {
+                    uploadHandler.uploadSegment(storageCollection, pendingUpload.getSessionId(), offset, segment, fileSize);
+                } catch (ServiceProxyException e) {
+                    if (resumes >= MAX_RESUMES || !isTransientFailure(e)) {
+                        throw e;
+                    }
+                    resumes++;
+                    mLogger.logWarning("Upload of " + file + " interrupted at byte " + offset + ": " + e.getMessage() + ". Continuing upload", this.getClass().getSimpleName(), "sendSegments");
+                    long receivedBytes = uploadHandler.getReceivedBytes(storageCollection, pendingUpload.getSessionId());
+                    if (receivedBytes < 0 || receivedBytes > fileSize) {
+                        throw e;
+                    }
+                    offset = receivedBytes;
+                    continue;
+                }
+
+                offset += segment.length;
+                StorageDB.getInstance().updateUploadedBytes(pendingUpload.getUploadId(), offset);
+
+                if (progressListener != null) {
+                    long elapsedMillis = Math.max(1, System.currentTimeMillis() - startTime);
+                    progressListener.uploadProgress(pendingUpload.getObjectId(), offset, fileSize, (offset - startOffset) * 1000 / elapsedMillis);
+                }
+            }
+
+        } catch (IOException e) {
+            mLogger.logError("File " + file + " cannot be read for upload: " + e.getMessage(), this.getClass().getSimpleName(), "sendSegments");
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        } finally {
+            if (fileChannel != null) {
+                try {
+                    fileChannel.close();
+                } catch (IOException e) {
+                    //nothing we can do here
+                    mLogger.logFine("Closing file channel failed: " + e.getMessage(), this.getClass().getSimpleName(), "sendSegments");
+                }
+            }
+        }
+    }
+
+    /**
+     * Transport failures and server errors are continued. Other application errors, like a missing permission, fail
+     * the same way when the segment is sent again
+     */
+    private boolean isTransientFailure(ServiceProxyException e) {
+        int statusCode = e.getHttpResponseCode();
+        return !e.isApplicationError() || statusCode >= 500 || statusCode == 408 || statusCode == 429;
+    }
+}
@@ -5,16 +5,24 @@ import com.oracle.maf.sample.mcs.shared.headers.HeaderConstants;
 import com.oracle.maf.sample.mcs.shared.mafrest.MCSRequest;
 import com.oracle.maf.sample.mcs.shared.mafrest.MCSResponse;
 import com.oracle.maf.sample.mcs.shared.mafrest.MCSRestClient;
+import com.oracle.maf.sample.mcs.shared.mbe.config.base.MBEConfiguration;
 import com.oracle.maf.sample.mcs.shared.mbe.error.OracleMobileErrorHelper;
 import com.oracle.maf.sample.mcs.shared.mbe.proxy.MBEServiceProxy;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 
 import java.net.URLEncoder;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
+import oracle.adfmf.framework.api.AdfmfJavaUtilities;
 import oracle.adfmf.json.JSONArray;
 import oracle.adfmf.json.JSONException;
 import oracle.adfmf.json.JSONObject;
@@ -63,6 +71,24 @@ import oracle.adfmf.json.JSONObject;
  */
 public class Storage extends MBEServiceProxy {
 
+    //on-disk cache of downloaded object content, created upon first access
+    private StorageContentCache contentCache = null;
+    private boolean contentCacheInitialized = false;
+
+    //queue of storage writes and deletes issued offline, created upon first access
+    private StorageOutbox outbox = null;
+
+    //hashes of the content written to objects, created upon first access
+    private StorageContentIndex contentIndex = null;
+
+    //in-memory cache of collection lookups, keyed by request URI and authenticated user
+    private final StorageLookupCache<StorageInformation> storageInformationCache = new StorageLookupCache<StorageInformation>();
+    private final StorageLookupCache<StorageCollection> collectionCache = new StorageLookupCache<StorageCollection>();
+
+    //in-memory cache of object existence, keyed by object URI and authenticated user. Filled by existence checks and listings
+    private static final int OBJECT_EXISTENCE_CACHE_MAX_ENTRIES = 10000;
+    private final StorageLookupCache<Boolean> objectExistenceCache = new StorageLookupCache<Boolean>(OBJECT_EXISTENCE_CACHE_MAX_ENTRIES);
+
     public Storage() {
         super();
     }
@@ -101,6 +127,18 @@ public class Storage extends MBEServiceProxy {
                                                                 this.getClass().getSimpleName(),
                                                                 "getStorageInformation");
 
+        int cacheTTLSeconds = this.getMbe().getMbeConfiguration().getStorageInformationCacheTTLSeconds();
+        String cacheKey = getLookupCacheKey(uri);
+        if (cacheTTLSeconds > 0) {
+            StorageInformation cachedStorageInformation = storageInformationCache.get(cacheKey, cacheTTLSeconds);
+            if (cachedStorageInformation != null) {
+                this.getMbe().getMbeConfiguration().getLogger().logFine("Storage information returned from cache for URI=" + uri,
+                                                                        this.getClass().getSimpleName(),
+                                                                        "getStorageInformation");
+                return copyStorageInformation(cachedStorageInformation);
+            }
+        }
+
         MCSRequest requestObject = new MCSRequest(this.getMbe().getMbeConfiguration());
         
         requestObject.setHttpMethod(MCSRequest.HttpMethod.GET);
@@ -120,7 +158,7 @@ public class Storage extends MBEServiceProxy {
             this.getMbe().getMbeConfiguration().getLogger().logFine("sending REST request",
                                                                     this.getClass().getSimpleName(),
                                                                     "getStorageInformation");
-            MCSResponse mafRestResponse = MCSRestClient.sendForStringResponse(requestObject);
+            MCSResponse mafRestResponse = MCSRestClient.sendForJSONResponse(requestObject);
             int status = mafRestResponse.getHttpStatusCode();
 
             //check if request succeeded with returned payload or if application error occured. In the latter case,
@@ -132,7 +170,7 @@ public class Storage extends MBEServiceProxy {
                                                                         "getStorageInformation");
 
                 this.getMbe().getMbeConfiguration().getLogger().logFine("Creating JSONObject from response message",this.getClass().getSimpleName(),"getStorageInformation");
-                JSONObject jsonObject = new JSONObject((String) mafRestResponse.getMessage());
+                JSONObject jsonObject = mafRestResponse.getMessageAsJSONObject();
 
                 //create storage information object and populate with attributes
                 storageInformation = new StorageInformation();
@@ -223,7 +261,7 @@ public class Storage extends MBEServiceProxy {
             } else {
                 this.getMbe().getMbeConfiguration().getLogger().logError("REST Invocation Failed for Request URL: " +mafRestResponse.getOriginalRequestUrl(),this.getClass().getSimpleName(),"getStorageCollectionList");                
                 this.getMbe().getMbeConfiguration().getLogger().logError("Error message: " +mafRestResponse.getMessage(),this.getClass().getSimpleName(),"getStorageCollectionList");               
-                throw new ServiceProxyException(status, (String) mafRestResponse.getMessage(),mafRestResponse.getHeaders());
+                throw new ServiceProxyException(status, mafRestResponse.getMessageAsString(),mafRestResponse.getHeaders());
             }
 
         }
@@ -233,6 +271,11 @@ public class Storage extends MBEServiceProxy {
             this.handleExceptions(e, uri);
         }
 
+        if (cacheTTLSeconds > 0 && storageInformation != null) {
+            //cache a copy so that changes applications apply to the returned object don't alter the cache
+            storageInformationCache.put(cacheKey, copyStorageInformation(storageInformation), cacheTTLSeconds);
+        }
+
         return storageInformation;
     }
 
@@ -305,7 +348,21 @@ public class Storage extends MBEServiceProxy {
                                                                 this.getClass().getSimpleName(),
                                                                 "getStorageCollection");
 
-        fetchSingleCollectionInfo(collection, uri);                
+        int cacheTTLSeconds = this.getMbe().getMbeConfiguration().getCollectionCacheTTLSeconds();
+        String cacheKey = getLookupCacheKey(uri);
+        StorageCollection cachedCollection = cacheTTLSeconds > 0 ? collectionCache.get(cacheKey, cacheTTLSeconds) : null;
+
+        if (cachedCollection != null) {
+            this.getMbe().getMbeConfiguration().getLogger().logFine("Collection information returned from cache for URI=" + uri,
+                                                                    this.getClass().getSimpleName(),
+                                                                    "getStorageCollection");
+            collection = cachedCollection.copy();
+        } else {
+            fetchSingleCollectionInfo(collection, uri);
+            if (cacheTTLSeconds > 0) {
+                collectionCache.put(cacheKey, collection.copy(), cacheTTLSeconds);
+            }
+        }
         //set the object owner ID to the authenticated user MCS user ID, which is a requirement for 
         //accessing and creating isolated user objects in Oracle MCS. Note that this information is 
         //null  if the user is authenticated as anonymous. However, anonymous users have no access to 
@@ -396,10 +453,12 @@ public class Storage extends MBEServiceProxy {
          HashMap<String,String> httpHeaders = new  HashMap<String,String>();
         httpHeaders.put(HeaderConstants.ACCEPT_HEADER, "application/json");
         requestObject.setHttpHeaders(httpHeaders);
+        //collection information is revalidated with its ETag so that unchanged collections return HTTP 304 without body
+        requestObject.setETagCachingEnabled(true);
 
         try {
             this.getMbe().getMbeConfiguration().getLogger().logFine("sending REST request",this.getClass().getSimpleName(), "fetchSingleCollectionInfo");
-            MCSResponse mafRestResponse = MCSRestClient.sendForStringResponse(requestObject);
+            MCSResponse mafRestResponse = MCSRestClient.sendForJSONResponse(requestObject);
             int status = mafRestResponse.getHttpStatusCode();
             //check if request succeeded with returned payload or if application error occured. In the latter case,
             //throw service proxy exception
@@ -407,7 +466,7 @@ public class Storage extends MBEServiceProxy {
 
                 this.getMbe().getMbeConfiguration().getLogger().logFine("REST call returned successfully", this.getClass().getSimpleName(),"fetchSingleCollectionInfo");
 
-                JSONObject json = new JSONObject((String) mafRestResponse.getMessage());
+                JSONObject json = mafRestResponse.getMessageAsJSONObject();
 
                 //get collection objects and save them in storage collection
                 String description =
@@ -437,7 +496,7 @@ public class Storage extends MBEServiceProxy {
                                                                          mafRestResponse.getMessage(),
                                                                          this.getClass().getSimpleName(),
                                                                          "fetchSingleCollectionInfo");
-                throw new ServiceProxyException(status, (String) mafRestResponse.getMessage(),
+                throw new ServiceProxyException(status, mafRestResponse.getMessageAsString(),
                                                 mafRestResponse.getHeaders());
             }
 
@@ -446,6 +505,42 @@ public class Storage extends MBEServiceProxy {
         }
     }
 
+    /**
+     * Asynchronous variant of {@link #queryStorageInformation(Integer, Integer)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<StorageInformation> queryStorageInformationAsync(final Integer offset, final Integer limit) {
+        return executeAsync(new Callable<StorageInformation>() {
+            @Override
+            public StorageInformation call() throws Exception {
+                return queryStorageInformation(offset, limit);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #querySingleCollection(String)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<StorageCollection> querySingleCollectionAsync(final String collectionId) {
+        return executeAsync(new Callable<StorageCollection>() {
+            @Override
+            public StorageCollection call() throws Exception {
+                return querySingleCollection(collectionId);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #querySingleCollectionForUserId(String, String)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<StorageCollection> querySingleCollectionForUserIdAsync(final String collectionId, final String userId) {
+        return executeAsync(new Callable<StorageCollection>() {
+            @Override
+            public StorageCollection call() throws Exception {
+                return querySingleCollectionForUserId(collectionId, userId);
+            }
+        });
+    }
+
     /**
      * Queries the userId information for the authenticated user using the user management API
      * @return String - userId
@@ -476,11 +571,11 @@ public class Storage extends MBEServiceProxy {
         //no payload needed for GET request
         requestCtx.setPayload("");
         try {
-            MCSResponse responseCtx = MCSRestClient.sendForStringResponse(requestCtx);
+            MCSResponse responseCtx = MCSRestClient.sendForJSONResponse(requestCtx);
 
             //handle request success
             if (responseCtx != null && responseCtx.getHttpStatusCode() == StorageConstants.HTTP_200) {
-                JSONObject jsonResponse = new JSONObject((String) responseCtx.getMessage());
+                JSONObject jsonResponse = responseCtx.getMessageAsJSONObject();
                 String userId = jsonResponse.getString("id");
                 this.getMbe().getMbeConfiguration().getLogger().logFine("User Found. User ID is " + userId,
                                                                         this.getClass().getSimpleName(), "getThisUserId");
@@ -500,6 +595,185 @@ public class Storage extends MBEServiceProxy {
     }
     
 
+    /**
+     * Returns the on-disk cache for storage object content downloaded by StorageCollection.downloadByteContentForObjectUri.
+     * The cache is located in the application directory and is specific to the mobile backend. Its settings are read
+     * from the MBE configuration upon first access (see MBEConfiguration.setContentCacheEnabled)
+     *
+     * @return StorageContentCache or null if the cache is disabled or cannot be created
+     */
+    public synchronized StorageContentCache getContentCache() {
+
+        if (!contentCacheInitialized) {
+            contentCacheInitialized = true;
+            MBEConfiguration mbeConfiguration = this.getMbe().getMbeConfiguration();
+            if (mbeConfiguration.isContentCacheEnabled()) {
+                //mobile backend ids are used as directory names
+                String backendDirectory = String.valueOf(mbeConfiguration.getMobileBackendIdentifier()).replaceAll("[^A-Za-z0-9._-]", "_");
+                Path cacheDirectory = Paths.get(AdfmfJavaUtilities.getDirectoryPathRoot(AdfmfJavaUtilities.ApplicationDirectory),
+                                                StorageConstants.CONTENT_CACHE_DIRECTORY, backendDirectory);
+                try {
+                    contentCache = new StorageContentCache(cacheDirectory, mbeConfiguration.getContentCacheMaxBytes(),
+                                                           mbeConfiguration.getContentCacheFreshnessSeconds(), mbeConfiguration.getLogger());
+                } catch (IOException e) {
+                    mbeConfiguration.getLogger().logWarning("Storage content cache cannot be created in " + cacheDirectory + ": " + e.getMessage(),
+                                                            this.getClass().getSimpleName(), "getContentCache");
+                }
+            }
+        }
+        return contentCache;
+    }
+
+
+    /**
+     * Returns the outbox that holds the StorageCollection writes and deletes issued while the device is offline (see 
+     * MBEConfiguration.setQueueStorageWritesIfOffline). The outbox is saved in the SQLite database of the application 
+     * and survives application restarts. Payloads are kept in the application directory
+     *
+     * @return StorageOutbox of this mobile backend
+     */
+    public synchronized StorageOutbox getOutbox() {
+        if (outbox == null) {
+            //mobile backend ids are used as directory names
+            String backendDirectory = String.valueOf(this.getMbe().getMbeConfiguration().getMobileBackendIdentifier()).replaceAll("[^A-Za-z0-9._-]", "_");
+            Path payloadDirectory = Paths.get(AdfmfJavaUtilities.getDirectoryPathRoot(AdfmfJavaUtilities.ApplicationDirectory),
+                                              StorageConstants.OUTBOX_DIRECTORY, backendDirectory);
+            outbox = new StorageOutbox(this, payloadDirectory);
+        }
+        return outbox;
+    }
+
+
+    /**
+     * @return index of the content written to storage objects, used to skip redundant uploads
+     */
+    synchronized StorageContentIndex getContentIndex() {
+        if (contentIndex == null) {
+            contentIndex = new StorageContentIndex(this.getMbe().getMbeConfiguration().getMobileBackendIdentifier());
+        }
+        return contentIndex;
+    }
+
+    /**
+     * @return number of uploads skipped because the object already held the same content and the number of bytes
+     * that were not sent (see MBEConfiguration.setUploadDeduplicationEnabled)
+     */
+    public String getUploadDeduplicationStatistics() {
+        return getContentIndex().getStatistics();
+    }
+
+    /**
+     * @return number of uploads skipped because the object already held the same content
+     */
+    public long getSkippedUploadCount() {
+        return getContentIndex().getSkippedUploads();
+    }
+
+    /**
+     * @return number of bytes not sent because uploads were skipped
+     */
+    public long getUploadBytesSaved() {
+        return getContentIndex().getBytesSaved();
+    }
+
+
+    /**
+     * Removes all cached results of queryStorageInformation and querySingleCollection so that subsequent calls query
+     * MCS. Use this method e.g. if collections are changed by other clients or after a user logout
+     */
+    public void invalidateLookupCache() {
+        this.getMbe().getMbeConfiguration().getLogger().logFine("Clearing storage lookup cache", this.getClass().getSimpleName(),"invalidateLookupCache");
+        storageInformationCache.clear();
+        collectionCache.clear();
+        objectExistenceCache.clear();
+    }
+
+    /**
+     * @return hit, miss and size information of the storage lookup cache
+     */
+    public String getLookupCacheStatistics() {
+        return "Storage information cache: hits=" + storageInformationCache.getHitCount() + ", misses=" +
+               storageInformationCache.getMissCount() + ", size=" + storageInformationCache.getSize() +
+               "; collection cache: hits=" + collectionCache.getHitCount() + ", misses=" +
+               collectionCache.getMissCount() + ", size=" + collectionCache.getSize() +
+               "; object existence cache: hits=" + objectExistenceCache.getHitCount() + ", misses=" +
+               objectExistenceCache.getMissCount() + ", size=" + objectExistenceCache.getSize();
+    }
+
+    /**
+     * @param objectUri object URI as composed by StorageCollection
+     * @return true or false if the existence of the object is cached and not expired, null otherwise
+     */
+    Boolean getCachedObjectExistence(String objectUri) {
+        int cacheTTLSeconds = this.getMbe().getMbeConfiguration().getObjectExistenceCacheTTLSeconds();
+        return cacheTTLSeconds > 0 ? objectExistenceCache.get(getLookupCacheKey(objectUri), cacheTTLSeconds) : null;
+    }
+
+    /**
+     * @param objectUri object URI as composed by StorageCollection
+     * @param exists true if the object exists
+     */
+    void cacheObjectExistence(String objectUri, boolean exists) {
+        int cacheTTLSeconds = this.getMbe().getMbeConfiguration().getObjectExistenceCacheTTLSeconds();
+        if (cacheTTLSeconds > 0) {
+            objectExistenceCache.put(getLookupCacheKey(objectUri), exists, cacheTTLSeconds);
+        }
+    }
+
+    /**
+     * Removes the cached existence of an object that is created, updated or removed. All URIs with the same path are
+     * removed, independent of the user query parameter
+     * @param uri object URI or, for objects created with POST, the URI of the collection objects
+     */
+    void invalidateObjectExistence(String uri) {
+        int queryStart = uri.indexOf('?');
+        objectExistenceCache.invalidateByPrefix(queryStart > -1 ? uri.substring(0, queryStart) : uri);
+    }
+
+    /**
+     * Called by StorageCollection when objects are created, updated or removed. The content length and ETag of
+     * the collection change, which is why its cached metadata and all cached storage information are removed
+     * @param collectionId the ID of the changed collection
+     */
+    void invalidateCachedLookups(String collectionId) {
+        storageInformationCache.clear();
+        try {
+            String uriPrefix = StorageConstants.STORAGE_RELATIVE_URL + "/" + URLEncoder.encode(collectionId, "UTF-8") + " ";
+            collectionCache.invalidateByPrefix(uriPrefix);
+        } catch (UnsupportedEncodingException e) {
+            collectionCache.clear();
+        }
+    }
+
+    /**
+     * Lookup results depend on the permissions of the authenticated user, which is why the user is part of the key
+     * @param uri request URI
+     * @return cache key
+     */
+    private String getLookupCacheKey(String uri) {
+        return uri + " " + this.getMbe().getMbeConfiguration().getAuthenticatedUsername();
+    }
+
+    /**
+     * @param storageInformation the storage information to copy
+     * @return a new StorageInformation object with copies of the collections in the source object
+     */
+    private StorageInformation copyStorageInformation(StorageInformation storageInformation) {
+        StorageInformation copy = new StorageInformation();
+        copy.setHasMore(storageInformation.isHasMore());
+        copy.setLimit(storageInformation.getLimit());
+        copy.setOffset(storageInformation.getOffset());
+        copy.setCount(storageInformation.getCount());
+        copy.setTotalResults(storageInformation.getTotalResults());
+        ArrayList<StorageCollection> items = new ArrayList<StorageCollection>();
+        for (StorageCollection storageCollection : storageInformation.getItems()) {
+            items.add(storageCollection.copy());
+        }
+        copy.setItems(items);
+        return copy;
+    }
+
+
     /**
      * This method analyzes the exception for instances of AdfInvocationRuntimeException, AdfInvocation-Exception and, more broadly,
      * AdfExceptions. If none of the two are found, it will look into the exception message for status codes known returned by the API
@@ -511,6 +785,10 @@ public class Storage extends MBEServiceProxy {
      */
     private void handleExceptions(Exception e, String uri) throws ServiceProxyException {
 
+        //ServiceProxyExceptions, e.g. for requests rejected by the circuit breaker, are passed on unchanged
+        if (e instanceof ServiceProxyException) {
+            throw (ServiceProxyException) e;
+        }
 
         //Step 1: Is error AdfInvocationRuntimeException, AdfInvocationException or AdfException?
         String exceptionPrimaryMessage = e.getLocalizedMessage();
@@ -0,0 +1,94 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+import com.oracle.maf.sample.mcs.shared.mbe.MBE;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ *
+ * *** INTERNAL FRAMEWORK CLASS ***
+ *
+ * Executes the items of a StorageCollection batch operation, or the segments of a segmented download, with a limited
+ * number of concurrent requests. The calling thread works on the items together with up to concurrency - 1 workers on
+ * the thread pool of the MBE. Workers take the next open item until all items are processed. As the calling thread
+ * takes part, a batch completes even if the thread pool is busy, e.g. when a batch is started from an asynchronous call.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+final class StorageBatchExecutor {
+
+    private StorageBatchExecutor() {
+        super();
+    }
+
+    /**
+     * @param mbe the MBE whose thread pool is used
+     * @param items result holders, one per task
+     * @param tasks the operations to execute
+     * @param concurrency maximum number of concurrent operations
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the workers
+     */
+    static <T> void execute(MBE mbe, final List<StorageBatchItem<T>> items, final List<Callable<T>> tasks, int concurrency) throws InterruptedException {
+
+        final AtomicInteger nextItem = new AtomicInteger(0);
+        final Object workerLock = new Object();
+        final int[] activeWorkers = new int[] { 0 };
+        final boolean[] acceptingWorkers = new boolean[] { true };
+
+        final Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int index;
+                while ((index = nextItem.getAndIncrement()) < tasks.size()) {
+                    StorageBatchItem<T> item = items.get(index);
+                    try {
+                        item.setResult(tasks.get(index).call());
+                    } catch (ServiceProxyException e) {
+                        item.setError(e);
+                    } catch (Exception e) {
+                        item.setError(new ServiceProxyException(e, ServiceProxyException.ERROR));
+                    }
+                }
+            }
+        };
+
+        int workerCount = Math.min(concurrency, tasks.size());
+        for (int i = 1; i < workerCount; i++) {
+            mbe.submitAsync(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    synchronized (workerLock) {
+                        //the calling thread completed all items
+                        if (!acceptingWorkers[0]) {
+                            return null;
+                        }
+                        activeWorkers[0]++;
+                    }
+                    try {
+                        worker.run();
+                    } finally {
+                        synchronized (workerLock) {
+                            activeWorkers[0]--;
+                            workerLock.notifyAll();
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        worker.run();
+
+        synchronized (workerLock) {
+            acceptingWorkers[0] = false;
+            while (activeWorkers[0] > 0) {
+                workerLock.wait();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+
+
+/**
+ * Result of a single item of a StorageCollection batch operation (deleteAll, putAll, createAll). Batch operations
+ * don't stop at the first failure. Each item either holds the result of the operation or the ServiceProxyException
+ * it failed with.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class StorageBatchItem<T> {
+
+    private final String key;
+    private volatile T result = null;
+    private volatile ServiceProxyException error = null;
+
+    StorageBatchItem(String key) {
+        this.key = key;
+    }
+
+    /**
+     * @return the object id of the item. For createAll, which creates objects with ids generated by MCS, the display
+     * name of the object
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the result of the operation or null if the operation failed
+     */
+    public T getResult() {
+        return result;
+    }
+
+    /**
+     * @return the exception the operation failed with or null if the operation succeeded
+     */
+    public ServiceProxyException getError() {
+        return error;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    void setResult(T result) {
+        this.result = result;
+    }
+
+    void setError(ServiceProxyException error) {
+        this.error = error;
+    }
+
+    public String dump() {
+        return "key: " + key + ", success: " + isSuccess() + (error != null ? ", error: " + error.getMessage() : "");
+    }
+}
@@ -0,0 +1,77 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import java.io.File;
+
+import java.util.HashMap;
+
+import oracle.adfmf.framework.exception.IllegalArgumentException;
+
+
+/**
+ * Item of a StorageCollection.putAll or StorageCollection.createAll batch upload. The content is provided either as
+ * byte[] or as a file. Optional ETag preconditions (e.g. "If-Match" with the ETag of the version the application
+ * read) are sent with the upload of this item only, so that items with a failed precondition fail without affecting
+ * the rest of the batch.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class StorageBatchUpload {
+
+    private final StorageObject storageObject;
+    private final byte[] byteContent;
+    private final File file;
+    private HashMap<String, String> optimisticLockingInfo = null;
+
+    /**
+     * @param storageObject metadata of the object. The object id is required for putAll
+     * @param byteContent the content to upload
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public StorageBatchUpload(StorageObject storageObject, byte[] byteContent) throws IllegalArgumentException {
+        this(storageObject, byteContent, null);
+    }
+
+    /**
+     * @param storageObject metadata of the object. The object id is required for putAll
+     * @param file the file to upload
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public StorageBatchUpload(StorageObject storageObject, File file) throws IllegalArgumentException {
+        this(storageObject, null, file);
+    }
+
+    private StorageBatchUpload(StorageObject storageObject, byte[] byteContent, File file) throws IllegalArgumentException {
+        if (storageObject == null || (byteContent == null && file == null)) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("The storage object and its content cannot be null");
+            throw illegalArgumentException;
+        }
+        this.storageObject = storageObject;
+        this.byteContent = byteContent;
+        this.file = file;
+    }
+
+    public StorageObject getStorageObject() {
+        return storageObject;
+    }
+
+    public byte[] getByteContent() {
+        return byteContent;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @param optimisticLockingInfo ETag precondition headers, e.g. "If-Match" or "If-None-Match", sent with this item
+     */
+    public void setOptimisticLockingInfo(HashMap<String, String> optimisticLockingInfo) {
+        this.optimisticLockingInfo = optimisticLockingInfo;
+    }
+
+    public HashMap<String, String> getOptimisticLockingInfo() {
+        return optimisticLockingInfo;
+    }
+}
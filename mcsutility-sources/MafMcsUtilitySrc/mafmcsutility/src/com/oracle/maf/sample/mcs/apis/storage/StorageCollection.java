@@ -1,26 +1,55 @@
 package com.oracle.maf.sample.mcs.apis.storage;
 
+import com.oracle.maf.sample.mcs.apis.storage.db.ContentIndexEntry;
+import com.oracle.maf.sample.mcs.apis.storage.db.PendingUpload;
+import com.oracle.maf.sample.mcs.apis.storage.db.StorageDB;
 import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
 import com.oracle.maf.sample.mcs.shared.headers.HeaderConstants;
 import com.oracle.maf.sample.mcs.shared.log.MBELogger;
 import com.oracle.maf.sample.mcs.shared.mafrest.MCSRequest;
 import com.oracle.maf.sample.mcs.shared.mafrest.MCSResponse;
 import com.oracle.maf.sample.mcs.shared.mafrest.MCSRestClient;
+import com.oracle.maf.sample.mcs.shared.mafrest.RetryPolicy;
 import com.oracle.maf.sample.mcs.shared.mbe.config.base.MBEConfiguration;
 import com.oracle.maf.sample.mcs.shared.mbe.error.OracleMobileError;
 import com.oracle.maf.sample.mcs.shared.mbe.error.OracleMobileErrorHelper;
 import com.oracle.maf.sample.mcs.shared.utils.MAFUtil;
 import com.oracle.maf.sample.mcs.shared.utils.MapUtils;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.security.DigestInputStream;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import oracle.adfmf.framework.exception.NullPointerException;
 import oracle.adfmf.json.JSONArray;
@@ -253,6 +282,127 @@ public class StorageCollection {
     }
 
 
+    /**
+     * Checks which of the given objects exist in the collection. Objects that were listed by a recent collection listing 
+     * or checked by a recent call to containsAll are answered from memory (see MBEConfiguration.setObjectExistenceCacheTTLSeconds). 
+     * The remaining objects are checked with HEAD requests that are sent concurrently (see 
+     * MBEConfiguration.setStorageBatchConcurrency). Unlike contains, only HTTP 404 is treated as a missing object.
+     *
+     * @param storageObjectIds ids of the objects to check
+     * @return Map of the object ids, in the iteration order of storageObjectIds, to true if the object exists
+     * @throws IllegalArgumentException if storageObjectIds is null or contains a null or empty id
+     * @throws ServiceProxyException if the existence of an object cannot be determined, e.g. because the user is not 
+     * authorized. The results of the other objects are cached, so that a repeated call only checks the failed objects
+     */
+    public Map<String, Boolean> containsAll(Collection<String> storageObjectIds) throws IllegalArgumentException, ServiceProxyException {
+        return containsAll(storageObjectIds, this.mbeConfiguration.getStorageBatchConcurrency());
+    }
+    
+    /**
+     * Checks which of the given objects exist in the collection with up to concurrency HEAD requests at a time. See 
+     * containsAll(Collection) for details.
+     *
+     * @param storageObjectIds ids of the objects to check
+     * @param concurrency maximum number of concurrent requests
+     * @return Map of the object ids, in the iteration order of storageObjectIds, to true if the object exists
+     * @throws IllegalArgumentException if storageObjectIds is null or contains a null or empty id, or if concurrency is less than 1
+     * @throws ServiceProxyException if the existence of an object cannot be determined
+     */
+    public Map<String, Boolean> containsAll(Collection<String> storageObjectIds, int concurrency) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(storageObjectIds == null || concurrency < 1){
+            throw new IllegalArgumentException("The storageObjectIds in the call to containsAll cannot be null and the concurrency must be greater than 0");
+        }
+        
+        LinkedHashMap<String, Boolean> existingObjects = new LinkedHashMap<String, Boolean>();
+        ArrayList<StorageBatchItem<Boolean>> items = new ArrayList<StorageBatchItem<Boolean>>();
+        ArrayList<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        
+        for(String storageObjectId : storageObjectIds){
+            if(storageObjectId == null || storageObjectId.isEmpty()){
+                throw new IllegalArgumentException("The storageObjectIds in the call to containsAll cannot contain null or empty ids");
+            }
+            if(existingObjects.containsKey(storageObjectId)){
+                continue;
+            }
+            
+            final String uri = generateUriForObject(this.collectionID, storageObjectId);
+            Boolean cachedExistence = this.storage.getCachedObjectExistence(uri);
+            //keeps the order of the ids. Checked objects are added when their HEAD requests completed
+            existingObjects.put(storageObjectId, cachedExistence);
+            
+            if(cachedExistence == null){
+                items.add(new StorageBatchItem<Boolean>(storageObjectId));
+                tasks.add(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return headObject(uri);
+                    }
+                });
+            }
+        }
+        
+        mLogger.logFine((existingObjects.size() - items.size())+" of "+existingObjects.size()+" objects found in cache. Checking "+items.size()+" objects with "+concurrency+" concurrent requests", this.getClass().getSimpleName(), "containsAll");
+        executeBatch(items, tasks, concurrency);
+        
+        ServiceProxyException firstError = null;
+        for(StorageBatchItem<Boolean> item : items){
+            if(item.isSuccess()){
+                existingObjects.put(item.getKey(), item.getResult());
+                this.storage.cacheObjectExistence(generateUriForObject(this.collectionID, item.getKey()), item.getResult());
+            }
+            else if(firstError == null){
+                firstError = item.getError();
+            }
+        }
+        
+        if(firstError != null){
+            mLogger.logWarning("Existence of objects in collection "+this.collectionID+" cannot be determined: "+firstError.getMessage(), this.getClass().getSimpleName(), "containsAll");
+            throw firstError;
+        }
+        return existingObjects;
+    }
+    
+    /**
+     * Sends a HEAD request for an object
+     * @param uri the object URI
+     * @return true if the object exists, false if MCS responds with HTTP 404
+     * @throws ServiceProxyException for all other errors
+     */
+    private boolean headObject(String uri) throws ServiceProxyException {
+        
+        try {
+            MCSRequest requestObject = new MCSRequest(mbeConfiguration);
+            requestObject.setConnectionName(mbeConfiguration.getMafRestConnectionName());
+            requestObject.setRequestURI(uri);
+            requestObject.setHttpMethod(com.oracle.maf.sample.mcs.shared.mafrest.MCSRequest.HttpMethod.HEAD);
+            requestObject.setHttpHeaders(new HashMap<String,String>());
+
+            MCSResponse mcsResponse = MCSRestClient.sendForStringResponse(requestObject);
+            
+            if(mcsResponse != null && mcsResponse.getHttpStatusCode() == StorageConstants.HTTP_200){
+                return true;
+            }
+            else if(mcsResponse != null && mcsResponse.getHttpStatusCode() == StorageConstants.HTTP_404){
+                return false;
+            }
+            else if(mcsResponse != null){
+                throw new ServiceProxyException(mcsResponse.getHttpStatusCode(), (String) mcsResponse.getMessage(), mcsResponse.getHeaders());
+            }
+        } catch (Exception e) {
+            try {
+                this.handleExceptions(e, uri);
+            } catch (ServiceProxyException serviceProxyException) {
+                if(serviceProxyException.getHttpResponseCode() == StorageConstants.HTTP_404){
+                    return false;
+                }
+                throw serviceProxyException;
+            }
+        }
+        throw new ServiceProxyException("No response returned for HEAD request to "+uri, ServiceProxyException.ERROR);
+    }
+
+
     /**
      * Returns a list of StorageObject for a collection. Each StorageObject holds metadata information about the object in
      * the MCS collection. It does not hold the data object itself as it is conidered to expensive to load all the content
@@ -270,8 +420,9 @@ public class StorageCollection {
      * @param offset Specify the index where you want to start browsing the list of items. (0 indicates the first item
      * in the list). The response from MCS will contain the offset used, and also a link to get the previous
      * set of items. This value must be 0 or above. It cannot be negative.
-     * @param fetchSize The maximum number of items to be returned for each MCS access. If the requested limit is too large, 
-     * MCS will apply its own limit (100 by default).
+     * @param fetchSize The maximum number of items to be returned. If the requested limit is larger than the limit MCS 
+     * applies to a single request (100 by default), the remaining items are read with additional requests that are sent 
+     * in parallel on the thread pool of the MBE. If 0, a single page with the page size of MCS is returned.
      * @param includeOtherUsersObjects setting for user isolated collections. If true and user has READ_ALL or READ_WRITE_ALL privilege then
      * all user objects - also those *not* owned by the authenticated user - are returned. The common use case for this parameter is to set it 
      * to false
@@ -285,91 +436,243 @@ public class StorageCollection {
         
         if (offset < 0 || fetchSize < 0) throw new IllegalArgumentException("The \"offset\" and \"limit\" arguments cannot be <0 and the \"mcsCallback\" argument cannot be null");
 
-        //instance variable to hold the StorageObjects
-        List<StorageObject> result = new ArrayList<StorageObject>();
-
         //URI to access the MCS collection identified by the collection ID. If all objects in the collection should be
         //queried and the storage is user isolated then an "*" is added for the user query parameter. Otherwise, if only
         //a specific user object should be queried, the userId is appended. The queryFilter string filter is used to 
         String uri = generateUriForObjectArray(this.collectionID, includeOtherUsersObjects, queryFilter);
 
-        boolean hasMore = true;
-        int count = 0;
+        //without fetch size a single page with the page size of the server is returned
+        if (fetchSize == 0) {
+            return new StorageObjectPager(this, uri, offset, 0, -1, 0, true).nextPage();
+        }
 
-        while (hasMore) {
-            //get information about the storage collection and whether it has content
-            Map<String, Object> singlePageInfo = getSinglePageInfo(uri);
-                        
-            //return empty collection if the request did not succeed
-            if (singlePageInfo == null || singlePageInfo.isEmpty()) {
-                mLogger.logFine( "singlePageInfo did return empty", this.getClass().getSimpleName(), "queryStorageObjectsByRange");                                                                                     
-                break;
+        //if MCS limits the page size, the remaining pages are requested in parallel on the MBE thread pool
+        StorageObjectPager pager = new StorageObjectPager(this, uri, offset, fetchSize, fetchSize, this.mbeConfiguration.getAsyncThreadPoolSize(), true);
+        
+        List<StorageObject> result = new ArrayList<StorageObject>();
+        try {
+            while (pager.hasNextPage()) {
+                result.addAll(pager.nextPage());
             }
-            
-            mLogger.logFine( "singlePageInfo returned Map with content: "+MapUtils.dumpObjectProperties(singlePageInfo), this.getClass().getSimpleName(), "queryStorageObjectsByRange");                                                                     
-            
+        } finally {
+            pager.close();
+        }
+        
+        mLogger.logFine(result.size()+" objects read from offset "+offset, this.getClass().getSimpleName(), "queryStorageObjectsByRange");
+        return result;
+    }
+    
+    /**
+     * Returns the objects of a collection as a compact, read-only listing. The listing holds the same metadata as the
+     * List of StorageObject returned by queryStorageObjectsByRange, but stores it in one array per property instead of
+     * allocating an observable StorageObject for each object, and parses dates only when they are read. Use this method
+     * for large listings that are searched or counted rather than bound to the UI, and StorageObjectList.get(index) for
+     * the objects that are displayed or updated. Listing pages are parsed from the response stream while they are 
+     * received and are not cached for ETag revalidation
+     *
+     * See queryStorageObjectsByRange for the arguments
+     *
+     * @param offset index of the first object to read
+     * @param fetchSize maximum number of objects to return. If 0, a single page with the page size of MCS is returned
+     * @param includeOtherUsersObjects setting for user isolated collections. If true all user objects are returned
+     * @param queryFilter [optional] case insensitive filter string or null
+     * @return StorageObjectList
+     * @throws IllegalArgumentException in case of i) offset < 0 , ii) fetchSize <0
+     */
+    public StorageObjectList queryStorageObjectListByRange(int offset, int fetchSize, boolean includeOtherUsersObjects, String queryFilter) throws ServiceProxyException, IllegalArgumentException {
 
-            //a valid collection was found and has content. The singlePageInfo returns a MAP with information 
-            //about the object. One information is a list of URI pointing to the objects in this list. 
-            hasMore = ((Boolean) singlePageInfo.get("hasMore")).booleanValue();
+        mLogger.logFine("Arguments: offset = "+offset+", limit = "+fetchSize, this.getClass().getSimpleName(), "queryStorageObjectListByRange");
 
-            uri = (String) singlePageInfo.get("nextUri");
-            int currentPageSize = ((Integer) singlePageInfo.get("count")).intValue();
-                        
-            JSONArray itemsArray = (JSONArray) singlePageInfo.get("items");
-            
-            /*
-             * The items response returned from MCS has the following JSON array structure
-             * 
-             *  "items": [
-             *  {
-             *  "id": "6a66ea18-6f9c-4c8d-a23d-a345d48f740c",
-             *  "name": "png.png",
-             *  "user": "e6bda38e-635a-42d7-a509-a5da8a4cf50a",
-             *  "contentLength": 10549,
-             *  "contentType": "image/png",
-             *  "eTag": "\"1\"",
-             *  "createdBy": "uimcs",
-             *  "createdOn": "2015-06-17T08:03:24Z",
-             *  "modifiedBy": "uimcs",
-             *  "modifiedOn": "2015-06-17T08:03:24Z",
-             *  "links": [
-             *  {
-             *  "rel": "canonical",
-             *  "href": "/mobile/platform/storage/collections/PrivateContent/objects/6a66ea18-6f9c-4c8d-a23d-a345d48f740c?user=e6bda38e-635a-42d7-a509-a5da8a4cf50a"
-             *  },
-             *  {
-             *  "rel": "self",
-             *  "href": "/mobile/platform/storage/collections/PrivateContent/objects/6a66ea18-6f9c-4c8d-a23d-a345d48f740c"
-             *  }
-             *  ]
-             *  }, 
-             *  { ... next item ...
-             *  }
-             *  ]
-             * 
-             */            
-            mLogger.logFine( "Populating StorageObjects from items in Collection. There were "+itemsArray.length()+" items found.", this.getClass().getSimpleName(), "queryStorageObjectsByRange");  
-            for (int i = 0; i < itemsArray.length(); i++) {
+        if (offset < 0 || fetchSize < 0) throw new IllegalArgumentException("The \"offset\" and \"limit\" arguments cannot be <0");
 
-                try {
-                    JSONObject itemObject = itemsArray.getJSONObject(i);
-                    String itemId = itemObject.getString(StorageConstants.OBJECT_PROPERTY_TAG_ID);                    
-                    StorageObject storageObject = new StorageObject(itemId);
-                    mLogger.logFine( "Creating StorageObject for id="+itemId+". Content: "+storageObject.toString(), this.getClass().getSimpleName(), "queryStorageObjectsByRange");  
-                    storageObject.updateProperties(itemObject);     
-                    result.add(storageObject);
-                    
-                } catch (Exception e) {
-                    //handle exception gracefully
-                    this.handleExceptions(e, uri);                    
-                }
+        String uri = generateUriForObjectArray(this.collectionID, includeOtherUsersObjects, queryFilter);
 
-            }            
-            count += currentPageSize;
+        StorageObjectList result = new StorageObjectList(fetchSize);
+        //large listings are parsed while they are received and are not kept for ETag revalidation
+        StorageObjectPager pager = fetchSize == 0 ? new StorageObjectPager(this, uri, offset, 0, -1, 0, false) : 
+                                   new StorageObjectPager(this, uri, offset, fetchSize, fetchSize, this.mbeConfiguration.getAsyncThreadPoolSize(), false);
+        try {
+            //without fetch size a single page with the page size of the server is read
+            do {
+                pager.nextPage(result);
+            } while (fetchSize > 0 && pager.hasNextPage());
+        } finally {
+            pager.close();
+        }
+
+        mLogger.logFine(result.size()+" objects read from offset "+offset, this.getClass().getSimpleName(), "queryStorageObjectListByRange");
+        return result;
+    }
+
+    /**
+     * Returns a pager that reads the objects of this collection page by page. Each page is read with a single request 
+     * using the offset and limit parameters of the MCS listing. If prefetchPages is greater than 0, the following pages 
+     * are requested on the thread pool of the MBE while the application processes the current page. Prefetching trades 
+     * requests for pages that may not be read for shorter waits when scrolling through large collections.
+     * <p>
+     * See queryStorageObjectsByRange for the includeOtherUsersObjects and queryFilter arguments
+     *
+     * @param offset index of the first object to read
+     * @param pageSize number of objects per page. MCS limits the page size (100 by default)
+     * @param includeOtherUsersObjects setting for user isolated collections. If true all user objects are returned
+     * @param queryFilter [optional] case insensitive filter string or null
+     * @param prefetchPages number of pages to request in advance. 0 disables prefetching
+     * @return StorageObjectPager. Call close() if not all pages are read
+     * @throws IllegalArgumentException if offset or prefetchPages is less than 0 or pageSize is less than 1
+     */
+    public StorageObjectPager queryStorageObjectsByPage(int offset, int pageSize, boolean includeOtherUsersObjects, String queryFilter, int prefetchPages) throws IllegalArgumentException {
+        
+        if (offset < 0 || pageSize < 1 || prefetchPages < 0){
+            throw new IllegalArgumentException("The offset and prefetchPages arguments cannot be <0 and the pageSize must be greater than 0");
+        }
+        
+        String uri = generateUriForObjectArray(this.collectionID, includeOtherUsersObjects, queryFilter);
+        mLogger.logFine("Paging "+uri+" from offset "+offset+" with page size "+pageSize+" and "+prefetchPages+" prefetched pages", this.getClass().getSimpleName(), "queryStorageObjectsByPage");
+        return new StorageObjectPager(this, uri, offset, pageSize, -1, prefetchPages, true);
+    }
+    
+    /**
+     * Returns an iterator over the objects of this collection that reads the listing page by page as the application 
+     * advances. Unlike queryStorageObjectsByRange, the objects are not collected in a list, so that the first objects 
+     * can be processed after the first page is read and memory use does not grow with the size of the collection. 
+     * No further requests are sent once the application stops iterating. Read failures are thrown as 
+     * StorageIterationException.
+     * <p>
+     * See queryStorageObjectsByRange for the includeOtherUsersObjects and queryFilter arguments
+     *
+     * @param pageSize number of objects per request. MCS limits the page size (100 by default)
+     * @param includeOtherUsersObjects setting for user isolated collections. If true all user objects are returned
+     * @param queryFilter [optional] case insensitive filter string or null
+     * @return StorageObjectIterator
+     * @throws IllegalArgumentException if pageSize is less than 1
+     */
+    public StorageObjectIterator iterator(int pageSize, boolean includeOtherUsersObjects, String queryFilter) throws IllegalArgumentException {
+        return new StorageObjectIterator(queryStorageObjectsByPage(0, pageSize, includeOtherUsersObjects, queryFilter, 0));
+    }
+    
+    /**
+     * Returns a sequential Stream over the objects of this collection. Pages are read on demand as the stream is 
+     * consumed. Short-circuiting operations like limit or findFirst stop reading further pages. Read failures are 
+     * thrown as StorageIterationException. See iterator(int, boolean, String) for details
+     *
+     * @param pageSize number of objects per request. MCS limits the page size (100 by default)
+     * @param includeOtherUsersObjects setting for user isolated collections. If true all user objects are returned
+     * @param queryFilter [optional] case insensitive filter string or null
+     * @return Stream of StorageObject
+     * @throws IllegalArgumentException if pageSize is less than 1
+     */
+    public Stream<StorageObject> stream(int pageSize, boolean includeOtherUsersObjects, String queryFilter) throws IllegalArgumentException {
+        final StorageObjectIterator storageObjectIterator = iterator(pageSize, includeOtherUsersObjects, queryFilter);
+        Stream<StorageObject> stream = StreamSupport.stream(Spliterators.spliteratorUnknownSize(storageObjectIterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+        return stream.onClose(new Runnable() {
+            @Override
+            public void run() {
+                storageObjectIterator.close();
+            }
+        });
+    }
+    
+    /**
+     * INTERNAL API - Reads a single page of a collection listing
+     * 
+     * @param listingURI URI of the collection object listing
+     * @param offset index of the first object
+     * @param limit number of objects to request or 0 to use the page size of the server
+     * @param revalidate true to cache the page and revalidate it with its ETag, false to parse the page from the response stream
+     * @return Map with the "hasMore", "count" and "items" information of the page or an empty map if the request did not succeed
+     * @throws ServiceProxyException in case of application errors, system errors or transport layer exceptions
+     */
+    Map<String, Object> fetchListingPage(String listingURI, long offset, int limit, boolean revalidate) throws ServiceProxyException {
+        String uri = listingURI + (listingURI.indexOf('?') > -1 ? "&" : "?") + StorageConstants.STORAGE_INFORMATION_OFFSET + "=" + offset;
+        if (limit > 0) {
+            uri = uri + "&" + StorageConstants.STORAGE_INFORMATION_LIMIT + "=" + limit;
+        }
+        return getSinglePageInfo(uri, revalidate);
+    }
+    
+    /**
+     * INTERNAL API - Creates the StorageObjects for the items of a listing page
+     * 
+     * @param items items of a listing page
+     * @param uri the listing URI
+     * @return List of StorageObject
+     */
+    List<StorageObject> toStorageObjects(StorageObjectList items, String uri) throws ServiceProxyException {
+        
+        List<StorageObject> result = new ArrayList<StorageObject>();
+        if (items == null) {
+            return result;
+        }
+        
+        /*
+         * The items response returned from MCS has the following JSON array structure
+         * 
+         *  "items": [
+         *  {
+         *  "id": "6a66ea18-6f9c-4c8d-a23d-a345d48f740c",
+         *  "name": "png.png",
+         *  "user": "e6bda38e-635a-42d7-a509-a5da8a4cf50a",
+         *  "contentLength": 10549,
+         *  "contentType": "image/png",
+         *  "eTag": "\"1\"",
+         *  "createdBy": "uimcs",
+         *  "createdOn": "2015-06-17T08:03:24Z",
+         *  "modifiedBy": "uimcs",
+         *  "modifiedOn": "2015-06-17T08:03:24Z",
+         *  "links": [
+         *  {
+         *  "rel": "canonical",
+         *  "href": "/mobile/platform/storage/collections/PrivateContent/objects/6a66ea18-6f9c-4c8d-a23d-a345d48f740c?user=e6bda38e-635a-42d7-a509-a5da8a4cf50a"
+         *  },
+         *  {
+         *  "rel": "self",
+         *  "href": "/mobile/platform/storage/collections/PrivateContent/objects/6a66ea18-6f9c-4c8d-a23d-a345d48f740c"
+         *  }
+         *  ]
+         *  }, 
+         *  { ... next item ...
+         *  }
+         *  ]
+         * 
+         */
+        mLogger.logFine( "Populating StorageObjects from items in Collection. There were "+items.size()+" items found.", this.getClass().getSimpleName(), "toStorageObjects");
+        
+        //listings of all users' objects contain object ids that are not addressed by the object URIs of this collection
+        boolean listsOwnObjects = !uri.contains(StorageConstants.USER_ID_KEY + "*");
+        for (int i = 0; i < items.size(); i++) {
+            result.add(items.get(i));
+                
+            //listed objects exist, which saves existence checks of containsAll
+            if(listsOwnObjects){
+                this.storage.cacheObjectExistence(generateUriForObject(this.collectionID, items.getID(i)), true);
+            }
         }
         return result;
     }
+
+    /**
+     * INTERNAL API - Adds the items of a listing page to a compact listing
+     * 
+     * @param storageObjectList listing to add the items to
+     * @param items items of a listing page, may be null
+     * @param uri the listing URI
+     */
+    void addStorageObjects(StorageObjectList storageObjectList, StorageObjectList items, String uri) {
+        
+        if (items == null) {
+            return;
+        }
+        
+        mLogger.logFine( "Adding "+items.size()+" items in Collection to compact listing", this.getClass().getSimpleName(), "addStorageObjects");  
+        storageObjectList.addAll(items);
+        
+        //see toStorageObjects
+        if (!uri.contains(StorageConstants.USER_ID_KEY + "*")) {
+            for (int i = 0; i < items.size(); i++) {
+                this.storage.cacheObjectExistence(generateUriForObject(this.collectionID, items.getID(i)), true);
+            }
+        }
+    }
     
     
     /**
@@ -433,7 +736,68 @@ public class StorageCollection {
         //obtains the URI for the update
         String url = generateUriForObjectArray(this.collectionID);
         mLogger.logFine( "Uri for Collection object is: "+url, this.getClass().getSimpleName(), "createObject");
-        return writeObject(url, "POST", object, byteContent, null);
+        return writeObject(url, "POST", object, byteContent, byteContent.length, null);
+    }
+    
+    /**
+     * Create a new object in the server side MCS collection by streaming the content from an InputStream. Unlike the byte[]
+     * variant of this method the content is not held in memory, which makes this method the preferred choice for large
+     * objects like videos. The InputStream is read but not closed by this method.
+     * 
+     * @param object metadata information about this object that will be sent as part of the request header to MCS
+     * @param content the InputStream to read the object content from
+     * @param contentLength the number of bytes to read from the stream or -1 if unknown. Content of unknown length is sent using chunked transfer encoding
+     * @return The StorageObject object that contains the updated information based on the uploaded content
+     * @throws IllegalArgumentException if storage object or content in argument is null
+     * @throws ServiceProxyException Application or REST transport layer errors
+     */
+    public StorageObject createObject(StorageObject object, InputStream content, long contentLength) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(object == null || content == null)
+            throw new IllegalArgumentException("The storage object and content cannot be null");
+
+        String url = generateUriForObjectArray(this.collectionID);
+        mLogger.logFine( "Uri for Collection object is: "+url, this.getClass().getSimpleName(), "createObject");
+        return writeObject(url, "POST", object, content, contentLength, null);
+    }
+    
+    /**
+     * Create a new object in the server side MCS collection by streaming the content of a file
+     * 
+     * @param object metadata information about this object that will be sent as part of the request header to MCS
+     * @param file the file to upload
+     * @return The StorageObject object that contains the updated information based on the uploaded content
+     * @throws IllegalArgumentException if storage object or file in argument is null
+     * @throws ServiceProxyException Application or REST transport layer errors, or if the file cannot be read
+     */
+    public StorageObject createObject(StorageObject object, File file) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(object == null || file == null)
+            throw new IllegalArgumentException("The storage object and file cannot be null");
+
+        String url = generateUriForObjectArray(this.collectionID);
+        mLogger.logFine( "Uri for Collection object is: "+url, this.getClass().getSimpleName(), "createObject");
+        return writeObjectFromFile(url, "POST", object, file, null);
+    }
+    
+    /**
+     * Create a new object in the server side MCS collection by streaming the content of a FileChannel, starting at the
+     * current channel position. The channel is not closed by this method
+     * 
+     * @param object metadata information about this object that will be sent as part of the request header to MCS
+     * @param channel the FileChannel to read the content from
+     * @return The StorageObject object that contains the updated information based on the uploaded content
+     * @throws IllegalArgumentException if storage object or channel in argument is null
+     * @throws ServiceProxyException Application or REST transport layer errors, or if the channel cannot be read
+     */
+    public StorageObject createObject(StorageObject object, FileChannel channel) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(object == null || channel == null)
+            throw new IllegalArgumentException("The storage object and channel cannot be null");
+
+        String url = generateUriForObjectArray(this.collectionID);
+        mLogger.logFine( "Uri for Collection object is: "+url, this.getClass().getSimpleName(), "createObject");
+        return writeObjectFromChannel(url, "POST", object, channel, null);
     }
     
     
@@ -477,7 +841,7 @@ public class StorageCollection {
         //obtains the URI for the update
         String url = generateUriForObjectArray(this.collectionID);
         mLogger.logFine( "Uri for Collection object is: "+url, this.getClass().getSimpleName(), "createObject");
-        return writeObject(url, "POST", sObject, byteContent, null);
+        return writeObject(url, "POST", sObject, byteContent, byteContent == null ? 0 : byteContent.length, null);
     }
     
     
@@ -519,6 +883,70 @@ public class StorageCollection {
 
         mLogger.logFine( "canonicalURI argument is: "+canonicalURI, this.getClass().getSimpleName(), "updateCollectionObjectWithURI");
         
+        StorageObject sObject = createStorageObjectForURI(canonicalURI, displayName, contentType);
+        
+        return writeObject(canonicalURI, "PUT", sObject, byteContent, byteContent.length, optimisticLockingInfo);                
+    }
+    
+    /**
+    * Updates an existing object identified by the canonical URI by streaming the content from an InputStream. The 
+    * InputStream is read but not closed by this method.
+    * 
+    * @param canonicalURI the URI pointng to an object in a collection. This URI may contain the ?userId=.... query parameter for an object in an isolated collection
+    * @param displayName the name of the object as it should be dispalyed
+    * @param contentType a valid MIME type describing the content like image/jpeg
+    * @param content the InputStream to read the object content from
+    * @param contentLength the number of bytes to read from the stream or -1 if unknown. Content of unknown length is sent using chunked transfer encoding
+    * @param optimisticLockingInfo a HashMap containing key/value pairs for e.g. If-Modified-Since, If-Unmodified-Since, If-Match, If-None-Match. This value can be set to null if no ETag based locking should be enforced
+    * @return StorageObject with the metadata of the updated object in MCS
+    * @throws IllegalArgumentException if canonicalURI or content is null
+    * @throws ServiceProxyException Application or REST transport layer errors
+    */
+    public StorageObject updateCollectionObjectWithURI(String canonicalURI, String displayName, String contentType, InputStream content, long contentLength, HashMap<String,String>optimisticLockingInfo) throws IllegalArgumentException,ServiceProxyException{
+                
+        if(canonicalURI == null || content == null)
+            throw new IllegalArgumentException("The storage object and/or content cannot be null in a call to updateCollectionObjectWithURI");
+
+        mLogger.logFine( "canonicalURI argument is: "+canonicalURI, this.getClass().getSimpleName(), "updateCollectionObjectWithURI");
+        
+        StorageObject sObject = createStorageObjectForURI(canonicalURI, displayName, contentType);
+        
+        return writeObject(canonicalURI, "PUT", sObject, content, contentLength, optimisticLockingInfo);                
+    }
+    
+    /**
+    * Updates an existing object identified by the canonical URI by streaming the content of a file
+    * 
+    * @param canonicalURI the URI pointng to an object in a collection. This URI may contain the ?userId=.... query parameter for an object in an isolated collection
+    * @param displayName the name of the object as it should be dispalyed
+    * @param contentType a valid MIME type describing the content like image/jpeg
+    * @param file the file to upload
+    * @param optimisticLockingInfo a HashMap containing key/value pairs for e.g. If-Modified-Since, If-Unmodified-Since, If-Match, If-None-Match. This value can be set to null if no ETag based locking should be enforced
+    * @return StorageObject with the metadata of the updated object in MCS
+    * @throws IllegalArgumentException if canonicalURI or file is null
+    * @throws ServiceProxyException Application or REST transport layer errors, or if the file cannot be read
+    */
+    public StorageObject updateCollectionObjectWithURI(String canonicalURI, String displayName, String contentType, File file, HashMap<String,String>optimisticLockingInfo) throws IllegalArgumentException,ServiceProxyException{
+                
+        if(canonicalURI == null || file == null)
+            throw new IllegalArgumentException("The storage object and/or file cannot be null in a call to updateCollectionObjectWithURI");
+
+        mLogger.logFine( "canonicalURI argument is: "+canonicalURI, this.getClass().getSimpleName(), "updateCollectionObjectWithURI");
+        
+        StorageObject sObject = createStorageObjectForURI(canonicalURI, displayName, contentType);
+        
+        return writeObjectFromFile(canonicalURI, "PUT", sObject, file, optimisticLockingInfo);                
+    }
+    
+    /**
+     * Creates a StorageObject for the object Id contained in a canonical URI
+     * @param canonicalURI the URI pointng to an object in a collection
+     * @param displayName the name of the object as it should be dispalyed
+     * @param contentType a valid MIME type describing the content
+     * @return StorageObject
+     */
+    private StorageObject createStorageObjectForURI(String canonicalURI, String displayName, String contentType){
+        
         //get objectId from URI        
         String objectId = canonicalURI.toString();
         int indexOfQueryParamStart = objectId.indexOf("?");
@@ -536,8 +964,7 @@ public class StorageCollection {
         StorageObject sObject = new StorageObject(objectId);
         sObject.setDisplayName(displayName);
         sObject.setContentType(contentType);
-        
-        return writeObject(canonicalURI, "PUT", sObject, byteContent, optimisticLockingInfo);                
+        return sObject;
     }
 
     /**
@@ -583,7 +1010,79 @@ public class StorageCollection {
 
         String url = generateUriForObject(this.collectionID, object.getID());
         mLogger.logFine( "Uri for Collection object is: "+url, this.getClass().getSimpleName(), "createOrUpdateObject");
-        return writeObject(url, "PUT", object, byteContent, optimisticLockingInfo);
+        return writeObject(url, "PUT", object, byteContent, byteContent.length, optimisticLockingInfo);
+    }
+    
+    /**
+     * Create a new object or updates an existing object in the server side MCS collection by streaming the content from an
+     * InputStream. The object Id must be provided in the StorageObject object. The InputStream is read but not closed by 
+     * this method.
+     *
+     * @param object metadata information about this object that will be sent as part of the request header to MCS
+     * @param content the InputStream to read the object content from
+     * @param contentLength the number of bytes to read from the stream or -1 if unknown. Content of unknown length is sent using chunked transfer encoding
+     * @param [optional] optimisticLockingInfo HashMap to add ETag header parameters
+     * @return The StorageObject object that contains the updated information based on the uploaded content.
+     * @throws IllegalArgumentException if storage object or content in argument is null
+     * @throws ServiceProxyException Application or REST transport layer errors
+     */
+    public StorageObject createOrUpdateObject(StorageObject object, InputStream content, long contentLength, HashMap<String,String>optimisticLockingInfo) throws IllegalArgumentException,ServiceProxyException {
+        if(object == null || content == null)
+            throw new IllegalArgumentException("The storage object and content cannot be null");
+
+        if(object.getID() == null || object.getID().length() == 0)
+            throw new IllegalArgumentException("Id for the storage object to be put cannot be null or empty");
+
+        String url = generateUriForObject(this.collectionID, object.getID());
+        mLogger.logFine( "Uri for Collection object is: "+url, this.getClass().getSimpleName(), "createOrUpdateObject");
+        return writeObject(url, "PUT", object, content, contentLength, optimisticLockingInfo);
+    }
+    
+    /**
+     * Create a new object or updates an existing object in the server side MCS collection by streaming the content of
+     * a file. The object Id must be provided in the StorageObject object.
+     *
+     * @param object metadata information about this object that will be sent as part of the request header to MCS
+     * @param file the file to upload
+     * @param [optional] optimisticLockingInfo HashMap to add ETag header parameters
+     * @return The StorageObject object that contains the updated information based on the uploaded content.
+     * @throws IllegalArgumentException if storage object or file in argument is null
+     * @throws ServiceProxyException Application or REST transport layer errors, or if the file cannot be read
+     */
+    public StorageObject createOrUpdateObject(StorageObject object, File file, HashMap<String,String>optimisticLockingInfo) throws IllegalArgumentException,ServiceProxyException {
+        if(object == null || file == null)
+            throw new IllegalArgumentException("The storage object and file cannot be null");
+
+        if(object.getID() == null || object.getID().length() == 0)
+            throw new IllegalArgumentException("Id for the storage object to be put cannot be null or empty");
+
+        String url = generateUriForObject(this.collectionID, object.getID());
+        mLogger.logFine( "Uri for Collection object is: "+url, this.getClass().getSimpleName(), "createOrUpdateObject");
+        return writeObjectFromFile(url, "PUT", object, file, optimisticLockingInfo);
+    }
+    
+    /**
+     * Create a new object or updates an existing object in the server side MCS collection by streaming the content of
+     * a FileChannel, starting at the current channel position. The channel is not closed by this method. The object Id
+     * must be provided in the StorageObject object.
+     *
+     * @param object metadata information about this object that will be sent as part of the request header to MCS
+     * @param channel the FileChannel to read the content from
+     * @param [optional] optimisticLockingInfo HashMap to add ETag header parameters
+     * @return The StorageObject object that contains the updated information based on the uploaded content.
+     * @throws IllegalArgumentException if storage object or channel in argument is null
+     * @throws ServiceProxyException Application or REST transport layer errors, or if the channel cannot be read
+     */
+    public StorageObject createOrUpdateObject(StorageObject object, FileChannel channel, HashMap<String,String>optimisticLockingInfo) throws IllegalArgumentException,ServiceProxyException {
+        if(object == null || channel == null)
+            throw new IllegalArgumentException("The storage object and channel cannot be null");
+
+        if(object.getID() == null || object.getID().length() == 0)
+            throw new IllegalArgumentException("Id for the storage object to be put cannot be null or empty");
+
+        String url = generateUriForObject(this.collectionID, object.getID());
+        mLogger.logFine( "Uri for Collection object is: "+url, this.getClass().getSimpleName(), "createOrUpdateObject");
+        return writeObjectFromChannel(url, "PUT", object, channel, optimisticLockingInfo);
     }
     
     
@@ -633,39 +1132,156 @@ public class StorageCollection {
        return createOrUpdateObject(sObject, byteContent, optimisticLockingInfo);
     }
 
-     /**
-     * Uploads a single object to a collection in MCS
+    /**
+     * Opens the file for reading and streams its content to MCS. The file input stream is closed when the upload completes
      * @param uri The object URI in a collection
      * @param httpMethod PUT (for Create or Update), POST (for Create)
      * @param storageObject The metadata object that descibes the object.
-     * @param payload The binary[] content to store in the collection
-     * @param [optional } etagMap HashMap to add the headers parameters and the eTag parameter property and value to e.g. only create objects if they don't exist or if the object is of an older version
-     * @return StorageObject, the updated object after the create or udate post of the binary content
-     * @throws ServiceProxyException in case of MCS application errors or service exceptions on the transport layer
-     * @throws IllegalArgumentException If storageObject or payload argument is null. Or if the httpMethod is PUT and the storageObject doesn't have an id specified
+     * @param file The file to upload
+     * @param etagHashMap optional ETag header map
+     * @return StorageObject, the updated object after the create or udate post of the file content
+     * @throws ServiceProxyException in case of MCS application errors, service exceptions on the transport layer or if the file cannot be read
      */
-     private StorageObject writeObject(String uri, String httpMethod, StorageObject storageObject, byte[] payload, HashMap<String,String> etagHashMap) throws ServiceProxyException, IllegalArgumentException {
-         
-          mLogger.logFine("Trying to create or update Storage object for collection: "+this.getCollectionID(), this.getClass().getSimpleName(), "writeObject");        
-         
-         if(storageObject == null || payload == null){
-             throw new IllegalArgumentException("storageObject and / or payload argument cannot be NULL in call to MCS Storage");
-         }
-          
-        if(httpMethod.equalsIgnoreCase("PUT") && storageObject.getID()==null ){
-            throw new IllegalArgumentException("The storageObject object ID property cannot be null for PUT method calls to MCS Storage");
-        }
+    private StorageObject writeObjectFromFile(String uri, String httpMethod, StorageObject storageObject, File file, HashMap<String,String> etagHashMap) throws ServiceProxyException {
+        return writeObjectFromFile(uri, httpMethod, storageObject, file, etagHashMap, true);
+    }
+    
+    /**
+     * INTERNAL API - Sends a write that was queued in the outbox. The write is not queued again if the device is offline
+     */
+    StorageObject writeQueuedObject(String uri, String httpMethod, StorageObject storageObject, File file, HashMap<String,String> etagHashMap) throws ServiceProxyException {
+        return writeObjectFromFile(uri, httpMethod, storageObject, file, etagHashMap, false);
+    }
+    
+    private StorageObject writeObjectFromFile(String uri, String httpMethod, StorageObject storageObject, File file, HashMap<String,String> etagHashMap, boolean queueIfOffline) throws ServiceProxyException {
+        
+        //queued writes reference the file instead of a copy of its content
+        if(queueIfOffline && file != null && file.isFile() && !MAFUtil.isNetworkAccess() && this.mbeConfiguration.isQueueStorageWritesIfOffline()){
+            validateWrite(httpMethod, storageObject, file);
+            invalidateCachedContent(uri);
+            return this.storage.getOutbox().enqueueWrite(this, uri, httpMethod, storageObject, file, etagHashMap);
+        }
+        
+        //files are hashed before the upload only if the object content is indexed and thus may be unchanged
+        if(httpMethod.equalsIgnoreCase("PUT") && file != null && file.isFile() && storageObject != null && storageObject.getID() != null && 
+           this.mbeConfiguration.isUploadDeduplicationEnabled() && MAFUtil.isNetworkAccess()){
+            ContentIndexEntry indexEntry = this.storage.getContentIndex().getEntry(uri);
+            if(indexEntry != null){
+                StorageObject unchangedObject = findUnchangedObject(uri, storageObject, indexEntry, StorageContentIndex.hash(file.toPath()), file.length(), etagHashMap);
+                if(unchangedObject != null){
+                    return unchangedObject;
+                }
+            }
+        }
+        
+        InputStream fileInputStream = null;
+        try {
+            fileInputStream = new FileInputStream(file);
+        } catch (IOException e) {
+            mLogger.logError("File "+file.getAbsolutePath()+" cannot be opened for upload: "+e.getMessage(), this.getClass().getSimpleName(), "writeObjectFromFile");
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+        
+        try {
+            return writeObject(uri, httpMethod, storageObject, fileInputStream, file.length(), etagHashMap, queueIfOffline);
+        } finally {
+            try {
+                fileInputStream.close();
+            } catch (IOException e) {
+                //nothing we can do here
+                mLogger.logFine("Closing file input stream failed: "+e.getMessage(), this.getClass().getSimpleName(), "writeObjectFromFile");
+            }
+        }
+    }
+    
+    /**
+     * Streams the content of a FileChannel from its current position to MCS. The channel is not closed by this method
+     * @param uri The object URI in a collection
+     * @param httpMethod PUT (for Create or Update), POST (for Create)
+     * @param storageObject The metadata object that descibes the object.
+     * @param channel The FileChannel to read the content from
+     * @param etagHashMap optional ETag header map
+     * @return StorageObject, the updated object after the create or udate post of the channel content
+     * @throws ServiceProxyException in case of MCS application errors, service exceptions on the transport layer or if the channel cannot be read
+     */
+    private StorageObject writeObjectFromChannel(String uri, String httpMethod, StorageObject storageObject, FileChannel channel, HashMap<String,String> etagHashMap) throws ServiceProxyException {
+        
+        long contentLength = -1;
+        try {
+            contentLength = channel.size() - channel.position();
+        } catch (IOException e) {
+            mLogger.logError("FileChannel size cannot be determined: "+e.getMessage(), this.getClass().getSimpleName(), "writeObjectFromChannel");
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+        
+        //Channels.newInputStream closes the channel when the stream is closed. The stream therefore is left open
+        //and the channel remains owned by the caller
+        return writeObject(uri, httpMethod, storageObject, Channels.newInputStream(channel), contentLength, etagHashMap);
+    }
+
+     /**
+     * Uploads a single object to a collection in MCS
+     * @param uri The object URI in a collection
+     * @param httpMethod PUT (for Create or Update), POST (for Create)
+     * @param storageObject The metadata object that descibes the object.
+     * @param payload The content to store in the collection, either as byte[] or as java.io.InputStream
+     * @param payloadLength The number of bytes in the payload, or -1 if the length of a streamed payload is unknown
+     * @param [optional } etagMap HashMap to add the headers parameters and the eTag parameter property and value to e.g. only create objects if they don't exist or if the object is of an older version
+     * @return StorageObject, the updated object after the create or udate post of the binary content
+     * @throws ServiceProxyException in case of MCS application errors or service exceptions on the transport layer
+     * @throws IllegalArgumentException If storageObject or payload argument is null. Or if the httpMethod is PUT and the storageObject doesn't have an id specified
+     */
+     private StorageObject writeObject(String uri, String httpMethod, StorageObject storageObject, Object payload, long payloadLength, HashMap<String,String> etagHashMap) throws ServiceProxyException, IllegalArgumentException {
+         return writeObject(uri, httpMethod, storageObject, payload, payloadLength, etagHashMap, true);
+     }
+     
+     /**
+      * @param queueIfOffline false for writes that are replayed from the outbox
+      * @see #writeObject(String, String, StorageObject, Object, long, HashMap)
+      */
+     private StorageObject writeObject(String uri, String httpMethod, StorageObject storageObject, Object payload, long payloadLength, HashMap<String,String> etagHashMap, boolean queueIfOffline) throws ServiceProxyException, IllegalArgumentException {
+         
+          mLogger.logFine("Trying to create or update Storage object for collection: "+this.getCollectionID(), this.getClass().getSimpleName(), "writeObject");        
+         
+        validateWrite(httpMethod, storageObject, payload);
                 
         MCSRequest requestObject = null; 
                 
+        //cached content of the object becomes outdated
+        invalidateCachedContent(uri);
         
-        try {            
-            //ceck if network is available
-            if(!MAFUtil.isNetworkAccess()){
-                mLogger.logFine( "No online connection detected for "+httpMethod+" call to  "+uri, this.getClass().getSimpleName(), "writeObject");
-                throw new ServiceProxyException("The device is not online. An online connection is required", ServiceProxyException.ERROR);
+        //ceck if network is available
+        if(!MAFUtil.isNetworkAccess()){
+            if(queueIfOffline && this.mbeConfiguration.isQueueStorageWritesIfOffline()){
+                return this.storage.getOutbox().enqueueWrite(this, uri, httpMethod, storageObject, payload, etagHashMap);
             }
-
+            mLogger.logFine( "No online connection detected for "+httpMethod+" call to  "+uri, this.getClass().getSimpleName(), "writeObject");
+            throw new ServiceProxyException("The device is not online. An online connection is required", ServiceProxyException.ERROR);
+        }
+        
+        //content the object already holds is not sent again. The hash of streamed content is computed while it is sent
+        boolean deduplicate = httpMethod.equalsIgnoreCase("PUT") && this.mbeConfiguration.isUploadDeduplicationEnabled();
+        String contentHash = null;
+        DigestInputStream digestInputStream = null;
+        if(deduplicate){
+            if(payload instanceof byte[]){
+                contentHash = StorageContentIndex.hash((byte[]) payload);
+                ContentIndexEntry indexEntry = this.storage.getContentIndex().getEntry(uri);
+                if(indexEntry != null){
+                    StorageObject unchangedObject = findUnchangedObject(uri, storageObject, indexEntry, contentHash, payloadLength, etagHashMap);
+                    if(unchangedObject != null){
+                        return unchangedObject;
+                    }
+                }
+            }
+            else{
+                digestInputStream = new DigestInputStream((InputStream) payload, StorageContentIndex.newDigest());
+                payload = digestInputStream;
+            }
+        }
+        
+        boolean written = false;
+        try {            
             requestObject = new MCSRequest(this.mbeConfiguration);
             mLogger.logFine( "Setting URI to "+uri, this.getClass().getSimpleName(), "writeObject");
             requestObject.setRequestURI(uri);
@@ -697,8 +1313,9 @@ public class StorageCollection {
                headers.put(HeaderConstants.CONTENT_TYPE_HEADER, storageObject.getContentType());   
             }
         
-            if (payload != null){
-                headers.put(HeaderConstants.CONTENT_LENGTH, (new Integer(payload.length)).toString());
+            //streamed content of unknown length is sent chunked and thus has no Content-Length header
+            if (payloadLength > -1){
+                headers.put(HeaderConstants.CONTENT_LENGTH, Long.toString(payloadLength));
             }
                                    
             
@@ -718,8 +1335,9 @@ public class StorageCollection {
             requestObject.setConnectionName(this.mbeConfiguration.getMafRestConnectionName());
             
             
-            //send payload array[]?to Object                  
-            requestObject.setPayload(payload);            
+            //send payload byte[] or InputStream
+            requestObject.setPayload(payload);
+            requestObject.setPayloadContentLength(payloadLength);
                         
             MCSResponse mcsResponse = MCSRestClient.sendForStringResponse(requestObject);
             
@@ -737,6 +1355,7 @@ public class StorageCollection {
               else{
                   mLogger.logFine( "REST response does contain a null or empty string message.",this.getClass().getSimpleName(), "writeObject");
               }
+              written = true;
             }
             else if(mcsResponse != null){
                 mLogger.logFine( "MCS application error found. Error Code = "+mcsResponse.getHttpStatusCode()+", Message: "+mcsResponse.getMessage(), this.getClass().getSimpleName(), "writeObject");
@@ -750,16 +1369,145 @@ public class StorageCollection {
             this.handleExceptions(e, requestObject.getRequestURI());
         }
 
+        if(written){
+            if(digestInputStream != null){
+                contentHash = StorageContentIndex.toHex(digestInputStream.getMessageDigest());
+            }
+            completeWrite(uri, deduplicate, contentHash, storageObject, "writeObject");
+        }
         return storageObject;
     }
+    
+    
+    /**
+     * Updates the content index and sends the operations queued while the device was offline after a write or delete 
+     * succeeded. The content already arrived on the server, which is why failures are logged but not reported to the 
+     * caller
+     * 
+     * @param uri URI of the written object
+     * @param updateIndex true if the content index is updated
+     * @param contentHash hash of the written content
+     * @param storageObject the written object or null if the object was removed
+     * @param methodName name of the calling method for logging
+     */
+    private void completeWrite(String uri, boolean updateIndex, String contentHash, StorageObject storageObject, String methodName) {
+        
+        if(updateIndex){
+            try{
+                if(storageObject != null){
+                    this.storage.getContentIndex().put(uri, contentHash, storageObject);
+                }
+                else{
+                    this.storage.getContentIndex().remove(uri);
+                }
+            }
+            catch(Exception e){
+                mLogger.logWarning("Content index not updated for "+uri+": "+e.getMessage(), this.getClass().getSimpleName(), methodName);
+            }
+        }
+        
+        //the device is online, so operations queued while it was offline can be sent
+        try{
+            this.storage.getOutbox().replayIfPending();
+        }
+        catch(Exception e){
+            mLogger.logWarning("Replay of queued storage operations not started: "+e.getMessage(), this.getClass().getSimpleName(), methodName);
+        }
+    }
      
 
+    /**
+     * Checks if an object already holds the content to write. This is the case if the content hash, display name and 
+     * content type match the content index entry of the object and if a HEAD request shows that the object still has 
+     * the ETag of the indexed content. Writes with preconditions other than an If-Match of the indexed ETag are always sent
+     * 
+     * @return the object metadata if the upload can be skipped, null otherwise
+     */
+    private StorageObject findUnchangedObject(String uri, StorageObject storageObject, ContentIndexEntry indexEntry, String contentHash, long contentLength, HashMap<String,String> etagHashMap) {
+        
+        if(!contentHash.equals(indexEntry.getContentHash()) || !isEqual(storageObject.getDisplayName(), indexEntry.getDisplayName()) || 
+           !isEqual(storageObject.getContentType(), indexEntry.getContentType())){
+            return null;
+        }
+        if(etagHashMap != null && !etagHashMap.isEmpty() && 
+           (etagHashMap.size() > 1 || !isSameETag(etagHashMap.get(HeaderConstants.IF_MATCH_HEADER), indexEntry.getETag()))){
+            return null;
+        }
+        
+        StorageContentIndex contentIndex = this.storage.getContentIndex();
+        StorageObject remoteObject = new StorageObject(storageObject.getID());
+        try {
+            fetchSingleObject(remoteObject, uri);
+        } catch (ServiceProxyException e) {
+            mLogger.logFine("Indexed object "+uri+" cannot be verified: "+e.getMessage(), this.getClass().getSimpleName(), "findUnchangedObject");
+            if(e.getHttpResponseCode() == StorageConstants.HTTP_404){
+                contentIndex.remove(uri);
+            }
+            return null;
+        }
+        contentIndex.recordVerified();
+        
+        if(!isSameETag(remoteObject.getETag(), indexEntry.getETag())){
+            mLogger.logFine("Object "+uri+" was changed since its content was indexed", this.getClass().getSimpleName(), "findUnchangedObject");
+            return null;
+        }
+        
+        if(remoteObject.getDisplayName() == null){
+            remoteObject.setDisplayName(indexEntry.getDisplayName());
+        }
+        if(remoteObject.getContentType() == null){
+            remoteObject.setContentType(indexEntry.getContentType());
+        }
+        contentIndex.recordSkipped(contentLength);
+        mLogger.logFine("Object "+uri+" already holds the content. Upload of "+contentLength+" bytes skipped", this.getClass().getSimpleName(), "findUnchangedObject");
+        return remoteObject;
+    }
+    
+    private boolean isEqual(String value1, String value2) {
+        return value1 == null ? value2 == null : value1.equals(value2);
+    }
+    
+    /**
+     * ETags are compared without weak validator prefix and quotes
+     */
+    private boolean isSameETag(String eTag1, String eTag2) {
+        if(eTag1 == null || eTag2 == null){
+            return false;
+        }
+        return stripETag(eTag1).equals(stripETag(eTag2));
+    }
+    
+    private String stripETag(String eTag) {
+        String strippedETag = eTag.trim();
+        if(strippedETag.startsWith("W/")){
+            strippedETag = strippedETag.substring(2);
+        }
+        if(strippedETag.length() > 1 && strippedETag.startsWith("\"") && strippedETag.endsWith("\"")){
+            strippedETag = strippedETag.substring(1, strippedETag.length() - 1);
+        }
+        return strippedETag;
+    }
+
+    /**
+     * @throws IllegalArgumentException If storageObject or payload argument is null. Or if the httpMethod is PUT and the storageObject doesn't have an id specified
+     */
+    private void validateWrite(String httpMethod, StorageObject storageObject, Object payload) throws IllegalArgumentException {
+        
+         if(storageObject == null || payload == null){
+             throw new IllegalArgumentException("storageObject and / or payload argument cannot be NULL in call to MCS Storage");
+         }
+          
+        if(httpMethod.equalsIgnoreCase("PUT") && storageObject.getID()==null ){
+            throw new IllegalArgumentException("The storageObject object ID property cannot be null for PUT method calls to MCS Storage");
+        }
+    }
+
     /**
      * Delete the server side storage objects
      *
      * @param objectId the unique ID associated with the server side collection object to removeCollectionObject
      * @param [optional} etagHashMap HashMap to add the header parameters and the eTag parameter property and value to e.g. only remove object if it doesn't match the eTag sent with the request
-     * @return true / false if the object could be deleted
+     * @return true / false if the object could be deleted. True if the device is offline and the delete was queued (see MBEConfiguration.setQueueStorageWritesIfOffline)
      * @throws IllegalArgumentException if objectId is null or empty
      * @throws ServiceProxyException for application and system error
      */
@@ -781,6 +1529,17 @@ public class StorageCollection {
         * @throws ServiceProxyException
         */
        public boolean removeCollectionObjectWithURI(String caconicalLink, HashMap<String,String> etagHashMap) throws IllegalArgumentException, ServiceProxyException {
+           return removeCollectionObjectWithURI(caconicalLink, etagHashMap, true);
+       }
+       
+       /**
+        * INTERNAL API - Sends a delete that was queued in the outbox. The delete is not queued again if the device is offline
+        */
+       boolean removeQueuedObject(String caconicalLink, HashMap<String,String> etagHashMap) throws ServiceProxyException {
+           return removeCollectionObjectWithURI(caconicalLink, etagHashMap, false);
+       }
+       
+       private boolean removeCollectionObjectWithURI(String caconicalLink, HashMap<String,String> etagHashMap, boolean queueIfOffline) throws IllegalArgumentException, ServiceProxyException {
            
            if(caconicalLink == null || caconicalLink.length() == 0)
                throw new IllegalArgumentException("caconicalLink for the storage object to be removed cannot be null or empty");
@@ -789,7 +1548,18 @@ public class StorageCollection {
            MCSRequest requestObject = null;
            
            mLogger.logFine("URI of collection object to be removed = "+caconicalLink, this.getClass().getSimpleName(), "removeCollectionObject");
+           invalidateCachedContent(caconicalLink);
+           
+           if(!MAFUtil.isNetworkAccess()){
+               if(queueIfOffline && this.mbeConfiguration.isQueueStorageWritesIfOffline()){
+                   this.storage.getOutbox().enqueueDelete(this, caconicalLink, etagHashMap);
+                   return true;
+               }
+               mLogger.logFine( "No online connection detected for DELETE call to  "+caconicalLink, this.getClass().getSimpleName(), "removeCollectionObject");
+               throw new ServiceProxyException("The device is not online. An online connection is required", ServiceProxyException.ERROR);
+           }
 
+           boolean removed = false;
            try {
                requestObject = new MCSRequest(this.mbeConfiguration);
                requestObject.setRequestURI(caconicalLink);
@@ -811,7 +1581,7 @@ public class StorageCollection {
                MCSResponse mcsResponse = MCSRestClient.sendForStringResponse(requestObject);    
                
                if (mcsResponse != null && mcsResponse.getHttpStatusCode() == StorageConstants.HTTP_204) {                
-                   return true;
+                   removed = true;
                }
                else if(mcsResponse != null){
                    mLogger.logFine( "MCS application error found. Error Code = "+mcsResponse.getHttpStatusCode()+", Message: "+mcsResponse.getMessage(), this.getClass().getSimpleName(), "removeCollectionObject");
@@ -824,10 +1594,320 @@ public class StorageCollection {
                this.handleExceptions(e, requestObject.getRequestURI());
            } 
            
-           return false;
+           if(removed){
+               completeWrite(caconicalLink, this.mbeConfiguration.isUploadDeduplicationEnabled(), null, null, "removeCollectionObject");
+           }
+           return removed;
        }
 
 
+    /**
+     * Uploads a file to a collection object in segments. Each segment is sent with a separate request through the 
+     * upload handler. After each segment the server accepted, the progress is saved in the SQLite database of the 
+     * application. If the upload fails, e.g. because the network connection is lost, calling this method again for 
+     * the same object and file continues the upload at the number of bytes the server received, even after the 
+     * application was restarted. Network errors that occur during a call are continued within the call. Uploads of 
+     * files that changed since the upload started are restarted. The segment size is defined by 
+     * MBEConfiguration.setUploadSegmentSize.
+     * <p>
+     * MCS Storage does not accept partial uploads. Use CustomApiSegmentedUploadHandler with a custom API that 
+     * implements the upload sessions, or LocalSegmentedUploadHandler for testing.
+     *
+     * @param object metadata of the object. The object id must be set as it identifies the pending upload
+     * @param file the file to upload
+     * @param uploadHandler the server side of the segmented upload
+     * @param progressListener listener that is informed after each segment or null
+     * @return StorageObject returned by the upload handler for the completed upload
+     * @throws IllegalArgumentException if object, object id, file or uploadHandler is null
+     * @throws ServiceProxyException Application or REST transport layer errors, or if the file cannot be read. The 
+     * upload stays pending
+     */
+    public StorageObject uploadSegmented(StorageObject object, Path file, SegmentedUploadHandler uploadHandler, UploadProgressListener progressListener) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(object == null || object.getID() == null || object.getID().isEmpty() || file == null || uploadHandler == null){
+            throw new IllegalArgumentException("The storage object, its Id, the file and the uploadHandler in the call to uploadSegmented cannot be null");
+        }
+        
+        if(!MAFUtil.isNetworkAccess()){
+            mLogger.logFine( "No online connection detected for segmented upload of "+file.toString(), this.getClass().getSimpleName(), "uploadSegmented");
+            throw new ServiceProxyException("The device is not online. An online connection is required", ServiceProxyException.ERROR);
+        }
+        
+        mLogger.logFine("Uploading "+file.toString()+" in segments to object "+object.getID(), this.getClass().getSimpleName(), "uploadSegmented");
+        try {
+            return new SegmentedUploader(this, uploadHandler, progressListener).upload(object, file.toAbsolutePath());
+        } finally {
+            //the object may be stored even if the response was lost
+            invalidateCachedContent(generateUriForObject(this.collectionID, object.getID()));
+        }
+    }
+    
+    /**
+     * Continues all pending segmented uploads to this collection, e.g. after the application was restarted. Uploads 
+     * that fail again stay pending and are logged. Pending uploads of files that no longer exist are discarded.
+     *
+     * @param uploadHandler the server side of the segmented uploads. Must be the handler the uploads were started with
+     * @param progressListener listener that is informed after each segment or null
+     * @return List of StorageObjects of the uploads that completed. The list is empty if no upload completed
+     * @throws IllegalArgumentException if uploadHandler is null
+     * @throws ServiceProxyException if the device is offline
+     */
+    public List<StorageObject> resumePendingUploads(SegmentedUploadHandler uploadHandler, UploadProgressListener progressListener) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(uploadHandler == null){
+            throw new IllegalArgumentException("The uploadHandler in the call to resumePendingUploads cannot be null");
+        }
+        
+        if(!MAFUtil.isNetworkAccess()){
+            mLogger.logFine( "No online connection detected for resuming pending uploads", this.getClass().getSimpleName(), "resumePendingUploads");
+            throw new ServiceProxyException("The device is not online. An online connection is required", ServiceProxyException.ERROR);
+        }
+        
+        SegmentedUploader uploader = new SegmentedUploader(this, uploadHandler, progressListener);
+        ArrayList<StorageObject> completedUploads = new ArrayList<StorageObject>();
+        
+        for(PendingUpload pendingUpload : StorageDB.getInstance().getPendingUploads(this.mbeConfiguration.getMobileBackendIdentifier(), this.collectionID)){
+            
+            Path file = Paths.get(pendingUpload.getFilePath());
+            if(!Files.exists(file)){
+                mLogger.logFine("File "+file.toString()+" of pending upload "+pendingUpload.getUploadId()+" no longer exists. Discarding upload", this.getClass().getSimpleName(), "resumePendingUploads");
+                uploader.discard(pendingUpload);
+                continue;
+            }
+            
+            StorageObject object = new StorageObject(pendingUpload.getObjectId(), pendingUpload.getContentType());
+            object.setDisplayName(pendingUpload.getDisplayName());
+            try {
+                completedUploads.add(uploader.upload(object, file));
+            } catch (ServiceProxyException e) {
+                mLogger.logWarning("Pending upload of "+file.toString()+" to object "+pendingUpload.getObjectId()+" failed: "+e.getMessage(), this.getClass().getSimpleName(), "resumePendingUploads");
+            } finally {
+                invalidateCachedContent(generateUriForObject(this.collectionID, pendingUpload.getObjectId()));
+            }
+        }
+        
+        mLogger.logFine(completedUploads.size()+" pending uploads completed for collection "+this.collectionID, this.getClass().getSimpleName(), "resumePendingUploads");
+        return completedUploads;
+    }
+
+    /**
+     * Removes the objects with the given ids from the collection. The objects are removed with concurrent requests (see 
+     * MBEConfiguration.setStorageBatchConcurrency). A failure to remove an object does not stop the batch. 
+     *
+     * @param objectIds ids of the objects to remove
+     * @return List of StorageBatchItem in the order of the ids. The result of successful items is the value returned by 
+     * removeCollectionObject
+     * @throws IllegalArgumentException if objectIds is null
+     * @throws ServiceProxyException if the calling thread is interrupted
+     */
+    public List<StorageBatchItem<Boolean>> deleteAll(Collection<String> objectIds) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(objectIds == null){
+            throw new IllegalArgumentException("The objectIds in the call to deleteAll cannot be null");
+        }
+        
+        HashMap<String,String> eTagsByObjectId = new LinkedHashMap<String,String>();
+        for(String objectId : objectIds){
+            eTagsByObjectId.put(objectId, null);
+        }
+        return deleteAll(eTagsByObjectId, this.mbeConfiguration.getStorageBatchConcurrency());
+    }
+    
+    /**
+     * Removes objects from the collection with up to concurrency requests at a time. Objects that are mapped to an ETag 
+     * are only removed if they still have this ETag ("If-Match"). Otherwise their item fails with HTTP 412 while the 
+     * batch continues.
+     *
+     * @param eTagsByObjectId ids of the objects to remove mapped to the ETag the object must have or to null to remove 
+     * the object unconditionally
+     * @param concurrency maximum number of concurrent requests
+     * @return List of StorageBatchItem in the iteration order of the map
+     * @throws IllegalArgumentException if eTagsByObjectId is null or concurrency is less than 1
+     * @throws ServiceProxyException if the calling thread is interrupted
+     */
+    public List<StorageBatchItem<Boolean>> deleteAll(Map<String,String> eTagsByObjectId, int concurrency) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(eTagsByObjectId == null || concurrency < 1){
+            throw new IllegalArgumentException("The eTagsByObjectId in the call to deleteAll cannot be null and concurrency must be greater than 0");
+        }
+        
+        List<StorageBatchItem<Boolean>> items = new ArrayList<StorageBatchItem<Boolean>>();
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        
+        for(final Map.Entry<String,String> entry : eTagsByObjectId.entrySet()){
+            items.add(new StorageBatchItem<Boolean>(entry.getKey()));
+            tasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    return removeCollectionObject(entry.getKey(), createIfMatchHeader(entry.getValue()));
+                }
+            });
+        }
+        
+        mLogger.logFine("Removing "+items.size()+" objects with "+concurrency+" concurrent requests", this.getClass().getSimpleName(), "deleteAll");
+        executeBatch(items, tasks, concurrency);
+        return items;
+    }
+    
+    /**
+     * Creates or updates objects with their ids (PUT) using the batch concurrency of the MBE configuration. See 
+     * putAll(List, int)
+     */
+    public List<StorageBatchItem<StorageObject>> putAll(List<StorageBatchUpload> uploads) throws IllegalArgumentException, ServiceProxyException {
+        return putAll(uploads, this.mbeConfiguration.getStorageBatchConcurrency());
+    }
+    
+    /**
+     * Creates or updates objects with their ids (PUT) with up to concurrency requests at a time. The optimistic locking 
+     * information of each upload, e.g. "If-Match" with the ETag of the version the application read, applies to this 
+     * upload only. A failed upload does not stop the batch.
+     *
+     * @param uploads the objects and their content. The object id must be set for all objects
+     * @param concurrency maximum number of concurrent requests
+     * @return List of StorageBatchItem in the order of the uploads. The result of successful items is the StorageObject 
+     * returned by MCS
+     * @throws IllegalArgumentException if uploads is null, an object id is missing or concurrency is less than 1
+     * @throws ServiceProxyException if the calling thread is interrupted
+     */
+    public List<StorageBatchItem<StorageObject>> putAll(List<StorageBatchUpload> uploads, int concurrency) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(uploads == null || concurrency < 1){
+            throw new IllegalArgumentException("The uploads in the call to putAll cannot be null and concurrency must be greater than 0");
+        }
+        
+        List<StorageBatchItem<StorageObject>> items = new ArrayList<StorageBatchItem<StorageObject>>();
+        List<Callable<StorageObject>> tasks = new ArrayList<Callable<StorageObject>>();
+        
+        for(final StorageBatchUpload upload : uploads){
+            String objectId = upload.getStorageObject().getID();
+            if(objectId == null || objectId.isEmpty()){
+                throw new IllegalArgumentException("Id for the storage objects to be put cannot be null or empty");
+            }
+            items.add(new StorageBatchItem<StorageObject>(objectId));
+            tasks.add(new Callable<StorageObject>() {
+                @Override
+                public StorageObject call() throws Exception {
+                    if(upload.getFile() != null){
+                        return createOrUpdateObject(upload.getStorageObject(), upload.getFile(), upload.getOptimisticLockingInfo());
+                    }
+                    return createOrUpdateObject(upload.getStorageObject(), upload.getByteContent(), upload.getOptimisticLockingInfo());
+                }
+            });
+        }
+        
+        mLogger.logFine("Uploading "+items.size()+" objects with "+concurrency+" concurrent requests", this.getClass().getSimpleName(), "putAll");
+        executeBatch(items, tasks, concurrency);
+        return items;
+    }
+    
+    /**
+     * Creates objects with ids generated by MCS (POST) using the batch concurrency of the MBE configuration. See 
+     * createAll(List, int)
+     */
+    public List<StorageBatchItem<StorageObject>> createAll(List<StorageBatchUpload> uploads) throws IllegalArgumentException, ServiceProxyException {
+        return createAll(uploads, this.mbeConfiguration.getStorageBatchConcurrency());
+    }
+    
+    /**
+     * Creates objects with ids generated by MCS (POST) with up to concurrency requests at a time. A failed upload does 
+     * not stop the batch.
+     *
+     * @param uploads the objects and their content
+     * @param concurrency maximum number of concurrent requests
+     * @return List of StorageBatchItem in the order of the uploads. The key of an item is the display name of the 
+     * object. The result of successful items is the StorageObject returned by MCS
+     * @throws IllegalArgumentException if uploads is null or concurrency is less than 1
+     * @throws ServiceProxyException if the calling thread is interrupted
+     */
+    public List<StorageBatchItem<StorageObject>> createAll(List<StorageBatchUpload> uploads, int concurrency) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(uploads == null || concurrency < 1){
+            throw new IllegalArgumentException("The uploads in the call to createAll cannot be null and concurrency must be greater than 0");
+        }
+        
+        final String url = generateUriForObjectArray(this.collectionID);
+        List<StorageBatchItem<StorageObject>> items = new ArrayList<StorageBatchItem<StorageObject>>();
+        List<Callable<StorageObject>> tasks = new ArrayList<Callable<StorageObject>>();
+        
+        for(final StorageBatchUpload upload : uploads){
+            items.add(new StorageBatchItem<StorageObject>(upload.getStorageObject().getDisplayName()));
+            tasks.add(new Callable<StorageObject>() {
+                @Override
+                public StorageObject call() throws Exception {
+                    if(upload.getFile() != null){
+                        return writeObjectFromFile(url, "POST", upload.getStorageObject(), upload.getFile(), upload.getOptimisticLockingInfo());
+                    }
+                    return writeObject(url, "POST", upload.getStorageObject(), upload.getByteContent(), upload.getByteContent().length, upload.getOptimisticLockingInfo());
+                }
+            });
+        }
+        
+        mLogger.logFine("Creating "+items.size()+" objects with "+concurrency+" concurrent requests", this.getClass().getSimpleName(), "createAll");
+        executeBatch(items, tasks, concurrency);
+        return items;
+    }
+    
+    private <T> void executeBatch(List<StorageBatchItem<T>> items, List<Callable<T>> tasks, int concurrency) throws ServiceProxyException {
+        try {
+            StorageBatchExecutor.execute(this.storage.getMbe(), items, tasks, concurrency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            mLogger.logWarning("Batch operation interrupted", this.getClass().getSimpleName(), "executeBatch");
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+    }
+    
+    private HashMap<String,String> createIfMatchHeader(String eTag) {
+        if(eTag == null || eTag.isEmpty()){
+            return null;
+        }
+        HashMap<String,String> headers = new HashMap<String,String>();
+        headers.put(HeaderConstants.IF_MATCH_HEADER, eTag);
+        return headers;
+    }
+
+    /**
+     * Removes the cached content of an object that is updated or removed. The cached metadata of this collection is
+     * removed as well as its content length and ETag change
+     * @param uri object URI
+     */
+    private void invalidateCachedContent(String uri) {
+        StorageContentCache contentCache = this.storage.getContentCache();
+        if (contentCache != null && uri != null) {
+            contentCache.invalidate(uri);
+        }
+        if (uri != null) {
+            this.storage.invalidateObjectExistence(uri);
+        }
+        this.storage.invalidateCachedLookups(this.collectionID);
+    }
+
+    /**
+     * Reads a response header ignoring the case of the header name
+     * @param headers response headers
+     * @param name header name
+     * @return header value or null
+     */
+    static String getResponseHeader(Map<String, String> headers, String name) {
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                if (name.equalsIgnoreCase(header.getKey())) {
+                    return header.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * INTERNAL API - Composes the URI of an object in this collection
+     * @param objectId the object id
+     * @return a REST URI
+     */
+    String getObjectURI(String objectId) {
+        return generateUriForObject(this.collectionID, objectId);
+    }
+
     /**
      * Composes the URI for accessing an object in a collection contained in a remote MCS Storage instance
      * @param collectionId the name of the collection
@@ -927,11 +2007,13 @@ public class StorageCollection {
      * Parses the result of the REST call to MCS for the URI of items in the collection and possible NEXT links
      *
      * @param uri
+     * @param revalidate true to cache the page and revalidate it with its ETag. Otherwise the page is parsed from the 
+     * response stream while it is received, so that it is never held in memory as a whole
      * @return Map of links and item references plus information about th enumber of items and if there are items in the collection
      * @throws ServiceProxyException in case of application errors (non HTTP 2XX errors), system errors or transport layerexceptions. The ServiceProxyException
      * message is JSON formatted and can be parsed into a Java object (OracleMobileError) using the OracleMobileErorrHelper class
      */
-    private Map<String, Object> getSinglePageInfo(String uri) throws ServiceProxyException {
+    private Map<String, Object> getSinglePageInfo(String uri, boolean revalidate) throws ServiceProxyException {
 
         mLogger.logFine("URI in call to getSinglePageInfo is: "+uri, this.getClass().getSimpleName(), "getSinglePageInfo");  
         
@@ -949,49 +2031,43 @@ public class StorageCollection {
              HashMap<String,String> httpHeaders = new  HashMap<String,String>();
             httpHeaders.put("Accept", "application/json");
             requestObject.setHttpHeaders(httpHeaders);
-
             //send request for application/json payload (defaulted in RestClient) to obtain list of
             //storage object descriptions. The call will receive a JSON string payload if there is
             //a valid collection addressed
-            MCSResponse mcsResponse = MCSRestClient.sendForStringResponse(requestObject);
+            MCSResponse mcsResponse = null;
+            if (revalidate) {
+                //unchanged listing pages are answered with HTTP 304 and read from cache
+                requestObject.setETagCachingEnabled(true);
+                mcsResponse = MCSRestClient.sendForJSONResponse(requestObject);
+            } else {
+                mcsResponse = MCSRestClient.sendForInputStreamResponse(requestObject);
+            }
 
             if (mcsResponse!= null && mcsResponse.getHttpStatusCode() == StorageConstants.HTTP_200 &&
               mcsResponse.getMessage() != null) {                 
                 
-                mLogger.logFine("MCS request returns successful with payload: "+mcsResponse.getMessage(), this.getClass().getSimpleName(), "getSinglePageInfo");  
-                
-                JSONObject json = new JSONObject((String) mcsResponse.getMessage());
-
-                //HasMore
-                boolean hasMore = false;
-                //Handle the circumstances when 'hasMore' field is missing
-                if (!json.isNull("hasMore"))
-                    hasMore = Boolean.getBoolean(json.getString("hasMore"));
-                info.put("hasMore", hasMore);
-
-                //count
-                int count = json.getInt("count");
-                info.put("count", count);
-
-                //uris to items within the collection
-                List<String> uris = new ArrayList<String>();
+                //listings can be large. Don't log the payload but its size
+                if (mcsResponse.getMessage() instanceof InputStream) {
+                    mLogger.logFine("MCS request returns successful. Reading payload from response stream", this.getClass().getSimpleName(), "getSinglePageInfo");  
+                } else {
+                    mLogger.logFine("MCS request returns successful with payload of "+mcsResponse.getMessageLength()+" bytes", this.getClass().getSimpleName(), "getSinglePageInfo");  
+                }
                 
-                JSONArray items = json.getJSONArray("items");
-
-                info.put("items", items);
-                 
-                 //nextUri
-                 JSONArray links = json.getJSONArray("links");
-                 for (int i = 0; i < links.length(); i++) {
-                    JSONObject singleLink = links.getJSONObject(i);
-                    if (singleLink.getString("rel").equals("next")) {
-                        info.put("nextUri", singleLink.getString("href"));
-                        break;
-                    }
+                //the page is read token by token. Items are added to a compact listing as they are read without
+                //building a JSONObject for the page or for its items
+                InputStream pageStream = mcsResponse.getMessageAsInputStream();
+                try {
+                    info = new StorageListingParser(pageStream).parsePage(new StorageObjectList(0));
+                } finally {
+                    pageStream.close();
                 }
             }
 
             else if (mcsResponse != null){
+                //release the connection of a successful response that is not read
+                if (mcsResponse.getMessage() instanceof InputStream) {
+                    ((InputStream) mcsResponse.getMessage()).close();
+                }
                 //no collection was found
                 OracleMobileError errorCtx = mcsResponse.getOracleErrorMessage();
                 String errorMessage =
@@ -1074,6 +2150,8 @@ public class StorageCollection {
             //or other eTAG headers
             //httpHeaders.put(HeaderConstants.ORACLE_MOBILE_BACKEND_ID, this.mbeConfiguration.getMobileBackendIdentifier());            
             requestObject.setHttpHeaders(httpHeaders);
+            //object metadata is revalidated with its ETag
+            requestObject.setETagCachingEnabled(true);
 
             //REST call for binary content (byte array)
             MCSResponse mcsResponse = MCSRestClient.sendForByteResponse(requestObject);
@@ -1126,8 +2204,13 @@ public class StorageCollection {
      * @param uri  the origin uri. This uri is used if the error message is composed based on error code findings in the exception
      *             message
      */
-    private void handleExceptions(Exception e,String uri) throws ServiceProxyException {
-        
+    void handleExceptions(Exception e,String uri) throws ServiceProxyException {
+
+        //ServiceProxyExceptions, e.g. for requests rejected by the circuit breaker, are passed on unchanged
+        if (e instanceof ServiceProxyException) {
+            throw (ServiceProxyException) e;
+        }
+
          //Step 1: Is error AdfInvocationRuntimeException, AdfInvocationException or AdfException?        
         String exceptionPrimaryMessage      = e.getLocalizedMessage();
         String exceptionSecondaryMessage    = e.getCause() != null? e.getCause().getLocalizedMessage() : null;
@@ -1234,7 +2317,7 @@ public class StorageCollection {
         HTTP 412 Precondition Failed
          */
           else if(combinedExceptionMessage.contains("412")){
-            httpErrorCode = 411; 
+            httpErrorCode = StorageConstants.HTTP_412; 
             restoredOracleMcsErrorMessage = OracleMobileErrorHelper.createOracleMobileErrorJson(412,"Precondition Failed","An object with the given identifier in the specified collection exists, but the operation failed because of one or more of the following conditions: If-Match, If-Modified-Since, If-None-Match, or If-Unmodified-Since.", uri);
         }
             
@@ -1260,7 +2343,7 @@ public class StorageCollection {
      * @param uri
      * @return 
      */
-    private String getStorageObjectID(String uri) {
+    String getStorageObjectID(String uri) {
         int startIndex = uri.lastIndexOf('/');
         String tmp = uri.substring(startIndex + 1);
 
@@ -1309,6 +2392,20 @@ public class StorageCollection {
                 new ServiceProxyException("The userId parameter is missing in the request URI to an isolated collection", ServiceProxyException.ERROR);
             }
                         
+           //content cached within the freshness time is returned without network access
+           StorageContentCache contentCache = this.storage.getContentCache();
+           //cached content is private to the user that downloaded it
+           String contentCacheUser = contentCache != null ? this.mbeConfiguration.getAuthenticatedUsername() : null;
+           StorageContentCache.CacheEntry cacheEntry = contentCache != null ? contentCache.get(collectionObjectURI, contentCacheUser) : null;
+           if(cacheEntry != null && contentCache.isFresh(cacheEntry)){
+               byte[] cachedContent = contentCache.read(cacheEntry, false);
+               if(cachedContent != null){
+                   mLogger.logFine( "Content for "+collectionObjectURI+" read from cache", this.getClass().getSimpleName(), "getByteContentByObjectUri");
+                   return cachedContent;
+               }
+               cacheEntry = null;
+           }
+                        
            requestObject = new MCSRequest(this.mbeConfiguration);
            
            requestObject.setHttpMethod(com.oracle.maf.sample.mcs.shared.mafrest.MCSRequest.HttpMethod.GET);
@@ -1320,17 +2417,44 @@ public class StorageCollection {
            //httpHeaders.put(HeaderConstants.ORACLE_MOBILE_BACKEND_ID, this.mbeConfiguration.getMobileBackendIdentifier());            
            httpHeaders.put(HeaderConstants.ACCEPT_HEADER, acceptedMimeType);
            
+           //cached content is downloaded again only if it changed on the server
+           if(cacheEntry != null){
+               httpHeaders.put(HeaderConstants.IF_NONE_MATCH_HEADER, cacheEntry.getETag());
+           }
+           
             mLogger.logFine( "key/value pairs in header Map: "+MapUtils.dumpStringProperties(httpHeaders), this.getClass().getSimpleName(), "getByteContentByObjectUri");
            
            //Authorization is added by MAF or MCS Utility
            requestObject.setHttpHeaders(httpHeaders);            
            requestObject.setPayload("");
 
-           MCSResponse mcsResponse = MCSRestClient.sendForByteResponse(requestObject);
+           MCSResponse mcsResponse = null;
+           try{
+               mcsResponse = MCSRestClient.sendForByteResponse(requestObject);
+           }
+           catch(Exception e){
+               //the MAF RestServiceAdapter may report HTTP 304 as an exception. All other failures are passed on
+               if(cacheEntry == null || RetryPolicy.getStatusCode(e) != StorageConstants.HTTP_304){
+                   throw e;
+               }
+           }
+           
+           if(cacheEntry != null && (mcsResponse == null || mcsResponse.getHttpStatusCode() == StorageConstants.HTTP_304)){
+               mLogger.logFine( "Cached content for "+collectionObjectURI+" not modified", this.getClass().getSimpleName(), "getByteContentByObjectUri");
+               contentCache.markValidated(cacheEntry);
+               byte[] cachedContent = contentCache.read(cacheEntry, true);
+               //the entry has been removed if the cached file cannot be read
+               return cachedContent != null ? cachedContent : downloadByteContentForObjectUri(collectionObjectURI, acceptedMimeType);
+           }
             
            if(mcsResponse != null && mcsResponse.getHttpStatusCode() == 200){ 
                 mLogger.logFine( "Request succeeded", this.getClass().getSimpleName(), "getByteContentByObjectUri");
-                return (byte[]) mcsResponse.getMessage();
+                byte[] content = (byte[]) mcsResponse.getMessage();
+                if(contentCache != null){
+                    contentCache.put(collectionObjectURI, contentCacheUser, getResponseHeader(mcsResponse.getHeaders(), StorageConstants.HEADER_PROPERTY_TAG_ETAG),
+                                     getResponseHeader(mcsResponse.getHeaders(), HeaderConstants.CONTENT_TYPE_HEADER), content);
+                }
+                return content;
             }
            else if (mcsResponse != null){
                mLogger.logFine( "Request succeeded with MCS application error. Response code: "+mcsResponse.getHttpStatusCode()+", Response Message: "+mcsResponse.getMessage(), this.getClass().getSimpleName(), "getByteContentByObjectUri");
@@ -1361,6 +2485,551 @@ public class StorageCollection {
         return downloadByteContentForObjectUri(uri, acceptedMimeType);
     }
     
+    /**
+     * Downloads the MCS collection object identified by the collectionObjectUri and writes its content to a file. The
+     * content is streamed to a temporary file in the target directory, which is renamed to the target file once the
+     * download completed. A failed or interrupted download therefore never leaves a partial file at the target location.
+     * An existing target file is replaced. Unlike downloadByteContentForObjectUri, the content is never held in memory.
+     *
+     * @param collectionObjectURI the complete request URI for a object. E.g. /mobile/platform/storage/collections/collection_name/objects/cf29dea3-da84-47b7-b262-a47f69c58bf1.
+     * @param acceptedMimeType the accept type for the expected content e.g. application/json, image/png, ... 
+     * @param targetFile the file to write the content to
+     * @return StorageObject with the metadata (e.g. ETag, content type and content length) returned with the downloaded content
+     * @throws IllegalArgumentException if the collectionObjectURI is null or empty or if the targetFile is null
+     * @throws ServiceProxyException for MCS application failure, transport level exceptions and file system errors
+     */
+    public StorageObject downloadToFile(String collectionObjectURI, String acceptedMimeType, Path targetFile) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(collectionObjectURI == null || collectionObjectURI.isEmpty() || targetFile == null){
+            throw new IllegalArgumentException("The collectionObjectURI and targetFile in the call to downloadToFile cannot be null");
+        }
+        
+        Path absoluteTargetFile = targetFile.toAbsolutePath();
+        Path tempFile = null;
+        FileChannel fileChannel = null;
+        boolean downloadCommitted = false;
+        
+        try {
+            //the temporary file is created in the target directory so that the final rename does not cross file systems
+            tempFile = Files.createTempFile(absoluteTargetFile.getParent(), absoluteTargetFile.getFileName().toString(), ".part");
+            mLogger.logFine("Downloading "+collectionObjectURI+" to temporary file "+tempFile.toString(), this.getClass().getSimpleName(), "downloadToFile");
+            
+            fileChannel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            StorageObject storageObject = downloadContent(collectionObjectURI, acceptedMimeType, null, fileChannel);
+            
+            fileChannel.force(true);
+            fileChannel.close();
+            fileChannel = null;
+            
+            commitDownloadedFile(tempFile, absoluteTargetFile);
+            downloadCommitted = true;
+            
+            mLogger.logFine("Download of "+collectionObjectURI+" saved to "+absoluteTargetFile.toString(), this.getClass().getSimpleName(), "downloadToFile");
+            return storageObject;
+            
+        } catch (IOException e) {
+            mLogger.logError("Writing download to "+absoluteTargetFile.toString()+" failed: "+e.getMessage(), this.getClass().getSimpleName(), "downloadToFile");
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+        finally{
+            if(fileChannel != null){
+                try {
+                    fileChannel.close();
+                } catch (IOException e) {
+                    //nothing we can do here
+                }
+            }
+            if(!downloadCommitted && tempFile != null){
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    mLogger.logWarning("Temporary download file "+tempFile.toString()+" could not be deleted", this.getClass().getSimpleName(), "downloadToFile");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Downloads the MCS collection object identified by the collectionObjectUri and writes its content to a file. The
+     * accept header is set to any mime type (*&#47;*). See downloadToFile(String, String, Path)
+     *
+     * @param collectionObjectURI the complete request URI for a object
+     * @param targetFile the file to write the content to
+     * @return StorageObject with the metadata returned with the downloaded content
+     * @throws IllegalArgumentException if the collectionObjectURI is null or empty or if the targetFile is null
+     * @throws ServiceProxyException for MCS application failure, transport level exceptions and file system errors
+     */
+    public StorageObject downloadToFile(String collectionObjectURI, Path targetFile) throws IllegalArgumentException, ServiceProxyException {
+        return downloadToFile(collectionObjectURI, StorageConstants.ACCEPT_ANY_MIME_TYPE, targetFile);
+    }
+    
+    /**
+     * Downloads the MCS collection object identified by the collectionObjectUri and writes its content to the provided
+     * OutputStream. The content is never held in memory as a whole. The OutputStream is not closed by this method. Note 
+     * that in case of an error, parts of the content may already have been written to the OutputStream.
+     *
+     * @param collectionObjectURI the complete request URI for a object. E.g. /mobile/platform/storage/collections/collection_name/objects/cf29dea3-da84-47b7-b262-a47f69c58bf1.
+     * @param acceptedMimeType the accept type for the expected content e.g. application/json, image/png, ... 
+     * @param outputStream the stream to write the content to
+     * @return StorageObject with the metadata (e.g. ETag, content type and content length) returned with the downloaded content
+     * @throws IllegalArgumentException if the collectionObjectURI is null or empty or if the outputStream is null
+     * @throws ServiceProxyException for MCS application failure and transport level exceptions
+     */
+    public StorageObject downloadToStream(String collectionObjectURI, String acceptedMimeType, OutputStream outputStream) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(collectionObjectURI == null || collectionObjectURI.isEmpty() || outputStream == null){
+            throw new IllegalArgumentException("The collectionObjectURI and outputStream in the call to downloadToStream cannot be null");
+        }
+        return downloadContent(collectionObjectURI, acceptedMimeType, outputStream, null);
+    }
+    
+    /**
+     * Downloads the MCS collection object identified by the collectionObjectUri and writes its content to the provided
+     * OutputStream. The accept header is set to any mime type (*&#47;*). See downloadToStream(String, String, OutputStream)
+     *
+     * @param collectionObjectURI the complete request URI for a object
+     * @param outputStream the stream to write the content to
+     * @return StorageObject with the metadata returned with the downloaded content
+     * @throws IllegalArgumentException if the collectionObjectURI is null or empty or if the outputStream is null
+     * @throws ServiceProxyException for MCS application failure and transport level exceptions
+     */
+    public StorageObject downloadToStream(String collectionObjectURI, OutputStream outputStream) throws IllegalArgumentException, ServiceProxyException {
+        return downloadToStream(collectionObjectURI, StorageConstants.ACCEPT_ANY_MIME_TYPE, outputStream);
+    }
+    
+    /**
+     * Downloads a byte range of the MCS collection object identified by the collectionObjectUri using the HTTP "Range" 
+     * header. If the server does not support range requests and returns the complete object, the requested range is 
+     * taken from the returned content.
+     *
+     * @param collectionObjectURI the complete request URI for a object. E.g. /mobile/platform/storage/collections/collection_name/objects/cf29dea3-da84-47b7-b262-a47f69c58bf1.
+     * @param acceptedMimeType the accept type for the expected content e.g. application/json, image/png, ... 
+     * @param firstByte index of the first byte to download (zero based)
+     * @param lastByte index of the last byte to download or -1 to download to the end of the object
+     * @return byte[] with the requested range. The array is shorter than requested if the object ends before lastByte
+     * @throws IllegalArgumentException if the collectionObjectURI is null or empty or if the range is invalid
+     * @throws ServiceProxyException for MCS application failure and transport level exceptions. The status code is 416 
+     * if firstByte is beyond the end of the object
+     */
+    public byte[] downloadByteRange(String collectionObjectURI, String acceptedMimeType, long firstByte, long lastByte) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(collectionObjectURI == null || collectionObjectURI.isEmpty()){
+            throw new IllegalArgumentException("The collectionObjectURI in the call to downloadByteRange cannot be null");
+        }
+        if(firstByte < 0 || (lastByte >= 0 && lastByte < firstByte) || lastByte < -1){
+            throw new IllegalArgumentException("Invalid byte range in the call to downloadByteRange: "+firstByte+"-"+lastByte);
+        }
+        
+        try {
+            MCSResponse mcsResponse = new StorageRangeDownloader(this).sendRangeRequest(collectionObjectURI, acceptedMimeType, firstByte, lastByte);
+            
+            if(mcsResponse != null && mcsResponse.getHttpStatusCode() == StorageConstants.HTTP_206){
+                mLogger.logFine( "Range request succeeded. Content-Range: "+getResponseHeader(mcsResponse.getHeaders(), HeaderConstants.CONTENT_RANGE_HEADER), this.getClass().getSimpleName(), "downloadByteRange");
+                return (byte[]) mcsResponse.getMessage();
+            }
+            else if(mcsResponse != null && mcsResponse.getHttpStatusCode() == StorageConstants.HTTP_200){
+                //range requests are not supported. Take the range from the complete content
+                mLogger.logFine( "Server returned the complete object for a range request", this.getClass().getSimpleName(), "downloadByteRange");
+                byte[] content = (byte[]) mcsResponse.getMessage();
+                if(firstByte >= content.length){
+                    throw new ServiceProxyException(StorageConstants.HTTP_416, "Range "+firstByte+"-"+lastByte+" not satisfiable for object of "+content.length+" bytes", mcsResponse.getHeaders());
+                }
+                int endIndex = lastByte >= 0 ? (int) Math.min(content.length, lastByte + 1) : content.length;
+                return Arrays.copyOfRange(content, (int) firstByte, endIndex);
+            }
+            else if (mcsResponse != null){
+                mLogger.logFine( "Request succeeded with MCS application error. Response code: "+mcsResponse.getHttpStatusCode()+", Response Message: "+mcsResponse.getMessage(), this.getClass().getSimpleName(), "downloadByteRange");
+                throw new ServiceProxyException(mcsResponse.getHttpStatusCode(),(String)mcsResponse.getMessage(), mcsResponse.getHeaders());
+            }
+        } catch (Exception e) {
+            this.handleExceptions(e, collectionObjectURI);
+        }
+        //we should not get here
+        return null;
+    }
+    
+    /**
+     * Downloads the MCS collection object identified by the collectionObjectUri to a file and continues interrupted 
+     * downloads. Content is written to a partial download file next to the target file (target file name plus ".part"), 
+     * which is renamed to the target file once the download completed. If the connection fails, the partial download 
+     * file is kept. The next call for the same target file, e.g. after the network is available again or after an 
+     * application restart, downloads only the missing bytes using a range request. The ETag of the partially downloaded
+     * object is sent in the "If-Range" header so that a changed object is downloaded completely. Within a single call, 
+     * downloads interrupted after content has been received are continued automatically.
+     *
+     * @param collectionObjectURI the complete request URI for a object. E.g. /mobile/platform/storage/collections/collection_name/objects/cf29dea3-da84-47b7-b262-a47f69c58bf1.
+     * @param acceptedMimeType the accept type for the expected content e.g. application/json, image/png, ... 
+     * @param targetFile the file to write the content to. An existing file is replaced
+     * @return StorageObject with the metadata (e.g. ETag and content type) returned with the downloaded content
+     * @throws IllegalArgumentException if the collectionObjectURI is null or empty or if the targetFile is null
+     * @throws ServiceProxyException for MCS application failure, transport level exceptions and file system errors
+     */
+    public StorageObject downloadToFileResumable(String collectionObjectURI, String acceptedMimeType, Path targetFile) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(collectionObjectURI == null || collectionObjectURI.isEmpty() || targetFile == null){
+            throw new IllegalArgumentException("The collectionObjectURI and targetFile in the call to downloadToFileResumable cannot be null");
+        }
+        
+        Path absoluteTargetFile = targetFile.toAbsolutePath();
+        Path partFile = absoluteTargetFile.resolveSibling(absoluteTargetFile.getFileName().toString() + StorageConstants.PARTIAL_DOWNLOAD_SUFFIX);
+        Path eTagFile = absoluteTargetFile.resolveSibling(absoluteTargetFile.getFileName().toString() + StorageConstants.PARTIAL_DOWNLOAD_ETAG_SUFFIX);
+        
+        try {
+            mLogger.logFine("Downloading "+collectionObjectURI+" to partial download file "+partFile.toString(), this.getClass().getSimpleName(), "downloadToFileResumable");
+            StorageObject storageObject = new StorageRangeDownloader(this).downloadResumable(collectionObjectURI, acceptedMimeType, partFile, eTagFile);
+            
+            commitDownloadedFile(partFile, absoluteTargetFile);
+            Files.deleteIfExists(eTagFile);
+            
+            mLogger.logFine("Download of "+collectionObjectURI+" saved to "+absoluteTargetFile.toString(), this.getClass().getSimpleName(), "downloadToFileResumable");
+            return storageObject;
+            
+        } catch (IOException e) {
+            mLogger.logError("Writing download to "+absoluteTargetFile.toString()+" failed: "+e.getMessage(), this.getClass().getSimpleName(), "downloadToFileResumable");
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        } catch (Exception e) {
+            mLogger.logWarning("Download of "+collectionObjectURI+" failed. Partial content is kept in "+partFile.toString(), this.getClass().getSimpleName(), "downloadToFileResumable");
+            this.handleExceptions(e, collectionObjectURI);
+        }
+        //we should not get here
+        return null;
+    }
+    
+    /**
+     * Downloads the MCS collection object identified by the collectionObjectUri to a file using multiple connections.
+     * The object is split into segments of at least 1 MB that are downloaded in parallel with range requests on the 
+     * thread pool of the MBE. The content length and ETag of the object are read with a HEAD request first. Small 
+     * objects and objects of servers that don't support range requests are downloaded with downloadToFileResumable. 
+     * Segments are written to a partial download file that is renamed to the target file once all segments completed 
+     * and that is removed if the download fails. If the object changes during the download, the download fails with 
+     * status code 412.
+     *
+     * @param collectionObjectURI the complete request URI for a object. E.g. /mobile/platform/storage/collections/collection_name/objects/cf29dea3-da84-47b7-b262-a47f69c58bf1.
+     * @param acceptedMimeType the accept type for the expected content e.g. application/json, image/png, ... 
+     * @param targetFile the file to write the content to. An existing file is replaced
+     * @param segmentCount maximum number of parallel connections. The number is limited by the async thread pool size 
+     * of the MBE configuration plus the calling thread
+     * @return StorageObject with the metadata (e.g. ETag and content type) returned with the downloaded content
+     * @throws IllegalArgumentException if the collectionObjectURI is null or empty, if the targetFile is null or if the 
+     * segmentCount is less than 1
+     * @throws ServiceProxyException for MCS application failure, transport level exceptions and file system errors
+     */
+    public StorageObject downloadToFileSegmented(String collectionObjectURI, String acceptedMimeType, Path targetFile, int segmentCount) throws IllegalArgumentException, ServiceProxyException {
+        
+        if(collectionObjectURI == null || collectionObjectURI.isEmpty() || targetFile == null || segmentCount < 1){
+            throw new IllegalArgumentException("The collectionObjectURI and targetFile in the call to downloadToFileSegmented cannot be null and segmentCount must be greater than 0");
+        }
+        
+        StorageRangeDownloader rangeDownloader = new StorageRangeDownloader(this);
+        long contentLength = -1;
+        String eTag = null;
+        
+        try {
+            MCSResponse headResponse = rangeDownloader.sendHeadRequest(collectionObjectURI, acceptedMimeType);
+            if(headResponse != null && headResponse.getHttpStatusCode() == StorageConstants.HTTP_200){
+                String contentLengthHeader = getResponseHeader(headResponse.getHeaders(), HeaderConstants.CONTENT_LENGTH);
+                String acceptRanges = getResponseHeader(headResponse.getHeaders(), HeaderConstants.ACCEPT_RANGES_HEADER);
+                eTag = getResponseHeader(headResponse.getHeaders(), HeaderConstants.ETAG_HEADER);
+                if(contentLengthHeader != null && !"none".equalsIgnoreCase(acceptRanges)){
+                    contentLength = Long.parseLong(contentLengthHeader.trim());
+                }
+            }
+            else if (headResponse != null){
+                throw new ServiceProxyException(headResponse.getHttpStatusCode(),(String)headResponse.getMessage(), headResponse.getHeaders());
+            }
+        } catch (NumberFormatException e) {
+            mLogger.logFine("Content length of "+collectionObjectURI+" unknown", this.getClass().getSimpleName(), "downloadToFileSegmented");
+        } catch (Exception e) {
+            this.handleExceptions(e, collectionObjectURI);
+        }
+        
+        int maxSegments = this.mbeConfiguration.getAsyncThreadPoolSize() + 1;
+        int segments = (int) Math.min(Math.min(segmentCount, maxSegments), Math.max(1, contentLength / StorageRangeDownloader.MIN_SEGMENT_SIZE));
+        
+        //segments are requested with If-Range, which requires a strong ETag
+        if(contentLength <= 0 || eTag == null || StorageRangeDownloader.isWeakETag(eTag) || segments < 2){
+            mLogger.logFine("Segmented download not possible or not required for "+collectionObjectURI+". Downloading with single connection", this.getClass().getSimpleName(), "downloadToFileSegmented");
+            return downloadToFileResumable(collectionObjectURI, acceptedMimeType, targetFile);
+        }
+        
+        Path absoluteTargetFile = targetFile.toAbsolutePath();
+        Path partFile = absoluteTargetFile.resolveSibling(absoluteTargetFile.getFileName().toString() + StorageConstants.PARTIAL_DOWNLOAD_SUFFIX);
+        boolean downloadCommitted = false;
+        
+        try {
+            MCSResponse mcsResponse = rangeDownloader.downloadSegmented(collectionObjectURI, acceptedMimeType, partFile, contentLength, eTag, segments);
+            
+            commitDownloadedFile(partFile, absoluteTargetFile);
+            downloadCommitted = true;
+            
+            StorageObject storageObject = new StorageObject(getStorageObjectID(collectionObjectURI));
+            storageObject.updateProperties(mcsResponse.getHeaders());
+            storageObject.setContentLength(contentLength);
+            storageObject.setETag(eTag);
+            
+            mLogger.logFine("Segmented download of "+collectionObjectURI+" saved to "+absoluteTargetFile.toString(), this.getClass().getSimpleName(), "downloadToFileSegmented");
+            return storageObject;
+            
+        } catch (IOException e) {
+            mLogger.logError("Writing download to "+absoluteTargetFile.toString()+" failed: "+e.getMessage(), this.getClass().getSimpleName(), "downloadToFileSegmented");
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        } catch (Exception e) {
+            this.handleExceptions(e, collectionObjectURI);
+        }
+        finally{
+            //segments are not continued as the partial file has gaps
+            if(!downloadCommitted){
+                try {
+                    Files.deleteIfExists(partFile);
+                } catch (IOException e) {
+                    mLogger.logWarning("Partial download file "+partFile.toString()+" could not be deleted", this.getClass().getSimpleName(), "downloadToFileSegmented");
+                }
+            }
+        }
+        //we should not get here
+        return null;
+    }
+    
+    /**
+     * Streams the content of a collection object to either an OutputStream or a FileChannel
+     * @param collectionObjectURI the complete request URI for a object
+     * @param acceptedMimeType the accept type for the expected content
+     * @param outputStream target stream or null if fileChannel is provided
+     * @param fileChannel target channel or null if outputStream is provided
+     * @return StorageObject with the metadata returned in the response headers
+     * @throws ServiceProxyException for MCS application failure and transport level exceptions
+     */
+    private StorageObject downloadContent(String collectionObjectURI, String acceptedMimeType, OutputStream outputStream, FileChannel fileChannel) throws ServiceProxyException {
+        
+        MCSRequest requestObject = null;
+        StorageObject storageObject = new StorageObject(getStorageObjectID(collectionObjectURI));
+        
+        try {
+           requestObject = new MCSRequest(this.mbeConfiguration);
+           
+           requestObject.setHttpMethod(com.oracle.maf.sample.mcs.shared.mafrest.MCSRequest.HttpMethod.GET);
+           requestObject.setRequestURI(collectionObjectURI);
+           requestObject.setConnectionName(this.mbeConfiguration.getMafRestConnectionName());
+           
+           HashMap<String,String> httpHeaders = new  HashMap<String,String>();
+           httpHeaders.put(HeaderConstants.ACCEPT_HEADER, acceptedMimeType);
+           
+           mLogger.logFine( "key/value pairs in header Map: "+MapUtils.dumpStringProperties(httpHeaders), this.getClass().getSimpleName(), "downloadContent");
+           
+           //Authorization is added by MAF or MCS Utility
+           requestObject.setHttpHeaders(httpHeaders);            
+           requestObject.setPayload("");
+
+           MCSResponse mcsResponse = null;
+           if(fileChannel != null){
+               mcsResponse = MCSRestClient.sendForFileResponse(requestObject, fileChannel);
+           }
+           else{
+               mcsResponse = MCSRestClient.sendForStreamResponse(requestObject, outputStream);
+           }
+            
+           if(mcsResponse != null && mcsResponse.getHttpStatusCode() == StorageConstants.HTTP_200){ 
+                mLogger.logFine( "Request succeeded", this.getClass().getSimpleName(), "downloadContent");
+                storageObject.updateProperties(mcsResponse.getHeaders());
+                return storageObject;
+            }
+           else if (mcsResponse != null){
+               mLogger.logFine( "Request succeeded with MCS application error. Response code: "+mcsResponse.getHttpStatusCode()+", Response Message: "+mcsResponse.getMessage(), this.getClass().getSimpleName(), "downloadContent");
+               throw new ServiceProxyException(mcsResponse.getHttpStatusCode(),(String)mcsResponse.getMessage(), mcsResponse.getHeaders());
+           }           
+           } catch (Exception e) {
+               //check if exception contains Oracle MCSS application error response. If not, throw ServiceProxyException
+               mLogger.logFine( "Exception Handling ::: calling handleExceptions(...) to find Oracle MCS response codes in exception message", this.getClass().getSimpleName(), "downloadContent");
+               this.handleExceptions(e, collectionObjectURI);
+           }        
+        //we should not get here
+        return null;
+    }
+    
+    /**
+     * Moves the completely downloaded temporary file to the target file. An atomic move is attempted first
+     * @param tempFile the completely downloaded temporary file
+     * @param targetFile the target file
+     * @throws IOException if the file cannot be moved
+     */
+    private void commitDownloadedFile(Path tempFile, Path targetFile) throws IOException {
+        try {
+            Files.move(tempFile, targetFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            mLogger.logFine("Atomic move not supported by file system. Replacing target file", this.getClass().getSimpleName(), "commitDownloadedFile");
+            Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * INTERNAL API - Applications should not use this method
+     * @return a new StorageCollection with the collection metadata of this object. The object owner user Id is not copied
+     */
+    StorageCollection copy() {
+        StorageCollection storageCollection = new StorageCollection(collectionID, storage);
+        storageCollection.setDescription(description);
+        storageCollection.setETag(eTag);
+        storageCollection.setContentLength(contentLength);
+        storageCollection.setIsUserIsolated(isUserIsolated);
+        return storageCollection;
+    }
+    
+    /**
+     * Asynchronous variant of {@link #contains(String)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<Boolean> containsAsync(final String storageObjectId) {
+        return this.storage.getMbe().submitAsync(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return contains(storageObjectId);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #containsAll(Collection)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<Map<String, Boolean>> containsAllAsync(final Collection<String> storageObjectIds) {
+        return this.storage.getMbe().submitAsync(new Callable<Map<String, Boolean>>() {
+            @Override
+            public Map<String, Boolean> call() throws Exception {
+                return containsAll(storageObjectIds);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #queryStorageObjectsByRange(int, int, boolean, String)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<List<StorageObject>> queryStorageObjectsByRangeAsync(final int offset, final int fetchSize, final boolean includeOtherUsersObjects, final String queryFilter) {
+        return this.storage.getMbe().submitAsync(new Callable<List<StorageObject>>() {
+            @Override
+            public List<StorageObject> call() throws Exception {
+                return queryStorageObjectsByRange(offset, fetchSize, includeOtherUsersObjects, queryFilter);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #querySingleStorageObjectById(String)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<StorageObject> querySingleStorageObjectByIdAsync(final String objectId) {
+        return this.storage.getMbe().submitAsync(new Callable<StorageObject>() {
+            @Override
+            public StorageObject call() throws Exception {
+                return querySingleStorageObjectById(objectId);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #createObject(StorageObject, byte[])}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<StorageObject> createObjectAsync(final StorageObject object, final byte[] byteContent) {
+        return this.storage.getMbe().submitAsync(new Callable<StorageObject>() {
+            @Override
+            public StorageObject call() throws Exception {
+                return createObject(object, byteContent);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #createObject(StorageObject, File)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<StorageObject> createObjectAsync(final StorageObject object, final File file) {
+        return this.storage.getMbe().submitAsync(new Callable<StorageObject>() {
+            @Override
+            public StorageObject call() throws Exception {
+                return createObject(object, file);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #createOrUpdateObject(StorageObject, byte[], HashMap)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<StorageObject> createOrUpdateObjectAsync(final StorageObject object, final byte[] byteContent, final HashMap<String,String> optimisticLockingInfo) {
+        return this.storage.getMbe().submitAsync(new Callable<StorageObject>() {
+            @Override
+            public StorageObject call() throws Exception {
+                return createOrUpdateObject(object, byteContent, optimisticLockingInfo);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #createOrUpdateObject(StorageObject, File, HashMap)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<StorageObject> createOrUpdateObjectAsync(final StorageObject object, final File file, final HashMap<String,String> optimisticLockingInfo) {
+        return this.storage.getMbe().submitAsync(new Callable<StorageObject>() {
+            @Override
+            public StorageObject call() throws Exception {
+                return createOrUpdateObject(object, file, optimisticLockingInfo);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #removeCollectionObject(String, HashMap)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<Boolean> removeCollectionObjectAsync(final String objectId, final HashMap<String,String> etagHashMap) {
+        return this.storage.getMbe().submitAsync(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return removeCollectionObject(objectId, etagHashMap);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #downloadByteContentForObjectUri(String, String)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<byte[]> downloadByteContentForObjectUriAsync(final String collectionObjectURI, final String acceptedMimeType) {
+        return this.storage.getMbe().submitAsync(new Callable<byte[]>() {
+            @Override
+            public byte[] call() throws Exception {
+                return downloadByteContentForObjectUri(collectionObjectURI, acceptedMimeType);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #downloadToFile(String, String, Path)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<StorageObject> downloadToFileAsync(final String collectionObjectURI, final String acceptedMimeType, final Path targetFile) {
+        return this.storage.getMbe().submitAsync(new Callable<StorageObject>() {
+            @Override
+            public StorageObject call() throws Exception {
+                return downloadToFile(collectionObjectURI, acceptedMimeType, targetFile);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #downloadToFileResumable(String, String, Path)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<StorageObject> downloadToFileResumableAsync(final String collectionObjectURI, final String acceptedMimeType, final Path targetFile) {
+        return this.storage.getMbe().submitAsync(new Callable<StorageObject>() {
+            @Override
+            public StorageObject call() throws Exception {
+                return downloadToFileResumable(collectionObjectURI, acceptedMimeType, targetFile);
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #uploadSegmented(StorageObject, Path, SegmentedUploadHandler, UploadProgressListener)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<StorageObject> uploadSegmentedAsync(final StorageObject object, final Path file, final SegmentedUploadHandler uploadHandler, final UploadProgressListener progressListener) {
+        return this.storage.getMbe().submitAsync(new Callable<StorageObject>() {
+            @Override
+            public StorageObject call() throws Exception {
+                return uploadSegmented(object, file, uploadHandler, progressListener);
+            }
+        });
+    }
+
     /**
      * print values of this object
      * @return String with property/value information 
@@ -27,6 +27,31 @@ public class StorageConstants {
      */
 
     public static final String CONTENT_LENGTH_HEADER = "Content-Length";
+    
+    /**
+     * Accept header value used for downloads that don't specify a mime type
+     */
+    public static final String ACCEPT_ANY_MIME_TYPE = "*/*";
+    
+    /**
+     * Directory below the application directory that holds the on-disk cache of downloaded storage object content
+     */
+    public static final String CONTENT_CACHE_DIRECTORY = "mcs-storage-cache";
+    
+    /**
+     * Directory below the application directory that holds the content of storage writes queued in the outbox
+     */
+    public static final String OUTBOX_DIRECTORY = "mcs-storage-outbox";
+    
+    /**
+     * File name suffix of partially downloaded files that are continued by resumable downloads
+     */
+    public static final String PARTIAL_DOWNLOAD_SUFFIX = ".part";
+    
+    /**
+     * File name suffix of the file that holds the ETag of a partially downloaded file
+     */
+    public static final String PARTIAL_DOWNLOAD_ETAG_SUFFIX = ".part.etag";
 
 
     /**
@@ -197,4 +222,9 @@ public class StorageConstants {
     * 
     */
    public static final int HTTP_412 = 412;
+   
+   /**
+    * HTTP 416 Range Not Satisfiable - The byte range requested in the "Range" HTTP header starts beyond the end of the object
+    */
+   public static final int HTTP_416 = 416;
 }
@@ -0,0 +1,552 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.shared.log.MBELogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * On-disk cache for storage object content downloaded with StorageCollection.downloadByteContentForObjectUri. Content
+ * is keyed by the canonical link of the object and the authenticated user and stored together with its ETag. Content
+ * downloaded by one user therefore is never returned to another user of the device. Within the freshness time (see
+ * MBEConfiguration.setContentCacheFreshnessSeconds) cached content is returned without network access. Afterwards the
+ * content is revalidated with the If-None-Match header and only downloaded again if the object changed on the server.
+ * <p>
+ * Each cache entry consists of a data file and a metadata file. Both are written to a temporary file first and then
+ * moved into place, the metadata file last. Entries therefore are either complete or not visible at all, even if the
+ * application is terminated while writing. If the total size of the cached content exceeds the maximum size, the least
+ * recently used entries are removed.
+ * <p>
+ * The cache is obtained from Storage.getContentCache(). Objects changed or removed through StorageCollection are
+ * removed from the cache.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public final class StorageContentCache {
+
+    private static final String DATA_FILE_SUFFIX = ".data";
+    private static final String META_FILE_SUFFIX = ".meta";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private static final String META_URI = "uri";
+    private static final String META_USER = "user";
+    private static final String META_ETAG = "eTag";
+    private static final String META_CONTENT_TYPE = "contentType";
+    private static final String META_SIZE = "size";
+    private static final String META_VALIDATED = "validated";
+    private static final String META_DATA_FILE = "dataFile";
+
+    private final Path cacheDirectory;
+    private final long maxBytes;
+    private final long freshnessMillis;
+    private final MBELogger mLogger;
+
+    //access ordered: the first entry is the least recently used
+    private final LinkedHashMap<String, CacheEntry> entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Cached content of a storage object
+     */
+    static final class CacheEntry {
+        private final String uri;
+        private final String user;
+        private final String eTag;
+        private final String contentType;
+        private final long size;
+        private final String dataFileName;
+        private volatile long validatedMillis;
+
+        CacheEntry(String uri, String user, String eTag, String contentType, long size, String dataFileName, long validatedMillis) {
+            this.uri = uri;
+            this.user = user;
+            this.eTag = eTag;
+            this.contentType = contentType;
+            this.size = size;
+            this.dataFileName = dataFileName;
+            this.validatedMillis = validatedMillis;
+        }
+
+        String getETag() {
+            return eTag;
+        }
+
+        String getContentType() {
+            return contentType;
+        }
+
+        private String getKey() {
+            return createKey(uri, user);
+        }
+    }
+
+    /**
+     * Creates the cache and loads the entries persisted by a previous application run
+     * @param cacheDirectory directory the cache files are written to. Created if it does not exist
+     * @param maxBytes maximum total size of the cached content
+     * @param freshnessSeconds time in seconds cached content is used without revalidation
+     * @param logger MBE logger
+     * @throws IOException if the cache directory cannot be created
+     */
+    StorageContentCache(Path cacheDirectory, long maxBytes, int freshnessSeconds, MBELogger logger) throws IOException {
+        this.cacheDirectory = cacheDirectory;
+        this.maxBytes = maxBytes;
+        this.freshnessMillis = freshnessSeconds * 1000L;
+        this.mLogger = logger;
+
+        Files.createDirectories(cacheDirectory);
+        loadEntries();
+    }
+
+    /**
+     * Returns the cache entry for a storage object URI
+     * @param uri canonical link of the storage object
+     * @param user authenticated user that downloaded the content
+     * @return CacheEntry or null if the content is not cached for the user
+     */
+    synchronized CacheEntry get(String uri, String user) {
+        return entries.get(createKey(uri, user));
+    }
+
+    /**
+     * @param cacheEntry entry
+     * @return true if the entry can be used without revalidation
+     */
+    boolean isFresh(CacheEntry cacheEntry) {
+        return System.currentTimeMillis() - cacheEntry.validatedMillis < freshnessMillis;
+    }
+
+    /**
+     * Reads the cached content and counts the cache hit
+     * @param cacheEntry entry
+     * @param revalidated true if the content has been revalidated with the server (HTTP 304)
+     * @return content or null if the data file cannot be read, in which case the entry is removed
+     */
+    byte[] read(CacheEntry cacheEntry, boolean revalidated) {
+        Path dataFile = cacheDirectory.resolve(cacheEntry.dataFileName);
+        try {
+            byte[] content = Files.readAllBytes(dataFile);
+            if (content.length != cacheEntry.size) {
+                throw new IOException("Size of " + dataFile + " is " + content.length + " but expected " + cacheEntry.size);
+            }
+            touch(cacheEntry);
+            if (revalidated) {
+                revalidations.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+            return content;
+        } catch (IOException e) {
+            mLogger.logWarning("Cached content for " + cacheEntry.uri + " cannot be read: " + e.getMessage(), this.getClass().getSimpleName(), "read");
+            invalidate(cacheEntry.uri);
+            return null;
+        }
+    }
+
+    /**
+     * Marks the entry as revalidated after the server responded with HTTP 304
+     * @param cacheEntry entry
+     */
+    void markValidated(CacheEntry cacheEntry) {
+        cacheEntry.validatedMillis = System.currentTimeMillis();
+        try {
+            synchronized (this) {
+                //the entry may have been replaced by a newer version in between
+                if (entries.get(cacheEntry.getKey()) != cacheEntry) {
+                    return;
+                }
+                writeMetaFile(cacheEntry);
+            }
+        } catch (IOException e) {
+            //the entry is revalidated again after the next restart
+            mLogger.logFine("Metadata for " + cacheEntry.uri + " not updated: " + e.getMessage(), this.getClass().getSimpleName(), "markValidated");
+        }
+    }
+
+    /**
+     * Stores the downloaded content of a storage object. Content without ETag or larger than the cache is not cached
+     * @param uri canonical link of the storage object
+     * @param user authenticated user that downloaded the content
+     * @param eTag ETag of the content
+     * @param contentType content type of the content
+     * @param content downloaded content
+     */
+    void put(String uri, String user, String eTag, String contentType, byte[] content) {
+
+        misses.incrementAndGet();
+
+        if (eTag == null || content == null || content.length > maxBytes) {
+            invalidate(uri);
+            return;
+        }
+
+        String cacheUser = normalizeUser(user);
+        String keyHash = hash(createKey(uri, cacheUser));
+        //each version gets its own data file, so that the metadata file always references a complete data file
+        String dataFileName = keyHash + "-" + Long.toHexString(System.nanoTime()) + DATA_FILE_SUFFIX;
+        CacheEntry cacheEntry = new CacheEntry(uri, cacheUser, eTag, contentType, content.length, dataFileName, System.currentTimeMillis());
+
+        try {
+            writeAtomically(cacheDirectory.resolve(dataFileName), content);
+            writeMetaFile(cacheEntry);
+        } catch (IOException e) {
+            mLogger.logWarning("Content for " + uri + " not cached: " + e.getMessage(), this.getClass().getSimpleName(), "put");
+            deleteQuietly(cacheDirectory.resolve(dataFileName));
+            invalidate(uri);
+            return;
+        }
+
+        List<CacheEntry> removedEntries = new ArrayList<CacheEntry>();
+        synchronized (this) {
+            CacheEntry previousEntry = entries.put(cacheEntry.getKey(), cacheEntry);
+            if (previousEntry != null) {
+                totalBytes = totalBytes - previousEntry.size;
+                //the metadata file has been replaced already. Only the previous data file is obsolete
+                deleteQuietly(cacheDirectory.resolve(previousEntry.dataFileName));
+            }
+            totalBytes = totalBytes + cacheEntry.size;
+
+            Iterator<CacheEntry> leastRecentlyUsed = entries.values().iterator();
+            while (totalBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+                CacheEntry evictedEntry = leastRecentlyUsed.next();
+                if (evictedEntry == cacheEntry) {
+                    continue;
+                }
+                leastRecentlyUsed.remove();
+                totalBytes = totalBytes - evictedEntry.size;
+                removedEntries.add(evictedEntry);
+            }
+        }
+
+        for (CacheEntry evictedEntry : removedEntries) {
+            evictions.incrementAndGet();
+            deleteEntryFiles(evictedEntry);
+        }
+        mLogger.logFine("Cached " + content.length + " bytes for " + uri + ". Cache size is " + getTotalBytes() + " bytes",
+                        this.getClass().getSimpleName(), "put");
+    }
+
+    /**
+     * Removes the cached content of a storage object for all users. The query string of the URI (e.g. the user parameter
+     * of isolated collections) is ignored, so that all cached versions of the object are removed
+     * @param uri URI of the storage object
+     */
+    void invalidate(String uri) {
+        String objectPath = getObjectPath(uri);
+        List<CacheEntry> removedEntries = new ArrayList<CacheEntry>();
+        synchronized (this) {
+            Iterator<CacheEntry> cacheEntries = entries.values().iterator();
+            while (cacheEntries.hasNext()) {
+                CacheEntry cacheEntry = cacheEntries.next();
+                if (objectPath.equals(getObjectPath(cacheEntry.uri))) {
+                    cacheEntries.remove();
+                    totalBytes = totalBytes - cacheEntry.size;
+                    removedEntries.add(cacheEntry);
+                }
+            }
+        }
+        for (CacheEntry cacheEntry : removedEntries) {
+            deleteEntryFiles(cacheEntry);
+        }
+    }
+
+    /**
+     * Removes all cached content, e.g. when the user logs out. Counters are not reset
+     */
+    public void clear() {
+        List<CacheEntry> removedEntries;
+        synchronized (this) {
+            removedEntries = new ArrayList<CacheEntry>(entries.values());
+            entries.clear();
+            totalBytes = 0;
+        }
+        for (CacheEntry cacheEntry : removedEntries) {
+            deleteEntryFiles(cacheEntry);
+        }
+    }
+
+    /**
+     * @return number of downloads served from cache without network access
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of downloads served from cache after the server confirmed the ETag (HTTP 304)
+     */
+    public long getRevalidatedCount() {
+        return revalidations.get();
+    }
+
+    /**
+     * @return number of downloads that transferred the content
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of entries removed to stay within the maximum size
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    /**
+     * @return total size in bytes of the cached content
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return statistics String for logging
+     */
+    public String getStatistics() {
+        return "contentCacheHits: " + hits.get() + ", contentCacheRevalidated: " + revalidations.get() +
+               ", contentCacheMisses: " + misses.get() + ", contentCacheEvictions: " + evictions.get() +
+               ", contentCacheEntries: " + getSize() + ", contentCacheBytes: " + getTotalBytes();
+    }
+
+    /**
+     * Loads the metadata files of the cache directory. Temporary files and data files without metadata are left overs
+     * of interrupted writes and are deleted
+     */
+    private void loadEntries() throws IOException {
+
+        List<CacheEntry> loadedEntries = new ArrayList<CacheEntry>();
+        Set<String> referencedDataFiles = new HashSet<String>();
+        List<Path> dataFiles = new ArrayList<Path>();
+
+        DirectoryStream<Path> cacheFiles = Files.newDirectoryStream(cacheDirectory);
+        try {
+            for (Path cacheFile : cacheFiles) {
+                String fileName = cacheFile.getFileName().toString();
+                if (fileName.endsWith(TEMP_FILE_SUFFIX)) {
+                    deleteQuietly(cacheFile);
+                } else if (fileName.endsWith(DATA_FILE_SUFFIX)) {
+                    dataFiles.add(cacheFile);
+                } else if (fileName.endsWith(META_FILE_SUFFIX)) {
+                    CacheEntry cacheEntry = readMetaFile(cacheFile);
+                    if (cacheEntry != null) {
+                        loadedEntries.add(cacheEntry);
+                        referencedDataFiles.add(cacheEntry.dataFileName);
+                    } else {
+                        deleteQuietly(cacheFile);
+                    }
+                }
+            }
+        } finally {
+            cacheFiles.close();
+        }
+
+        for (Path dataFile : dataFiles) {
+            if (!referencedDataFiles.contains(dataFile.getFileName().toString())) {
+                deleteQuietly(dataFile);
+            }
+        }
+
+        //the modification time of the data file is the last access time
+        final Map<CacheEntry, Long> lastAccess = new HashMap<CacheEntry, Long>();
+        for (CacheEntry cacheEntry : loadedEntries) {
+            try {
+                lastAccess.put(cacheEntry, Files.getLastModifiedTime(cacheDirectory.resolve(cacheEntry.dataFileName)).toMillis());
+            } catch (IOException e) {
+                lastAccess.put(cacheEntry, 0L);
+            }
+        }
+        Collections.sort(loadedEntries, new Comparator<CacheEntry>() {
+            @Override
+            public int compare(CacheEntry entry1, CacheEntry entry2) {
+                return Long.compare(lastAccess.get(entry1), lastAccess.get(entry2));
+            }
+        });
+
+        synchronized (this) {
+            for (CacheEntry cacheEntry : loadedEntries) {
+                entries.put(cacheEntry.getKey(), cacheEntry);
+                totalBytes = totalBytes + cacheEntry.size;
+            }
+        }
+        mLogger.logFine("Loaded " + loadedEntries.size() + " cache entries with " + totalBytes + " bytes from " + cacheDirectory,
+                        this.getClass().getSimpleName(), "loadEntries");
+    }
+
+    /**
+     * Records the access to an entry in the modification time of its data file, which is used to restore the LRU order
+     * after a restart
+     */
+    void touch(CacheEntry cacheEntry) {
+        try {
+            Files.setLastModifiedTime(cacheDirectory.resolve(cacheEntry.dataFileName), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            //LRU order after restart is approximate only
+        }
+    }
+
+    private CacheEntry readMetaFile(Path metaFile) {
+        Properties properties = new Properties();
+        InputStream input = null;
+        try {
+            input = Files.newInputStream(metaFile);
+            properties.load(input);
+            String dataFileName = properties.getProperty(META_DATA_FILE);
+            long size = Long.parseLong(properties.getProperty(META_SIZE));
+            Path dataFile = cacheDirectory.resolve(dataFileName);
+            if (!Files.isRegularFile(dataFile) || Files.size(dataFile) != size) {
+                return null;
+            }
+            //entries without user were written before content was cached per user and are not used
+            String user = properties.getProperty(META_USER);
+            if (user == null) {
+                return null;
+            }
+            return new CacheEntry(properties.getProperty(META_URI), user, properties.getProperty(META_ETAG),
+                                  properties.getProperty(META_CONTENT_TYPE), size, dataFileName,
+                                  Long.parseLong(properties.getProperty(META_VALIDATED)));
+        } catch (Exception e) {
+            //incomplete or corrupt metadata
+            return null;
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    //nothing we can do here
+                }
+            }
+        }
+    }
+
+    private void writeMetaFile(CacheEntry cacheEntry) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(META_URI, cacheEntry.uri);
+        properties.setProperty(META_USER, cacheEntry.user);
+        properties.setProperty(META_ETAG, cacheEntry.eTag);
+        if (cacheEntry.contentType != null) {
+            properties.setProperty(META_CONTENT_TYPE, cacheEntry.contentType);
+        }
+        properties.setProperty(META_SIZE, Long.toString(cacheEntry.size));
+        properties.setProperty(META_VALIDATED, Long.toString(cacheEntry.validatedMillis));
+        properties.setProperty(META_DATA_FILE, cacheEntry.dataFileName);
+
+        ByteArrayOutputStream metaContent = new ByteArrayOutputStream(512);
+        properties.store(metaContent, null);
+        writeAtomically(cacheDirectory.resolve(hash(cacheEntry.getKey()) + META_FILE_SUFFIX), metaContent.toByteArray());
+    }
+
+    /**
+     * Writes the content to a temporary file, forces it to disk and moves it to the target file
+     */
+    private void writeAtomically(Path targetFile, byte[] content) throws IOException {
+        Path tempFile = Files.createTempFile(cacheDirectory, targetFile.getFileName().toString(), TEMP_FILE_SUFFIX);
+        try {
+            FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                OutputStream output = Channels.newOutputStream(channel);
+                output.write(content);
+                output.flush();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+            try {
+                Files.move(tempFile, targetFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            deleteQuietly(tempFile);
+        }
+    }
+
+    private void deleteEntryFiles(CacheEntry cacheEntry) {
+        Path metaFile = cacheDirectory.resolve(hash(cacheEntry.getKey()) + META_FILE_SUFFIX);
+        //a newer version of the object may have been written in between
+        CacheEntry metaEntry = Files.exists(metaFile) ? readMetaFile(metaFile) : null;
+        if (metaEntry == null || cacheEntry.dataFileName.equals(metaEntry.dataFileName)) {
+            deleteQuietly(metaFile);
+        }
+        deleteQuietly(cacheDirectory.resolve(cacheEntry.dataFileName));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            //removed with the next start
+        }
+    }
+
+    private static String normalizeUser(String user) {
+        return user != null ? user : "";
+    }
+
+    /**
+     * @return key of the content of an object downloaded by a user
+     */
+    private static String createKey(String uri, String user) {
+        return normalizeUser(user) + "\n" + uri;
+    }
+
+    /**
+     * Returns the path of the object URI without query string, starting with "/collections"
+     */
+    private static String getObjectPath(String uri) {
+        String objectPath = uri;
+        int queryIndex = objectPath.indexOf('?');
+        if (queryIndex > -1) {
+            objectPath = objectPath.substring(0, queryIndex);
+        }
+        int collectionsIndex = objectPath.indexOf("/collections");
+        return collectionsIndex > -1 ? objectPath.substring(collectionsIndex) : objectPath;
+    }
+
+    /**
+     * File names are derived from the SHA-256 hash of the cache key
+     */
+    private static String hash(String key) {
+        return StorageContentIndex.hash(key);
+    }
+}
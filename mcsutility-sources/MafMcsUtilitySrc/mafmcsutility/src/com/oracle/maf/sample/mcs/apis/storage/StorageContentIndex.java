@@ -0,0 +1,182 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.apis.storage.db.ContentIndexEntry;
+import com.oracle.maf.sample.mcs.apis.storage.db.StorageDB;
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ *
+ * *** INTERNAL FRAMEWORK CLASS ***
+ *
+ * Index of the SHA-256 hash of the content last written to storage objects with PUT, used to skip uploads of content
+ * the object already holds. Entries are saved in the SQLite database of the application together with the ETag MCS
+ * returned for the content, so that changes made to the object by other clients are detected with a HEAD request.
+ * The index counts the uploads that were skipped and the bytes that were not sent.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+final class StorageContentIndex {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final String mobileBackendId;
+
+    private final AtomicLong indexedUploads = new AtomicLong();
+    private final AtomicLong verifiedUploads = new AtomicLong();
+    private final AtomicLong skippedUploads = new AtomicLong();
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    StorageContentIndex(String mobileBackendId) {
+        super();
+        this.mobileBackendId = mobileBackendId;
+    }
+
+    /**
+     * @param objectUri the object URI
+     * @return the index entry of the object or null if its content is not indexed
+     */
+    ContentIndexEntry getEntry(String objectUri) {
+        return StorageDB.getInstance().findContentIndexEntry(mobileBackendId, objectUri);
+    }
+
+    /**
+     * Saves the hash and ETag of content that was written to an object
+     */
+    void put(String objectUri, String contentHash, StorageObject storageObject) {
+        if (contentHash == null || storageObject.getETag() == null || storageObject.getETag().isEmpty()) {
+            remove(objectUri);
+            return;
+        }
+        ContentIndexEntry indexEntry = new ContentIndexEntry();
+        indexEntry.setObjectUri(objectUri);
+        indexEntry.setContentHash(contentHash);
+        indexEntry.setETag(storageObject.getETag());
+        indexEntry.setDisplayName(storageObject.getDisplayName());
+        indexEntry.setContentType(storageObject.getContentType());
+        if (StorageDB.getInstance().saveContentIndexEntry(mobileBackendId, indexEntry)) {
+            indexedUploads.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes the entry of an object that was removed or whose content is unknown
+     */
+    void remove(String objectUri) {
+        StorageDB.getInstance().deleteContentIndexEntry(mobileBackendId, objectUri);
+    }
+
+    /**
+     * Counts an indexed object whose ETag was checked with MCS
+     */
+    void recordVerified() {
+        verifiedUploads.incrementAndGet();
+    }
+
+    /**
+     * Counts an upload that was skipped
+     * @param contentLength number of bytes that were not sent
+     */
+    void recordSkipped(long contentLength) {
+        skippedUploads.incrementAndGet();
+        if (contentLength > 0) {
+            bytesSaved.addAndGet(contentLength);
+        }
+    }
+
+    long getSkippedUploads() {
+        return skippedUploads.get();
+    }
+
+    long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    /**
+     * @return statistics String for logging
+     */
+    String getStatistics() {
+        return "indexedUploads: " + indexedUploads.get() + ", verifiedUploads: " + verifiedUploads.get() +
+               ", skippedUploads: " + skippedUploads.get() + ", bytesSaved: " + bytesSaved.get();
+    }
+
+    /**
+     * @return MessageDigest to compute content hashes with
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            //SHA-256 is available on all Java platforms
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param messageDigest digest that read all content
+     * @return hex encoded hash
+     */
+    static String toHex(MessageDigest messageDigest) {
+        byte[] digest = messageDigest.digest();
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @param text text to hash, e.g. a cache key
+     * @return hex encoded SHA-256 hash of the UTF-8 encoded text
+     */
+    static String hash(String text) {
+        return hash(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param content content to hash
+     * @return hex encoded SHA-256 hash of the content
+     */
+    static String hash(byte[] content) {
+        MessageDigest messageDigest = newDigest();
+        messageDigest.update(content);
+        return toHex(messageDigest);
+    }
+
+    /**
+     * @param file file to hash
+     * @return hex encoded SHA-256 hash of the file content
+     * @throws ServiceProxyException if the file cannot be read
+     */
+    static String hash(Path file) throws ServiceProxyException {
+        MessageDigest messageDigest = newDigest();
+        try {
+            InputStream inputStream = Files.newInputStream(file);
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = inputStream.read(buffer)) > -1) {
+                    messageDigest.update(buffer, 0, read);
+                }
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+        return toHex(messageDigest);
+    }
+}
@@ -0,0 +1,28 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+
+
+/**
+ * Unchecked exception thrown by StorageObjectIterator and by the streams returned by StorageCollection.stream when a
+ * page of a collection listing cannot be read. java.util.Iterator and java.util.stream.Stream don't allow checked
+ * exceptions, so the ServiceProxyException is passed as the cause.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class StorageIterationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public StorageIterationException(ServiceProxyException serviceProxyException) {
+        super(serviceProxyException.getMessage(), serviceProxyException);
+    }
+
+    /**
+     * @return the ServiceProxyException thrown when reading the listing page
+     */
+    public ServiceProxyException getServiceProxyException() {
+        return (ServiceProxyException) getCause();
+    }
+}
@@ -0,0 +1,427 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import oracle.adfmf.json.JSONException;
+
+
+/**
+ *
+ * *** INTERNAL FRAMEWORK CLASS ***
+ *
+ * Pull parser for storage collection listing pages. The parser reads the page token by token from a UTF-8 encoded
+ * stream and adds each item to a StorageObjectList as soon as the item is read, without building JSONObjects for the
+ * page or its items. Of the page properties, only "hasMore", "count" and the "next" link are kept. Other properties
+ * are skipped. Items are read with the same defaults as StorageObject.updateProperties.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+final class StorageListingParser {
+
+    private static final String LINK_REL_NEXT = "next";
+
+    private final Reader reader;
+    private final char[] buffer = new char[8 * 1024];
+    private int position = 0;
+    private int limit = 0;
+
+    //reused for string and literal tokens
+    private final StringBuilder token = new StringBuilder();
+
+    /**
+     * @param inputStream UTF-8 encoded listing page. The stream is not closed by the parser
+     */
+    StorageListingParser(InputStream inputStream) throws IOException {
+        super();
+        this.reader = new InputStreamReader(inputStream, "UTF-8");
+    }
+
+    /**
+     * Reads a listing page
+     *
+     * @param items listing the items of the page are added to
+     * @return Map with the "hasMore", "count" and "items" information of the page and "nextUri" if the page has a next link
+     * @throws JSONException if the page is not a JSON object
+     * @throws IOException if the stream cannot be read
+     */
+    Map<String, Object> parsePage(StorageObjectList items) throws JSONException, IOException {
+
+        Map<String, Object> info = new HashMap<String, Object>();
+        boolean hasMore = false;
+        int count = -1;
+
+        expect('{');
+        if (!nextIsEnd('}')) {
+            do {
+                String name = readName();
+                if (StorageConstants.STORAGE_INFORMATION_ITEMS.equals(name)) {
+                    readItems(items);
+                } else if ("hasMore".equals(name)) {
+                    //a missing or null "hasMore" means no more pages
+                    hasMore = Boolean.TRUE.equals(readScalar());
+                } else if ("count".equals(name)) {
+                    count = (int) toLong(readScalar());
+                } else if (StorageConstants.OBJECT_PROPERTY_TAG_LINKS.equals(name)) {
+                    String nextUri = readLink(LINK_REL_NEXT);
+                    if (nextUri != null) {
+                        info.put("nextUri", nextUri);
+                    }
+                } else {
+                    skipValue();
+                }
+            } while (nextMember('}'));
+        }
+
+        info.put("hasMore", hasMore);
+        info.put("count", count > -1 ? count : items.size());
+        info.put("items", items);
+        return info;
+    }
+
+    private void readItems(StorageObjectList items) throws JSONException, IOException {
+        int c = nextClean();
+        if (c == 'n') {
+            readLiteral(c);
+            return;
+        }
+        if (c != '[') {
+            throw syntaxError("Expected items array");
+        }
+        if (nextIsEnd(']')) {
+            return;
+        }
+        do {
+            readItem(items);
+        } while (nextMember(']'));
+    }
+
+    private void readItem(StorageObjectList items) throws JSONException, IOException {
+
+        String id = "";
+        String displayName = "";
+        String user = "";
+        String contentType = "";
+        String eTag = "";
+        String createdBy = "";
+        String createdOn = "";
+        String modifiedBy = null;
+        String modifiedOn = null;
+        String canonicalLink = null;
+        long contentLength = 0;
+
+        expect('{');
+        if (!nextIsEnd('}')) {
+            do {
+                String name = readName();
+                if (StorageConstants.OBJECT_PROPERTY_TAG_LINKS.equals(name)) {
+                    canonicalLink = readLink(StorageConstants.OBJECT_PROPERTY_LINK_TAG_CANONICAL);
+                    continue;
+                }
+                Object value = readScalar();
+                if (StorageConstants.OBJECT_PROPERTY_TAG_ID.equals(name)) {
+                    id = toString(value, "");
+                } else if (StorageConstants.OBJECT_PROPERTY_TAG_DISPLAYNAME.equals(name)) {
+                    displayName = toString(value, "");
+                } else if (StorageConstants.OBJECT_PROPERTY_USER.equals(name)) {
+                    user = toString(value, "");
+                } else if (StorageConstants.OBJECT_PROPERTY_CONTENT_TYPE.equals(name)) {
+                    contentType = toString(value, "");
+                } else if (StorageConstants.OBJECT_PROPERTY_TAG_ETAG.equals(name)) {
+                    eTag = toString(value, "");
+                } else if (StorageConstants.OBJECT_PROPERTY_TAG_CREATEDBY.equals(name)) {
+                    createdBy = toString(value, "");
+                } else if (StorageConstants.OBJECT_PROPERTY_TAG_CREATEDON.equals(name)) {
+                    createdOn = toString(value, "");
+                } else if (StorageConstants.OBJECT_PROPERTY_TAG_MODIFIEDBY.equals(name)) {
+                    modifiedBy = toString(value, null);
+                } else if (StorageConstants.OBJECT_PROPERTY_TAG_MODIFIEDON.equals(name)) {
+                    modifiedOn = toString(value, null);
+                } else if (StorageConstants.OBJECT_PROPERTY_CONTENT_LENGTH.equals(name)) {
+                    contentLength = toLong(value);
+                }
+            } while (nextMember('}'));
+        }
+
+        items.add(StorageObject.decodeName(id), displayName, user, contentType, eTag, createdBy, createdOn, modifiedBy,
+                  modifiedOn, canonicalLink, contentLength);
+    }
+
+    /**
+     * Reads a links array
+     *
+     * @param rel relation of the link to return
+     * @return the href of the first link with the relation or null if there is none
+     */
+    private String readLink(String rel) throws JSONException, IOException {
+        String href = null;
+        int c = nextClean();
+        if (c == 'n') {
+            readLiteral(c);
+            return null;
+        }
+        if (c != '[') {
+            throw syntaxError("Expected links array");
+        }
+        if (nextIsEnd(']')) {
+            return null;
+        }
+        do {
+            String linkRel = null;
+            String linkHref = null;
+            expect('{');
+            if (!nextIsEnd('}')) {
+                do {
+                    String name = readName();
+                    if (StorageConstants.OBJECT_PROPERTY_LINK_TAG_REL.equals(name)) {
+                        linkRel = toString(readScalar(), null);
+                    } else if (StorageConstants.OBJECT_PROPERTY_LINK_TAG_HREF.equals(name)) {
+                        linkHref = toString(readScalar(), null);
+                    } else {
+                        skipValue();
+                    }
+                } while (nextMember('}'));
+            }
+            if (href == null && rel.equals(linkRel)) {
+                href = linkHref;
+            }
+        } while (nextMember(']'));
+        return href;
+    }
+
+    /**
+     * @return the name of the next object member. The name separator is read as well
+     */
+    private String readName() throws JSONException, IOException {
+        if (nextClean() != '"') {
+            throw syntaxError("Expected member name");
+        }
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Reads a string, number, boolean or null value. Objects and arrays are skipped and read as null
+     *
+     * @return String, Boolean, the number as String or null
+     */
+    private Object readScalar() throws JSONException, IOException {
+        int c = nextClean();
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '{' || c == '[') {
+            position--;
+            skipValue();
+            return null;
+        }
+        String literal = readLiteral(c);
+        if ("true".equals(literal)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equals(literal)) {
+            return Boolean.FALSE;
+        }
+        if ("null".equals(literal)) {
+            return null;
+        }
+        return literal;
+    }
+
+    /**
+     * Skips the next value including nested objects and arrays
+     */
+    private void skipValue() throws JSONException, IOException {
+        int depth = 0;
+        do {
+            int c = nextClean();
+            switch (c) {
+            case '{':
+            case '[':
+                depth++;
+                break;
+            case '}':
+            case ']':
+                depth--;
+                break;
+            case '"':
+                readString();
+                break;
+            case ',':
+            case ':':
+                break;
+            case -1:
+                throw syntaxError("Unexpected end of listing");
+            default:
+                readLiteral(c);
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Reads a string value. The opening quote has been read
+     */
+    private String readString() throws JSONException, IOException {
+        token.setLength(0);
+        while (true) {
+            int c = next();
+            switch (c) {
+            case -1:
+                throw syntaxError("Unterminated string");
+            case '"':
+                return token.toString();
+            case '\\':
+                c = next();
+                switch (c) {
+                case 'b':
+                    token.append('\b');
+                    break;
+                case 't':
+                    token.append('\t');
+                    break;
+                case 'n':
+                    token.append('\n');
+                    break;
+                case 'f':
+                    token.append('\f');
+                    break;
+                case 'r':
+                    token.append('\r');
+                    break;
+                case 'u':
+                    int codePoint = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(next(), 16);
+                        if (digit < 0) {
+                            throw syntaxError("Illegal escape");
+                        }
+                        codePoint = (codePoint << 4) + digit;
+                    }
+                    token.append((char) codePoint);
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    token.append((char) c);
+                    break;
+                default:
+                    throw syntaxError("Illegal escape");
+                }
+                break;
+            default:
+                token.append((char) c);
+            }
+        }
+    }
+
+    /**
+     * Reads a number, boolean or null literal
+     *
+     * @param first the first character of the literal
+     */
+    private String readLiteral(int first) throws JSONException, IOException {
+        token.setLength(0);
+        int c = first;
+        while (c > -1 && ",:]}\"[{".indexOf(c) < 0 && !Character.isWhitespace(c)) {
+            token.append((char) c);
+            c = next();
+        }
+        if (c > -1) {
+            position--;
+        }
+        if (token.length() == 0) {
+            throw syntaxError("Expected value");
+        }
+        return token.toString();
+    }
+
+    /**
+     * @param end the closing character of the current object or array
+     * @return true if another member follows, false if the object or array ends
+     */
+    private boolean nextMember(char end) throws JSONException, IOException {
+        int c = nextClean();
+        if (c == ',') {
+            return true;
+        }
+        if (c == end) {
+            return false;
+        }
+        throw syntaxError("Expected ',' or '" + end + "'");
+    }
+
+    /**
+     * @param end the closing character of the current object or array
+     * @return true if the object or array is empty. Otherwise nothing is read
+     */
+    private boolean nextIsEnd(char end) throws IOException {
+        int c = nextClean();
+        if (c == end) {
+            return true;
+        }
+        if (c > -1) {
+            position--;
+        }
+        return false;
+    }
+
+    private void expect(char expected) throws JSONException, IOException {
+        if (nextClean() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+    }
+
+    private int nextClean() throws IOException {
+        int c;
+        do {
+            c = next();
+        } while (c > -1 && Character.isWhitespace(c));
+        return c;
+    }
+
+    /**
+     * @return next character or -1 at the end of the stream. A character read from the buffer can be pushed back by
+     * decrementing the position
+     */
+    private int next() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit < 1) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " in storage listing");
+    }
+
+    private static String toString(Object value, String defaultValue) {
+        return value != null ? value.toString() : defaultValue;
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                try {
+                    return (long) Double.parseDouble((String) value);
+                } catch (NumberFormatException nfe) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,127 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ *
+ * *** INTERNAL FRAMEWORK CLASS ***
+ *
+ * In-memory cache with time-to-live for the results of Storage lookups (StorageInformation and StorageCollection
+ * metadata). The time-to-live is passed with each read so that changes to the MBE configuration apply to entries
+ * that already are cached. Cached values are snapshots that must not be handed out to applications. Callers copy
+ * them before returning.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+final class StorageLookupCache<V> {
+
+    //number of lookup results kept. Lookups are keyed by URI and user, so this limit is reached in rare cases only
+    static final int MAX_ENTRIES = 100;
+
+    private final ConcurrentHashMap<String, CacheEntry<V>> entries = new ConcurrentHashMap<String, CacheEntry<V>>();
+    private final int maxEntries;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private static final class CacheEntry<V> {
+        private final V value;
+        private final long cachedAtMillis;
+
+        CacheEntry(V value) {
+            this.value = value;
+            this.cachedAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    StorageLookupCache() {
+        this(MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries number of entries kept. Expired entries are removed when the limit is reached and all entries
+     * are removed if the cache still is full
+     */
+    StorageLookupCache(int maxEntries) {
+        super();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param key lookup key
+     * @param ttlSeconds time in seconds a cached value is used
+     * @return the cached value or null if no value is cached or the value expired
+     */
+    V get(String key, int ttlSeconds) {
+        CacheEntry<V> entry = entries.get(key);
+        if (entry == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.cachedAtMillis >= ttlSeconds * 1000L) {
+            entries.remove(key, entry);
+            missCount.incrementAndGet();
+            return null;
+        }
+        hitCount.incrementAndGet();
+        return entry.value;
+    }
+
+    /**
+     * @param key lookup key
+     * @param value snapshot of the lookup result
+     * @param ttlSeconds time in seconds a cached value is used. Used to remove expired entries if the cache is full
+     */
+    void put(String key, V value, int ttlSeconds) {
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            removeExpired(ttlSeconds);
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        entries.put(key, new CacheEntry<V>(value));
+    }
+
+    /**
+     * @param keyPrefix removes all entries whose key starts with this prefix
+     */
+    void invalidateByPrefix(String keyPrefix) {
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().startsWith(keyPrefix)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    long getHitCount() {
+        return hitCount.get();
+    }
+
+    long getMissCount() {
+        return missCount.get();
+    }
+
+    int getSize() {
+        return entries.size();
+    }
+
+    private void removeExpired(int ttlSeconds) {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, CacheEntry<V>>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().getValue().cachedAtMillis >= ttlSeconds * 1000L) {
+                iterator.remove();
+            }
+        }
+    }
+}
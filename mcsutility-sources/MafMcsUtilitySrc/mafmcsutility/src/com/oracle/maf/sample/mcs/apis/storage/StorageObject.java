@@ -65,8 +65,10 @@ public class StorageObject {
     private String canonicalLink = null;
     private String eTag = null;
     private long contentLength = 0;
+    private boolean queued = false;
     
-    private PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
+    //created with the first listener. Objects of large listings are usually not observed
+    private PropertyChangeSupport propertyChangeSupport = null;
 
     public StorageObject(String id,  String contentType) {
         this.objectID = id;
@@ -81,7 +83,7 @@ public class StorageObject {
     public void setID(String objectID) {
         String oldObjectID = this.objectID;
         this.objectID = objectID;
-        propertyChangeSupport.firePropertyChange("objectID", oldObjectID, objectID);
+        firePropertyChange("objectID", oldObjectID, objectID);
     }
 
     public String getID() {
@@ -91,7 +93,7 @@ public class StorageObject {
     public void setDisplayName(String displayName) {
         String oldDisplayName = this.displayName;
         this.displayName = displayName;
-        propertyChangeSupport.firePropertyChange("displayName", oldDisplayName, displayName);
+        firePropertyChange("displayName", oldDisplayName, displayName);
     }
 
     public String getDisplayName() {
@@ -101,7 +103,7 @@ public class StorageObject {
     public void setContentType(String contentType) {
         String oldContentType = this.contentType;
         this.contentType = contentType;
-        propertyChangeSupport.firePropertyChange("contentType", oldContentType, contentType);
+        firePropertyChange("contentType", oldContentType, contentType);
     }
 
     public String getContentType() {
@@ -111,7 +113,7 @@ public class StorageObject {
     public void setCreatedBy(String createdBy) {
         String oldCreatedBy = this.createdBy;
         this.createdBy = createdBy;
-        propertyChangeSupport.firePropertyChange("createdBy", oldCreatedBy, createdBy);
+        firePropertyChange("createdBy", oldCreatedBy, createdBy);
     }
 
     public String getCreatedBy() {
@@ -121,7 +123,7 @@ public class StorageObject {
     public void setCreatedOn(String createdOn) {
         Date oldCreatedOn = this.createdOn;
         this.createdOn = DateUtil.parseToDate(createdOn);
-        propertyChangeSupport.firePropertyChange("createdOn", oldCreatedOn, DateUtil.parseToDate(createdOn));
+        firePropertyChange("createdOn", oldCreatedOn, this.createdOn);
     }
 
     public Date getCreatedOn() {
@@ -131,7 +133,7 @@ public class StorageObject {
     public void setModifiedBy(String modifiedBy) {
         String oldModifiedBy = this.modifiedBy;
         this.modifiedBy = modifiedBy;
-        propertyChangeSupport.firePropertyChange("modifiedBy", oldModifiedBy, modifiedBy);
+        firePropertyChange("modifiedBy", oldModifiedBy, modifiedBy);
     }
 
     public String getModifiedBy() {
@@ -141,7 +143,7 @@ public class StorageObject {
     public void setModifiedOn(String modifiedOn) {
         Date oldModifiedOn = this.modifiedOn;
         this.modifiedOn = DateUtil.parseToDate(modifiedOn);
-        propertyChangeSupport.firePropertyChange("modifiedOn", oldModifiedOn, DateUtil.parseToDate(modifiedOn));
+        firePropertyChange("modifiedOn", oldModifiedOn, this.modifiedOn);
     }
 
     public Date getModifiedOn() {
@@ -151,7 +153,7 @@ public class StorageObject {
     public void setCanonicalLink(String canonicalLink) {
         String oldCanonicalLink = this.canonicalLink;
         this.canonicalLink = canonicalLink;
-        propertyChangeSupport.firePropertyChange("canonicalLink", oldCanonicalLink, canonicalLink);
+        firePropertyChange("canonicalLink", oldCanonicalLink, canonicalLink);
     }
 
     public String getCanonicalLink() {
@@ -161,7 +163,7 @@ public class StorageObject {
     public void setETag(String eTag) {
         String oldETag = this.eTag;
         this.eTag = eTag;
-        propertyChangeSupport.firePropertyChange("eTag", oldETag, eTag);
+        firePropertyChange("eTag", oldETag, eTag);
     }
 
     public String getETag() {
@@ -172,7 +174,7 @@ public class StorageObject {
     public void setUser(String user) {
         String oldUser = this.user;
         this.user = user;
-        propertyChangeSupport.firePropertyChange("user", oldUser, user);
+        firePropertyChange("user", oldUser, user);
     }
 
     public String getUser() {
@@ -183,13 +185,27 @@ public class StorageObject {
     public void setContentLength(long contentLength) {
         long oldContentLength = this.contentLength;
         this.contentLength = contentLength;
-        propertyChangeSupport.firePropertyChange("contentLength", oldContentLength, contentLength);
+        firePropertyChange("contentLength", oldContentLength, contentLength);
     }
 
     public long getContentLength() {
         return contentLength;
     }
 
+    void setQueued(boolean queued) {
+        boolean oldQueued = this.queued;
+        this.queued = queued;
+        firePropertyChange("queued", oldQueued, queued);
+    }
+
+    /**
+     * @return true if this object was returned by a write that was saved in the Storage outbox because the device is
+     * offline. The object has no ETag or canonical link until the outbox is replayed
+     */
+    public boolean isQueued() {
+        return queued;
+    }
+
     /**
      * Convenience method to populate StorageObject with content found in a JSONObject. The method attempts to read 
      * JSON Object properties. If the JSON Object is empty or if an attribute is not found, a default empty value is
@@ -238,7 +254,7 @@ public class StorageObject {
 
         //Set the canonicalLink
         JSONArray links = jsonObject.getJSONArray(StorageConstants.OBJECT_PROPERTY_TAG_LINKS);
-        this.setCanonicalLink(this.pickCanonicalLink(links));
+        this.setCanonicalLink(pickCanonicalLink(links));
     }
 
 
@@ -285,8 +301,10 @@ public class StorageObject {
         String canonicalLink = headers.get(StorageConstants.OBJECT_PROPERTY_LINK_TAG_CANONICAL);
         this.setCanonicalLink(canonicalLink);
 
-        long contentLength = new Long(headers.get(StorageConstants.OBJECT_PROPERTY_CONTENT_LENGTH)).longValue();
-        this.setContentLength(contentLength);
+        //streamed responses carry the length in the Content-Length header only, if at all
+        String contentLength = headers.get(StorageConstants.OBJECT_PROPERTY_CONTENT_LENGTH);
+        if(contentLength == null) contentLength = headers.get(StorageConstants.CONTENT_LENGTH_HEADER);
+        if(contentLength != null) this.setContentLength(Long.parseLong(contentLength.trim()));
         
         String eTag = headers.get(StorageConstants.HEADER_PROPERTY_TAG_ETAG);
         this.setETag(eTag);
@@ -299,7 +317,7 @@ public class StorageObject {
      * @return a link string or null if the link could not be found
      * @throws JSONException if parsing of the JSONArray holding the link fails
      */
-    private String pickCanonicalLink(JSONArray links) throws JSONException{
+    static String pickCanonicalLink(JSONArray links) throws JSONException{
         for(int i=0; i<links.length(); i++){
             JSONObject link = links.getJSONObject(i);
             if(link.getString(StorageConstants.OBJECT_PROPERTY_LINK_TAG_REL).equals(StorageConstants.OBJECT_PROPERTY_LINK_TAG_CANONICAL)){
@@ -315,7 +333,7 @@ public class StorageObject {
      * @param objectId the name of 
      * @return decoded string
      */
-    private String decodeName(String objectId){
+    static String decodeName(String objectId){
         String decodedName = "";
         try {
             decodedName = URLDecoder.decode(objectId, "UTF-8");
@@ -325,12 +343,27 @@ public class StorageObject {
         return decodedName;
     }
 
-    public void addPropertyChangeListener(PropertyChangeListener l) {
+    public synchronized void addPropertyChangeListener(PropertyChangeListener l) {
+        if (propertyChangeSupport == null) {
+            propertyChangeSupport = new PropertyChangeSupport(this);
+        }
         propertyChangeSupport.addPropertyChangeListener(l);
     }
 
-    public void removePropertyChangeListener(PropertyChangeListener l) {
-        propertyChangeSupport.removePropertyChangeListener(l);
+    public synchronized void removePropertyChangeListener(PropertyChangeListener l) {
+        if (propertyChangeSupport != null) {
+            propertyChangeSupport.removePropertyChangeListener(l);
+        }
+    }
+
+    /**
+     * Notifies listeners, if any. Setters called while an object is populated from a listing do not allocate events
+     */
+    private void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+        PropertyChangeSupport changeSupport = propertyChangeSupport;
+        if (changeSupport != null) {
+            changeSupport.firePropertyChange(propertyName, oldValue, newValue);
+        }
     }
     
     /**
@@ -0,0 +1,72 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+
+/**
+ * Iterator over the objects of a storage collection that reads the collection listing page by page while the
+ * application advances. Only the current page is held in memory and objects are released once they are returned, so
+ * that collections of any size can be scanned with constant memory. No further pages are requested once the
+ * application stops iterating. Call close() to discard pages prefetched by the pager if not all objects are read.
+ * <p>
+ * Instances are returned by StorageCollection.iterator or created for a StorageObjectPager with prefetching. Failures
+ * to read a page are thrown as StorageIterationException from hasNext() and next().
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class StorageObjectIterator implements Iterator<StorageObject> {
+
+    private final StorageObjectPager pager;
+    private List<StorageObject> currentPage = null;
+    private int index = 0;
+
+    /**
+     * @param pager the pager that reads the listing pages
+     */
+    public StorageObjectIterator(StorageObjectPager pager) {
+        this.pager = pager;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (currentPage == null || index >= currentPage.size()) {
+            //release the page before the next one is read
+            currentPage = null;
+            if (!pager.hasNextPage()) {
+                return false;
+            }
+            try {
+                currentPage = pager.nextPage();
+            } catch (ServiceProxyException e) {
+                pager.close();
+                throw new StorageIterationException(e);
+            }
+            index = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public StorageObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        StorageObject storageObject = currentPage.get(index);
+        currentPage.set(index, null);
+        index++;
+        return storageObject;
+    }
+
+    /**
+     * Stops the iteration and discards prefetched pages
+     */
+    public void close() {
+        currentPage = null;
+        pager.close();
+    }
+}
@@ -0,0 +1,244 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.shared.utils.DateUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+
+/**
+ * Read-only listing of storage object metadata for large collections. Where a List of StorageObject allocates an
+ * observable bean per object, this listing keeps the metadata of all objects in one array per property. Dates are
+ * kept as returned by MCS and parsed when they are first read. Instances are returned by
+ * StorageCollection.queryStorageObjectListByRange.
+ * <p>
+ * Properties are read by index. Use get(index) to create a StorageObject for the objects the application displays
+ * or updates. The listing is not changed after it is returned and can be read from any thread.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public final class StorageObjectList {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int size = 0;
+
+    private String[] ids;
+    private String[] displayNames;
+    private String[] users;
+    private String[] contentTypes;
+    private String[] eTags;
+    private String[] createdBy;
+    private String[] createdOn;
+    private String[] modifiedBy;
+    private String[] modifiedOn;
+    private String[] canonicalLinks;
+    private long[] contentLengths;
+
+    //parsed dates, allocated with the first date that is read
+    private Date[] createdOnDates = null;
+    private Date[] modifiedOnDates = null;
+
+    /**
+     * @param expectedSize number of objects the listing is expected to hold. The listing grows if more objects are added
+     */
+    StorageObjectList(int expectedSize) {
+        super();
+        int capacity = expectedSize > 0 ? expectedSize : DEFAULT_CAPACITY;
+        ids = new String[capacity];
+        displayNames = new String[capacity];
+        users = new String[capacity];
+        contentTypes = new String[capacity];
+        eTags = new String[capacity];
+        createdBy = new String[capacity];
+        createdOn = new String[capacity];
+        modifiedBy = new String[capacity];
+        modifiedOn = new String[capacity];
+        canonicalLinks = new String[capacity];
+        contentLengths = new long[capacity];
+    }
+
+    /**
+     * Adds an object read from a MCS listing
+     */
+    void add(String id, String displayName, String user, String contentType, String eTag, String createdByUser,
+             String createdOnDate, String modifiedByUser, String modifiedOnDate, String canonicalLink, long contentLength) {
+        if (size == ids.length) {
+            grow(size + 1);
+        }
+        ids[size] = id;
+        displayNames[size] = displayName;
+        users[size] = user;
+        contentTypes[size] = contentType;
+        eTags[size] = eTag;
+        createdBy[size] = createdByUser;
+        createdOn[size] = createdOnDate;
+        modifiedBy[size] = modifiedByUser;
+        modifiedOn[size] = modifiedOnDate;
+        canonicalLinks[size] = canonicalLink;
+        contentLengths[size] = contentLength;
+        size++;
+    }
+
+    /**
+     * Adds the objects of another listing, e.g. of a single listing page
+     */
+    void addAll(StorageObjectList storageObjectList) {
+        int count = storageObjectList.size;
+        if (size + count > ids.length) {
+            grow(size + count);
+        }
+        System.arraycopy(storageObjectList.ids, 0, ids, size, count);
+        System.arraycopy(storageObjectList.displayNames, 0, displayNames, size, count);
+        System.arraycopy(storageObjectList.users, 0, users, size, count);
+        System.arraycopy(storageObjectList.contentTypes, 0, contentTypes, size, count);
+        System.arraycopy(storageObjectList.eTags, 0, eTags, size, count);
+        System.arraycopy(storageObjectList.createdBy, 0, createdBy, size, count);
+        System.arraycopy(storageObjectList.createdOn, 0, createdOn, size, count);
+        System.arraycopy(storageObjectList.modifiedBy, 0, modifiedBy, size, count);
+        System.arraycopy(storageObjectList.modifiedOn, 0, modifiedOn, size, count);
+        System.arraycopy(storageObjectList.canonicalLinks, 0, canonicalLinks, size, count);
+        System.arraycopy(storageObjectList.contentLengths, 0, contentLengths, size, count);
+        size += count;
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(ids.length * 2, minCapacity);
+        ids = Arrays.copyOf(ids, capacity);
+        displayNames = Arrays.copyOf(displayNames, capacity);
+        users = Arrays.copyOf(users, capacity);
+        contentTypes = Arrays.copyOf(contentTypes, capacity);
+        eTags = Arrays.copyOf(eTags, capacity);
+        createdBy = Arrays.copyOf(createdBy, capacity);
+        createdOn = Arrays.copyOf(createdOn, capacity);
+        modifiedBy = Arrays.copyOf(modifiedBy, capacity);
+        modifiedOn = Arrays.copyOf(modifiedOn, capacity);
+        canonicalLinks = Arrays.copyOf(canonicalLinks, capacity);
+        contentLengths = Arrays.copyOf(contentLengths, capacity);
+    }
+
+    /**
+     * @return number of objects in the listing
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String getID(int index) {
+        return ids[checkIndex(index)];
+    }
+
+    public String getDisplayName(int index) {
+        return displayNames[checkIndex(index)];
+    }
+
+    public String getUser(int index) {
+        return users[checkIndex(index)];
+    }
+
+    public String getContentType(int index) {
+        return contentTypes[checkIndex(index)];
+    }
+
+    public String getETag(int index) {
+        return eTags[checkIndex(index)];
+    }
+
+    public long getContentLength(int index) {
+        return contentLengths[checkIndex(index)];
+    }
+
+    public String getCreatedBy(int index) {
+        return createdBy[checkIndex(index)];
+    }
+
+    public synchronized Date getCreatedOn(int index) {
+        checkIndex(index);
+        if (createdOnDates == null) {
+            createdOnDates = new Date[size];
+        }
+        if (createdOnDates[index] == null) {
+            createdOnDates[index] = DateUtil.parseToDate(createdOn[index]);
+        }
+        return createdOnDates[index];
+    }
+
+    public String getModifiedBy(int index) {
+        return modifiedBy[checkIndex(index)];
+    }
+
+    public synchronized Date getModifiedOn(int index) {
+        checkIndex(index);
+        if (modifiedOnDates == null) {
+            modifiedOnDates = new Date[size];
+        }
+        if (modifiedOnDates[index] == null) {
+            modifiedOnDates[index] = DateUtil.parseToDate(modifiedOn[index]);
+        }
+        return modifiedOnDates[index];
+    }
+
+    public String getCanonicalLink(int index) {
+        return canonicalLinks[checkIndex(index)];
+    }
+
+    /**
+     * @param objectId id of the object
+     * @return index of the object in the listing or -1 if the listing does not contain the object
+     */
+    public int indexOf(String objectId) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i].equals(objectId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Creates a StorageObject for the object at the given index. Each call returns a new instance
+     *
+     * @param index index of the object
+     * @return StorageObject with the metadata of the object
+     */
+    public StorageObject get(int index) {
+        checkIndex(index);
+        StorageObject storageObject = new StorageObject(ids[index]);
+        storageObject.setContentType(contentTypes[index]);
+        storageObject.setUser(users[index]);
+        storageObject.setDisplayName(displayNames[index]);
+        storageObject.setETag(eTags[index]);
+        storageObject.setCreatedBy(createdBy[index]);
+        storageObject.setCreatedOn(createdOn[index]);
+        storageObject.setContentLength(contentLengths[index]);
+        storageObject.setModifiedBy(modifiedBy[index]);
+        storageObject.setModifiedOn(modifiedOn[index]);
+        storageObject.setCanonicalLink(canonicalLinks[index]);
+        return storageObject;
+    }
+
+    /**
+     * @return List with a StorageObject for each object in the listing
+     */
+    public List<StorageObject> toStorageObjects() {
+        List<StorageObject> result = new ArrayList<StorageObject>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,237 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+import com.oracle.maf.sample.mcs.shared.log.MBELogger;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+
+/**
+ * Reads the objects of a storage collection page by page using the offset and limit parameters of the MCS Storage
+ * listing. Instances are created with StorageCollection.queryStorageObjectsByPage. Each call to nextPage returns the
+ * next page. If prefetching is enabled, the following pages are requested on the thread pool of the MBE while the
+ * application processes the current page, so that the next call to nextPage usually returns without waiting for
+ * the server.
+ * <p>
+ * MCS may return fewer objects than requested if the page size exceeds its limit (100 by default). In this case the
+ * page size of subsequent requests is reduced to the number of objects returned. Pages are read in order. Objects
+ * added or removed while a collection is paged may cause objects to be skipped or returned twice, as for all offset
+ * based listings. Call close() to discard prefetched pages if not all pages are read.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class StorageObjectPager {
+
+    private final StorageCollection storageCollection;
+    private final String listingURI;
+    private final int prefetchPages;
+    private final long endOffset;
+    private final boolean revalidatePages;
+    private final MBELogger mLogger;
+
+    private int pageSize;
+    private long nextOffset;
+    private boolean hasMore = true;
+    private boolean pageSizeConfirmed = false;
+    private final ArrayDeque<PageRequest> prefetchedPages = new ArrayDeque<PageRequest>();
+
+    /**
+     * A page request is executed by the thread pool or, if it did not start yet when the page is needed, by the
+     * thread that reads the page. This way a busy thread pool cannot block the reader
+     */
+    private final class PageRequest {
+        private final long offset;
+        private final int limit;
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+        private final CompletableFuture<Map<String, Object>> result = new CompletableFuture<Map<String, Object>>();
+
+        PageRequest(long offset, int limit) {
+            this.offset = offset;
+            this.limit = limit;
+        }
+
+        void run() {
+            if (claimed.compareAndSet(false, true)) {
+                try {
+                    result.complete(storageCollection.fetchListingPage(listingURI, offset, limit, revalidatePages));
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            }
+        }
+
+        void cancel() {
+            if (claimed.compareAndSet(false, true)) {
+                result.cancel(false);
+            }
+        }
+
+        Map<String, Object> get() throws ServiceProxyException {
+            run();
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof ServiceProxyException) {
+                    throw (ServiceProxyException) e.getCause();
+                }
+                throw new ServiceProxyException(e.getCause() != null ? e.getCause() : e, ServiceProxyException.ERROR);
+            }
+        }
+    }
+
+    /**
+     * @param storageCollection the collection to page
+     * @param listingURI URI of the collection object listing including user and query filter parameters
+     * @param offset index of the first object to read
+     * @param pageSize number of objects requested per page or 0 to use the page size of the server
+     * @param maxObjects maximum number of objects to read or -1 to read all objects from the offset on
+     * @param prefetchPages number of pages requested in advance. 0 disables prefetching
+     * @param revalidatePages true to cache pages and revalidate them with their ETag, false to parse pages while they
+     * are received without keeping them in memory
+     */
+    StorageObjectPager(StorageCollection storageCollection, String listingURI, int offset, int pageSize, int maxObjects, int prefetchPages,
+                       boolean revalidatePages) {
+        this.storageCollection = storageCollection;
+        this.listingURI = listingURI;
+        this.nextOffset = offset;
+        this.pageSize = pageSize;
+        this.endOffset = maxObjects < 0 ? Long.MAX_VALUE : (long) offset + maxObjects;
+        this.prefetchPages = prefetchPages;
+        this.revalidatePages = revalidatePages;
+        this.mLogger = storageCollection.getStorage().getMbe().getMbeConfiguration().getLogger();
+    }
+
+    /**
+     * @return true if the collection may have more objects. The last page can be empty
+     */
+    public synchronized boolean hasNextPage() {
+        return hasMore && nextOffset < endOffset;
+    }
+
+    /**
+     * @return offset of the next page
+     */
+    public synchronized long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * @return number of objects requested per page. The size is reduced if MCS limits the page size
+     */
+    public synchronized int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Reads the next page of storage objects
+     *
+     * @return List of StorageObjects. The list is empty if no more objects exist
+     * @throws ServiceProxyException in case of application errors, system errors or transport layer exceptions
+     */
+    public synchronized List<StorageObject> nextPage() throws ServiceProxyException {
+        return storageCollection.toStorageObjects(readNextPage(), listingURI);
+    }
+
+    /**
+     * Reads the next page of storage objects into a compact listing
+     *
+     * @param storageObjectList listing the objects of the page are added to
+     * @throws ServiceProxyException in case of application errors, system errors or transport layer exceptions
+     */
+    synchronized void nextPage(StorageObjectList storageObjectList) throws ServiceProxyException {
+        storageCollection.addStorageObjects(storageObjectList, readNextPage(), listingURI);
+    }
+
+    /**
+     * @return items of the next page or null if no more objects exist
+     */
+    private StorageObjectList readNextPage() throws ServiceProxyException {
+
+        if (!hasNextPage()) {
+            return null;
+        }
+
+        PageRequest pageRequest = prefetchedPages.poll();
+        if (pageRequest == null || pageRequest.offset != nextOffset) {
+            cancelPrefetchedPages();
+            if (pageRequest != null) {
+                pageRequest.cancel();
+            }
+            pageRequest = new PageRequest(nextOffset, nextLimit(nextOffset));
+        }
+
+        Map<String, Object> pageInfo = pageRequest.get();
+
+        if (pageInfo == null || pageInfo.isEmpty()) {
+            mLogger.logFine("No page returned for offset " + pageRequest.offset, this.getClass().getSimpleName(), "readNextPage");
+            hasMore = false;
+            cancelPrefetchedPages();
+            return null;
+        }
+
+        int count = ((Integer) pageInfo.get("count")).intValue();
+        hasMore = ((Boolean) pageInfo.get("hasMore")).booleanValue() && count > 0;
+        nextOffset = pageRequest.offset + count;
+
+        if (hasMore && !pageSizeConfirmed) {
+            //MCS applies its own limit to large page sizes and a default limit if no page size is requested
+            if (pageRequest.limit == 0 || count < pageRequest.limit) {
+                mLogger.logFine("Page size reduced from " + pageSize + " to the server limit of " + count, this.getClass().getSimpleName(), "readNextPage");
+                pageSize = count;
+                cancelPrefetchedPages();
+            }
+            pageSizeConfirmed = true;
+        }
+
+        if (hasNextPage()) {
+            prefetch();
+        } else {
+            cancelPrefetchedPages();
+        }
+
+        return (StorageObjectList) pageInfo.get("items");
+    }
+
+    /**
+     * Discards prefetched pages. Requests already sent are not interrupted
+     */
+    public synchronized void close() {
+        hasMore = false;
+        cancelPrefetchedPages();
+    }
+
+    private int nextLimit(long offset) {
+        return (int) Math.min(pageSize, endOffset - offset);
+    }
+
+    private void prefetch() {
+        long offset = prefetchedPages.isEmpty() ? nextOffset : prefetchedPages.peekLast().offset + prefetchedPages.peekLast().limit;
+        while (prefetchedPages.size() < prefetchPages && offset < endOffset) {
+            final PageRequest pageRequest = new PageRequest(offset, nextLimit(offset));
+            prefetchedPages.add(pageRequest);
+            storageCollection.getStorage().getMbe().submitAsync(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    pageRequest.run();
+                    return null;
+                }
+            });
+            offset += pageRequest.limit;
+        }
+    }
+
+    private void cancelPrefetchedPages() {
+        PageRequest pageRequest;
+        while ((pageRequest = prefetchedPages.poll()) != null) {
+            pageRequest.cancel();
+        }
+    }
+}
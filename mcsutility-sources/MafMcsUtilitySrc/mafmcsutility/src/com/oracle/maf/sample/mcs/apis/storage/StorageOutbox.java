@@ -0,0 +1,425 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.apis.storage.db.OutboxEntry;
+import com.oracle.maf.sample.mcs.apis.storage.db.StorageDB;
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+import com.oracle.maf.sample.mcs.shared.log.MBELogger;
+import com.oracle.maf.sample.mcs.shared.mbe.config.base.MBEConfiguration;
+import com.oracle.maf.sample.mcs.shared.utils.MAFUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import oracle.adfmf.json.JSONException;
+import oracle.adfmf.json.JSONObject;
+
+
+/**
+ * Durable queue of StorageCollection creates, updates and deletes that are issued while the device has no network
+ * access. Writes are queued if MBEConfiguration.setQueueStorageWritesIfOffline is enabled. Each queued operation is
+ * saved in the SQLite database of the application together with its If-Match / If-None-Match headers. The content of
+ * writes is referenced by file: writes of a File keep the path of the file, which therefore must not be deleted before
+ * the outbox is replayed. byte[] and stream content is copied to a payload file in the application directory that is
+ * owned by the outbox.
+ * <p>
+ * The outbox is replayed when replay() is called, e.g. when the application detects that the network is available
+ * again, and in the background after a storage write succeeded online. Operations on the same object are sent in the
+ * order they were issued. Operations on different objects are sent concurrently, limited by
+ * MBEConfiguration.getStorageBatchConcurrency. Operations that fail because of network or server errors stay queued.
+ * Operations MCS rejects, e.g. with HTTP 412 because the object changed on the server, are marked failed and kept
+ * until the application retries or discards them.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public final class StorageOutbox {
+
+    private static final String PAYLOAD_FILE_SUFFIX = ".payload";
+
+    private final Storage storage;
+    private final Path payloadDirectory;
+    private final MBEConfiguration mbeConfiguration;
+    private final MBELogger mLogger;
+
+    //only one replay per outbox at a time
+    private final AtomicBoolean replaying = new AtomicBoolean(false);
+
+    //false once a replay left no pending entries. Avoids database reads after each online write
+    private volatile boolean pendingEntries = true;
+
+    StorageOutbox(Storage storage, Path payloadDirectory) {
+        super();
+        this.storage = storage;
+        this.payloadDirectory = payloadDirectory;
+        this.mbeConfiguration = storage.getMbe().getMbeConfiguration();
+        this.mLogger = this.mbeConfiguration.getLogger();
+    }
+
+    /**
+     * Queues a create or update
+     *
+     * @param storageCollection the collection the object is written to
+     * @param uri the object URI for PUT or the collection objects URI for POST
+     * @param httpMethod PUT or POST
+     * @param storageObject metadata of the object
+     * @param payload the content as File, byte[] or InputStream. Streams are read to their end but not closed
+     * @param preconditions If-Match / If-None-Match headers or null
+     * @return the storage object, marked as queued
+     * @throws ServiceProxyException if the operation cannot be saved
+     */
+    StorageObject enqueueWrite(StorageCollection storageCollection, String uri, String httpMethod, StorageObject storageObject,
+                               Object payload, HashMap<String, String> preconditions) throws ServiceProxyException {
+
+        OutboxEntry outboxEntry = createEntry(storageCollection, uri, httpMethod.equalsIgnoreCase("PUT") ? OutboxEntry.OPERATION_PUT : OutboxEntry.OPERATION_POST, preconditions);
+        outboxEntry.setObjectId(storageObject.getID());
+        outboxEntry.setDisplayName(storageObject.getDisplayName());
+        outboxEntry.setContentType(storageObject.getContentType());
+
+        if (payload instanceof File) {
+            outboxEntry.setPayloadFile(((File) payload).getAbsolutePath());
+        } else {
+            Path payloadFile = payloadDirectory.resolve(outboxEntry.getEntryId() + PAYLOAD_FILE_SUFFIX);
+            try {
+                Files.createDirectories(payloadDirectory);
+                if (payload instanceof byte[]) {
+                    Files.write(payloadFile, (byte[]) payload);
+                } else {
+                    Files.copy((InputStream) payload, payloadFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                mLogger.logError("Payload of queued " + httpMethod + " to " + uri + " cannot be saved: " + e.getMessage(), this.getClass().getSimpleName(), "enqueueWrite");
+                deletePayloadFile(payloadFile);
+                throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+            }
+            outboxEntry.setPayloadFile(payloadFile.toString());
+            outboxEntry.setPayloadOwned(true);
+        }
+
+        saveEntry(outboxEntry);
+        storageObject.setQueued(true);
+        return storageObject;
+    }
+
+    /**
+     * Queues a delete
+     *
+     * @param storageCollection the collection the object is removed from
+     * @param uri the object URI
+     * @param preconditions If-Match / If-None-Match headers or null
+     * @throws ServiceProxyException if the operation cannot be saved
+     */
+    void enqueueDelete(StorageCollection storageCollection, String uri, HashMap<String, String> preconditions) throws ServiceProxyException {
+        saveEntry(createEntry(storageCollection, uri, OutboxEntry.OPERATION_DELETE, preconditions));
+    }
+
+    /**
+     * Sends the pending operations to MCS. Returns immediately if the device is offline or if a replay of this outbox
+     * is in progress
+     *
+     * @return number of operations that were sent successfully
+     * @throws ServiceProxyException if the calling thread is interrupted
+     */
+    public int replay() throws ServiceProxyException {
+
+        if (!MAFUtil.isNetworkAccess()) {
+            mLogger.logFine("No online connection detected. Outbox is not replayed", this.getClass().getSimpleName(), "replay");
+            return 0;
+        }
+        if (!replaying.compareAndSet(false, true)) {
+            mLogger.logFine("Outbox replay already in progress", this.getClass().getSimpleName(), "replay");
+            return 0;
+        }
+
+        try {
+            //operations on the same object must be sent in order. POST creates an object with a new id each time
+            LinkedHashMap<String, List<OutboxEntry>> entriesByObject = new LinkedHashMap<String, List<OutboxEntry>>();
+            for (OutboxEntry outboxEntry : getPendingEntries()) {
+                String key = OutboxEntry.OPERATION_POST.equals(outboxEntry.getOperation()) ? outboxEntry.getEntryId() : outboxEntry.getObjectUri();
+                List<OutboxEntry> objectEntries = entriesByObject.get(key);
+                if (objectEntries == null) {
+                    objectEntries = new ArrayList<OutboxEntry>();
+                    entriesByObject.put(key, objectEntries);
+                }
+                objectEntries.add(outboxEntry);
+            }
+
+            if (entriesByObject.isEmpty()) {
+                pendingEntries = false;
+                return 0;
+            }
+
+            ArrayList<StorageBatchItem<Integer>> items = new ArrayList<StorageBatchItem<Integer>>();
+            ArrayList<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+            for (Map.Entry<String, List<OutboxEntry>> objectEntries : entriesByObject.entrySet()) {
+                final List<OutboxEntry> entries = objectEntries.getValue();
+                items.add(new StorageBatchItem<Integer>(objectEntries.getKey()));
+                tasks.add(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        return replayObjectEntries(entries);
+                    }
+                });
+            }
+
+            mLogger.logFine("Replaying outbox operations for " + items.size() + " objects", this.getClass().getSimpleName(), "replay");
+            try {
+                StorageBatchExecutor.execute(storage.getMbe(), items, tasks, mbeConfiguration.getStorageBatchConcurrency());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                mLogger.logWarning("Outbox replay interrupted", this.getClass().getSimpleName(), "replay");
+                throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+            }
+
+            int replayed = 0;
+            boolean remaining = false;
+            for (StorageBatchItem<Integer> item : items) {
+                if (item.isSuccess()) {
+                    replayed += item.getResult();
+                } else {
+                    remaining = true;
+                }
+            }
+            pendingEntries = remaining;
+
+            mLogger.logFine(replayed + " outbox operations replayed. Operations pending: " + remaining, this.getClass().getSimpleName(), "replay");
+            return replayed;
+
+        } finally {
+            replaying.set(false);
+        }
+    }
+
+    /**
+     * Asynchronous variant of {@link #replay()}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<Integer> replayAsync() {
+        return storage.getMbe().submitAsync(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return replay();
+            }
+        });
+    }
+
+    /**
+     * Starts an asynchronous replay if operations may be pending. Called after storage writes that succeeded online
+     */
+    void replayIfPending() {
+        if (pendingEntries && !replaying.get() && mbeConfiguration.isQueueStorageWritesIfOffline()) {
+            replayAsync();
+        }
+    }
+
+    /**
+     * @return operations waiting to be sent, in the order they were issued
+     */
+    public List<OutboxEntry> getPendingEntries() {
+        return getEntries(OutboxEntry.STATE_PENDING);
+    }
+
+    /**
+     * @return operations MCS rejected. Use getLastError for the reason
+     */
+    public List<OutboxEntry> getFailedEntries() {
+        return getEntries(OutboxEntry.STATE_FAILED);
+    }
+
+    /**
+     * Queues a failed operation again, e.g. after the conflict that caused the failure was resolved. The operation is
+     * sent with the next replay
+     *
+     * @param outboxEntry the failed entry
+     * @return true if the entry was queued
+     */
+    public boolean retry(OutboxEntry outboxEntry) {
+        outboxEntry.setState(OutboxEntry.STATE_PENDING);
+        outboxEntry.setLastError(null);
+        boolean queued = StorageDB.getInstance().updateOutboxEntryState(outboxEntry);
+        if (queued) {
+            pendingEntries = true;
+        }
+        return queued;
+    }
+
+    /**
+     * Removes an operation from the outbox without sending it. Payload files owned by the outbox are deleted
+     *
+     * @param outboxEntry the pending or failed entry
+     * @return true if the entry was removed
+     */
+    public boolean discard(OutboxEntry outboxEntry) {
+        mLogger.logFine("Discarding outbox entry " + outboxEntry.getEntryId(), this.getClass().getSimpleName(), "discard");
+        return removeEntry(outboxEntry);
+    }
+
+    /**
+     * Sends the operations of an object in order. Sending stops at the first operation that failed because of a network
+     * or server error, so that later operations are not applied before it
+     */
+    private int replayObjectEntries(List<OutboxEntry> entries) throws ServiceProxyException {
+        int replayed = 0;
+        for (OutboxEntry outboxEntry : entries) {
+            try {
+                replayEntry(outboxEntry);
+                removeEntry(outboxEntry);
+                replayed++;
+            } catch (ServiceProxyException e) {
+                outboxEntry.setAttempts(outboxEntry.getAttempts() + 1);
+                outboxEntry.setLastError(e.getHttpResponseCode() > 0 ? e.getHttpResponseCode() + ": " + e.getMessage() : e.getMessage());
+                if (isTransientFailure(e)) {
+                    mLogger.logFine("Outbox entry " + outboxEntry.getEntryId() + " stays pending: " + e.getMessage(), this.getClass().getSimpleName(), "replayObjectEntries");
+                    StorageDB.getInstance().updateOutboxEntryState(outboxEntry);
+                    throw e;
+                }
+                markFailed(outboxEntry);
+            }
+        }
+        return replayed;
+    }
+
+    private void replayEntry(OutboxEntry outboxEntry) throws ServiceProxyException {
+
+        mLogger.logFine("Replaying " + outboxEntry.getOperation() + " of " + outboxEntry.getObjectUri(), this.getClass().getSimpleName(), "replayEntry");
+
+        StorageCollection storageCollection = outboxEntry.getObjectOwner() != null ?
+                                              storage.querySingleCollectionForUserId(outboxEntry.getCollectionId(), outboxEntry.getObjectOwner()) :
+                                              storage.querySingleCollection(outboxEntry.getCollectionId());
+        HashMap<String, String> preconditions = readPreconditions(outboxEntry.getPreconditions());
+
+        if (OutboxEntry.OPERATION_DELETE.equals(outboxEntry.getOperation())) {
+            try {
+                storageCollection.removeQueuedObject(outboxEntry.getObjectUri(), preconditions);
+            } catch (ServiceProxyException e) {
+                //the object already is removed
+                if (e.getHttpResponseCode() != StorageConstants.HTTP_404) {
+                    throw e;
+                }
+            }
+            return;
+        }
+
+        File payloadFile = new File(outboxEntry.getPayloadFile());
+        if (!payloadFile.isFile()) {
+            throw new ServiceProxyException(StorageConstants.HTTP_404, "Payload file " + payloadFile.getAbsolutePath() + " no longer exists");
+        }
+        StorageObject storageObject = new StorageObject(outboxEntry.getObjectId(), outboxEntry.getContentType());
+        storageObject.setDisplayName(outboxEntry.getDisplayName());
+        storageCollection.writeQueuedObject(outboxEntry.getObjectUri(), outboxEntry.getOperation(), storageObject, payloadFile, preconditions);
+    }
+
+    /**
+     * Transport failures and server errors are retried with the next replay. Other application errors, like a failed
+     * precondition, fail the same way when the operation is sent again
+     */
+    private boolean isTransientFailure(ServiceProxyException e) {
+        int statusCode = e.getHttpResponseCode();
+        return !e.isApplicationError() || statusCode >= 500 || statusCode == 408 || statusCode == 429;
+    }
+
+    private void markFailed(OutboxEntry outboxEntry) {
+        mLogger.logWarning("Outbox entry " + outboxEntry.getEntryId() + " (" + outboxEntry.getOperation() + " " + outboxEntry.getObjectUri() + ") was rejected: " + outboxEntry.getLastError(), this.getClass().getSimpleName(), "markFailed");
+        outboxEntry.setState(OutboxEntry.STATE_FAILED);
+        StorageDB.getInstance().updateOutboxEntryState(outboxEntry);
+    }
+
+    private OutboxEntry createEntry(StorageCollection storageCollection, String uri, String operation, HashMap<String, String> preconditions) throws ServiceProxyException {
+        OutboxEntry outboxEntry = new OutboxEntry();
+        outboxEntry.setEntryId(UUID.randomUUID().toString());
+        outboxEntry.setMobileBackendId(mbeConfiguration.getMobileBackendIdentifier());
+        outboxEntry.setCollectionId(storageCollection.getCollectionID());
+        outboxEntry.setObjectOwner(storageCollection.isUserIsolated() ? storageCollection.getObjectOwnerUserID() : null);
+        outboxEntry.setObjectUri(uri);
+        outboxEntry.setOperation(operation);
+        outboxEntry.setPreconditions(writePreconditions(preconditions));
+        outboxEntry.setCreated(System.currentTimeMillis());
+        return outboxEntry;
+    }
+
+    private void saveEntry(OutboxEntry outboxEntry) throws ServiceProxyException {
+        if (!StorageDB.getInstance().saveOutboxEntry(outboxEntry)) {
+            if (outboxEntry.isPayloadOwned()) {
+                deletePayloadFile(Paths.get(outboxEntry.getPayloadFile()));
+            }
+            throw new ServiceProxyException("The device is not online and the " + outboxEntry.getOperation() + " request to " + outboxEntry.getObjectUri() + " could not be queued", ServiceProxyException.ERROR);
+        }
+        pendingEntries = true;
+        mLogger.logFine("Device is offline. " + outboxEntry.getOperation() + " request to " + outboxEntry.getObjectUri() + " queued in outbox", this.getClass().getSimpleName(), "saveEntry");
+    }
+
+    private boolean removeEntry(OutboxEntry outboxEntry) {
+        boolean removed = StorageDB.getInstance().deleteOutboxEntry(outboxEntry.getEntryId());
+        if (removed && outboxEntry.isPayloadOwned()) {
+            deletePayloadFile(Paths.get(outboxEntry.getPayloadFile()));
+        }
+        return removed;
+    }
+
+    private List<OutboxEntry> getEntries(String state) {
+        List<OutboxEntry> entries = StorageDB.getInstance().getOutboxEntries(mbeConfiguration.getMobileBackendIdentifier());
+        Iterator<OutboxEntry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            if (!state.equals(iterator.next().getState())) {
+                iterator.remove();
+            }
+        }
+        return entries;
+    }
+
+    private void deletePayloadFile(Path payloadFile) {
+        try {
+            Files.deleteIfExists(payloadFile);
+        } catch (IOException e) {
+            mLogger.logFine("Payload file " + payloadFile + " cannot be deleted: " + e.getMessage(), this.getClass().getSimpleName(), "deletePayloadFile");
+        }
+    }
+
+    private String writePreconditions(HashMap<String, String> preconditions) throws ServiceProxyException {
+        if (preconditions == null || preconditions.isEmpty()) {
+            return null;
+        }
+        try {
+            JSONObject jsonObject = new JSONObject();
+            for (Map.Entry<String, String> precondition : preconditions.entrySet()) {
+                jsonObject.put(precondition.getKey(), precondition.getValue());
+            }
+            return jsonObject.toString();
+        } catch (JSONException e) {
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+    }
+
+    private HashMap<String, String> readPreconditions(String preconditions) throws ServiceProxyException {
+        if (preconditions == null || preconditions.isEmpty()) {
+            return null;
+        }
+        try {
+            HashMap<String, String> headers = new HashMap<String, String>();
+            JSONObject jsonObject = new JSONObject(preconditions);
+            Iterator keys = jsonObject.keys();
+            while (keys.hasNext()) {
+                String key = (String) keys.next();
+                headers.put(key, jsonObject.getString(key));
+            }
+            return headers;
+        } catch (JSONException e) {
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+    }
+}
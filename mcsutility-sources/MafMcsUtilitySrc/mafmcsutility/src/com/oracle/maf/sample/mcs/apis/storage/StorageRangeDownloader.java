@@ -0,0 +1,458 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+import com.oracle.maf.sample.mcs.shared.headers.HeaderConstants;
+import com.oracle.maf.sample.mcs.shared.log.MBELogger;
+import com.oracle.maf.sample.mcs.shared.mafrest.MCSRequest;
+import com.oracle.maf.sample.mcs.shared.mafrest.MCSResponse;
+import com.oracle.maf.sample.mcs.shared.mafrest.MCSRestClient;
+import com.oracle.maf.sample.mcs.shared.mbe.config.base.MBEConfiguration;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ *
+ * *** INTERNAL FRAMEWORK CLASS ***
+ *
+ * Downloads storage object content with HTTP range requests for StorageCollection. Range requests are sent with the
+ * "Range" header and, when continuing a partial download, with the "If-Range" header holding the ETag of the partial
+ * content. Servers return the requested range with HTTP 206. If the object changed or if the server does not support
+ * range requests, the complete object is returned with HTTP 200, in which case the partial content is replaced.
+ * If-Range requires a strong validator. Partial content saved with a weak ETag ("W/...") is therefore downloaded again.
+ * <p>
+ * Range requests ask for uncompressed content as byte ranges of compressed responses refer to the compressed content.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+final class StorageRangeDownloader {
+
+    /**
+     * Objects are split into segments of at least this size for parallel downloads (1 MB)
+     */
+    static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+
+    /**
+     * Maximum number of times a download is continued within a single call after the connection failed
+     */
+    static final int MAX_RESUMES = 10;
+
+    private static final String IDENTITY_ENCODING = "identity";
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final StorageCollection storageCollection;
+    private final MBEConfiguration mbeConfiguration;
+    private final MBELogger mLogger;
+
+    StorageRangeDownloader(StorageCollection storageCollection) {
+        this.storageCollection = storageCollection;
+        this.mbeConfiguration = storageCollection.getStorage().getMbe().getMbeConfiguration();
+        this.mLogger = this.mbeConfiguration.getLogger();
+    }
+
+    /**
+     * Sends a range request and writes the response body into the file channel starting at its current position
+     *
+     * @param collectionObjectURI the complete request URI for a object
+     * @param acceptedMimeType the accept type for the expected content
+     * @param firstByte index of the first byte to download
+     * @param lastByte index of the last byte to download or -1 to download to the end of the object
+     * @param ifRangeETag ETag the object must have for the range to be returned or null
+     * @param fileChannel target channel
+     * @return MCSResponse with the status code and headers
+     * @throws Exception thrown by the REST transport
+     */
+    MCSResponse sendRangeRequest(String collectionObjectURI, String acceptedMimeType, long firstByte, long lastByte,
+                                 String ifRangeETag, FileChannel fileChannel) throws Exception {
+        return MCSRestClient.sendForFileResponse(createRangeRequest(collectionObjectURI, acceptedMimeType, firstByte, lastByte, ifRangeETag), fileChannel);
+    }
+
+    /**
+     * Sends a range request and returns the response body in the MCSResponse message
+     *
+     * @param collectionObjectURI the complete request URI for a object
+     * @param acceptedMimeType the accept type for the expected content
+     * @param firstByte index of the first byte to download
+     * @param lastByte index of the last byte to download or -1 to download to the end of the object
+     * @return MCSResponse with the status code, headers and body
+     * @throws Exception thrown by the REST transport
+     */
+    MCSResponse sendRangeRequest(String collectionObjectURI, String acceptedMimeType, long firstByte, long lastByte) throws Exception {
+        return MCSRestClient.sendForByteResponse(createRangeRequest(collectionObjectURI, acceptedMimeType, firstByte, lastByte, null));
+    }
+
+    /**
+     * Sends a HEAD request to read the content length, ETag and range support of an object
+     *
+     * @param collectionObjectURI the complete request URI for a object
+     * @param acceptedMimeType the accept type for the expected content
+     * @return MCSResponse with the status code and headers
+     * @throws Exception thrown by the REST transport
+     */
+    MCSResponse sendHeadRequest(String collectionObjectURI, String acceptedMimeType) throws Exception {
+
+        MCSRequest requestObject = new MCSRequest(this.mbeConfiguration);
+        requestObject.setHttpMethod(MCSRequest.HttpMethod.HEAD);
+        requestObject.setRequestURI(collectionObjectURI);
+        requestObject.setConnectionName(this.mbeConfiguration.getMafRestConnectionName());
+
+        HashMap<String,String> httpHeaders = new HashMap<String,String>();
+        httpHeaders.put(HeaderConstants.ACCEPT_HEADER, acceptedMimeType);
+        //the content length must be the length of the uncompressed content
+        httpHeaders.put(HeaderConstants.ACCEPT_ENCODING_HEADER, IDENTITY_ENCODING);
+        requestObject.setHttpHeaders(httpHeaders);
+        requestObject.setPayload("");
+
+        return MCSRestClient.sendForByteResponse(requestObject);
+    }
+
+    /**
+     * Downloads an object into a partial download file. Content already in the file is kept if the ETag saved with
+     * the partial download still matches the object, so that only the missing bytes are downloaded. If the connection
+     * fails after content has been received, the download is continued from the received bytes. If the download
+     * fails, the partial download file and its ETag file are kept for a later call.
+     *
+     * @param collectionObjectURI the complete request URI for a object
+     * @param acceptedMimeType the accept type for the expected content
+     * @param partFile partial download file
+     * @param eTagFile file that holds the ETag of the partial download
+     * @return StorageObject with the metadata returned with the content
+     * @throws Exception thrown by the REST transport or ServiceProxyException for MCS application errors
+     */
+    StorageObject downloadResumable(String collectionObjectURI, String acceptedMimeType, Path partFile, Path eTagFile) throws Exception {
+
+        String eTag = Files.exists(partFile) ? readETag(eTagFile) : null;
+        int resumes = 0;
+        boolean restarted = false;
+
+        FileChannel fileChannel = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        try {
+            while (true) {
+
+                long offset = fileChannel.size();
+                if (offset > 0 && (eTag == null || isWeakETag(eTag))) {
+                    //partial content cannot be validated without its strong ETag
+                    mLogger.logFine("No strong ETag saved for partial download " + partFile + ". Restarting download", this.getClass().getSimpleName(), "downloadResumable");
+                    fileChannel.truncate(0);
+                    offset = 0;
+                }
+                fileChannel.position(offset);
+
+                if (offset > 0) {
+                    mLogger.logFine("Continuing download of " + collectionObjectURI + " at byte " + offset, this.getClass().getSimpleName(), "downloadResumable");
+                }
+
+                MCSResponse mcsResponse = null;
+                try {
+                    mcsResponse = sendRangeRequest(collectionObjectURI, acceptedMimeType, offset, -1, offset > 0 ? eTag : null, fileChannel);
+                } catch (Exception e) {
+                    //received content is kept. Continue if the failed request made progress
+                    if (fileChannel.size() > offset && resumes < MAX_RESUMES && !(e instanceof ServiceProxyException)) {
+                        resumes++;
+                        mLogger.logWarning("Download of " + collectionObjectURI + " interrupted after " + fileChannel.size() + " bytes: " + e.getMessage() + ". Continuing download",
+                                           this.getClass().getSimpleName(), "downloadResumable");
+                        continue;
+                    }
+                    throw e;
+                }
+
+                int status = mcsResponse.getHttpStatusCode();
+
+                if (status == StorageConstants.HTTP_416 && offset > 0 && ("bytes */" + offset).equals(StorageCollection.getResponseHeader(mcsResponse.getHeaders(), HeaderConstants.CONTENT_RANGE_HEADER))) {
+                    //the partial file already holds the complete object
+                    return completeDownload(collectionObjectURI, mcsResponse, offset);
+                }
+
+                if (status == StorageConstants.HTTP_416 && offset > 0 && !restarted) {
+                    //the partial file is longer than the object
+                    mLogger.logFine("Partial download of " + collectionObjectURI + " does not match the object. Restarting download", this.getClass().getSimpleName(), "downloadResumable");
+                    restarted = true;
+                    eTag = null;
+                    fileChannel.truncate(0);
+                    continue;
+                }
+
+                if (status != StorageConstants.HTTP_200 && status != StorageConstants.HTTP_206) {
+                    throw new ServiceProxyException(status, (String) mcsResponse.getMessage(), mcsResponse.getHeaders());
+                }
+
+                String responseETag = StorageCollection.getResponseHeader(mcsResponse.getHeaders(), HeaderConstants.ETAG_HEADER);
+                if (responseETag != null && !responseETag.equals(eTag)) {
+                    eTag = responseETag;
+                    writeETag(eTagFile, eTag);
+                }
+
+                if (status == StorageConstants.HTTP_200) {
+                    if (offset > 0) {
+                        //the object changed or the server ignored the range. The complete object follows the stale bytes
+                        mLogger.logFine("Server returned the complete object for " + collectionObjectURI + ". Discarding " + offset + " bytes of partial content",
+                                        this.getClass().getSimpleName(), "downloadResumable");
+                        discardLeadingBytes(fileChannel, offset);
+                    }
+                    return completeDownload(collectionObjectURI, mcsResponse, fileChannel.size());
+                }
+
+                long[] contentRange = parseContentRange(StorageCollection.getResponseHeader(mcsResponse.getHeaders(), HeaderConstants.CONTENT_RANGE_HEADER));
+                if (contentRange == null || contentRange[0] != offset) {
+                    if (restarted) {
+                        throw new ServiceProxyException("Invalid Content-Range in response to range request for " + collectionObjectURI, ServiceProxyException.ERROR);
+                    }
+                    mLogger.logWarning("Unexpected Content-Range in response to range request for " + collectionObjectURI + ". Restarting download",
+                                       this.getClass().getSimpleName(), "downloadResumable");
+                    restarted = true;
+                    fileChannel.truncate(0);
+                    continue;
+                }
+
+                //the complete length is unknown if the server sends "*"
+                if (contentRange[2] < 0 || fileChannel.size() >= contentRange[2]) {
+                    return completeDownload(collectionObjectURI, mcsResponse, fileChannel.size());
+                }
+
+                if (resumes++ >= MAX_RESUMES) {
+                    throw new ServiceProxyException("Download of " + collectionObjectURI + " incomplete after " + resumes + " range requests", ServiceProxyException.ERROR);
+                }
+            }
+        } finally {
+            try {
+                fileChannel.force(true);
+            } finally {
+                fileChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Downloads an object in segments over multiple connections. Segments are executed with StorageBatchExecutor by the
+     * calling thread and by up to segmentCount - 1 tasks on the thread pool of the MBE, so a busy pool delays but never
+     * blocks the download. Segments that are not started yet are skipped once a segment failed.
+     *
+     * @param collectionObjectURI the complete request URI for a object
+     * @param acceptedMimeType the accept type for the expected content
+     * @param targetFile file to write the content to. The file is sized to the content length
+     * @param contentLength length of the object
+     * @param eTag strong ETag of the object. Segments of a different version of the object are rejected
+     * @param segmentCount number of segments
+     * @return MCSResponse of the last segment request
+     * @throws Exception thrown by the first segment that failed
+     */
+    MCSResponse downloadSegmented(final String collectionObjectURI, final String acceptedMimeType, final Path targetFile,
+                                  final long contentLength, final String eTag, final int segmentCount) throws Exception {
+
+        final long segmentSize = (contentLength + segmentCount - 1) / segmentCount;
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+        mLogger.logFine("Downloading " + collectionObjectURI + " (" + contentLength + " bytes) in " + segmentCount + " segments",
+                        this.getClass().getSimpleName(), "downloadSegmented");
+
+        //segments write at their own offset into the file, which therefore is sized to the object up front. The file is 
+        //never truncated while segments are downloaded
+        RandomAccessFile file = new RandomAccessFile(targetFile.toFile(), "rw");
+        try {
+            file.setLength(contentLength);
+        } finally {
+            file.close();
+        }
+
+        List<StorageBatchItem<MCSResponse>> items = new ArrayList<StorageBatchItem<MCSResponse>>();
+        List<Callable<MCSResponse>> tasks = new ArrayList<Callable<MCSResponse>>();
+
+        for (int segment = 0; segment < segmentCount; segment++) {
+            final long firstByte = segment * segmentSize;
+            final long lastByte = Math.min(contentLength, firstByte + segmentSize) - 1;
+            items.add(new StorageBatchItem<MCSResponse>(firstByte + "-" + lastByte));
+            tasks.add(new Callable<MCSResponse>() {
+                @Override
+                public MCSResponse call() throws Exception {
+                    //the download failed already
+                    if (failure.get() != null) {
+                        return null;
+                    }
+                    try {
+                        return downloadSegment(collectionObjectURI, acceptedMimeType, targetFile, firstByte, lastByte, eTag);
+                    } catch (Exception e) {
+                        //the original exception is thrown to the caller
+                        failure.compareAndSet(null, e);
+                        throw e;
+                    }
+                }
+            });
+        }
+
+        StorageBatchExecutor.execute(storageCollection.getStorage().getMbe(), items, tasks, segmentCount);
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        return items.get(items.size() - 1).getResult();
+    }
+
+    /**
+     * Downloads a single segment into the target file with its own file channel. Content is written with positional 
+     * writes at the offset of the segment. The segment is continued if the connection fails after content has been 
+     * received
+     */
+    private MCSResponse downloadSegment(String collectionObjectURI, String acceptedMimeType, Path targetFile, long firstByte,
+                                        long lastByte, String eTag) throws Exception {
+
+        FileChannel fileChannel = FileChannel.open(targetFile, StandardOpenOption.WRITE);
+        try {
+            long position = firstByte;
+            int resumes = 0;
+            while (true) {
+                fileChannel.position(position);
+                MCSResponse mcsResponse = null;
+                try {
+                    mcsResponse = sendRangeRequest(collectionObjectURI, acceptedMimeType, position, lastByte, eTag, fileChannel);
+                } catch (Exception e) {
+                    if (fileChannel.position() > position && resumes++ < MAX_RESUMES && !(e instanceof ServiceProxyException)) {
+                        position = fileChannel.position();
+                        continue;
+                    }
+                    throw e;
+                }
+
+                if (mcsResponse.getHttpStatusCode() != StorageConstants.HTTP_206) {
+                    if (mcsResponse.getHttpStatusCode() == StorageConstants.HTTP_200) {
+                        //the complete object has been returned because the object changed
+                        throw new ServiceProxyException(StorageConstants.HTTP_412, "Object " + collectionObjectURI + " changed during segmented download", mcsResponse.getHeaders());
+                    }
+                    throw new ServiceProxyException(mcsResponse.getHttpStatusCode(), (String) mcsResponse.getMessage(), mcsResponse.getHeaders());
+                }
+
+                long[] contentRange = parseContentRange(StorageCollection.getResponseHeader(mcsResponse.getHeaders(), HeaderConstants.CONTENT_RANGE_HEADER));
+                if (contentRange == null || contentRange[0] != position) {
+                    throw new ServiceProxyException("Invalid Content-Range in response to range request for " + collectionObjectURI, ServiceProxyException.ERROR);
+                }
+
+                position = fileChannel.position();
+                if (position > lastByte) {
+                    return mcsResponse;
+                }
+                if (resumes++ >= MAX_RESUMES) {
+                    throw new ServiceProxyException("Segment " + firstByte + "-" + lastByte + " of " + collectionObjectURI + " incomplete", ServiceProxyException.ERROR);
+                }
+            }
+        } finally {
+            fileChannel.close();
+        }
+    }
+
+    /**
+     * @param eTag ETag or null
+     * @return true if the ETag is a weak validator, which cannot be used with If-Range
+     */
+    static boolean isWeakETag(String eTag) {
+        return eTag != null && eTag.trim().startsWith("W/");
+    }
+
+    /**
+     * Parses a Content-Range header like "bytes 0-1023/4096"
+     * @param contentRange header value
+     * @return array with first byte, last byte and complete length (-1 if unknown) or null if the header is invalid
+     */
+    static long[] parseContentRange(String contentRange) {
+
+        if (contentRange == null || !contentRange.trim().startsWith("bytes ")) {
+            return null;
+        }
+        try {
+            String range = contentRange.trim().substring("bytes ".length()).trim();
+            int dash = range.indexOf('-');
+            int slash = range.indexOf('/');
+            if (dash < 0 || slash < dash) {
+                return null;
+            }
+            long firstByte = Long.parseLong(range.substring(0, dash).trim());
+            long lastByte = Long.parseLong(range.substring(dash + 1, slash).trim());
+            String length = range.substring(slash + 1).trim();
+            return new long[] { firstByte, lastByte, "*".equals(length) ? -1 : Long.parseLong(length) };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private MCSRequest createRangeRequest(String collectionObjectURI, String acceptedMimeType, long firstByte, long lastByte, String ifRangeETag) {
+
+        MCSRequest requestObject = new MCSRequest(this.mbeConfiguration);
+        requestObject.setHttpMethod(MCSRequest.HttpMethod.GET);
+        requestObject.setRequestURI(collectionObjectURI);
+        requestObject.setConnectionName(this.mbeConfiguration.getMafRestConnectionName());
+
+        HashMap<String,String> httpHeaders = new HashMap<String,String>();
+        httpHeaders.put(HeaderConstants.ACCEPT_HEADER, acceptedMimeType);
+        httpHeaders.put(HeaderConstants.ACCEPT_ENCODING_HEADER, IDENTITY_ENCODING);
+        httpHeaders.put(HeaderConstants.RANGE_HEADER, "bytes=" + firstByte + "-" + (lastByte >= 0 ? String.valueOf(lastByte) : ""));
+        if (ifRangeETag != null) {
+            httpHeaders.put(HeaderConstants.IF_RANGE_HEADER, ifRangeETag);
+        }
+        mLogger.logFine("Range request for " + collectionObjectURI + ": " + httpHeaders.get(HeaderConstants.RANGE_HEADER) +
+                        (ifRangeETag != null ? ", If-Range: " + ifRangeETag : ""), this.getClass().getSimpleName(), "createRangeRequest");
+
+        requestObject.setHttpHeaders(httpHeaders);
+        requestObject.setPayload("");
+        return requestObject;
+    }
+
+    private StorageObject completeDownload(String collectionObjectURI, MCSResponse mcsResponse, long contentLength) {
+        StorageObject storageObject = new StorageObject(storageCollection.getStorageObjectID(collectionObjectURI));
+        storageObject.updateProperties(mcsResponse.getHeaders());
+        //the Content-Length of a 206 response is the length of the last range
+        storageObject.setContentLength(contentLength);
+        return storageObject;
+    }
+
+    /**
+     * Removes the first bytes of the file by moving the remaining content to the start of the file
+     */
+    private static void discardLeadingBytes(FileChannel fileChannel, long count) throws IOException {
+
+        long size = fileChannel.size();
+        long readPosition = count;
+        long writePosition = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+
+        while (readPosition < size) {
+            buffer.clear();
+            int bytesRead = fileChannel.read(buffer, readPosition);
+            if (bytesRead < 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                writePosition += fileChannel.write(buffer, writePosition);
+            }
+            readPosition += bytesRead;
+        }
+        fileChannel.truncate(writePosition);
+        fileChannel.position(writePosition);
+    }
+
+    private String readETag(Path eTagFile) {
+        try {
+            return Files.exists(eTagFile) ? new String(Files.readAllBytes(eTagFile), StandardCharsets.UTF_8).trim() : null;
+        } catch (IOException e) {
+            mLogger.logWarning("ETag of partial download cannot be read from " + eTagFile + ": " + e.getMessage(), this.getClass().getSimpleName(), "readETag");
+            return null;
+        }
+    }
+
+    private void writeETag(Path eTagFile, String eTag) throws IOException {
+        Files.write(eTagFile, eTag.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,445 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.apis.storage.db.StorageDB;
+import com.oracle.maf.sample.mcs.apis.storage.db.SyncManifestEntry;
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+import com.oracle.maf.sample.mcs.shared.headers.HeaderConstants;
+import com.oracle.maf.sample.mcs.shared.log.MBELogger;
+import com.oracle.maf.sample.mcs.shared.mbe.config.base.MBEConfiguration;
+
+import java.io.IOException;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import java.util.HashMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import oracle.adfmf.framework.exception.IllegalArgumentException;
+
+
+/**
+ * Synchronizes the files of a local folder with the objects of a storage collection in both directions. Each file is
+ * stored as an object whose id is the file name. Sub folders are not synchronized.
+ * <p>
+ * The state of each file and object after a sync (object ETag, file size, last modified time and SHA-256 hash) is saved
+ * in a manifest in the SQLite database of the application. The next sync compares the folder and the collection listing
+ * with the manifest and transfers only what changed since:
+ * <ul>
+ * <li>new and changed local files are uploaded</li>
+ * <li>new and changed collection objects are downloaded</li>
+ * <li>objects whose local file was deleted are removed from the collection and files whose object was removed are
+ * deleted locally</li>
+ * </ul>
+ * Uploads and remote deletes are sent with the ETag of the manifest ("If-Match") or, for new files, with "If-None-Match: *".
+ * If the object changed in the meantime, MCS rejects the request with HTTP 412 and the object is reported as conflict.
+ * Objects that changed on both sides are handled according to the ConflictPolicy. The collection listing is read with
+ * ETag revalidation, so that unchanged listing pages are not transferred again.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class StorageSync {
+
+    /**
+     * Handling of objects that changed locally and in the collection since the last sync
+     */
+    public enum ConflictPolicy {
+        /**
+         * Neither side is changed. The object is reported as conflict with each sync until one side is reverted
+         */
+        SKIP,
+        /**
+         * The local file replaces the object or, if the file was deleted, the object is removed
+         */
+        LOCAL_WINS,
+        /**
+         * The object replaces the local file or, if the object was removed, the file is deleted
+         */
+        REMOTE_WINS
+    }
+
+    private static final String ANY_ETAG = "*";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final int LISTING_PAGE_SIZE = 100;
+
+    private final StorageCollection storageCollection;
+    private final Path folder;
+    private final MBEConfiguration mbeConfiguration;
+    private final MBELogger mLogger;
+    private volatile ConflictPolicy conflictPolicy = ConflictPolicy.SKIP;
+
+    /**
+     * Information about a file in the local folder
+     */
+    private static final class LocalFile {
+        private final Path path;
+        private long size;
+        private long modified;
+        private String hash = null;
+
+        LocalFile(Path path, BasicFileAttributes attributes) {
+            this.path = path;
+            this.size = attributes.size();
+            this.modified = attributes.lastModifiedTime().toMillis();
+        }
+
+        /**
+         * Hashes the file once. Size and modification time are updated with the values the file had while it was
+         * hashed, so that the three values saved in the manifest describe the same content
+         *
+         * @return hex encoded SHA-256 hash of the file content
+         * @throws ServiceProxyException if the file cannot be read or is changed while it is hashed
+         */
+        String getHash() throws ServiceProxyException {
+            if (hash == null) {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    String contentHash = StorageContentIndex.hash(path);
+                    BasicFileAttributes hashedAttributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.size() != hashedAttributes.size() ||
+                        !attributes.lastModifiedTime().equals(hashedAttributes.lastModifiedTime())) {
+                        throw new ServiceProxyException("File " + path + " was changed while it was read", ServiceProxyException.ERROR);
+                    }
+                    size = hashedAttributes.size();
+                    modified = hashedAttributes.lastModifiedTime().toMillis();
+                    hash = contentHash;
+                } catch (IOException e) {
+                    throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+                }
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * @param storageCollection the collection to synchronize. For user isolated collections the objects of the object
+     * owner user id or, if not set, of the authenticated user are synchronized
+     * @param folder the local folder to synchronize. The folder is created if it does not exist
+     * @throws IllegalArgumentException if an argument is null
+     */
+    public StorageSync(StorageCollection storageCollection, Path folder) throws IllegalArgumentException {
+        if (storageCollection == null || folder == null) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("The storage collection and folder cannot be null");
+            throw illegalArgumentException;
+        }
+        this.storageCollection = storageCollection;
+        this.folder = folder.toAbsolutePath();
+        this.mbeConfiguration = storageCollection.getStorage().getMbe().getMbeConfiguration();
+        this.mLogger = this.mbeConfiguration.getLogger();
+    }
+
+    public void setConflictPolicy(ConflictPolicy conflictPolicy) {
+        this.conflictPolicy = conflictPolicy != null ? conflictPolicy : ConflictPolicy.SKIP;
+    }
+
+    public ConflictPolicy getConflictPolicy() {
+        return conflictPolicy;
+    }
+
+    public Path getFolder() {
+        return folder;
+    }
+
+    /**
+     * Synchronizes the folder and the collection. A failure to synchronize an object does not stop the sync. The object
+     * is listed in the failures of the result and is synchronized again with the next run
+     *
+     * @return StorageSyncResult with the changes made
+     * @throws ServiceProxyException if the folder or the collection listing cannot be read
+     */
+    public synchronized StorageSyncResult synchronize() throws ServiceProxyException {
+
+        String syncId = getSyncId();
+        mLogger.logFine("Synchronizing " + folder + " with collection " + storageCollection.getCollectionID(), this.getClass().getSimpleName(), "synchronize");
+
+        HashMap<String, LocalFile> localFiles = readLocalFiles();
+        HashMap<String, StorageObject> remoteObjects = readRemoteObjects();
+        HashMap<String, SyncManifestEntry> manifest = new HashMap<String, SyncManifestEntry>();
+        for (SyncManifestEntry manifestEntry : StorageDB.getInstance().getSyncManifest(syncId)) {
+            manifest.put(manifestEntry.getObjectId(), manifestEntry);
+        }
+
+        TreeSet<String> objectIds = new TreeSet<String>();
+        objectIds.addAll(localFiles.keySet());
+        objectIds.addAll(remoteObjects.keySet());
+        objectIds.addAll(manifest.keySet());
+
+        StorageSyncResult result = new StorageSyncResult();
+        for (String objectId : objectIds) {
+            try {
+                syncObject(syncId, objectId, localFiles.get(objectId), remoteObjects.get(objectId), manifest.get(objectId), result);
+            } catch (ServiceProxyException e) {
+                if (e.getHttpResponseCode() == StorageConstants.HTTP_412) {
+                    mLogger.logFine("Object " + objectId + " changed in the collection during the sync", this.getClass().getSimpleName(), "synchronize");
+                    result.getConflicts().add(objectId);
+                } else {
+                    mLogger.logWarning("Object " + objectId + " could not be synchronized: " + e.getMessage(), this.getClass().getSimpleName(), "synchronize");
+                    result.getFailures().put(objectId, e);
+                }
+            }
+        }
+
+        mLogger.logFine("Sync of " + folder + " completed. " + result.dump(), this.getClass().getSimpleName(), "synchronize");
+        return result;
+    }
+
+    /**
+     * Asynchronous variant of {@link #synchronize()}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<StorageSyncResult> synchronizeAsync() {
+        return storageCollection.getStorage().getMbe().submitAsync(new Callable<StorageSyncResult>() {
+            @Override
+            public StorageSyncResult call() throws Exception {
+                return synchronize();
+            }
+        });
+    }
+
+    /**
+     * Removes the manifest of this folder and collection. The next sync treats all files and objects as new, so that
+     * objects that exist on both sides are reported as conflicts unless a conflict policy other than SKIP is set
+     */
+    public void resetManifest() {
+        String syncId = getSyncId();
+        for (SyncManifestEntry manifestEntry : StorageDB.getInstance().getSyncManifest(syncId)) {
+            StorageDB.getInstance().deleteSyncManifestEntry(syncId, manifestEntry.getObjectId());
+        }
+    }
+
+    private void syncObject(String syncId, String objectId, LocalFile localFile, StorageObject remoteObject,
+                            SyncManifestEntry manifestEntry, StorageSyncResult result) throws ServiceProxyException {
+
+        if (manifestEntry == null) {
+            if (localFile != null && remoteObject != null) {
+                //both sides were created independently
+                resolveConflict(syncId, objectId, localFile, remoteObject, result);
+            } else if (localFile != null) {
+                upload(syncId, objectId, localFile, createPrecondition(HeaderConstants.IF_NONE_MATCH_HEADER, ANY_ETAG), result);
+            } else if (remoteObject != null) {
+                download(syncId, objectId, remoteObject, result);
+            }
+            return;
+        }
+
+        boolean localChanged = localFile != null && isLocalFileChanged(syncId, localFile, manifestEntry);
+        boolean remoteChanged = remoteObject != null && !equal(remoteObject.getETag(), manifestEntry.getETag());
+
+        if (localFile != null && remoteObject != null) {
+            if (localChanged && remoteChanged) {
+                resolveConflict(syncId, objectId, localFile, remoteObject, result);
+            } else if (localChanged) {
+                upload(syncId, objectId, localFile, createPrecondition(HeaderConstants.IF_MATCH_HEADER, manifestEntry.getETag()), result);
+            } else if (remoteChanged) {
+                download(syncId, objectId, remoteObject, result);
+            }
+        } else if (remoteObject != null) {
+            //the local file was deleted
+            if (remoteChanged) {
+                resolveConflict(syncId, objectId, null, remoteObject, result);
+            } else {
+                deleteRemote(syncId, objectId, createPrecondition(HeaderConstants.IF_MATCH_HEADER, manifestEntry.getETag()), result);
+            }
+        } else if (localFile != null) {
+            //the object was removed from the collection
+            if (localChanged) {
+                resolveConflict(syncId, objectId, localFile, null, result);
+            } else {
+                deleteLocal(syncId, objectId, localFile, result);
+            }
+        } else {
+            //deleted on both sides
+            StorageDB.getInstance().deleteSyncManifestEntry(syncId, objectId);
+        }
+    }
+
+    private void resolveConflict(String syncId, String objectId, LocalFile localFile, StorageObject remoteObject,
+                                 StorageSyncResult result) throws ServiceProxyException {
+
+        mLogger.logFine("Object " + objectId + " changed locally and in the collection. Conflict policy is " + conflictPolicy, this.getClass().getSimpleName(), "resolveConflict");
+
+        switch (conflictPolicy) {
+        case LOCAL_WINS:
+            if (localFile != null) {
+                upload(syncId, objectId, localFile, null, result);
+            } else {
+                deleteRemote(syncId, objectId, null, result);
+            }
+            break;
+        case REMOTE_WINS:
+            if (remoteObject != null) {
+                download(syncId, objectId, remoteObject, result);
+            } else {
+                deleteLocal(syncId, objectId, localFile, result);
+            }
+            break;
+        default:
+            result.getConflicts().add(objectId);
+        }
+    }
+
+    private void upload(String syncId, String objectId, LocalFile localFile, HashMap<String, String> precondition,
+                        StorageSyncResult result) throws ServiceProxyException {
+
+        String localHash = localFile.getHash();
+
+        String contentType = null;
+        try {
+            contentType = Files.probeContentType(localFile.path);
+        } catch (IOException e) {
+            mLogger.logFine("Content type of " + localFile.path + " cannot be determined: " + e.getMessage(), this.getClass().getSimpleName(), "upload");
+        }
+
+        StorageObject storageObject = new StorageObject(objectId, contentType != null ? contentType : DEFAULT_CONTENT_TYPE);
+        storageObject.setDisplayName(objectId);
+
+        StorageObject uploadedObject = storageCollection.createOrUpdateObject(storageObject, localFile.path.toFile(), precondition);
+        if (uploadedObject != null && uploadedObject.isQueued()) {
+            //the manifest is updated by the first sync after the outbox was replayed
+            mLogger.logFine("Upload of " + objectId + " was queued in the Storage outbox", this.getClass().getSimpleName(), "upload");
+            result.getPending().add(objectId);
+            return;
+        }
+
+        String eTag = uploadedObject != null ? uploadedObject.getETag() : null;
+        if (eTag == null || eTag.isEmpty()) {
+            eTag = storageCollection.querySingleStorageObjectById(objectId).getETag();
+        }
+
+        saveManifestEntry(syncId, objectId, eTag, localFile.size, localFile.modified, localHash);
+        result.getUploaded().add(objectId);
+    }
+
+    private void download(String syncId, String objectId, StorageObject remoteObject, StorageSyncResult result) throws ServiceProxyException {
+
+        Path file = folder.resolve(objectId);
+        String objectURI = remoteObject.getCanonicalLink() != null && !remoteObject.getCanonicalLink().isEmpty() ? remoteObject.getCanonicalLink() : storageCollection.getObjectURI(objectId);
+
+        StorageObject downloadedObject = storageCollection.downloadToFile(objectURI, file);
+        String eTag = downloadedObject != null && downloadedObject.getETag() != null && !downloadedObject.getETag().isEmpty() ? downloadedObject.getETag() : remoteObject.getETag();
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            saveManifestEntry(syncId, objectId, eTag, attributes.size(), attributes.lastModifiedTime().toMillis(), StorageContentIndex.hash(file));
+        } catch (IOException e) {
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+        result.getDownloaded().add(objectId);
+    }
+
+    private void deleteRemote(String syncId, String objectId, HashMap<String, String> precondition, StorageSyncResult result) throws ServiceProxyException {
+        storageCollection.removeCollectionObject(objectId, precondition);
+        StorageDB.getInstance().deleteSyncManifestEntry(syncId, objectId);
+        result.getDeletedRemote().add(objectId);
+    }
+
+    private void deleteLocal(String syncId, String objectId, LocalFile localFile, StorageSyncResult result) throws ServiceProxyException {
+        try {
+            Files.deleteIfExists(localFile.path);
+        } catch (IOException e) {
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+        StorageDB.getInstance().deleteSyncManifestEntry(syncId, objectId);
+        result.getDeletedLocal().add(objectId);
+    }
+
+    /**
+     * A file is changed if its size differs from the manifest or if it has a different modification time and a
+     * different hash. Files that were touched without being changed get their new modification time saved
+     */
+    private boolean isLocalFileChanged(String syncId, LocalFile localFile, SyncManifestEntry manifestEntry) throws ServiceProxyException {
+        if (localFile.size != manifestEntry.getLocalSize()) {
+            return true;
+        }
+        if (localFile.modified == manifestEntry.getLocalModified()) {
+            return false;
+        }
+        String localHash = localFile.getHash();
+        if (!localHash.equals(manifestEntry.getLocalHash())) {
+            return true;
+        }
+        saveManifestEntry(syncId, manifestEntry.getObjectId(), manifestEntry.getETag(), localFile.size, localFile.modified, localHash);
+        return false;
+    }
+
+    private void saveManifestEntry(String syncId, String objectId, String eTag, long size, long modified, String localHash) {
+        SyncManifestEntry manifestEntry = new SyncManifestEntry();
+        manifestEntry.setObjectId(objectId);
+        manifestEntry.setETag(eTag);
+        manifestEntry.setLocalSize(size);
+        manifestEntry.setLocalModified(modified);
+        manifestEntry.setLocalHash(localHash);
+        if (!StorageDB.getInstance().saveSyncManifestEntry(syncId, manifestEntry)) {
+            mLogger.logWarning("Manifest entry for " + objectId + " could not be saved. The object is reported as conflict with the next sync", this.getClass().getSimpleName(), "saveManifestEntry");
+        }
+    }
+
+    private HashMap<String, LocalFile> readLocalFiles() throws ServiceProxyException {
+
+        HashMap<String, LocalFile> localFiles = new HashMap<String, LocalFile>();
+        try {
+            Files.createDirectories(folder);
+            DirectoryStream<Path> directoryStream = Files.newDirectoryStream(folder);
+            try {
+                for (Path path : directoryStream) {
+                    String name = path.getFileName().toString();
+                    //hidden files and partial downloads are not synchronized
+                    if (name.startsWith(".") || name.endsWith(StorageConstants.PARTIAL_DOWNLOAD_SUFFIX) || name.endsWith(StorageConstants.PARTIAL_DOWNLOAD_ETAG_SUFFIX)) {
+                        continue;
+                    }
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    if (attributes.isRegularFile()) {
+                        localFiles.put(name, new LocalFile(path, attributes));
+                    }
+                }
+            } finally {
+                directoryStream.close();
+            }
+        } catch (IOException e) {
+            mLogger.logError("Folder " + folder + " cannot be read: " + e.getMessage(), this.getClass().getSimpleName(), "readLocalFiles");
+            throw new ServiceProxyException(e, ServiceProxyException.ERROR);
+        }
+        return localFiles;
+    }
+
+    private HashMap<String, StorageObject> readRemoteObjects() throws ServiceProxyException {
+
+        HashMap<String, StorageObject> remoteObjects = new HashMap<String, StorageObject>();
+        StorageObjectIterator iterator = storageCollection.iterator(LISTING_PAGE_SIZE, false, null);
+        try {
+            while (iterator.hasNext()) {
+                StorageObject storageObject = iterator.next();
+                remoteObjects.put(storageObject.getID(), storageObject);
+            }
+        } catch (StorageIterationException e) {
+            throw e.getServiceProxyException();
+        } finally {
+            iterator.close();
+        }
+        return remoteObjects;
+    }
+
+    private String getSyncId() {
+        String objectOwner = storageCollection.getObjectOwnerUserID();
+        return mbeConfiguration.getMobileBackendIdentifier() + "|" + storageCollection.getCollectionID() + "|" +
+               (objectOwner != null ? objectOwner : "") + "|" + folder.toString();
+    }
+
+    private static HashMap<String, String> createPrecondition(String header, String eTag) {
+        if (eTag == null || eTag.isEmpty()) {
+            return null;
+        }
+        HashMap<String, String> precondition = new HashMap<String, String>();
+        precondition.put(header, eTag);
+        return precondition;
+    }
+
+    private static boolean equal(String value1, String value2) {
+        return value1 == null ? value2 == null : value1.equals(value2);
+    }
+}
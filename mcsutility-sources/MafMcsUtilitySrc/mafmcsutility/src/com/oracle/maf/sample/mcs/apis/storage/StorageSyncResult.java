@@ -0,0 +1,94 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+
+/**
+ * Result of a StorageSync run. Lists the ids of the objects that were transferred or deleted, the objects that were
+ * changed on both sides (conflicts) and the objects that could not be synchronized. Object ids are the names of the
+ * local files.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class StorageSyncResult {
+
+    private final List<String> uploaded = new ArrayList<String>();
+    private final List<String> downloaded = new ArrayList<String>();
+    private final List<String> deletedRemote = new ArrayList<String>();
+    private final List<String> deletedLocal = new ArrayList<String>();
+    private final List<String> conflicts = new ArrayList<String>();
+    private final List<String> pending = new ArrayList<String>();
+    private final HashMap<String, ServiceProxyException> failures = new HashMap<String, ServiceProxyException>();
+
+    StorageSyncResult() {
+        super();
+    }
+
+    /**
+     * @return ids of local files that were uploaded because they are new or changed
+     */
+    public List<String> getUploaded() {
+        return uploaded;
+    }
+
+    /**
+     * @return ids of objects that were downloaded because they are new or changed in the collection
+     */
+    public List<String> getDownloaded() {
+        return downloaded;
+    }
+
+    /**
+     * @return ids of objects that were removed from the collection because their local file was deleted
+     */
+    public List<String> getDeletedRemote() {
+        return deletedRemote;
+    }
+
+    /**
+     * @return ids of local files that were deleted because their object was removed from the collection
+     */
+    public List<String> getDeletedLocal() {
+        return deletedLocal;
+    }
+
+    /**
+     * @return ids of objects that changed locally and in the collection and that were not synchronized because of the
+     * conflict policy SKIP
+     */
+    public List<String> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * @return ids of local files whose upload was saved in the Storage outbox because the device is offline. The
+     * manifest of these files is updated with the first sync after the outbox was replayed
+     */
+    public List<String> getPending() {
+        return pending;
+    }
+
+    /**
+     * @return ids of objects that could not be synchronized, mapped to the exception
+     */
+    public HashMap<String, ServiceProxyException> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return number of objects transferred or deleted
+     */
+    public int getChangeCount() {
+        return uploaded.size() + downloaded.size() + deletedRemote.size() + deletedLocal.size();
+    }
+
+    public String dump() {
+        return "uploaded: " + uploaded + ", downloaded: " + downloaded + ", deletedRemote: " + deletedRemote +
+               ", deletedLocal: " + deletedLocal + ", conflicts: " + conflicts + ", pending: " + pending + ", failures: " + failures.keySet();
+    }
+}
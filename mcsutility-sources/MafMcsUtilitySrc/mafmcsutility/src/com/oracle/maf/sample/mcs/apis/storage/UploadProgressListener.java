@@ -0,0 +1,21 @@
+package com.oracle.maf.sample.mcs.apis.storage;
+
+
+/**
+ * Listener for the progress of segmented uploads (see StorageCollection.uploadSegmented). The listener is called on
+ * the thread that performs the upload after each segment the server accepted. Implementations that update the user
+ * interface must not block and should use MAF APIs to switch to the UI thread.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public interface UploadProgressListener {
+
+    /**
+     * @param objectId id of the storage object that is uploaded
+     * @param uploadedBytes number of bytes received by the server, including bytes sent before an upload was resumed
+     * @param totalBytes total number of bytes of the object
+     * @param bytesPerSecond average throughput of the current call to uploadSegmented or resumePendingUploads
+     */
+    public void uploadProgress(String objectId, long uploadedBytes, long totalBytes, long bytesPerSecond);
+}
@@ -0,0 +1,76 @@
+package com.oracle.maf.sample.mcs.apis.storage.db;
+
+
+/**
+ *
+ * Entity class that holds a row of the storage content index. The index records the SHA-256 hash of the content last
+ * written to an object together with the ETag MCS returned for it. If the object still has this ETag, content with the
+ * same hash does not need to be uploaded again
+ *
+ * @author   Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class ContentIndexEntry {
+
+    private String objectUri = null;
+    private String contentHash = null;
+    private String eTag = null;
+    private String displayName = null;
+    private String contentType = null;
+
+    public ContentIndexEntry() {
+        super();
+    }
+
+    public void setObjectUri(String objectUri) {
+        this.objectUri = objectUri;
+    }
+
+    public String getObjectUri() {
+        return objectUri;
+    }
+
+    /**
+     * @param contentHash hex encoded SHA-256 hash of the object content
+     */
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * @param eTag ETag MCS returned for the content
+     */
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * @param displayName display name the content was written with
+     */
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * @param contentType content type the content was written with
+     */
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
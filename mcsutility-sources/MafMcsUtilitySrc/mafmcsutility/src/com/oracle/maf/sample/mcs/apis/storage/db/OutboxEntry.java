@@ -0,0 +1,222 @@
+package com.oracle.maf.sample.mcs.apis.storage.db;
+
+
+/**
+ *
+ * Entity class that holds a storage write or delete that was issued while the device was offline. The content of
+ * writes is read from the payload file when the entry is replayed. Payload files that the outbox created for byte[]
+ * and stream content are owned by the outbox and deleted with the entry
+ *
+ * @author   Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class OutboxEntry {
+
+    /**
+     * Entry waits for replay
+     */
+    public static final String STATE_PENDING = "PENDING";
+
+    /**
+     * Entry was rejected by MCS, e.g. with HTTP 412 because the object changed on the server. Failed entries are not
+     * replayed unless they are retried
+     */
+    public static final String STATE_FAILED = "FAILED";
+
+    /**
+     * Create or update of an object with a known id
+     */
+    public static final String OPERATION_PUT = "PUT";
+
+    /**
+     * Create of an object with an id assigned by MCS
+     */
+    public static final String OPERATION_POST = "POST";
+
+    /**
+     * Removal of an object
+     */
+    public static final String OPERATION_DELETE = "DELETE";
+
+    private String entryId = null;
+    private String mobileBackendId = null;
+    private String collectionId = null;
+    private String objectOwner = null;
+    private String objectId = null;
+    private String objectUri = null;
+    private String operation = null;
+    private String displayName = null;
+    private String contentType = null;
+    private String payloadFile = null;
+    private boolean payloadOwned = false;
+    private String preconditions = null;
+    private String state = STATE_PENDING;
+    private int attempts = 0;
+    private String lastError = null;
+    private long created = 0;
+
+    public OutboxEntry() {
+        super();
+    }
+
+    public void setEntryId(String entryId) {
+        this.entryId = entryId;
+    }
+
+    public String getEntryId() {
+        return entryId;
+    }
+
+    public void setMobileBackendId(String mobileBackendId) {
+        this.mobileBackendId = mobileBackendId;
+    }
+
+    public String getMobileBackendId() {
+        return mobileBackendId;
+    }
+
+    public void setCollectionId(String collectionId) {
+        this.collectionId = collectionId;
+    }
+
+    public String getCollectionId() {
+        return collectionId;
+    }
+
+    /**
+     * @param objectOwner user id of the object owner in user isolated collections or null
+     */
+    public void setObjectOwner(String objectOwner) {
+        this.objectOwner = objectOwner;
+    }
+
+    public String getObjectOwner() {
+        return objectOwner;
+    }
+
+    /**
+     * @param objectId id of the object for PUT and DELETE, null for POST
+     */
+    public void setObjectId(String objectId) {
+        this.objectId = objectId;
+    }
+
+    public String getObjectId() {
+        return objectId;
+    }
+
+    /**
+     * @param objectUri URI of the object for PUT and DELETE, URI of the collection objects for POST
+     */
+    public void setObjectUri(String objectUri) {
+        this.objectUri = objectUri;
+    }
+
+    public String getObjectUri() {
+        return objectUri;
+    }
+
+    /**
+     * @param operation OPERATION_PUT, OPERATION_POST or OPERATION_DELETE
+     */
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @param payloadFile absolute path of the file that holds the content to write. Null for deletes
+     */
+    public void setPayloadFile(String payloadFile) {
+        this.payloadFile = payloadFile;
+    }
+
+    public String getPayloadFile() {
+        return payloadFile;
+    }
+
+    /**
+     * @param payloadOwned true if the payload file was created by the outbox and is deleted with the entry
+     */
+    public void setPayloadOwned(boolean payloadOwned) {
+        this.payloadOwned = payloadOwned;
+    }
+
+    public boolean isPayloadOwned() {
+        return payloadOwned;
+    }
+
+    /**
+     * @param preconditions JSON object with the If-Match / If-None-Match headers passed with the write or delete
+     */
+    public void setPreconditions(String preconditions) {
+        this.preconditions = preconditions;
+    }
+
+    public String getPreconditions() {
+        return preconditions;
+    }
+
+    /**
+     * @param state STATE_PENDING or STATE_FAILED
+     */
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * @param attempts number of failed replay attempts
+     */
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @param lastError message of the last failed replay attempt
+     */
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @param created time in milliseconds the write or delete was issued
+     */
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+}
@@ -0,0 +1,138 @@
+package com.oracle.maf.sample.mcs.apis.storage.db;
+
+
+/**
+ *
+ * Entity class that holds a row of the pending storage uploads table. A pending upload is a segmented upload of a file
+ * that has been started but not completed
+ *
+ * @author   Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class PendingUpload {
+    
+    private String uploadId = null;
+    private String mobileBackendId = null;
+    private String collectionId = null;
+    private String objectId = null;
+    private String displayName = null;
+    private String contentType = null;
+    private String objectOwner = null;
+    private String filePath = null;
+    private long fileSize = 0;
+    private long fileModified = 0;
+    private String sessionId = null;
+    private long uploadedBytes = 0;
+    
+    public PendingUpload() {
+        super();
+    }
+
+    public void setUploadId(String uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public void setMobileBackendId(String mobileBackendId) {
+        this.mobileBackendId = mobileBackendId;
+    }
+
+    public String getMobileBackendId() {
+        return mobileBackendId;
+    }
+
+    public void setCollectionId(String collectionId) {
+        this.collectionId = collectionId;
+    }
+
+    public String getCollectionId() {
+        return collectionId;
+    }
+
+    public void setObjectId(String objectId) {
+        this.objectId = objectId;
+    }
+
+    public String getObjectId() {
+        return objectId;
+    }
+
+    public void setDisplayName(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setObjectOwner(String objectOwner) {
+        this.objectOwner = objectOwner;
+    }
+
+    public String getObjectOwner() {
+        return objectOwner;
+    }
+
+    /**
+     * @param filePath absolute path of the file that is uploaded
+     */
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * @param fileSize size of the file when the upload started. Uploads of changed files are not resumed
+     */
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * @param fileModified last modified time in milliseconds of the file when the upload started
+     */
+    public void setFileModified(long fileModified) {
+        this.fileModified = fileModified;
+    }
+
+    public long getFileModified() {
+        return fileModified;
+    }
+
+    /**
+     * @param sessionId the id of the upload session on the server
+     */
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setUploadedBytes(long uploadedBytes) {
+        this.uploadedBytes = uploadedBytes;
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+}
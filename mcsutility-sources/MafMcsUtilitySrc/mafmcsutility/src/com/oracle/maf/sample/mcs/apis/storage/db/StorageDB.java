@@ -0,0 +1,804 @@
+package com.oracle.maf.sample.mcs.apis.storage.db;
+
+import com.oracle.maf.sample.mcs.shared.log.LibraryLogger;
+import com.oracle.maf.sample.mcs.shared.sqlite.DBConnectionFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Storage operations that outlive the application session, like the upload of a large file that is interrupted by a
+ * loss of network connectivity or by the application being closed, keep their state in a SQLite database. The state is
+ * read when the operation is resumed.
+ * <p>
+ * Like for the Analytics DB, this class is used by the MAF MCS Utility Storage proxy and is not meant to be accessed by
+ * MAF applications directly
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public final class StorageDB {
+
+    private static StorageDB storageDB = new StorageDB();
+
+    public StorageDB() {
+        super();
+    }
+
+    public static StorageDB getInstance() {
+        return storageDB;
+    }
+
+    /**
+     * Get a connection handle to the SQLite database
+     * @return SQL connection object on success, or null on failure
+     */
+    private Connection getConnection() {
+        try {
+            return DBConnectionFactory.getInstance().getConnection();
+        } catch (SQLException e) {
+            LibraryLogger logger = new LibraryLogger();
+            logger.logError("Cannot obtain SQL connection. SQLException message is: " + e.getClass().toString() +
+                            " :: " + e.getMessage() + "Error Code: " + e.getErrorCode(), "StorageDB", "getConnection");
+            return null;
+        }
+    }
+
+    /**
+     * Make sure the pending upload table is created or does exist.
+     * @return connection or null if the table could not be accessed
+     */
+    private Connection ensureUploadTable() {
+
+        LibraryLogger logger = new LibraryLogger();
+        logger.logFine("Trying to obtain SQLite connection", "StorageDB", "ensureUploadTable");
+        Connection conn = getConnection();
+
+        if (conn != null) {
+            try {
+                Statement pStmt = conn.createStatement();
+
+                logger.logFine("Ensuring upload table: " + StorageSQLHelper.UPLOAD_TABLE_NAME + " exists", "StorageDB",
+                               "ensureUploadTable");
+                pStmt.execute(StorageSQLHelper.CREATE_UPLOAD_TABLE_IF_NOT_EXIST);
+                pStmt.close();
+                conn.commit();
+
+                return conn;
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in access to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "ensureUploadTable");
+                closeQuietly(conn, "ensureUploadTable");
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Saves a pending upload. An upload that already is saved for the same mobile backend, collection and object is
+     * replaced
+     *
+     * @param pendingUpload the upload state to save
+     * @return true if the upload state was saved
+     */
+    public boolean savePendingUpload(PendingUpload pendingUpload) {
+        boolean success = false;
+        LibraryLogger logger = new LibraryLogger();
+
+        logger.logFine("Saving pending upload " + pendingUpload.getUploadId() + " for object " +
+                       pendingUpload.getObjectId() + " in collection " + pendingUpload.getCollectionId(), "StorageDB",
+                       "savePendingUpload");
+
+        Connection conn = ensureUploadTable();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.UPLOAD_TABLE_OBJECT_DELETE);
+                pStmt.setString(1, pendingUpload.getMobileBackendId());
+                pStmt.setString(2, pendingUpload.getCollectionId());
+                pStmt.setString(3, pendingUpload.getObjectId());
+                pStmt.executeUpdate();
+                pStmt.close();
+
+                pStmt = conn.prepareStatement(StorageSQLHelper.UPLOAD_TABLE_CONTENT_INSERT);
+                pStmt.setString(1, pendingUpload.getUploadId());
+                pStmt.setString(2, pendingUpload.getMobileBackendId());
+                pStmt.setString(3, pendingUpload.getCollectionId());
+                pStmt.setString(4, pendingUpload.getObjectId());
+                pStmt.setString(5, pendingUpload.getDisplayName());
+                pStmt.setString(6, pendingUpload.getContentType());
+                pStmt.setString(7, pendingUpload.getObjectOwner());
+                pStmt.setString(8, pendingUpload.getFilePath());
+                pStmt.setLong(9, pendingUpload.getFileSize());
+                pStmt.setLong(10, pendingUpload.getFileModified());
+                pStmt.setString(11, pendingUpload.getSessionId());
+                pStmt.setLong(12, pendingUpload.getUploadedBytes());
+                pStmt.execute();
+                pStmt.close();
+
+                conn.commit();
+                conn.close();
+                success = true;
+                logger.logFine("Pending upload saved", "StorageDB", "savePendingUpload");
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in update to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "savePendingUpload");
+                closeQuietly(conn, "savePendingUpload");
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Saves the number of bytes the server confirmed for a pending upload
+     *
+     * @param uploadId the id of the pending upload
+     * @param uploadedBytes number of bytes received by the server
+     * @return true if the progress was saved
+     */
+    public boolean updateUploadedBytes(String uploadId, long uploadedBytes) {
+        boolean success = false;
+        LibraryLogger logger = new LibraryLogger();
+
+        Connection conn = ensureUploadTable();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.UPLOAD_TABLE_PROGRESS_UPDATE);
+                pStmt.setLong(1, uploadedBytes);
+                pStmt.setString(2, uploadId);
+                pStmt.executeUpdate();
+                pStmt.close();
+                conn.commit();
+                conn.close();
+                success = true;
+                logger.logFine("Progress of upload " + uploadId + " saved: " + uploadedBytes + " bytes", "StorageDB",
+                               "updateUploadedBytes");
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in update to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "updateUploadedBytes");
+                closeQuietly(conn, "updateUploadedBytes");
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Deletes a pending upload after it completed or when it cannot be resumed
+     *
+     * @param uploadId the id of the pending upload
+     * @return true if the operation was performed successfully
+     */
+    public boolean deletePendingUpload(String uploadId) {
+        boolean success = false;
+        LibraryLogger logger = new LibraryLogger();
+
+        logger.logFine("Deleting pending upload " + uploadId, "StorageDB", "deletePendingUpload");
+
+        Connection conn = ensureUploadTable();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.UPLOAD_TABLE_CONTENT_DELETE);
+                pStmt.setString(1, uploadId);
+                pStmt.executeUpdate();
+                pStmt.close();
+                conn.commit();
+                conn.close();
+                success = true;
+
+            } catch (SQLException sqlException) {
+                logger.logError("SQLException when deleting pending upload " + uploadId + " : " +
+                                sqlException.getMessage() + "Error Code: " + sqlException.getErrorCode(), "StorageDB",
+                                "deletePendingUpload");
+                closeQuietly(conn, "deletePendingUpload");
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Reads the pending upload of a storage object
+     *
+     * @param mobileBackendId the mobile backend the upload is sent to
+     * @param collectionId the storage collection the upload is sent to
+     * @param objectId the storage object id
+     * @return the pending upload or null if no upload is pending for the object
+     */
+    public PendingUpload findPendingUpload(String mobileBackendId, String collectionId, String objectId) {
+        LibraryLogger logger = new LibraryLogger();
+
+        Connection conn = ensureUploadTable();
+        PendingUpload pendingUpload = null;
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.QUERY_UPLOAD_FOR_OBJECT);
+                pStmt.setString(1, mobileBackendId);
+                pStmt.setString(2, collectionId);
+                pStmt.setString(3, objectId);
+                ResultSet resultSet = pStmt.executeQuery();
+
+                if (resultSet != null && resultSet.next()) {
+                    pendingUpload = readPendingUpload(resultSet);
+                }
+                logger.logFine("Pending upload for object " + objectId + " found: " + (pendingUpload != null),
+                               "StorageDB", "findPendingUpload");
+                pStmt.close();
+                conn.close();
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in query to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "findPendingUpload");
+                closeQuietly(conn, "findPendingUpload");
+            }
+        }
+        return pendingUpload;
+    }
+
+    /**
+     * Reads all pending uploads to a storage collection
+     *
+     * @param mobileBackendId the mobile backend the uploads are sent to
+     * @param collectionId the storage collection the uploads are sent to
+     * @return List of pending uploads. The list is empty if no upload is pending
+     */
+    public List<PendingUpload> getPendingUploads(String mobileBackendId, String collectionId) {
+        LibraryLogger logger = new LibraryLogger();
+
+        Connection conn = ensureUploadTable();
+        ArrayList<PendingUpload> pendingUploads = new ArrayList<PendingUpload>();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.QUERY_UPLOADS_FOR_COLLECTION);
+                pStmt.setString(1, mobileBackendId);
+                pStmt.setString(2, collectionId);
+                ResultSet resultSet = pStmt.executeQuery();
+
+                while (resultSet != null && resultSet.next()) {
+                    pendingUploads.add(readPendingUpload(resultSet));
+                }
+                logger.logFine("Number of pending uploads read: " + pendingUploads.size(), "StorageDB",
+                               "getPendingUploads");
+                pStmt.close();
+                conn.close();
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in query to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "getPendingUploads");
+                closeQuietly(conn, "getPendingUploads");
+            }
+        }
+        return pendingUploads;
+    }
+
+    /**
+     * Make sure the sync manifest table is created or does exist.
+     * @return connection or null if the table could not be accessed
+     */
+    private Connection ensureSyncManifestTable() {
+
+        LibraryLogger logger = new LibraryLogger();
+        Connection conn = getConnection();
+
+        if (conn != null) {
+            try {
+                Statement pStmt = conn.createStatement();
+
+                logger.logFine("Ensuring sync manifest table: " + StorageSQLHelper.SYNC_MANIFEST_TABLE_NAME + " exists", "StorageDB",
+                               "ensureSyncManifestTable");
+                pStmt.execute(StorageSQLHelper.CREATE_SYNC_MANIFEST_TABLE_IF_NOT_EXIST);
+                pStmt.close();
+                conn.commit();
+
+                return conn;
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in access to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "ensureSyncManifestTable");
+                closeQuietly(conn, "ensureSyncManifestTable");
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Saves or replaces the manifest entry of an object
+     *
+     * @param syncId identifies the local folder and collection that are synchronized
+     * @param manifestEntry state of the local file and the collection object after the sync
+     * @return true if the entry was saved
+     */
+    public boolean saveSyncManifestEntry(String syncId, SyncManifestEntry manifestEntry) {
+        boolean success = false;
+        LibraryLogger logger = new LibraryLogger();
+
+        Connection conn = ensureSyncManifestTable();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.SYNC_MANIFEST_TABLE_CONTENT_SAVE);
+                pStmt.setString(1, syncId);
+                pStmt.setString(2, manifestEntry.getObjectId());
+                pStmt.setString(3, manifestEntry.getETag());
+                pStmt.setLong(4, manifestEntry.getLocalModified());
+                pStmt.setLong(5, manifestEntry.getLocalSize());
+                pStmt.setString(6, manifestEntry.getLocalHash());
+                pStmt.execute();
+                pStmt.close();
+                conn.commit();
+                conn.close();
+                success = true;
+                logger.logFine("Manifest entry for object " + manifestEntry.getObjectId() + " saved", "StorageDB", "saveSyncManifestEntry");
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in update to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "saveSyncManifestEntry");
+                closeQuietly(conn, "saveSyncManifestEntry");
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Deletes the manifest entry of an object that was removed locally and remotely
+     *
+     * @param syncId identifies the local folder and collection that are synchronized
+     * @param objectId the object id
+     * @return true if the operation was performed successfully
+     */
+    public boolean deleteSyncManifestEntry(String syncId, String objectId) {
+        boolean success = false;
+        LibraryLogger logger = new LibraryLogger();
+
+        Connection conn = ensureSyncManifestTable();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.SYNC_MANIFEST_TABLE_CONTENT_DELETE);
+                pStmt.setString(1, syncId);
+                pStmt.setString(2, objectId);
+                pStmt.executeUpdate();
+                pStmt.close();
+                conn.commit();
+                conn.close();
+                success = true;
+
+            } catch (SQLException sqlException) {
+                logger.logError("SQLException when deleting manifest entry for object " + objectId + " : " +
+                                sqlException.getMessage() + "Error Code: " + sqlException.getErrorCode(), "StorageDB",
+                                "deleteSyncManifestEntry");
+                closeQuietly(conn, "deleteSyncManifestEntry");
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Reads the manifest of a sync
+     *
+     * @param syncId identifies the local folder and collection that are synchronized
+     * @return List of manifest entries. The list is empty for folders that were not synchronized before
+     */
+    public List<SyncManifestEntry> getSyncManifest(String syncId) {
+        LibraryLogger logger = new LibraryLogger();
+
+        Connection conn = ensureSyncManifestTable();
+        ArrayList<SyncManifestEntry> manifest = new ArrayList<SyncManifestEntry>();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.QUERY_SYNC_MANIFEST);
+                pStmt.setString(1, syncId);
+                ResultSet resultSet = pStmt.executeQuery();
+
+                while (resultSet != null && resultSet.next()) {
+                    SyncManifestEntry manifestEntry = new SyncManifestEntry();
+                    manifestEntry.setObjectId(resultSet.getString("OBJECT_ID"));
+                    manifestEntry.setETag(resultSet.getString("ETAG"));
+                    manifestEntry.setLocalModified(resultSet.getLong("LOCAL_MODIFIED"));
+                    manifestEntry.setLocalSize(resultSet.getLong("LOCAL_SIZE"));
+                    manifestEntry.setLocalHash(resultSet.getString("LOCAL_HASH"));
+                    manifest.add(manifestEntry);
+                }
+                logger.logFine("Number of manifest entries read: " + manifest.size(), "StorageDB", "getSyncManifest");
+                pStmt.close();
+                conn.close();
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in query to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "getSyncManifest");
+                closeQuietly(conn, "getSyncManifest");
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Make sure the outbox table is created or does exist.
+     * @return connection or null if the table could not be accessed
+     */
+    private Connection ensureOutboxTable() {
+
+        LibraryLogger logger = new LibraryLogger();
+        Connection conn = getConnection();
+
+        if (conn != null) {
+            try {
+                Statement pStmt = conn.createStatement();
+
+                logger.logFine("Ensuring outbox table: " + StorageSQLHelper.OUTBOX_TABLE_NAME + " exists", "StorageDB",
+                               "ensureOutboxTable");
+                pStmt.execute(StorageSQLHelper.CREATE_OUTBOX_TABLE_IF_NOT_EXIST);
+                pStmt.close();
+                conn.commit();
+
+                return conn;
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in access to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "ensureOutboxTable");
+                closeQuietly(conn, "ensureOutboxTable");
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a storage write or delete to the outbox
+     *
+     * @param outboxEntry the operation to save
+     * @return true if the entry was saved
+     */
+    public boolean saveOutboxEntry(OutboxEntry outboxEntry) {
+        boolean success = false;
+        LibraryLogger logger = new LibraryLogger();
+
+        logger.logFine("Saving outbox entry " + outboxEntry.getEntryId() + ": " + outboxEntry.getOperation() + " " +
+                       outboxEntry.getObjectUri(), "StorageDB", "saveOutboxEntry");
+
+        Connection conn = ensureOutboxTable();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.OUTBOX_TABLE_CONTENT_INSERT);
+                pStmt.setString(1, outboxEntry.getEntryId());
+                pStmt.setString(2, outboxEntry.getMobileBackendId());
+                pStmt.setString(3, outboxEntry.getCollectionId());
+                pStmt.setString(4, outboxEntry.getObjectOwner());
+                pStmt.setString(5, outboxEntry.getObjectId());
+                pStmt.setString(6, outboxEntry.getObjectUri());
+                pStmt.setString(7, outboxEntry.getOperation());
+                pStmt.setString(8, outboxEntry.getDisplayName());
+                pStmt.setString(9, outboxEntry.getContentType());
+                pStmt.setString(10, outboxEntry.getPayloadFile());
+                pStmt.setInt(11, outboxEntry.isPayloadOwned() ? 1 : 0);
+                pStmt.setString(12, outboxEntry.getPreconditions());
+                pStmt.setString(13, outboxEntry.getState());
+                pStmt.setInt(14, outboxEntry.getAttempts());
+                pStmt.setString(15, outboxEntry.getLastError());
+                pStmt.setLong(16, outboxEntry.getCreated());
+                pStmt.execute();
+                pStmt.close();
+
+                conn.commit();
+                conn.close();
+                success = true;
+                logger.logFine("Outbox entry saved", "StorageDB", "saveOutboxEntry");
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in update to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "saveOutboxEntry");
+                closeQuietly(conn, "saveOutboxEntry");
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Saves the replay state of an outbox entry
+     *
+     * @param outboxEntry the entry with the state, attempts and last error to save
+     * @return true if the state was saved
+     */
+    public boolean updateOutboxEntryState(OutboxEntry outboxEntry) {
+        boolean success = false;
+        LibraryLogger logger = new LibraryLogger();
+
+        Connection conn = ensureOutboxTable();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.OUTBOX_TABLE_STATE_UPDATE);
+                pStmt.setString(1, outboxEntry.getState());
+                pStmt.setInt(2, outboxEntry.getAttempts());
+                pStmt.setString(3, outboxEntry.getLastError());
+                pStmt.setString(4, outboxEntry.getEntryId());
+                pStmt.executeUpdate();
+                pStmt.close();
+                conn.commit();
+                conn.close();
+                success = true;
+                logger.logFine("State of outbox entry " + outboxEntry.getEntryId() + " saved: " + outboxEntry.getState(),
+                               "StorageDB", "updateOutboxEntryState");
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in update to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "updateOutboxEntryState");
+                closeQuietly(conn, "updateOutboxEntryState");
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Deletes an outbox entry after it was replayed or discarded
+     *
+     * @param entryId the id of the outbox entry
+     * @return true if the operation was performed successfully
+     */
+    public boolean deleteOutboxEntry(String entryId) {
+        boolean success = false;
+        LibraryLogger logger = new LibraryLogger();
+
+        logger.logFine("Deleting outbox entry " + entryId, "StorageDB", "deleteOutboxEntry");
+
+        Connection conn = ensureOutboxTable();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.OUTBOX_TABLE_CONTENT_DELETE);
+                pStmt.setString(1, entryId);
+                pStmt.executeUpdate();
+                pStmt.close();
+                conn.commit();
+                conn.close();
+                success = true;
+
+            } catch (SQLException sqlException) {
+                logger.logError("SQLException when deleting outbox entry " + entryId + " : " +
+                                sqlException.getMessage() + "Error Code: " + sqlException.getErrorCode(), "StorageDB",
+                                "deleteOutboxEntry");
+                closeQuietly(conn, "deleteOutboxEntry");
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Reads the outbox of a mobile backend
+     *
+     * @param mobileBackendId the mobile backend the operations are sent to
+     * @return List of outbox entries in the order they were issued. The list is empty if the outbox is empty
+     */
+    public List<OutboxEntry> getOutboxEntries(String mobileBackendId) {
+        LibraryLogger logger = new LibraryLogger();
+
+        Connection conn = ensureOutboxTable();
+        ArrayList<OutboxEntry> outboxEntries = new ArrayList<OutboxEntry>();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.QUERY_OUTBOX_FOR_BACKEND);
+                pStmt.setString(1, mobileBackendId);
+                ResultSet resultSet = pStmt.executeQuery();
+
+                while (resultSet != null && resultSet.next()) {
+                    OutboxEntry outboxEntry = new OutboxEntry();
+                    outboxEntry.setEntryId(resultSet.getString("ENTRY_ID"));
+                    outboxEntry.setMobileBackendId(resultSet.getString("BACKEND_ID"));
+                    outboxEntry.setCollectionId(resultSet.getString("COLLECTION_ID"));
+                    outboxEntry.setObjectOwner(resultSet.getString("OBJECT_OWNER"));
+                    outboxEntry.setObjectId(resultSet.getString("OBJECT_ID"));
+                    outboxEntry.setObjectUri(resultSet.getString("OBJECT_URI"));
+                    outboxEntry.setOperation(resultSet.getString("OPERATION"));
+                    outboxEntry.setDisplayName(resultSet.getString("DISPLAY_NAME"));
+                    outboxEntry.setContentType(resultSet.getString("CONTENT_TYPE"));
+                    outboxEntry.setPayloadFile(resultSet.getString("PAYLOAD_FILE"));
+                    outboxEntry.setPayloadOwned(resultSet.getInt("PAYLOAD_OWNED") == 1);
+                    outboxEntry.setPreconditions(resultSet.getString("PRECONDITIONS"));
+                    outboxEntry.setState(resultSet.getString("STATE"));
+                    outboxEntry.setAttempts(resultSet.getInt("ATTEMPTS"));
+                    outboxEntry.setLastError(resultSet.getString("LAST_ERROR"));
+                    outboxEntry.setCreated(resultSet.getLong("CREATED"));
+                    outboxEntries.add(outboxEntry);
+                }
+                logger.logFine("Number of outbox entries read: " + outboxEntries.size(), "StorageDB", "getOutboxEntries");
+                pStmt.close();
+                conn.close();
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in query to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "getOutboxEntries");
+                closeQuietly(conn, "getOutboxEntries");
+            }
+        }
+        return outboxEntries;
+    }
+
+    /**
+     * Make sure the content index table is created or does exist.
+     * @return connection or null if the table could not be accessed
+     */
+    private Connection ensureContentIndexTable() {
+
+        LibraryLogger logger = new LibraryLogger();
+        Connection conn = getConnection();
+
+        if (conn != null) {
+            try {
+                Statement pStmt = conn.createStatement();
+
+                logger.logFine("Ensuring content index table: " + StorageSQLHelper.CONTENT_INDEX_TABLE_NAME + " exists",
+                               "StorageDB", "ensureContentIndexTable");
+                pStmt.execute(StorageSQLHelper.CREATE_CONTENT_INDEX_TABLE_IF_NOT_EXIST);
+                pStmt.close();
+                conn.commit();
+
+                return conn;
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in access to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "ensureContentIndexTable");
+                closeQuietly(conn, "ensureContentIndexTable");
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Saves or replaces the content index entry of an object
+     *
+     * @param mobileBackendId the mobile backend the object is stored in
+     * @param indexEntry hash and ETag of the object content
+     * @return true if the entry was saved
+     */
+    public boolean saveContentIndexEntry(String mobileBackendId, ContentIndexEntry indexEntry) {
+        boolean success = false;
+        LibraryLogger logger = new LibraryLogger();
+
+        Connection conn = ensureContentIndexTable();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.CONTENT_INDEX_TABLE_CONTENT_SAVE);
+                pStmt.setString(1, mobileBackendId);
+                pStmt.setString(2, indexEntry.getObjectUri());
+                pStmt.setString(3, indexEntry.getContentHash());
+                pStmt.setString(4, indexEntry.getETag());
+                pStmt.setString(5, indexEntry.getDisplayName());
+                pStmt.setString(6, indexEntry.getContentType());
+                pStmt.execute();
+                pStmt.close();
+
+                conn.commit();
+                conn.close();
+                success = true;
+                logger.logFine("Content index entry saved for " + indexEntry.getObjectUri(), "StorageDB",
+                               "saveContentIndexEntry");
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in update to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "saveContentIndexEntry");
+                closeQuietly(conn, "saveContentIndexEntry");
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Deletes the content index entry of an object, e.g. after the object was removed
+     *
+     * @param mobileBackendId the mobile backend the object is stored in
+     * @param objectUri the object URI
+     * @return true if the operation was performed successfully
+     */
+    public boolean deleteContentIndexEntry(String mobileBackendId, String objectUri) {
+        boolean success = false;
+        LibraryLogger logger = new LibraryLogger();
+
+        Connection conn = ensureContentIndexTable();
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.CONTENT_INDEX_TABLE_CONTENT_DELETE);
+                pStmt.setString(1, mobileBackendId);
+                pStmt.setString(2, objectUri);
+                pStmt.executeUpdate();
+                pStmt.close();
+                conn.commit();
+                conn.close();
+                success = true;
+
+            } catch (SQLException sqlException) {
+                logger.logError("SQLException when deleting content index entry for " + objectUri + " : " +
+                                sqlException.getMessage() + "Error Code: " + sqlException.getErrorCode(), "StorageDB",
+                                "deleteContentIndexEntry");
+                closeQuietly(conn, "deleteContentIndexEntry");
+            }
+        }
+        return success;
+    }
+
+    /**
+     * Reads the content index entry of an object
+     *
+     * @param mobileBackendId the mobile backend the object is stored in
+     * @param objectUri the object URI
+     * @return the index entry or null if the object content is not indexed
+     */
+    public ContentIndexEntry findContentIndexEntry(String mobileBackendId, String objectUri) {
+        LibraryLogger logger = new LibraryLogger();
+
+        Connection conn = ensureContentIndexTable();
+        ContentIndexEntry indexEntry = null;
+
+        if (conn != null) {
+            try {
+                PreparedStatement pStmt = conn.prepareStatement(StorageSQLHelper.QUERY_CONTENT_INDEX_FOR_OBJECT);
+                pStmt.setString(1, mobileBackendId);
+                pStmt.setString(2, objectUri);
+                ResultSet resultSet = pStmt.executeQuery();
+
+                if (resultSet != null && resultSet.next()) {
+                    indexEntry = new ContentIndexEntry();
+                    indexEntry.setObjectUri(resultSet.getString("OBJECT_URI"));
+                    indexEntry.setContentHash(resultSet.getString("CONTENT_HASH"));
+                    indexEntry.setETag(resultSet.getString("ETAG"));
+                    indexEntry.setDisplayName(resultSet.getString("DISPLAY_NAME"));
+                    indexEntry.setContentType(resultSet.getString("CONTENT_TYPE"));
+                }
+                pStmt.close();
+                conn.close();
+
+            } catch (SQLException sqlException) {
+                logger.logError("Exception occured in query to SQLite database : " + sqlException.getMessage() +
+                                "Error Code: " + sqlException.getErrorCode(), "StorageDB", "findContentIndexEntry");
+                closeQuietly(conn, "findContentIndexEntry");
+            }
+        }
+        return indexEntry;
+    }
+
+    private PendingUpload readPendingUpload(ResultSet resultSet) throws SQLException {
+        PendingUpload pendingUpload = new PendingUpload();
+        pendingUpload.setUploadId(resultSet.getString("UPLOAD_ID"));
+        pendingUpload.setMobileBackendId(resultSet.getString("BACKEND_ID"));
+        pendingUpload.setCollectionId(resultSet.getString("COLLECTION_ID"));
+        pendingUpload.setObjectId(resultSet.getString("OBJECT_ID"));
+        pendingUpload.setDisplayName(resultSet.getString("DISPLAY_NAME"));
+        pendingUpload.setContentType(resultSet.getString("CONTENT_TYPE"));
+        pendingUpload.setObjectOwner(resultSet.getString("OBJECT_OWNER"));
+        pendingUpload.setFilePath(resultSet.getString("FILE_PATH"));
+        pendingUpload.setFileSize(resultSet.getLong("FILE_SIZE"));
+        pendingUpload.setFileModified(resultSet.getLong("FILE_MODIFIED"));
+        pendingUpload.setSessionId(resultSet.getString("SESSION_ID"));
+        pendingUpload.setUploadedBytes(resultSet.getLong("UPLOADED_BYTES"));
+        return pendingUpload;
+    }
+
+    private void closeQuietly(Connection conn, String methodName) {
+        try {
+            conn.close();
+        } catch (Exception e) {
+            //we can't throw an excpetion here
+            LibraryLogger logger = new LibraryLogger();
+            logger.logError("Failed to close DB connection : " + e.getMessage(), "StorageDB", methodName);
+        }
+    }
+}
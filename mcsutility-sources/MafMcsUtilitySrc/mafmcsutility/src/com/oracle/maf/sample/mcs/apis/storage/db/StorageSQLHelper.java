@@ -0,0 +1,88 @@
+package com.oracle.maf.sample.mcs.apis.storage.db;
+
+
+/**
+ * SQL statements used with the tables that hold the offline state of the Storage API
+ *
+ * @author   Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class StorageSQLHelper {
+    
+    //table name
+    public final static String UPLOAD_TABLE_NAME = "PENDING_STORAGE_UPLOADS";
+    
+    //one row per segmented upload that has not completed yet
+    public final static String CREATE_UPLOAD_TABLE_IF_NOT_EXIST = "CREATE TABLE IF NOT EXISTS "+UPLOAD_TABLE_NAME+"(UPLOAD_ID VARCHAR PRIMARY KEY, BACKEND_ID VARCHAR, COLLECTION_ID VARCHAR, OBJECT_ID VARCHAR, DISPLAY_NAME VARCHAR, CONTENT_TYPE VARCHAR, OBJECT_OWNER VARCHAR, FILE_PATH VARCHAR, FILE_SIZE INTEGER, FILE_MODIFIED INTEGER, SESSION_ID VARCHAR, UPLOADED_BYTES INTEGER);";
+    
+    //save upload
+    public final static String UPLOAD_TABLE_CONTENT_INSERT = "INSERT INTO "+UPLOAD_TABLE_NAME+" (UPLOAD_ID,BACKEND_ID,COLLECTION_ID,OBJECT_ID,DISPLAY_NAME,CONTENT_TYPE,OBJECT_OWNER,FILE_PATH,FILE_SIZE,FILE_MODIFIED,SESSION_ID,UPLOADED_BYTES) VALUES (?,?,?,?,?,?,?,?,?,?,?,?);";
+    
+    //save progress of an upload
+    public final static String UPLOAD_TABLE_PROGRESS_UPDATE = "UPDATE "+UPLOAD_TABLE_NAME+" SET UPLOADED_BYTES = ? WHERE UPLOAD_ID = ?;";
+    
+    //delete a completed or abandoned upload
+    public final static String UPLOAD_TABLE_CONTENT_DELETE = "DELETE FROM "+UPLOAD_TABLE_NAME+" WHERE UPLOAD_ID = ?;";
+    
+    //delete the upload of an object
+    public final static String UPLOAD_TABLE_OBJECT_DELETE = "DELETE FROM "+UPLOAD_TABLE_NAME+" WHERE BACKEND_ID = ? AND COLLECTION_ID = ? AND OBJECT_ID = ?;";
+    
+    //query the upload of an object
+    public final static String QUERY_UPLOAD_FOR_OBJECT = "SELECT * FROM "+UPLOAD_TABLE_NAME+" WHERE BACKEND_ID = ? AND COLLECTION_ID = ? AND OBJECT_ID = ?;";
+    
+    //query all uploads of a collection
+    public final static String QUERY_UPLOADS_FOR_COLLECTION = "SELECT * FROM "+UPLOAD_TABLE_NAME+" WHERE BACKEND_ID = ? AND COLLECTION_ID = ?;";
+    
+    //sync manifest table name
+    public final static String SYNC_MANIFEST_TABLE_NAME = "STORAGE_SYNC_MANIFEST";
+    
+    //one row per object that is in sync between a local folder and a collection
+    public final static String CREATE_SYNC_MANIFEST_TABLE_IF_NOT_EXIST = "CREATE TABLE IF NOT EXISTS "+SYNC_MANIFEST_TABLE_NAME+"(SYNC_ID VARCHAR, OBJECT_ID VARCHAR, ETAG VARCHAR, LOCAL_MODIFIED INTEGER, LOCAL_SIZE INTEGER, LOCAL_HASH VARCHAR, PRIMARY KEY (SYNC_ID, OBJECT_ID));";
+    
+    //save manifest entry
+    public final static String SYNC_MANIFEST_TABLE_CONTENT_SAVE = "INSERT OR REPLACE INTO "+SYNC_MANIFEST_TABLE_NAME+" (SYNC_ID,OBJECT_ID,ETAG,LOCAL_MODIFIED,LOCAL_SIZE,LOCAL_HASH) VALUES (?,?,?,?,?,?);";
+    
+    //delete manifest entry
+    public final static String SYNC_MANIFEST_TABLE_CONTENT_DELETE = "DELETE FROM "+SYNC_MANIFEST_TABLE_NAME+" WHERE SYNC_ID = ? AND OBJECT_ID = ?;";
+    
+    //query manifest of a sync
+    public final static String QUERY_SYNC_MANIFEST = "SELECT * FROM "+SYNC_MANIFEST_TABLE_NAME+" WHERE SYNC_ID = ?;";
+    
+    //outbox table name
+    public final static String OUTBOX_TABLE_NAME = "STORAGE_OUTBOX";
+    
+    //one row per storage write or delete that is issued offline. Rows are replayed in ROWID order
+    public final static String CREATE_OUTBOX_TABLE_IF_NOT_EXIST = "CREATE TABLE IF NOT EXISTS "+OUTBOX_TABLE_NAME+"(ENTRY_ID VARCHAR PRIMARY KEY, BACKEND_ID VARCHAR, COLLECTION_ID VARCHAR, OBJECT_OWNER VARCHAR, OBJECT_ID VARCHAR, OBJECT_URI VARCHAR, OPERATION VARCHAR, DISPLAY_NAME VARCHAR, CONTENT_TYPE VARCHAR, PAYLOAD_FILE VARCHAR, PAYLOAD_OWNED INTEGER, PRECONDITIONS VARCHAR, STATE VARCHAR, ATTEMPTS INTEGER, LAST_ERROR VARCHAR, CREATED INTEGER);";
+    
+    //insert outbox entry
+    public final static String OUTBOX_TABLE_CONTENT_INSERT = "INSERT INTO "+OUTBOX_TABLE_NAME+" (ENTRY_ID,BACKEND_ID,COLLECTION_ID,OBJECT_OWNER,OBJECT_ID,OBJECT_URI,OPERATION,DISPLAY_NAME,CONTENT_TYPE,PAYLOAD_FILE,PAYLOAD_OWNED,PRECONDITIONS,STATE,ATTEMPTS,LAST_ERROR,CREATED) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?);";
+    
+    //update replay state of an outbox entry
+    public final static String OUTBOX_TABLE_STATE_UPDATE = "UPDATE "+OUTBOX_TABLE_NAME+" SET STATE = ?, ATTEMPTS = ?, LAST_ERROR = ? WHERE ENTRY_ID = ?;";
+    
+    //delete outbox entry
+    public final static String OUTBOX_TABLE_CONTENT_DELETE = "DELETE FROM "+OUTBOX_TABLE_NAME+" WHERE ENTRY_ID = ?;";
+    
+    //query outbox entries of a mobile backend in the order they were issued
+    public final static String QUERY_OUTBOX_FOR_BACKEND = "SELECT * FROM "+OUTBOX_TABLE_NAME+" WHERE BACKEND_ID = ? ORDER BY ROWID;";
+
+    
+    //content index table name
+    public final static String CONTENT_INDEX_TABLE_NAME = "STORAGE_CONTENT_INDEX";
+    
+    //one row per object written with PUT. Holds the SHA-256 hash of the content and the ETag MCS returned for it
+    public final static String CREATE_CONTENT_INDEX_TABLE_IF_NOT_EXIST = "CREATE TABLE IF NOT EXISTS "+CONTENT_INDEX_TABLE_NAME+"(BACKEND_ID VARCHAR, OBJECT_URI VARCHAR, CONTENT_HASH VARCHAR, ETAG VARCHAR, DISPLAY_NAME VARCHAR, CONTENT_TYPE VARCHAR, PRIMARY KEY (BACKEND_ID, OBJECT_URI));";
+    
+    //save content index entry
+    public final static String CONTENT_INDEX_TABLE_CONTENT_SAVE = "INSERT OR REPLACE INTO "+CONTENT_INDEX_TABLE_NAME+" (BACKEND_ID,OBJECT_URI,CONTENT_HASH,ETAG,DISPLAY_NAME,CONTENT_TYPE) VALUES (?,?,?,?,?,?);";
+    
+    //delete content index entry
+    public final static String CONTENT_INDEX_TABLE_CONTENT_DELETE = "DELETE FROM "+CONTENT_INDEX_TABLE_NAME+" WHERE BACKEND_ID = ? AND OBJECT_URI = ?;";
+    
+    //query content index entry of an object
+    public final static String QUERY_CONTENT_INDEX_FOR_OBJECT = "SELECT * FROM "+CONTENT_INDEX_TABLE_NAME+" WHERE BACKEND_ID = ? AND OBJECT_URI = ?;";    
+    
+    public StorageSQLHelper() {
+        super();
+    }
+}
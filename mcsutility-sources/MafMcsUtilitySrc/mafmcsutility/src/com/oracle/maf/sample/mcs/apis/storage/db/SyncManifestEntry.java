@@ -0,0 +1,76 @@
+package com.oracle.maf.sample.mcs.apis.storage.db;
+
+
+/**
+ *
+ * Entity class that holds a row of the storage sync manifest. The manifest records the state of a local file and its
+ * collection object after they were last synchronized. Differences to the current state identify the changes made
+ * locally and remotely since then
+ *
+ * @author   Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public class SyncManifestEntry {
+    
+    private String objectId = null;
+    private String eTag = null;
+    private long localModified = 0;
+    private long localSize = 0;
+    private String localHash = null;
+    
+    public SyncManifestEntry() {
+        super();
+    }
+
+    /**
+     * @param objectId id of the collection object, which is the name of the local file
+     */
+    public void setObjectId(String objectId) {
+        this.objectId = objectId;
+    }
+
+    public String getObjectId() {
+        return objectId;
+    }
+
+    /**
+     * @param eTag ETag of the collection object after the last sync
+     */
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * @param localModified last modified time in milliseconds of the local file after the last sync
+     */
+    public void setLocalModified(long localModified) {
+        this.localModified = localModified;
+    }
+
+    public long getLocalModified() {
+        return localModified;
+    }
+
+    public void setLocalSize(long localSize) {
+        this.localSize = localSize;
+    }
+
+    public long getLocalSize() {
+        return localSize;
+    }
+
+    /**
+     * @param localHash hex encoded SHA-256 hash of the local file after the last sync
+     */
+    public void setLocalHash(String localHash) {
+        this.localHash = localHash;
+    }
+
+    public String getLocalHash() {
+        return localHash;
+    }
+}
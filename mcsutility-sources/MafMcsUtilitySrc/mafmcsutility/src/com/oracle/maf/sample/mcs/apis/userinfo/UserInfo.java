@@ -12,6 +12,8 @@ import com.oracle.maf.sample.mcs.shared.utils.MapUtils;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 import oracle.adfmf.json.JSONException;
 import oracle.adfmf.json.JSONObject;
@@ -104,7 +106,12 @@ public class UserInfo extends MBEServiceProxy {
      *             message
      */
     private void handleExceptions(Exception e,String uri) throws ServiceProxyException {
-        
+
+        //ServiceProxyExceptions, e.g. for requests rejected by the circuit breaker, are passed on unchanged
+        if (e instanceof ServiceProxyException) {
+            throw (ServiceProxyException) e;
+        }
+
          //Step 1: Is error AdfInvocationRuntimeException, AdfInvocationException or AdfException?        
         String exceptionPrimaryMessage      = e.getLocalizedMessage();
         String exceptionSecondaryMessage    = e.getCause() != null? e.getCause().getLocalizedMessage() : null;
@@ -300,4 +307,28 @@ public class UserInfo extends MBEServiceProxy {
         return null;
     }
     
+
+    /**
+     * Asynchronous variant of {@link #getCurrentUserInformation()}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<User> getCurrentUserInformationAsync() {
+        return executeAsync(new Callable<User>() {
+            @Override
+            public User call() throws Exception {
+                return getCurrentUserInformation();
+            }
+        });
+    }
+
+    /**
+     * Asynchronous variant of {@link #updateCurrentUserInformation(HashMap)}, executed on the thread pool of the MBE
+     */
+    public CompletableFuture<User> updateCurrentUserInformationAsync(final HashMap<String,String> userPropertiesAndValues) {
+        return executeAsync(new Callable<User>() {
+            @Override
+            public User call() throws Exception {
+                return updateCurrentUserInformation(userPropertiesAndValues);
+            }
+        });
+    }
 }
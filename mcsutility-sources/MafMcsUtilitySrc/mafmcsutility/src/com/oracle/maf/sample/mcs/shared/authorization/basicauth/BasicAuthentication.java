@@ -273,6 +273,11 @@ public final class BasicAuthentication implements Authorization {
      */
     private void handleExceptions(Exception e, String uri) throws ServiceProxyException {
 
+        //ServiceProxyExceptions, e.g. for requests rejected by the circuit breaker, are passed on unchanged
+        if (e instanceof ServiceProxyException) {
+            throw (ServiceProxyException) e;
+        }
+
         //Step 1: Is error AdfInvocationRuntimeException, AdfInvocationException or AdfException?
         String exceptionPrimaryMessage = e.getLocalizedMessage();
         String exceptionSecondaryMessage = e.getCause() != null ? e.getCause().getLocalizedMessage() : null;
@@ -36,6 +36,54 @@ public class HeaderConstants {
     
     public static final String CONTENT_LENGTH = "Content-Length";
     
+    /**
+     * HTTP header to inform the server about the content encodings (compression) accepted by this client
+     */
+    public static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    
+    /**
+     * HTTP header that indicates the content encoding (compression) of a request or response body
+     */
+    public static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    
+    /**
+     * HTTP header that holds the entity tag (version) of the returned resource
+     */
+    public static final String ETAG_HEADER = "ETag";
+    
+    /**
+     * HTTP header for conditional requests. The server responds with HTTP 304 if the resource still has the given ETag
+     */
+    public static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    
+    /**
+     * HTTP header for conditional updates and deletes. The server responds with HTTP 412 if the resource does not 
+     * have the given ETag
+     */
+    public static final String IF_MATCH_HEADER = "If-Match";
+    
+    /**
+     * HTTP header that requests a byte range of a resource, e.g. "bytes=1024-". Servers respond with HTTP 206
+     */
+    public static final String RANGE_HEADER = "Range";
+    
+    /**
+     * HTTP header for range requests. The server returns the requested range only if the resource still has the given
+     * ETag and the complete resource otherwise
+     */
+    public static final String IF_RANGE_HEADER = "If-Range";
+    
+    /**
+     * HTTP response header of HTTP 206 responses that holds the returned byte range and the complete length, e.g. 
+     * "bytes 1024-2047/4096"
+     */
+    public static final String CONTENT_RANGE_HEADER = "Content-Range";
+    
+    /**
+     * HTTP response header that indicates whether the server supports range requests ("bytes") or not ("none")
+     */
+    public static final String ACCEPT_RANGES_HEADER = "Accept-Ranges";
+    
     
     /* *** ORACLE MCS SPECIFIC HEADERS *** */
     
@@ -0,0 +1,208 @@
+package com.oracle.maf.sample.mcs.shared.mafrest;
+
+
+/**
+ * Circuit breaker for the requests sent to a single MAF REST connection and mobile backend. Instances are created and
+ * maintained by MCSRestClient. Applications access them through MCSRestClient.getCircuitBreaker(...) to read the
+ * state, e.g. to disable UI that requires network access, or to reset the circuit breaker.
+ *
+ * @see CircuitBreakerPolicy
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public final class CircuitBreaker {
+
+    /**
+     * CLOSED: requests are sent. OPEN: requests fail fast. HALF_OPEN: a limited number of trial requests is sent
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    };
+
+    private static final byte OUTCOME_FAILURE = 1;
+    private static final byte OUTCOME_SLOW = 2;
+
+    private final String name;
+    private final CircuitBreakerPolicy policy;
+
+    //sliding window of call outcomes (bit mask of OUTCOME_FAILURE and OUTCOME_SLOW)
+    private final byte[] outcomes;
+    private int outcomeIndex = 0;
+    private int recordedCalls = 0;
+    private int failedCalls = 0;
+    private int slowCalls = 0;
+
+    private State state = State.CLOSED;
+    private long openedAtMillis = 0;
+    private int halfOpenPermits = 0;
+    private int halfOpenCompleted = 0;
+    private int halfOpenFailures = 0;
+
+    private long notPermittedCalls = 0;
+
+    CircuitBreaker(String name, CircuitBreakerPolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        this.outcomes = new byte[policy.getSlidingWindowSize()];
+    }
+
+    /**
+     * Checks whether a call may be sent. Moves an open circuit to half-open once the open state duration expired
+     * @return true if the call may be sent
+     */
+    synchronized boolean tryAcquirePermission() {
+
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAtMillis < policy.getOpenStateDurationMillis()) {
+                notPermittedCalls++;
+                return false;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits >= policy.getPermittedCallsInHalfOpenState()) {
+                notPermittedCalls++;
+                return false;
+            }
+            halfOpenPermits++;
+        }
+        return true;
+    }
+
+    /**
+     * Records the outcome of a permitted call
+     * @param failure true if the call failed with a network error or a server error
+     * @param durationMillis duration of the call or -1 if the duration is not measured, e.g. for streamed transfers 
+     * whose duration depends on the size of the content
+     */
+    synchronized void onResult(boolean failure, long durationMillis) {
+
+        boolean slow = durationMillis > -1 && durationMillis >= policy.getSlowCallDurationThresholdMillis();
+
+        if (state == State.HALF_OPEN) {
+            halfOpenCompleted++;
+            if (failure || slow) {
+                halfOpenFailures++;
+            }
+            //a single failed trial call re-opens the circuit
+            if (halfOpenFailures > 0) {
+                transitionTo(State.OPEN);
+            } else if (halfOpenCompleted >= policy.getPermittedCallsInHalfOpenState()) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+
+        if (state == State.OPEN) {
+            //result of a call that was permitted before the circuit opened
+            return;
+        }
+
+        recordOutcome((byte) ((failure ? OUTCOME_FAILURE : 0) | (slow ? OUTCOME_SLOW : 0)));
+
+        if (recordedCalls >= Math.min(policy.getMinimumNumberOfCalls(), outcomes.length)) {
+            if (getFailureRate() >= policy.getFailureRateThreshold() || getSlowCallRate() >= policy.getSlowCallRateThreshold()) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * @return the current state of the circuit breaker
+     */
+    public synchronized State getState() {
+        //report the state a call would see
+        if (state == State.OPEN && System.currentTimeMillis() - openedAtMillis >= policy.getOpenStateDurationMillis()) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * @return failure rate in percent of the calls in the sliding window or 0 if no call is recorded
+     */
+    public synchronized float getFailureRate() {
+        return recordedCalls == 0 ? 0 : failedCalls * 100f / recordedCalls;
+    }
+
+    /**
+     * @return slow call rate in percent of the calls in the sliding window or 0 if no call is recorded
+     */
+    public synchronized float getSlowCallRate() {
+        return recordedCalls == 0 ? 0 : slowCalls * 100f / recordedCalls;
+    }
+
+    /**
+     * @return number of calls rejected because the circuit was open
+     */
+    public synchronized long getNotPermittedCalls() {
+        return notPermittedCalls;
+    }
+
+    /**
+     * @return name of the circuit breaker (MAF REST connection name and mobile backend id)
+     */
+    public String getName() {
+        return name;
+    }
+
+    CircuitBreakerPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Closes the circuit and clears all recorded outcomes
+     */
+    public synchronized void reset() {
+        transitionTo(State.CLOSED);
+        notPermittedCalls = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker " + name + ": state=" + getState() + ", failureRate=" + getFailureRate() +
+               "%, slowCallRate=" + getSlowCallRate() + "%, notPermittedCalls=" + notPermittedCalls;
+    }
+
+    private void recordOutcome(byte outcome) {
+        if (recordedCalls == outcomes.length) {
+            //remove the oldest outcome from the window
+            byte oldest = outcomes[outcomeIndex];
+            if ((oldest & OUTCOME_FAILURE) != 0) {
+                failedCalls--;
+            }
+            if ((oldest & OUTCOME_SLOW) != 0) {
+                slowCalls--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        outcomes[outcomeIndex] = outcome;
+        if ((outcome & OUTCOME_FAILURE) != 0) {
+            failedCalls++;
+        }
+        if ((outcome & OUTCOME_SLOW) != 0) {
+            slowCalls++;
+        }
+        outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+    }
+
+    private void transitionTo(State newState) {
+        state = newState;
+        halfOpenPermits = 0;
+        halfOpenCompleted = 0;
+        halfOpenFailures = 0;
+        if (newState == State.OPEN) {
+            openedAtMillis = System.currentTimeMillis();
+        }
+        //a new state starts with an empty window
+        outcomeIndex = 0;
+        recordedCalls = 0;
+        failedCalls = 0;
+        slowCalls = 0;
+    }
+}
@@ -0,0 +1,203 @@
+package com.oracle.maf.sample.mcs.shared.mafrest;
+
+import java.io.IOException;
+
+import oracle.adfmf.framework.exception.IllegalArgumentException;
+
+
+/**
+ * Settings of the circuit breaker MCSRestClient keeps for each MAF REST connection and mobile backend (see
+ * MBEConfiguration.setCircuitBreakerPolicy). The circuit breaker records the outcome of the last requests in a sliding
+ * window. If the failure rate or the slow call rate reaches its threshold, the circuit opens and requests fail fast
+ * with a ServiceProxyException (HTTP 503) without being sent. After the open state duration a limited number of trial
+ * requests is permitted (half-open). If these succeed the circuit closes, otherwise it opens again.
+ * <p>
+ * Network failures and HTTP 5XX responses count as failures. HTTP 4XX responses are application errors and count as
+ * successful calls as they prove the backend is reachable.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public final class CircuitBreakerPolicy {
+
+    public static final int DEFAULT_SLIDING_WINDOW_SIZE = 20;
+    public static final int DEFAULT_MINIMUM_NUMBER_OF_CALLS = 10;
+    public static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    public static final long DEFAULT_SLOW_CALL_DURATION_THRESHOLD_MILLIS = 10000;
+    public static final int DEFAULT_SLOW_CALL_RATE_THRESHOLD = 100;
+    public static final long DEFAULT_OPEN_STATE_DURATION_MILLIS = 30000;
+    public static final int DEFAULT_PERMITTED_CALLS_IN_HALF_OPEN_STATE = 3;
+
+    private volatile boolean enabled = true;
+    private volatile int slidingWindowSize = DEFAULT_SLIDING_WINDOW_SIZE;
+    private volatile int minimumNumberOfCalls = DEFAULT_MINIMUM_NUMBER_OF_CALLS;
+    private volatile int failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+    private volatile long slowCallDurationThresholdMillis = DEFAULT_SLOW_CALL_DURATION_THRESHOLD_MILLIS;
+    private volatile int slowCallRateThreshold = DEFAULT_SLOW_CALL_RATE_THRESHOLD;
+    private volatile long openStateDurationMillis = DEFAULT_OPEN_STATE_DURATION_MILLIS;
+    private volatile int permittedCallsInHalfOpenState = DEFAULT_PERMITTED_CALLS_IN_HALF_OPEN_STATE;
+
+    public CircuitBreakerPolicy() {
+        super();
+    }
+
+    /**
+     * Creates a policy with a disabled circuit breaker
+     * @return CircuitBreakerPolicy
+     */
+    public static CircuitBreakerPolicy disabled() {
+        CircuitBreakerPolicy circuitBreakerPolicy = new CircuitBreakerPolicy();
+        circuitBreakerPolicy.setEnabled(false);
+        return circuitBreakerPolicy;
+    }
+
+    /**
+     * @param enabled false to send all requests independent of previous failures
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param slidingWindowSize number of most recent calls used to compute failure and slow call rates
+     * @throws IllegalArgumentException if the size is less than 1
+     */
+    public void setSlidingWindowSize(int slidingWindowSize) throws IllegalArgumentException {
+        checkMinimum("slidingWindowSize", slidingWindowSize, 1);
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    /**
+     * @param minimumNumberOfCalls number of calls that must be recorded before failure and slow call rates are evaluated
+     * @throws IllegalArgumentException if the number is less than 1
+     */
+    public void setMinimumNumberOfCalls(int minimumNumberOfCalls) throws IllegalArgumentException {
+        checkMinimum("minimumNumberOfCalls", minimumNumberOfCalls, 1);
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+    }
+
+    public int getMinimumNumberOfCalls() {
+        return minimumNumberOfCalls;
+    }
+
+    /**
+     * @param failureRateThreshold failure rate in percent (1 - 100) at which the circuit opens
+     * @throws IllegalArgumentException if the value is not between 1 and 100
+     */
+    public void setFailureRateThreshold(int failureRateThreshold) throws IllegalArgumentException {
+        checkPercentage("failureRateThreshold", failureRateThreshold);
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * @param slowCallDurationThresholdMillis duration in milliseconds above which a call counts as slow. Streamed uploads
+     * and downloads are not counted as slow calls as their duration depends on the content size
+     * @throws IllegalArgumentException if the duration is less than 1
+     */
+    public void setSlowCallDurationThresholdMillis(long slowCallDurationThresholdMillis) throws IllegalArgumentException {
+        checkMinimum("slowCallDurationThresholdMillis", slowCallDurationThresholdMillis, 1);
+        this.slowCallDurationThresholdMillis = slowCallDurationThresholdMillis;
+    }
+
+    public long getSlowCallDurationThresholdMillis() {
+        return slowCallDurationThresholdMillis;
+    }
+
+    /**
+     * @param slowCallRateThreshold slow call rate in percent (1 - 100) at which the circuit opens
+     * @throws IllegalArgumentException if the value is not between 1 and 100
+     */
+    public void setSlowCallRateThreshold(int slowCallRateThreshold) throws IllegalArgumentException {
+        checkPercentage("slowCallRateThreshold", slowCallRateThreshold);
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public int getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    /**
+     * @param openStateDurationMillis time in milliseconds the circuit stays open before trial calls are permitted
+     * @throws IllegalArgumentException if the duration is less than 1
+     */
+    public void setOpenStateDurationMillis(long openStateDurationMillis) throws IllegalArgumentException {
+        checkMinimum("openStateDurationMillis", openStateDurationMillis, 1);
+        this.openStateDurationMillis = openStateDurationMillis;
+    }
+
+    public long getOpenStateDurationMillis() {
+        return openStateDurationMillis;
+    }
+
+    /**
+     * @param permittedCallsInHalfOpenState number of trial calls permitted in half-open state
+     * @throws IllegalArgumentException if the number is less than 1
+     */
+    public void setPermittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) throws IllegalArgumentException {
+        checkMinimum("permittedCallsInHalfOpenState", permittedCallsInHalfOpenState, 1);
+        this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+    }
+
+    public int getPermittedCallsInHalfOpenState() {
+        return permittedCallsInHalfOpenState;
+    }
+
+    /**
+     * Checks whether a HTTP status code indicates a backend failure. Server errors (5XX), request timeouts (408) and
+     * throttling (429) are failures. All other status codes prove the backend is available
+     * @param statusCode HTTP status code
+     * @return true if the status code counts as failure
+     */
+    public boolean isFailureStatusCode(int statusCode) {
+        return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+    }
+
+    /**
+     * Checks whether an exception thrown by the transport counts as failure. Network failures (IOException) are
+     * failures, except for failures to read or write local content like the file a download is written to. For MAF 
+     * RestServiceAdapter exceptions the HTTP status code is read from the exception. Exceptions that are neither 
+     * network failures nor carry a HTTP status code say nothing about the backend and are not counted
+     * @param e the exception thrown by the transport
+     * @return true if the exception counts as failure
+     */
+    public boolean isFailureException(Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransportUtils.LocalIOException) {
+                return false;
+            }
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        int statusCode = RetryPolicy.getStatusCode(e);
+        return statusCode > 0 && isFailureStatusCode(statusCode);
+    }
+
+    private static void checkMinimum(String name, long value, long minimum) throws IllegalArgumentException {
+        if (value < minimum) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage(name + " must be " + minimum + " or greater but is " + value);
+            throw illegalArgumentException;
+        }
+    }
+
+    private static void checkPercentage(String name, int value) throws IllegalArgumentException {
+        if (value < 1 || value > 100) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage(name + " must be between 1 and 100 but is " + value);
+            throw illegalArgumentException;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.oracle.maf.sample.mcs.shared.mafrest;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import oracle.adfmf.framework.exception.IllegalArgumentException;
+
+
+/**
+ * Cache of GET and HEAD responses that are revalidated with the server using their ETag (see
+ * MCSRequest.setETagCachingEnabled). A cache hit is a request the server answered with HTTP 304 (Not Modified), in
+ * which case only headers are transferred. A cache miss is a request that returned a full response. The cache holds
+ * the least recently used responses up to the maximum number of entries. The instance is obtained from
+ * MCSRestClient.getETagCache()
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public final class ETagCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    /**
+     * Responses with larger bodies are not cached
+     */
+    public static final int MAX_CACHEABLE_BODY_SIZE = 512 * 1024;
+
+    private volatile int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    //access ordered to evict the least recently used response
+    private final LinkedHashMap<String, MCSResponse> responses = new LinkedHashMap<String, MCSResponse>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, MCSResponse> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    ETagCache() {
+        super();
+    }
+
+    synchronized MCSResponse get(String key) {
+        return responses.get(key);
+    }
+
+    /**
+     * Caches the response if its body is not larger than MAX_CACHEABLE_BODY_SIZE
+     * @param key request key
+     * @param response response to cache. Must not be modified after it is added to the cache
+     */
+    synchronized void put(String key, MCSResponse response) {
+        if (response.getMessageLength() > MAX_CACHEABLE_BODY_SIZE) {
+            responses.remove(key);
+            return;
+        }
+        responses.put(key, response);
+    }
+
+    synchronized void remove(String key) {
+        responses.remove(key);
+    }
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * @param maxEntries maximum number of cached responses
+     * @throws IllegalArgumentException if the value is less than 1
+     */
+    public synchronized void setMaxEntries(int maxEntries) throws IllegalArgumentException {
+        if (maxEntries < 1) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("maxEntries must be 1 or greater but is " + maxEntries);
+            throw illegalArgumentException;
+        }
+        this.maxEntries = maxEntries;
+        //evict entries above the new limit, least recently used first
+        Iterator<String> keys = responses.keySet().iterator();
+        while (responses.size() > maxEntries && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @return number of requests answered with HTTP 304 from cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of requests that returned a full response
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public synchronized int getSize() {
+        return responses.size();
+    }
+
+    /**
+     * Removes all cached responses. Hit and miss counters are not reset
+     */
+    public synchronized void clear() {
+        responses.clear();
+    }
+
+    /**
+     * @return statistics String for logging
+     */
+    public String getStatistics() {
+        return "eTagCacheHits: " + hits.get() + ", eTagCacheMisses: " + misses.get() + ", eTagCacheSize: " + getSize();
+    }
+}
@@ -0,0 +1,421 @@
+package com.oracle.maf.sample.mcs.shared.mafrest;
+
+import com.oracle.maf.sample.mcs.shared.headers.HeaderConstants;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import java.nio.channels.FileChannel;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import oracle.adfmf.framework.exception.IllegalArgumentException;
+
+
+/**
+ * MCSTransport implementation that uses java.net.HttpURLConnection of the Java runtime instead of the MAF
+ * RestServiceAdapter. Use this transport to run the MCS service proxies in a plain JVM, for example for load tests or
+ * in a server side gateway. As MAF REST connections are not available outside of the MAF container, the base URL of
+ * each connection name used in the MBEConfiguration must be registered using setConnectionEndPoint(...).
+ * <p>
+ * Connections are kept alive and reused by the Java runtime for subsequent requests to the same host. The number of
+ * idle connections kept per host is configured with the JVM-wide "http.keepAlive" and "http.maxConnections" system
+ * properties. The transport does not change these properties. Applications that want the runtime to keep as many idle
+ * connections as the pool size set "http.maxConnections" before the first HTTP connection is opened, as the property is
+ * read only once. The number of concurrent requests sent through a transport instance is limited to the pool size.
+ * Requests that exceed this limit wait for a request to complete.
+ * <p>
+ * Usage:
+ * <pre>
+ * System.setProperty("http.maxConnections", "10");
+ * HttpURLConnectionTransport transport = new HttpURLConnectionTransport(10);
+ * transport.setConnectionEndPoint("MCSRestConnection", "https://mobile.example.com:443");
+ * MCSRestClient.setTransport(transport);
+ * </pre>
+ *
+ * @author   Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public final class HttpURLConnectionTransport implements MCSTransport {
+
+    /**
+     * Default number of concurrent requests
+     */
+    public static final int DEFAULT_POOL_SIZE = 5;
+    /**
+     * Default connect and read timeout in milliseconds
+     */
+    public static final int DEFAULT_TIMEOUT_MILLIS = 30000;
+
+    private final ConcurrentHashMap<String, String> connectionEndPoints = new ConcurrentHashMap<String, String>();
+    private final Semaphore requestPermits;
+    private final int poolSize;
+
+    private volatile int connectTimeout = DEFAULT_TIMEOUT_MILLIS;
+    private volatile int readTimeout = DEFAULT_TIMEOUT_MILLIS;
+
+    //statistics
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+
+    /**
+     * Creates a transport with the default pool size
+     */
+    public HttpURLConnectionTransport() {
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Creates a transport that sends up to poolSize concurrent requests
+     *
+     * @param poolSize number of concurrent requests. Must be 1 or higher
+     * @throws IllegalArgumentException if poolSize is smaller than 1
+     */
+    public HttpURLConnectionTransport(int poolSize) throws IllegalArgumentException {
+        if (poolSize < 1) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("poolSize argument must be 1 or higher in call to HttpURLConnectionTransport constructor. Value is: " + poolSize);
+            throw illegalArgumentException;
+        }
+        this.poolSize = poolSize;
+        this.requestPermits = new Semaphore(poolSize, true);
+    }
+
+    /**
+     * Registers the base URL for a connection name, e.g. the MAF REST connection name configured in MBEConfiguration
+     *
+     * @param connectionName connection name
+     * @param baseUrl base URL of the mobile backend, e.g. https://mobile.example.com:443
+     */
+    public void setConnectionEndPoint(String connectionName, String baseUrl) {
+        connectionEndPoints.put(connectionName, baseUrl);
+    }
+
+    /**
+     * @param connectTimeout timeout in milliseconds for opening a connection. 0 means no timeout
+     */
+    public void setConnectTimeout(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @param readTimeout timeout in milliseconds for reading from a connection. 0 means no timeout
+     */
+    public void setReadTimeout(int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    @Override
+    public MCSResponse sendForByteResponse(MCSRequest request) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        MCSResponse response = execute(request, true, body, null);
+        //error messages are already set as String
+        if (response.getMessage() == null) {
+            response.setMessage(body.toByteArray());
+        }
+        return response;
+    }
+
+    @Override
+    public MCSResponse sendForStreamResponse(MCSRequest request, OutputStream outputStream) throws Exception {
+        return execute(request, false, outputStream, null);
+    }
+
+    @Override
+    public MCSResponse sendForFileResponse(MCSRequest request, FileChannel fileChannel) throws Exception {
+        return execute(request, false, null, fileChannel);
+    }
+
+    /**
+     * Returns the response body of successful requests as InputStream. The request counts against the pool size until
+     * the stream is closed
+     */
+    @Override
+    public MCSResponse sendForInputStreamResponse(MCSRequest request) throws Exception {
+        return execute(request, false, null, null);
+    }
+
+    /**
+     * Returns the base URL registered for the connection name
+     * @param connectionName connection name
+     * @return base URL
+     * @throws Exception if no base URL is registered for the connection name
+     */
+    @Override
+    public String getConnectionEndPoint(String connectionName) throws Exception {
+        String endPoint = connectionName != null ? connectionEndPoints.get(connectionName) : null;
+        if (endPoint == null) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("No end point registered for connection \"" + connectionName + "\" in HttpURLConnectionTransport. Call setConnectionEndPoint first.");
+            throw illegalArgumentException;
+        }
+        return endPoint;
+    }
+
+    /**
+     * End points are registered explicitly for this transport and thus are not removed
+     * @param connectionName connection name
+     */
+    @Override
+    public void invalidateConnectionEndPoint(String connectionName) {
+        //nothing cached
+    }
+
+    @Override
+    public String getStatistics() {
+        return "requests: " + requestCount.get() + ", bytesSent: " + bytesSent.get() + ", bytesReceived: " +
+               bytesReceived.get() + ", poolSize: " + poolSize + ", availablePermits: " +
+               requestPermits.availablePermits();
+    }
+
+    /**
+     * Sends the request and writes the response body of successful requests to either the output stream or the file
+     * channel. If both are null, the response body is returned as InputStream message and the request permit is
+     * released when the stream is closed. The response body of failed requests is set as String message to the 
+     * MCSResponse.
+     *
+     * @param request MCSRequest object
+     * @param sendPayload true if the request payload should be sent
+     * @param outputStream target stream or null
+     * @param fileChannel target channel or null
+     * @return MCSResponse with status code, headers and mime type
+     * @throws Exception
+     */
+    private MCSResponse execute(MCSRequest request, boolean sendPayload, OutputStream outputStream, FileChannel fileChannel) throws Exception {
+
+        String url = getConnectionEndPoint(request.getConnectionName()) + request.getRequestURI();
+        String httpMethod = request.getHttpMethod().toString();
+
+        request.getMbeConfig().getLogger().logFine("Request Method in HttpURLConnectionTransport call: " + httpMethod, "HttpURLConnectionTransport", "execute");
+        request.getMbeConfig().getLogger().logFine("Request URL in HttpURLConnectionTransport call: " + url, "HttpURLConnectionTransport", "execute");
+
+        MCSResponse response = new MCSResponse(request.getMbeConfig());
+        response.setOriginalRequestUrl(url);
+
+        requestPermits.acquire();
+        boolean releasePermit = true;
+        try {
+            requestCount.incrementAndGet();
+
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod(httpMethod);
+            connection.setConnectTimeout(connectTimeout);
+            connection.setReadTimeout(readTimeout);
+            connection.setUseCaches(false);
+            connection.setInstanceFollowRedirects(true);
+
+            HashMap<String, String> headers = MCSRestClient.getRequestHeaders(request);
+            //transfer encoding and content length are managed by HttpURLConnection
+            headers.remove(HeaderConstants.TRANSFER_ENCODING_TYPE_HEADER);
+            headers.remove(HeaderConstants.CONTENT_LENGTH);
+            
+            //large JSON payloads are sent gzip compressed
+            byte[] compressedPayload = sendPayload ? TransportUtils.compressRequestBody(request, headers) : null;
+            
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                if (header.getValue() != null) {
+                    connection.setRequestProperty(header.getKey(), header.getValue());
+                }
+            }
+
+            if (sendPayload) {
+                writePayload(connection, request, compressedPayload);
+            }
+
+            int statusCode = connection.getResponseCode();
+            request.getMbeConfig().getLogger().logFine("Response code is: " + statusCode, "HttpURLConnectionTransport", "execute");
+
+            HashMap<String, String> responseHeaders = readResponseHeaders(connection);
+            response.setHttpStatusCode(statusCode);
+            response.setHeaders(responseHeaders);
+            response.setMimeType(connection.getContentType());
+
+            boolean success = statusCode > 199 && statusCode < 300;
+            InputStream inputStream = success ? connection.getInputStream() : connection.getErrorStream();
+
+            if (inputStream == null) {
+                response.setMessage(success ? null : "");
+                return response;
+            }
+
+            //the connection is returned to the keep-alive pool once the response stream is read to the end and closed
+            try {
+                //compressed content is decompressed while it is read
+                inputStream = TransportUtils.decodeContent(inputStream, connection.getHeaderField(HeaderConstants.CONTENT_ENCODING_HEADER));
+                if (TransportUtils.isDecoding(inputStream)) {
+                    TransportUtils.removeEncodingHeaders(responseHeaders);
+                }
+
+                if (success && outputStream == null && fileChannel == null) {
+                    //the caller reads the response body
+                    response.setMessage(openResponseStream(inputStream));
+                    inputStream = null;
+                    releasePermit = false;
+                } else if (success) {
+                    long bytesRead = 0;
+                    if (fileChannel != null) {
+                        bytesRead = TransportUtils.transferToChannel(inputStream, fileChannel);
+                    } else {
+                        OutputStream localOutputStream = TransportUtils.localOutput(outputStream);
+                        bytesRead = TransportUtils.copyStream(inputStream, localOutputStream, -1);
+                        localOutputStream.flush();
+                    }
+                    bytesReceived.addAndGet(bytesRead);
+                    response.setMessage(null);
+                } else {
+                    //error responses are small. Read them as String for the ServiceProxyException
+                    response.setMessage(TransportUtils.readString(inputStream));
+                    inputStream = null;
+                }
+            } finally {
+                if (inputStream != null) {
+                    inputStream.close();
+                }
+            }
+            return response;
+        } finally {
+            if (releasePermit) {
+                requestPermits.release();
+            }
+        }
+    }
+
+    /**
+     * Wraps a response body stream that is read by the caller. Closing the returned stream releases the request permit
+     */
+    private InputStream openResponseStream(InputStream inputStream) {
+        return new FilterInputStream(inputStream) {
+            private boolean closed = false;
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b > -1) {
+                    bytesReceived.incrementAndGet();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int bytesRead = super.read(buffer, offset, length);
+                if (bytesRead > 0) {
+                    bytesReceived.addAndGet(bytesRead);
+                }
+                return bytesRead;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    requestPermits.release();
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes String, byte[] and InputStream payloads to the connection. InputStream payloads of unknown length (see
+     * MCSRequest.getPayloadContentLength) are sent using chunked transfer encoding. Empty String payloads are not sent
+     * @param connection
+     * @param request
+     * @param compressedPayload the compressed request payload to send instead of the request payload or null
+     * @throws IOException
+     */
+    private void writePayload(HttpURLConnection connection, MCSRequest request, byte[] compressedPayload) throws IOException {
+
+        Object payload = compressedPayload != null ? compressedPayload : request.getPayload();
+        InputStream payloadStream = null;
+        long contentLength = -1;
+
+        if (payload instanceof String && !((String) payload).isEmpty()) {
+            byte[] bytes = ((String) payload).getBytes("UTF-8");
+            payloadStream = new ByteArrayInputStream(bytes);
+            contentLength = bytes.length;
+        } else if (payload instanceof byte[]) {
+            payloadStream = new ByteArrayInputStream((byte[]) payload);
+            contentLength = ((byte[]) payload).length;
+        } else if (payload instanceof InputStream) {
+            payloadStream = (InputStream) payload;
+            contentLength = request.getPayloadContentLength();
+        }
+
+        if (payloadStream == null) {
+            return;
+        }
+
+        connection.setDoOutput(true);
+        if (contentLength > -1) {
+            connection.setFixedLengthStreamingMode(contentLength);
+        } else {
+            connection.setChunkedStreamingMode(TransportUtils.STREAM_BUFFER_SIZE);
+        }
+
+        OutputStream outputStream = connection.getOutputStream();
+        try {
+            long bytesWritten = TransportUtils.copyStream(TransportUtils.localInput(payloadStream), outputStream, contentLength);
+            outputStream.flush();
+            bytesSent.addAndGet(bytesWritten);
+            request.getMbeConfig().getLogger().logFine("Bytes written to output stream: " + bytesWritten, "HttpURLConnectionTransport", "writePayload");
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    /**
+     * Reads the response headers from the connection into a HashMap. Multiple values of a header are separated by comma
+     * @param connection
+     * @return HashMap with the header key/value pairs
+     */
+    private static HashMap<String, String> readResponseHeaders(HttpURLConnection connection) {
+
+        HashMap<String, String> headers = new HashMap<String, String>();
+
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            //the status line has no key
+            if (header.getKey() == null || header.getValue() == null) {
+                continue;
+            }
+            StringBuilder value = new StringBuilder();
+            for (String headerValue : header.getValue()) {
+                if (value.length() > 0) {
+                    value.append(",");
+                }
+                value.append(headerValue);
+            }
+            headers.put(header.getKey(), value.toString());
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,491 @@
+package com.oracle.maf.sample.mcs.shared.mafrest;
+
+import com.oracle.maf.sample.mcs.shared.headers.HeaderConstants;
+import com.oracle.maf.sample.mcs.shared.utils.MapUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import java.nio.channels.FileChannel;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.microedition.io.HttpConnection;
+
+import oracle.adfmf.dc.ws.rest.RestServiceAdapter;
+
+
+/**
+ * Default MCSTransport implementation that invokes the REST service using the MAF REST Service Adapter. Connection
+ * names are names of MAF REST connections defined in the MAF application. RestServiceAdapter instances are pooled per
+ * connection and the connection end points are cached after they have been resolved once.
+ *
+ * @author   Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public final class MAFRestTransport implements MCSTransport {
+
+    public MAFRestTransport() {
+        super();
+    }
+
+    /**
+     * Sends the REST request to the server for String, byte array and InputStream payloads. The response type is
+     * expected to be byte[]
+     *
+     * @param request MCSRequest object with the REST call configuration
+     * @return MCSResponse with header information and message body
+     * @throws Exception Exceptions thrown upon invoking the REST call (could be anything)
+     */
+    @Override
+    public MCSResponse sendForByteResponse(MCSRequest request) throws Exception {
+
+        RestServiceAdapter restServiceAdapter = prepareRestServiceAdapter(request);
+        //adapters of failed requests are not reused. See RestServiceAdapterPool.discard
+        boolean reuseAdapter = false;
+
+        try{
+            //the connection end point is resolved once per connection and then read from cache
+            String connectionEndPoint = RestServiceAdapterPool.getConnectionEndPoint(request.getConnectionName(), restServiceAdapter);
+
+            //log all about this request except payload as it might be too large for logging
+            request.getMbeConfig().getLogger().logFine("Header key/value pairs in MCSRestClient call: "+MapUtils.dumpObjectProperties(restServiceAdapter.getRequestProperties()), "RestClient.java", "sendForByteResponse");
+            request.getMbeConfig().getLogger().logFine("Request Method in MCSRestClient call: "+restServiceAdapter.getRequestType(), "RestClient.java", "sendForByteResponse");
+            request.getMbeConfig().getLogger().logFine("Request URL in MCSRestClient call: "+connectionEndPoint +restServiceAdapter.getRequestURI(), "RestClient.java", "sendForByteResponse");
+
+            MCSResponse response = new MCSResponse(request.getMbeConfig());
+            
+            //large JSON payloads are sent gzip compressed. As the RestServiceAdapter only sends String payloads, the 
+            //compressed payload is sent through the HttpConnection like binary payloads
+            HashMap<String,String> compressionHeaders = new HashMap<String,String>();
+            byte[] compressedPayload = TransportUtils.compressRequestBody(request, compressionHeaders);
+
+            //response can be either String or byte[]
+            if(compressedPayload != null){
+                request.getMbeConfig().getLogger().logFine("Request-payload sent gzip compressed", "RestClient.java", "sendForByteResponse");
+                restServiceAdapter.addRequestProperty(HeaderConstants.CONTENT_ENCODING_HEADER, compressionHeaders.get(HeaderConstants.CONTENT_ENCODING_HEADER));
+                response = handleBinaryArgumentRequest(restServiceAdapter, connectionEndPoint, request, compressedPayload, compressedPayload.length);
+                response.setOriginalRequestUrl(connectionEndPoint + restServiceAdapter.getRequestURI());
+            }
+            else if(request.getPayload() == null || request.getPayload() instanceof String){
+
+                request.getMbeConfig().getLogger().logFine("Request-payload instance of String or NULL", "RestClient.java", "sendForByteResponse");
+
+                byte[] responseRaw = null;
+                try{
+                    responseRaw = restServiceAdapter.sendReceive(request.getPayload() == null? "" : (String) request.getPayload());
+                }
+                catch(Exception e){
+                    //the adapter reports HTTP 304 (Not Modified) of conditional requests as an exception. The response
+                    //status is only read for requests that sent If-None-Match, as it may not be set by a failed request
+                    if(TransportUtils.getHeader(request.getHttpHeaders(), HeaderConstants.IF_NONE_MATCH_HEADER) == null || 
+                       restServiceAdapter.getResponseStatus() != 304){
+                        throw e;
+                    }
+                    request.getMbeConfig().getLogger().logFine("Response code is: 304", "RestClient.java", "sendForByteResponse");
+                    response.setOriginalRequestUrl(connectionEndPoint + restServiceAdapter.getRequestURI());
+                    response.setHttpStatusCode(304);
+                    HashMap<String,String> notModifiedHeaders = restServiceAdapter.getResponseHeaders();
+                    response.setHeaders(notModifiedHeaders != null ? notModifiedHeaders : new HashMap<String,String>());
+                    return response;
+                }
+
+                response.setOriginalRequestUrl(connectionEndPoint + restServiceAdapter.getRequestURI());
+
+                HashMap<String,String> responseHeaders = restServiceAdapter.getResponseHeaders();
+                
+                //decompress the response body if the adapter didn't do so already
+                byte[] decodedResponse = TransportUtils.decodeContent(responseRaw, TransportUtils.getHeader(responseHeaders, HeaderConstants.CONTENT_ENCODING_HEADER));
+                if(decodedResponse != responseRaw){
+                    request.getMbeConfig().getLogger().logFine("Response decompressed from "+responseRaw.length+" to "+decodedResponse.length+" bytes", "RestClient.java", "sendForByteResponse");
+                    TransportUtils.removeEncodingHeaders(responseHeaders);
+                }
+
+                response.setMessage(decodedResponse);
+                response.setMimeType(restServiceAdapter.getResponseContentType());
+                response.setHttpStatusCode(restServiceAdapter.getResponseStatus());
+                response.setHeaders(responseHeaders);
+            }
+
+            //handle binary payload
+            else if(request.getPayload() != null && (request.getPayload() instanceof byte[] || request.getPayload() instanceof InputStream)){
+                request.getMbeConfig().getLogger().logFine("Request-payload instance of "+(request.getPayload() instanceof byte[]? "byte[]" : "InputStream"), "RestClient.java", "sendForByteResponse");
+                response = handleBinaryArgumentRequest(restServiceAdapter, connectionEndPoint, request, request.getPayload(), request.getPayloadContentLength());
+
+                //add the full request URL to the response object for logging purpose
+                response.setOriginalRequestUrl(connectionEndPoint + restServiceAdapter.getRequestURI());
+            }
+            else{
+                request.getMbeConfig().getLogger().logFine("Request-payload was neither byte[], InputStream nor String type. No REST service request was sent", "RestClient.java", "sendForByteResponse");
+            }
+            reuseAdapter = true;
+            return response;
+        }
+        finally{
+            releaseOrDiscard(request.getConnectionName(), restServiceAdapter, reuseAdapter);
+        }
+    }
+
+    @Override
+    public MCSResponse sendForStreamResponse(MCSRequest request, OutputStream outputStream) throws Exception {
+        return handleStreamResponseRequest(request, outputStream, null);
+    }
+
+    @Override
+    public MCSResponse sendForFileResponse(MCSRequest request, FileChannel fileChannel) throws Exception {
+        return handleStreamResponseRequest(request, null, fileChannel);
+    }
+
+    @Override
+    public MCSResponse sendForInputStreamResponse(MCSRequest request) throws Exception {
+        return handleStreamResponseRequest(request, null, null);
+    }
+
+    /**
+     * Returns the end point URL of a MAF REST connection. End points are resolved once per connection and then read
+     * from cache
+     *
+     * @param connectionName MAF REST connection name
+     * @return end point URL of the REST connection
+     * @throws Exception if the end point cannot be resolved
+     */
+    @Override
+    public String getConnectionEndPoint(String connectionName) throws Exception {
+        RestServiceAdapter restServiceAdapter = RestServiceAdapterPool.acquire(connectionName);
+        boolean reuseAdapter = false;
+        try{
+            String connectionEndPoint = RestServiceAdapterPool.getConnectionEndPoint(connectionName, restServiceAdapter);
+            reuseAdapter = true;
+            return connectionEndPoint;
+        }
+        finally{
+            releaseOrDiscard(connectionName, restServiceAdapter, reuseAdapter);
+        }
+    }
+
+    /**
+     * Removes the cached end point and the idle RestServiceAdapter instances of a MAF REST connection
+     *
+     * @param connectionName MAF REST connection name
+     */
+    @Override
+    public void invalidateConnectionEndPoint(String connectionName) {
+        RestServiceAdapterPool.invalidate(connectionName);
+    }
+
+    /**
+     * Returns the number of created and reused RestServiceAdapter instances and the number of end point lookups and
+     * cache hits since the application started
+     *
+     * @return statistics String for logging
+     */
+    @Override
+    public String getStatistics() {
+        return RestServiceAdapterPool.getStatistics();
+    }
+
+    /**
+     * Issues the request through the HttpConnection obtained from the RestServiceAdapter and pipes the response body to
+     * either an OutputStream or a FileChannel. If both targets are null, the response body of successful requests is 
+     * returned as InputStream in the message of the MCSResponse. The connection is closed when the stream is closed.
+     *
+     * @param request MCSRequest object
+     * @param outputStream target stream or null
+     * @param fileChannel target channel or null
+     * @return MCSResponse object containing the status code and the response header information
+     * @throws Exception
+     */
+    private MCSResponse handleStreamResponseRequest(MCSRequest request, OutputStream outputStream, FileChannel fileChannel) throws Exception {
+
+        RestServiceAdapter restServiceAdapter = prepareRestServiceAdapter(request);
+        HttpConnection httpConnection = null;
+        String url = null;
+        boolean reuseAdapter = false;
+        try{
+            url = RestServiceAdapterPool.getConnectionEndPoint(request.getConnectionName(), restServiceAdapter) + request.getRequestURI();
+
+            request.getMbeConfig().getLogger().logFine("Request Method in MCSRestClient call: "+request.getHttpMethod().toString(), "MCSRestClient", "handleStreamResponseRequest");
+            request.getMbeConfig().getLogger().logFine("Request URL in MCSRestClient call: "+url, "MCSRestClient", "handleStreamResponseRequest");
+
+            httpConnection = restServiceAdapter.getHttpConnection(request.getHttpMethod().toString(), url, restServiceAdapter.getRequestProperties());
+            reuseAdapter = true;
+        }
+        finally{
+            //the connection does not depend on the adapter once it is opened
+            releaseOrDiscard(request.getConnectionName(), restServiceAdapter, reuseAdapter);
+        }
+
+        MCSResponse response = new MCSResponse(request.getMbeConfig());
+        response.setOriginalRequestUrl(url);
+
+        InputStream inputStream = null;
+        try{
+            int statusCode = httpConnection.getResponseCode();
+            request.getMbeConfig().getLogger().logFine("Response code is: "+statusCode, "MCSRestClient", "handleStreamResponseRequest");
+
+            HashMap<String,String> responseHeaders = readResponseHeaders(httpConnection);
+            response.setHttpStatusCode(statusCode);
+            response.setHeaders(responseHeaders);
+            response.setMimeType(httpConnection.getType());
+
+            //compressed content is decompressed while it is streamed to the target
+            inputStream = TransportUtils.decodeContent(httpConnection.openInputStream(), httpConnection.getHeaderField(HeaderConstants.CONTENT_ENCODING_HEADER));
+            if(TransportUtils.isDecoding(inputStream)){
+                TransportUtils.removeEncodingHeaders(responseHeaders);
+            }
+
+            if(statusCode > 199 && statusCode < 300 && outputStream == null && fileChannel == null){
+                //the caller reads the response body
+                response.setMessage(inputStream != null ? openResponseStream(inputStream, httpConnection) : null);
+                if(inputStream != null){
+                    inputStream = null;
+                    httpConnection = null;
+                }
+            }
+            else if(statusCode > 199 && statusCode < 300){
+
+                if(inputStream != null){
+
+                    long bytesRead = 0;
+                    if(fileChannel != null){
+                        bytesRead = TransportUtils.transferToChannel(inputStream, fileChannel);
+                    }
+                    else{
+                        OutputStream localOutputStream = TransportUtils.localOutput(outputStream);
+                        bytesRead = TransportUtils.copyStream(inputStream, localOutputStream, -1);
+                        localOutputStream.flush();
+                    }
+                    request.getMbeConfig().getLogger().logFine("Bytes read from response: "+bytesRead, "MCSRestClient", "handleStreamResponseRequest");
+                }
+                response.setMessage(null);
+            }
+            else{
+                //error responses are small. Read them as String for the ServiceProxyException
+                response.setMessage(inputStream != null ? TransportUtils.readString(inputStream) : "");
+                inputStream = null;
+            }
+        }
+        finally{
+            if(inputStream != null){
+                inputStream.close();
+            }
+            if(httpConnection != null){
+                httpConnection.close();
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Wraps the response body stream of a connection. Closing the returned stream closes the connection
+     */
+    private static InputStream openResponseStream(InputStream inputStream, final HttpConnection httpConnection) {
+        return new FilterInputStream(inputStream) {
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    super.close();
+                } finally {
+                    httpConnection.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * Reads the response headers from the HttpConnection into a HashMap
+     * @param httpConnection
+     * @return HashMap with the header key/value pairs
+     * @throws IOException
+     */
+    private static HashMap<String,String> readResponseHeaders(HttpConnection httpConnection) throws IOException {
+
+        HashMap<String,String> headers = new HashMap<String,String>();
+
+        int index = 0;
+        String headerKey = null;
+        while ((headerKey = httpConnection.getHeaderFieldKey(index)) != null || (index == 0 && httpConnection.getHeaderField(index) != null)) {
+            //the status line has no key
+            if(headerKey != null){
+                headers.put(headerKey, httpConnection.getHeaderField(index));
+            }
+            index++;
+        }
+        return headers;
+    }
+
+    /**
+     * Method that handles the upload of binary message. The RestServiceAdapter by design handles String payloads but doesn't do byte arrays. This helper method provides
+     * this functionality, still using the RestServiceAdapter in MAF to handle the request configuration. However, the request itself is issued directly through the HTTP
+     * connection. Note that the payload in the request object is expected to be byte[] or java.io.InputStream. InputStream payloads are
+     * streamed into the connection output stream without being buffered in memory. If the length of a streamed payload is unknown (see
+     * MCSRequest.getPayloadContentLength) then the content is sent using chunked transfer encoding. InputStream payloads are not closed
+     * by this method
+     *
+     * @param restServiceAdapter The prepared RestServiceAdapter (means containing all request properties. The payload will be overwritten with and empty String)"
+     * @param connectionEndPoint The resolved end point URL of the MAF REST connection
+     * @param request MCSRequest object
+     * @param payload the payload to send, byte[] or InputStream. This is the request payload or the compressed request payload
+     * @param payloadLength the number of bytes to send or -1 if the length of an InputStream payload is unknown
+     * @return MCSResponse object containing the payload and theresponse header information
+     * @throws Exception
+     */
+    private static final MCSResponse handleBinaryArgumentRequest(RestServiceAdapter restServiceAdapter, String connectionEndPoint, MCSRequest request, Object payload, long payloadLength) throws Exception{
+
+        String url = connectionEndPoint + request.getRequestURI();
+        //prepare the response context object to return the outcome of the REST reqest
+        MCSResponse response = new MCSResponse(request.getMbeConfig());
+
+        HashMap headerProperties = restServiceAdapter.getRequestProperties();
+
+        InputStream payloadStream = null;
+        if(payload instanceof InputStream){
+            payloadStream = (InputStream) payload;
+
+            //a streamed payload either has a known length or is sent in chunks
+            if(payloadLength > -1){
+                headerProperties.put(HeaderConstants.CONTENT_LENGTH, Long.toString(payloadLength));
+                headerProperties.remove(HeaderConstants.TRANSFER_ENCODING_TYPE_HEADER);
+            }
+            else{
+                request.getMbeConfig().getLogger().logFine("Payload length is unknown. Using chunked transfer encoding", "MCSRestClient", "handleBinaryArgumentRequest");
+                headerProperties.remove(HeaderConstants.CONTENT_LENGTH);
+                headerProperties.put(HeaderConstants.TRANSFER_ENCODING_TYPE_HEADER, "chunked");
+            }
+        }
+        else{
+            payloadStream = new ByteArrayInputStream((byte[]) payload);
+            //a compressed payload replaces the request payload. Make sure a content length set for the original payload is not sent
+            if(payload != request.getPayload()){
+                headerProperties.put(HeaderConstants.CONTENT_LENGTH, Integer.toString(((byte[]) payload).length));
+                headerProperties.remove(HeaderConstants.TRANSFER_ENCODING_TYPE_HEADER);
+            }
+        }
+
+        request.getMbeConfig().getLogger().logFine("Getting http connection", "MCSRestClient", "handleBinaryArgumentRequest");
+        HttpConnection httpConnection = restServiceAdapter.getHttpConnection(request.getHttpMethod().toString(), url, headerProperties);
+
+        OutputStream outputStream = httpConnection.openDataOutputStream();
+
+        try{
+            if(outputStream != null){
+                request.getMbeConfig().getLogger().logFine("Output stream OK", "MCSRestClient", "handleBinaryArgumentRequest");
+                //stream the payload into the connection
+                long bytesWritten = TransportUtils.copyStream(TransportUtils.localInput(payloadStream), outputStream, payload instanceof InputStream ? payloadLength : -1);
+                outputStream.flush();
+                request.getMbeConfig().getLogger().logFine("Bytes written to output stream: "+bytesWritten, "MCSRestClient", "handleBinaryArgumentRequest");
+
+                //this line actually invokes the content upload. Don't move this line as otherwise content may not
+                //upload properly
+                Integer statusCode = httpConnection.getResponseCode();
+                request.getMbeConfig().getLogger().logFine("Content uploaded. Response code is: "+statusCode, "MCSRestClient", "handleBinaryArgumentRequest");
+                request.getMbeConfig().getLogger().logFine("Response message: "+httpConnection.getResponseMessage(), "MCSRestClient", "handleBinaryArgumentRequest");
+
+                //depending on the connection type (SyncHttpConnection or javax.microedition.io.HttpConnection) compressed 
+                //content is already decompressed by MAF. decodeContent only decompresses content that still is compressed
+                HashMap<String,String> responseHeaders = readResponseHeaders(httpConnection);
+                InputStream responseStream = TransportUtils.decodeContent(httpConnection.openInputStream(), httpConnection.getHeaderField(HeaderConstants.CONTENT_ENCODING_HEADER));
+                if(TransportUtils.isDecoding(responseStream)){
+                    request.getMbeConfig().getLogger().logFine("Response is compressed", "MCSRestClient", "handleBinaryArgumentRequest");
+                    TransportUtils.removeEncodingHeaders(responseHeaders);
+                }
+                String responseMessage = responseStream != null ? TransportUtils.readString(responseStream) : "";
+
+                //set the response status, headers and the returned payload to the context object for
+                //delivery to the requesting client
+
+                response.setHttpStatusCode(statusCode);
+                //the request was not sent through the RestServiceAdapter. Read the headers from the connection
+                response.setHeaders(responseHeaders);
+
+                request.getMbeConfig().getLogger().logFine("Response form MCS is: "+responseMessage, "MCSRestClient", "handleBinaryArgumentRequest");
+                response.setMessage(responseMessage);
+                response.setOriginalRequestUrl(url);
+            }
+            else{
+                request.getMbeConfig().getLogger().logError("Request could not be send to server. No error received.", "RestClient.java", "handleBinaryRequest");
+
+            }
+        }
+        catch(Exception e){
+            //rethrow as in this try/catch block we are only
+            //intersted in closing the output stream gracefully
+            throw e;
+        }
+        finally{
+            outputStream.close();
+            httpConnection.close();
+        }
+        return response;
+    }
+
+    /**
+     * Returns a HttpConnection for the request URL. The HttpConnection is obtained from the RestServiceAdapter and uses
+     * the headers set in the request object
+     *
+     * @param request MCSRequest with information required by the RestServiceAdapter
+     * @return HttpConnection
+     */
+    HttpConnection getHttpConnection(MCSRequest request) throws Exception {
+        RestServiceAdapter restServiceAdapter = prepareRestServiceAdapter(request);
+        boolean reuseAdapter = false;
+        try{
+            String url = RestServiceAdapterPool.getConnectionEndPoint(request.getConnectionName(), restServiceAdapter) + request.getRequestURI();
+            HashMap headerProperties = request.getHttpHeaders();
+            HttpConnection connection = restServiceAdapter.getHttpConnection(request.getHttpMethod().toString(), url, headerProperties);
+            reuseAdapter = true;
+            return connection;
+        }
+        finally{
+            releaseOrDiscard(request.getConnectionName(), restServiceAdapter, reuseAdapter);
+        }
+    }
+
+    /**
+     * Returns the adapter to the pool if its request completed or discards the adapter if the request failed
+     * @param connectionName MAF REST connection name the adapter was acquired for
+     * @param restServiceAdapter the adapter
+     * @param reuseAdapter true if the request completed
+     */
+    private static void releaseOrDiscard(String connectionName, RestServiceAdapter restServiceAdapter, boolean reuseAdapter) {
+        if(reuseAdapter){
+            RestServiceAdapterPool.release(connectionName, restServiceAdapter);
+        }
+        else{
+            RestServiceAdapterPool.discard(restServiceAdapter);
+        }
+    }
+
+    /**
+     * Obtains a RestServiceAdapter from the adapter pool and configures it with information from the request context.
+     * The adapter must be returned to the pool when the request completed
+     * @param request
+     * @return RestServiceAdapter
+     */
+    private static RestServiceAdapter prepareRestServiceAdapter(MCSRequest request) {
+        RestServiceAdapter restServiceAdapter = RestServiceAdapterPool.acquire(request.getConnectionName());
+
+        restServiceAdapter.setConnectionName(request.getConnectionName());
+        restServiceAdapter.setRequestType(request.getHttpMethod().toString());
+        restServiceAdapter.setRequestURI(request.getRequestURI());
+        //retries are handled by the RetryPolicy in MCSRestClient, which only retries idempotent requests. Retries of
+        //the adapter would multiply the attempts and resend non-idempotent requests
+        restServiceAdapter.setRetryLimit(0);
+
+        Map<String,String> allRequestPropertyMap = MCSRestClient.getRequestHeaders(request);
+        for (Map.Entry<String,String> header : allRequestPropertyMap.entrySet()) {
+            restServiceAdapter.addRequestProperty(header.getKey(), header.getValue());
+        }
+        return restServiceAdapter;
+    }
+}
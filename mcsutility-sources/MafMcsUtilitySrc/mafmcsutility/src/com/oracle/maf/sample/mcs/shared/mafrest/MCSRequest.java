@@ -74,6 +74,13 @@ public final class MCSRequest {
     private  HashMap<String,String> httpHeaders = new  HashMap<String,String>();
     private MBEConfiguration mbeConfig = null;
     private int retryLimit = 1;
+    
+    //length of a streamed (InputStream) payload. -1 indicates an unknown length, in which case the content is sent
+    //using chunked transfer encoding
+    private long payloadContentLength = -1;
+    
+    //GET and HEAD responses are cached and revalidated with If-None-Match
+    private boolean eTagCachingEnabled = false;
 
     /**
      * Adding an instance of MBEConfiguration to the MCSRequest allows the REST client to log messages on behalf of a
@@ -101,6 +108,20 @@ public final class MCSRequest {
         return payload;
     }
 
+    /**
+     * The number of bytes to read from a java.io.InputStream payload. For String and byte[] payloads this value is 
+     * ignored. If the length of a streamed payload is not known up front, keep the default value of -1 in which case
+     * the payload is uploaded using chunked transfer encoding
+     * @param payloadContentLength number of bytes in the payload stream or -1 if the length is unknown
+     */
+    public void setPayloadContentLength(long payloadContentLength) {
+        this.payloadContentLength = payloadContentLength;
+    }
+
+    public long getPayloadContentLength() {
+        return payloadContentLength;
+    }
+
     /**
      * The MAF REST connection name is require. The REST connection name is defined in the connections.xml file in MAF and
      * holds the root URL for the REST service. For MCS this usually is the mobile backend REST root URL.
@@ -190,6 +211,12 @@ public final class MCSRequest {
         return httpHeaders;
     }
 
+    /**
+     * Retry limit of the request. The value is not used by the transports: the MAF RestServiceAdapter is invoked with a
+     * retry limit of 0 and retries with backoff for transient failures are configured for all requests of a mobile 
+     * backend with MBEConfiguration.setRetryPolicy
+     * @param retryLimit
+     */
     public void setRetryLimit(int retryLimit) {
         this.retryLimit = retryLimit;
     }
@@ -201,4 +228,20 @@ public final class MCSRequest {
     public MBEConfiguration getMbeConfig() {
         return mbeConfig;
     }
+
+    /**
+     * If enabled, successful GET and HEAD responses that carry an ETag header are cached by MCSRestClient. Subsequent 
+     * requests send the ETag in the If-None-Match header. If the server responds with HTTP 304 (Not Modified) the 
+     * cached response is returned, which saves downloading the response body. Responses are always revalidated with
+     * the server. Use this for metadata requests that are repeated frequently, e.g. collection and object information
+     * 
+     * @param eTagCachingEnabled true to cache the response and revalidate it with its ETag
+     */
+    public void setETagCachingEnabled(boolean eTagCachingEnabled) {
+        this.eTagCachingEnabled = eTagCachingEnabled;
+    }
+
+    public boolean isETagCachingEnabled() {
+        return eTagCachingEnabled;
+    }
 }
@@ -4,10 +4,19 @@ import com.oracle.maf.sample.mcs.shared.mbe.config.base.MBEConfiguration;
 
 import com.oracle.maf.sample.mcs.shared.mbe.error.OracleMobileError;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+
 import java.util.HashMap;
 
+import oracle.adfmf.json.JSONArray;
 import oracle.adfmf.json.JSONException;
 import oracle.adfmf.json.JSONObject;
+import oracle.adfmf.json.JSONTokener;
 
 
 /**
@@ -24,7 +33,8 @@ public final class MCSResponse {
     private HashMap<String,String>  headers =   new HashMap<String,String>();
     /**
      * The response message returned for a request. The message format depends on the type of request and can be String (for
-     * JSON object responses e.g. in custom API calls), binary[] for requests that return binary files from Storage
+     * JSON object responses e.g. in custom API calls), binary[] for requests that return binary files from Storage or 
+     * InputStream for requests sent with MCSRestClient.sendForInputStreamResponse
      */
     private Object                  message =   null;
     /**
@@ -40,6 +50,10 @@ public final class MCSResponse {
     
     private OracleMobileError oracleErrorMessage =    null;
     
+    //lazily decoded representations of a byte[] message. Reset when the message changes
+    private String                  decodedMessage =    null;
+    private Object                  jsonMessage =       null;
+    
     /**
      * Adding an instance of MBEConfiguration to the Response allows the REST client to log messages on behalf of a 
      * specific MBE instance, which allows better analyzes of log entries in case of an error when multiple backends are 
@@ -74,6 +88,8 @@ public final class MCSResponse {
      */
     public void setMessage(Object response) {
         this.message = response;
+        this.decodedMessage = null;
+        this.jsonMessage = null;
     }
 
     /**
@@ -90,6 +106,145 @@ public final class MCSResponse {
     }
 
 
+    /**
+     * Returns the response message as String. byte[] messages are decoded as UTF-8 upon the first call to this method
+     * and the decoded String is kept for subsequent calls. The message itself is not changed.
+     *
+     * @return String message or null if there is no message
+     */
+    public String getMessageAsString() {
+        if (message == null || message instanceof String) {
+            return (String) message;
+        }
+        if (decodedMessage == null && message instanceof byte[]) {
+            try {
+                decodedMessage = new String((byte[]) message, "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+                //UTF-8 is always supported
+                decodedMessage = new String((byte[]) message);
+            }
+        }
+        return decodedMessage != null ? decodedMessage : message.toString();
+    }
+
+    /**
+     * Parses the response message into a JSONObject. byte[] messages are parsed directly from the byte buffer without
+     * creating an intermediate String copy of the response, which keeps the memory footprint of large responses, like
+     * storage object listings, low. The parsed object is kept for subsequent calls.
+     *
+     * @return JSONObject or null if there is no message
+     * @throws JSONException if the message is not a JSON object
+     */
+    public JSONObject getMessageAsJSONObject() throws JSONException {
+        if (message == null) {
+            return null;
+        }
+        if (!(jsonMessage instanceof JSONObject)) {
+            if (message instanceof byte[]) {
+                jsonMessage = new JSONObject(createTokener((byte[]) message));
+            } else {
+                jsonMessage = new JSONObject(getMessageAsString());
+            }
+        }
+        return (JSONObject) jsonMessage;
+    }
+
+    /**
+     * Parses the response message into a JSONArray. byte[] messages are parsed directly from the byte buffer without
+     * creating an intermediate String copy of the response. The parsed array is kept for subsequent calls.
+     *
+     * @return JSONArray or null if there is no message
+     * @throws JSONException if the message is not a JSON array
+     */
+    public JSONArray getMessageAsJSONArray() throws JSONException {
+        if (message == null) {
+            return null;
+        }
+        if (!(jsonMessage instanceof JSONArray)) {
+            if (message instanceof byte[]) {
+                jsonMessage = new JSONArray(createTokener((byte[]) message));
+            } else {
+                jsonMessage = new JSONArray(getMessageAsString());
+            }
+        }
+        return (JSONArray) jsonMessage;
+    }
+
+    /**
+     * Returns the response message as UTF-8 encoded input stream for parsers that read the message token by token.
+     * byte[] messages are read from the byte buffer without being copied. InputStream messages are returned as they are
+     *
+     * @return InputStream or null if there is no message
+     */
+    public InputStream getMessageAsInputStream() {
+        if (message == null) {
+            return null;
+        }
+        if (message instanceof InputStream) {
+            return (InputStream) message;
+        }
+        if (message instanceof byte[]) {
+            return new ByteArrayInputStream((byte[]) message);
+        }
+        try {
+            return new ByteArrayInputStream(getMessageAsString().getBytes("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            //UTF-8 is always supported
+            return new ByteArrayInputStream(getMessageAsString().getBytes());
+        }
+    }
+
+    /**
+     * The length of the response message in bytes (byte[] messages) or characters (String messages). Use this method
+     * for logging instead of printing large messages
+     *
+     * @return message length or 0 if there is no message
+     */
+    public int getMessageLength() {
+        if (message instanceof byte[]) {
+            return ((byte[]) message).length;
+        } else if (message instanceof String) {
+            return ((String) message).length();
+        }
+        return 0;
+    }
+
+    /**
+     * Parses a JSON object from a UTF-8 encoded input stream without reading the stream into a String first. The stream
+     * is closed by this method.
+     *
+     * @param inputStream the stream to read from
+     * @return JSONObject
+     * @throws JSONException if the stream content is not a JSON object or cannot be read
+     */
+    public static JSONObject parseJSONObject(InputStream inputStream) throws JSONException {
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(inputStream, "UTF-8");
+            return new JSONObject(new JSONTokener(reader));
+        } catch (UnsupportedEncodingException e) {
+            throw new JSONException(e.getMessage());
+        } finally {
+            try {
+                if (reader != null) {
+                    reader.close();
+                } else {
+                    inputStream.close();
+                }
+            } catch (IOException e) {
+                //nothing we can do here
+            }
+        }
+    }
+
+    private static JSONTokener createTokener(byte[] bytes) throws JSONException {
+        try {
+            return new JSONTokener(new InputStreamReader(new ByteArrayInputStream(bytes), "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new JSONException(e.getMessage());
+        }
+    }
+
     /**
      * *** INTERNAL METHOD ***
      * 
@@ -152,11 +307,11 @@ public final class MCSResponse {
     public OracleMobileError getOracleErrorMessage() {
             oracleErrorMessage = new OracleMobileError();
             //MCS error messages are added as a String in the REST response    
-            if(message != null && (message instanceof String )){
+            if(message != null && (message instanceof String || message instanceof byte[])){
                 
                 JSONObject jsonResponse;
                 try {
-                    jsonResponse = new JSONObject((String) message);
+                    jsonResponse = new JSONObject(getMessageAsString());
                 
                     oracleErrorMessage.setType(jsonResponse.getString(OracleMobileError.MCS_ERROR_TYPE));
                     oracleErrorMessage.setStatus(jsonResponse.getInt(OracleMobileError.MCS_ERROR_STATUS));
@@ -191,4 +346,21 @@ public final class MCSResponse {
     public MBEConfiguration getMbeConfig() {
         return mbeConfig;
     }
+
+    /**
+     * *** INTERNAL METHOD ***
+     * Creates a copy of the response for callers that share a single request (see MCSRestClient). The message is 
+     * not copied. Callers must not modify byte[] messages
+     * 
+     * @return MCSResponse copy
+     */
+    MCSResponse copy() {
+        MCSResponse mcsResponse = new MCSResponse(this.mbeConfig);
+        mcsResponse.setHeaders(this.headers != null ? new HashMap<String,String>(this.headers) : null);
+        mcsResponse.setMessage(this.message);
+        mcsResponse.setHttpStatusCode(this.httpStatusCode);
+        mcsResponse.setMimeType(this.mimeType);
+        mcsResponse.setOriginalRequestUrl(this.originalRequestUrl);
+        return mcsResponse;
+    }
 }
@@ -1,47 +1,84 @@
 package com.oracle.maf.sample.mcs.shared.mafrest;
 
+import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
 import com.oracle.maf.sample.mcs.shared.headers.HeaderConstants;
 import com.oracle.maf.sample.mcs.shared.log.LibraryLogger;
 import com.oracle.maf.sample.mcs.shared.log.UtilLogger;
 import com.oracle.maf.sample.mcs.shared.mbe.config.base.MBEConfiguration;
 import com.oracle.maf.sample.mcs.shared.mbe.constants.MBEConstants;
-import com.oracle.maf.sample.mcs.shared.utils.MapUtils;
+import com.oracle.maf.sample.mcs.shared.mbe.error.OracleMobileErrorHelper;
 
-import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.Reader;
-import java.io.StringWriter;
+
+import java.nio.channels.FileChannel;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
-import java.util.zip.GZIPInputStream;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.microedition.io.HttpConnection;
 
-import oracle.adfmf.dc.ws.rest.RestServiceAdapter;
-import oracle.adfmf.framework.api.Model;
 import oracle.adfmf.util.Utility;
 
-import oracle.mobile.cloud.SyncHttpConnection;
-
 
 /**
  *  *** INTERNAL USE ONLY  ***
  *
- * Invokes the REST service using the MAF REST Service Adapter
+ * Invokes the REST service through the configured MCSTransport. By default requests are sent using the MAF REST
+ * Service Adapter
  *
  * @author   Frank Nimphius
  * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.erved.
  */
 public final class MCSRestClient {
     
+    /**
+     * Transport all requests are sent through. Defaults to the MAF RestServiceAdapter
+     */
+    private static volatile MCSTransport transport = new MAFRestTransport();
+    
+    /**
+     * Circuit breakers keyed by MAF REST connection name and mobile backend id
+     */
+    private static final ConcurrentHashMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<String, CircuitBreaker>();
+    
+    /**
+     * GET and HEAD requests currently sent, keyed by method, connection, URI and request headers (incl. authorization)
+     */
+    private static final ConcurrentHashMap<String, InFlightRequest> inFlightRequests = new ConcurrentHashMap<String, InFlightRequest>();
+    private static final AtomicLong coalescedRequests = new AtomicLong();
+    
+    /**
+     * Responses of requests with ETag caching enabled
+     */
+    private static final ETagCache eTagCache = new ETagCache();
     
     private MCSRestClient() {
     }
+    
+    /**
+     * Sets the transport used to send REST requests. By default requests are sent through the MAF RestServiceAdapter
+     * (MAFRestTransport). Use HttpURLConnectionTransport to run the service proxies in a plain JVM, e.g. for load tests.
+     * The transport is shared by all mobile backends
+     *
+     * @param mcsTransport transport implementation. Null resets the transport to the MAF default
+     */
+    public static void setTransport(MCSTransport mcsTransport) {
+        transport = mcsTransport != null ? mcsTransport : new MAFRestTransport();
+    }
+    
+    /**
+     * @return the transport REST requests are sent through
+     */
+    public static MCSTransport getTransport() {
+        return transport;
+    }
 
     /**
      *
@@ -63,282 +100,502 @@ public final class MCSRestClient {
     }
 
     /**
-     * Sends the REST request to the server for String and byte array payloads. The response type is expected to be
-     * byte[]
+     * Sends the REST request to the server for requests that return JSON. The response body of successful requests 
+     * (HTTP 2XX) is kept as byte[] and is not converted into a String. Use MCSResponse.getMessageAsJSONObject() or 
+     * MCSResponse.getMessageAsJSONArray() to parse the response directly from the byte buffer. Error responses are 
+     * converted into String to be passed on to the ServiceProxyException
      *
      * @param request MCSRequest object with the REST call configuration
      * @return MCSResponse with header information and message body
      * @throws Exception Exceptions thrown upon invoking the REST call (could be anything)
      */
-    public static MCSResponse sendForByteResponse(MCSRequest request) throws Exception {
+    public static MCSResponse sendForJSONResponse(MCSRequest request) throws Exception {
+        MCSResponse mcsResponse = sendForByteResponse(request);
+        if(mcsResponse != null && mcsResponse.getMessage() instanceof byte[] &&
+           (mcsResponse.getHttpStatusCode() < 200 || mcsResponse.getHttpStatusCode() > 299)){
+            mcsResponse.setMessage(mcsResponse.getMessageAsString());
+        }
+        return mcsResponse;
+    }
 
-        RestServiceAdapter restServiceAdapter = prepareRestServiceAdapter(request);
+    /**
+     * Sends the REST request to the server for String, byte array and InputStream payloads. The response type is 
+     * expected to be byte[]. InputStream payloads are streamed to the server without being buffered in memory. If the 
+     * length of a streamed payload is unknown (see MCSRequest.getPayloadContentLength) then the content is sent using 
+     * chunked transfer encoding. InputStream payloads are not closed by this method
+     * <p>
+     * GET and HEAD requests that are identical to a request currently in progress (same method, connection, URI, 
+     * authorization and request headers) are not sent again. Instead the caller waits for the in-flight request and 
+     * receives a copy of its response or the same exception (see MBEConfiguration.setRequestCoalescingEnabled).
+     * <p>
+     * If ETag caching is enabled for the request (MCSRequest.setETagCachingEnabled), a cached response is revalidated
+     * with If-None-Match and returned if the server responds with HTTP 304
+     *
+     * @param request MCSRequest object with the REST call configuration
+     * @return MCSResponse with header information and message body
+     * @throws Exception Exceptions thrown upon invoking the REST call (could be anything)
+     */
+    public static MCSResponse sendForByteResponse(MCSRequest request) throws Exception {
         
-        //log all about this request except payload as it might be too large for logging
-        request.getMbeConfig().getLogger().logFine("Header key/value pairs in MCSRestClient call: "+MapUtils.dumpObjectProperties(restServiceAdapter.getRequestProperties()), "RestClient.java", "sendForByteResponse");     
-        request.getMbeConfig().getLogger().logFine("Request Method in MCSRestClient call: "+restServiceAdapter.getRequestType(), "RestClient.java", "sendForByteResponse");
-        request.getMbeConfig().getLogger().logFine("Request URL in MCSRestClient call: "+restServiceAdapter.getConnectionEndPoint(restServiceAdapter.getConnectionName()) +restServiceAdapter.getRequestURI(), "RestClient.java", "sendForByteResponse");
+        boolean coalescingAllowed = request.getMbeConfig() != null && request.getMbeConfig().isRequestCoalescingEnabled() && isSafeMethod(request);
+        if(!coalescingAllowed){
+            return sendWithETagCache(request);
+        }
+        String coalescingKey = getRequestKey(request);
         
-        MCSResponse response = new MCSResponse(request.getMbeConfig());
-
-        //response can be either String or byte[]
-        if(request.getPayload() == null || request.getPayload() instanceof String){
-            
-            request.getMbeConfig().getLogger().logFine("Request-payload instance of String or NULL", "RestClient.java", "sendForByteResponse");     
-            
-            byte[] responseRaw = restServiceAdapter.sendReceive(request.getPayload() == null? "" : (String) request.getPayload());
-                        
-            response.setOriginalRequestUrl(restServiceAdapter.getConnectionEndPoint(request.getConnectionName()) +
-                                          restServiceAdapter.getRequestURI());
-            
-            response.setMessage(responseRaw);            
-            response.setMimeType(restServiceAdapter.getResponseContentType());
-            response.setHttpStatusCode(restServiceAdapter.getResponseStatus());
-            response.setHeaders(restServiceAdapter.getResponseHeaders());
+        InFlightRequest inFlightRequest = new InFlightRequest();
+        InFlightRequest sharedRequest = inFlightRequests.putIfAbsent(coalescingKey, inFlightRequest);
+        
+        if(sharedRequest != null){
+            coalescedRequests.incrementAndGet();
+            getLogger(request).logFine("Identical request to "+request.getRequestURI()+" in progress. Waiting for shared response", "MCSRestClient", "sendForByteResponse");
+            MCSResponse sharedResponse = sharedRequest.awaitResponse();
+            if(sharedResponse != null){
+                return sharedResponse;
+            }
+            //shared request ended without response or exception (Error thrown)
+            return sendWithETagCache(request);
         }
         
-        //handle binary payload
-        else if(request.getPayload() != null && request.getPayload() instanceof byte[]){
-            request.getMbeConfig().getLogger().logFine("Request-payload instance of byte[]", "RestClient.java", "sendForByteResponse");                                
-            response = handleBinaryArgumentRequest(restServiceAdapter,request);
-            
-            //add the full request URL to the response object for logging purpose            
-            response.setOriginalRequestUrl(restServiceAdapter.getConnectionEndPoint(request.getConnectionName()) +
-                                          restServiceAdapter.getRequestURI());
+        try{
+            MCSResponse response = sendWithETagCache(request);
+            //waiting callers get copies of the unmodified response
+            inFlightRequest.setResponse(response != null ? response.copy() : null);
+            return response;
         }
-        else{
-            request.getMbeConfig().getLogger().logFine("Request-payload was neither byte[] nor String type. No REST service request was sent", "RestClient.java", "sendForByteResponse");
+        catch(Exception e){
+            inFlightRequest.setFailure(e);
+            throw e;
+        }
+        finally{
+            inFlightRequests.remove(coalescingKey, inFlightRequest);
+            inFlightRequest.complete();
+        }
+    }
+    
+    /**
+     * Sends the request and, if ETag caching is enabled for the request, revalidates a cached response using the 
+     * If-None-Match header. Requests that set If-None-Match themselves are not cached
+     * 
+     * @param request MCSRequest object
+     * @return MCSResponse of the server or a copy of the cached response if the server returned HTTP 304
+     * @throws Exception the exception of the request
+     */
+    private static MCSResponse sendWithETagCache(MCSRequest request) throws Exception {
+        
+        if(!request.isETagCachingEnabled() || !isSafeMethod(request) || 
+           TransportUtils.getHeader(request.getHttpHeaders(), HeaderConstants.IF_NONE_MATCH_HEADER) != null){
+            return sendWithRetry(request, null, null, false);
         }
-        return response;        
+        
+        String cacheKey = getRequestKey(request);
+        MCSResponse cachedResponse = eTagCache.get(cacheKey);
+        String cachedETag = cachedResponse != null ? TransportUtils.getHeader(cachedResponse.getHeaders(), HeaderConstants.ETAG_HEADER) : null;
+        
+        HashMap<String,String> originalHeaders = request.getHttpHeaders();
+        if(cachedETag != null){
+            HashMap<String,String> conditionalHeaders = originalHeaders != null ? new HashMap<String,String>(originalHeaders) : new HashMap<String,String>();
+            conditionalHeaders.put(HeaderConstants.IF_NONE_MATCH_HEADER, cachedETag);
+            request.setHttpHeaders(conditionalHeaders);
+        }
+        
+        MCSResponse response = null;
+        try{
+            response = sendWithRetry(request, null, null, false);
+        }
+        catch(Exception e){
+            //the MAF RestServiceAdapter may report HTTP 304 as an exception. All other failures are passed on
+            if(cachedETag == null || RetryPolicy.getStatusCode(e) != 304){
+                throw e;
+            }
+        }
+        finally{
+            request.setHttpHeaders(originalHeaders);
+        }
+        
+        if(cachedETag != null && (response == null || response.getHttpStatusCode() == 304)){
+            eTagCache.recordHit();
+            getLogger(request).logFine("Cached response for "+request.getRequestURI()+" not modified (ETag "+cachedETag+")", "MCSRestClient", "sendWithETagCache");
+            return cachedResponse.copy();
+        }
+        
+        eTagCache.recordMiss();
+        if(response != null && response.getHttpStatusCode() == 200 && 
+           TransportUtils.getHeader(response.getHeaders(), HeaderConstants.ETAG_HEADER) != null){
+            //the caller may change the message of the returned response
+            eTagCache.put(cacheKey, response.copy());
+        }
+        else if(cachedResponse != null){
+            eTagCache.remove(cacheKey);
+        }
+        return response;
+    }
+    
+    /**
+     * Returns the cache of responses that are revalidated using their ETag (see MCSRequest.setETagCachingEnabled)
+     * 
+     * @return ETagCache with hit and miss counters
+     */
+    public static ETagCache getETagCache() {
+        return eTagCache;
+    }
+    
+    private static boolean isSafeMethod(MCSRequest request) {
+        return request.getHttpMethod() == MCSRequest.HttpMethod.GET || request.getHttpMethod() == MCSRequest.HttpMethod.HEAD;
+    }
+    
+    /**
+     * Creates the key identifying identical requests. Requests are identical if method, connection, URI, authenticated
+     * user and all request headers, including the authorization headers and the mobile backend id, are the same. The
+     * authorization headers are only known here for manual authentication. If MAF authenticates the user, the headers
+     * are added by MAF when the request is sent, which is why the authenticated user is part of the key
+     * 
+     * @param request MCSRequest object
+     * @return request key
+     */
+    private static String getRequestKey(MCSRequest request) {
+        
+        StringBuilder coalescingKey = new StringBuilder();
+        coalescingKey.append(request.getHttpMethodAsString()).append(' ').append(request.getConnectionName()).append(' ').append(request.getRequestURI());
+        if(request.getMbeConfig() != null){
+            coalescingKey.append("\nuser:").append(request.getMbeConfig().getAuthenticatedUsername());
+        }
+        
+        //sorted and case-insensitive so that the same headers always produce the same key
+        TreeMap<String,String> sortedHeaders = new TreeMap<String,String>(String.CASE_INSENSITIVE_ORDER);
+        sortedHeaders.putAll(getRequestHeaders(request));
+        for(Map.Entry<String,String> header : sortedHeaders.entrySet()){
+            coalescingKey.append('\n').append(header.getKey().toLowerCase()).append(':').append(header.getValue());
+        }
+        return coalescingKey.toString();
+    }
+    
+    /**
+     * Sends the REST request to the server and writes the response body to the provided OutputStream instead of 
+     * returning it as part of the MCSResponse. Use this method for large downloads as the response body is never 
+     * held in memory. The message of the returned MCSResponse is null for successful requests (HTTP 2XX) and holds the
+     * error message String for all other requests. The OutputStream is not closed by this method.
+     *
+     * @param request MCSRequest object with the REST call configuration. Payloads are ignored
+     * @param outputStream the stream to write the response body to
+     * @return MCSResponse with header information and the status code
+     * @throws Exception Exceptions thrown upon invoking the REST call (could be anything)
+     */
+    public static MCSResponse sendForStreamResponse(MCSRequest request, OutputStream outputStream) throws Exception {
+        return sendWithRetry(request, outputStream, null, false);
     }
     
     /**
-     * Method that handles the upload of binary message. The RestServiceAdapter by design handles String payloads but doesn't do byte arrays. This helper method provides
-     * this functionality, still using the RestServiceAdapter in MAF to handle the request configuration. However, the request itself is issued directly through the HTTP
-     * connection. Note that the payload in the request object is expected to be byte[]
+     * Sends the REST request to the server and transfers the response body into the provided FileChannel, starting at
+     * the current channel position. The message of the returned MCSResponse is null for successful requests (HTTP 2XX) 
+     * and holds the error message String for all other requests. The FileChannel is not closed by this method.
      *
-     * @param restServiceAdapter The prepared RestServiceAdapter (means containing all request properties. The payload will be overwritten with and empty String)"
+     * @param request MCSRequest object with the REST call configuration. Payloads are ignored
+     * @param fileChannel the channel to write the response body to
+     * @return MCSResponse with header information and the status code
+     * @throws Exception Exceptions thrown upon invoking the REST call (could be anything)
+     */
+    public static MCSResponse sendForFileResponse(MCSRequest request, FileChannel fileChannel) throws Exception {
+        return sendWithRetry(request, null, fileChannel, false);
+    }
+    
+    /**
+     * Sends the REST request to the server and returns the response body of successful requests (HTTP 2XX) as 
+     * InputStream in the message of the MCSResponse. Use this method to parse large responses while they are received
+     * instead of buffering them in memory. The caller must close the stream, which releases the connection. The message
+     * holds the error message String for all other requests. Requests are retried until a response is received. 
+     * Failures while the stream is read are thrown to the reader and are not retried
+     *
+     * @param request MCSRequest object with the REST call configuration. Payloads are ignored
+     * @return MCSResponse with header information, the status code and the response body stream
+     * @throws Exception Exceptions thrown upon invoking the REST call (could be anything)
+     */
+    public static MCSResponse sendForInputStreamResponse(MCSRequest request) throws Exception {
+        return sendWithRetry(request, null, null, true);
+    }
+    
+    /**
+     * Sends the request through the transport and retries failed attempts according to the RetryPolicy of the MBE 
+     * configuration. Requests are retried only for idempotent HTTP methods and if the failure is transient (network 
+     * error or retryable status code). Requests with InputStream payloads are not retried as the payload cannot be 
+     * replayed. Streamed responses are retried only if no content has been written to the output stream. File channels
+     * are positioned at their start position before a retry. Channels written at the end of the file are truncated to 
+     * the start position, while channels that write into a preallocated file, like the segments of a segmented download,
+     * are never truncated as other writers share the file.
+     * <p>
+     * Each attempt is subject to the circuit breaker of the MAF REST connection and mobile backend. While the circuit 
+     * is open the request is not sent and fails with a ServiceProxyException (HTTP 503).
+     * 
      * @param request MCSRequest object
-     * @param responseContext The response object to return to the client
-     * @return MCSResponse object containing the payload and theresponse header information
-     * @throws Exception
+     * @param outputStream target stream for streamed responses or null
+     * @param fileChannel target channel for file responses or null
+     * @param inputStreamResponse true to return the response body of successful requests as InputStream
+     * @return MCSResponse of the last attempt
+     * @throws Exception the exception of the last attempt
      */
-    private static final MCSResponse handleBinaryArgumentRequest(RestServiceAdapter restServiceAdapter, MCSRequest request) throws Exception{
-                
-        String url = restServiceAdapter.getConnectionEndPoint(request.getConnectionName()) + request.getRequestURI();
-        //prepare the response context object to return the outcome of the REST reqest
-        MCSResponse response = new MCSResponse(request.getMbeConfig());
-        
-        HashMap headerProperties = restServiceAdapter.getRequestProperties();
-       
-        request.getMbeConfig().getLogger().logFine("Getting http connection", "MCSRestClient", "handleBinaryArgumentRequest");
-        HttpConnection httpConnection = restServiceAdapter.getHttpConnection(request.getHttpMethod().toString(), url, headerProperties);                       
-        
-        //determine connection to be HttpSyncConnection or javax.microedition.io.HttpConnection connection. In the first case any gzipp'ed content is already
-        //unzipped. In the latter case this uinzipping needs to be done manually in this class
-        boolean isSnychHttpConnection = httpConnection instanceof SyncHttpConnection ? true:false;
-        
-        OutputStream outputStream = httpConnection.openDataOutputStream();  
-        
-        try{      
-            if(outputStream != null){
-                request.getMbeConfig().getLogger().logFine("Output stream OK", "MCSRestClient", "handleBinaryArgumentRequest");
-                //serialize Object to binary[]
-                copyStream(new ByteArrayInputStream((byte[])request.getPayload()) , outputStream);                
-                 
-                //this line actually invokes the content upload. Don't move this line as otherwise content may not
-                //upload properly
-                Integer statusCode = httpConnection.getResponseCode();
-                request.getMbeConfig().getLogger().logFine("Content uploaded. Response code is: "+statusCode, "MCSRestClient", "handleBinaryArgumentRequest");
-                request.getMbeConfig().getLogger().logFine("Response message: "+httpConnection.getResponseMessage(), "MCSRestClient", "handleBinaryArgumentRequest");
-                
-                request.getMbeConfig().getLogger().logFine("Checking whether response is GZIP encoded", "MCSRestClient", "handleBinaryArgumentRequest");
-                String contentEncoding = httpConnection.getHeaderField("Content-Encoding");
-                String responseMessage = "";
-       
-                if(contentEncoding != null && contentEncoding.equalsIgnoreCase("gzip")){
-                   request.getMbeConfig().getLogger().logFine("Response is GZIP encoded", "MCSRestClient", "handleBinaryArgumentRequest");
-                   
-                  
-                   
-                   responseMessage = getResponse(httpConnection.openInputStream(), true, isSnychHttpConnection);
+    private static MCSResponse sendWithRetry(MCSRequest request, OutputStream outputStream, FileChannel fileChannel, boolean inputStreamResponse) throws Exception {
+        
+        RetryPolicy retryPolicy = request.getMbeConfig() != null ? request.getMbeConfig().getRetryPolicy() : null;
+        boolean retryAllowed = retryPolicy != null && retryPolicy.getMaxAttempts() > 1 && 
+                               retryPolicy.isIdempotent(request.getHttpMethod()) && !(request.getPayload() instanceof InputStream);
+        
+        CountingOutputStream countingStream = outputStream != null ? new CountingOutputStream(outputStream) : null;
+        long channelStartPosition = fileChannel != null ? fileChannel.position() : -1;
+        boolean channelAppends = fileChannel != null && channelStartPosition >= fileChannel.size();
+        
+        CircuitBreaker circuitBreaker = getCircuitBreaker(request.getMbeConfig());
+        //the duration of streamed uploads and downloads depends on the content size. They are not counted as slow calls
+        boolean streamedTransfer = countingStream != null || fileChannel != null || inputStreamResponse || 
+                                   request.getPayload() instanceof InputStream || request.getPayload() instanceof byte[];
+        
+        if(retryPolicy != null){
+            retryPolicy.recordRequest();
+        }
+        
+        MCSResponse response = null;
+        Exception failure = null;
+        int attempt = 0;
+        while(true){
+            attempt++;
+            
+            if(circuitBreaker != null && !circuitBreaker.tryAcquirePermission()){
+                getLogger(request).logWarning("Request to "+request.getRequestURI()+" not sent. "+circuitBreaker, "MCSRestClient", "sendWithRetry");
+                if(attempt == 1){
+                    throw createCircuitOpenException(request, circuitBreaker);
+                }
+                //circuit opened while retrying: report the outcome of the last attempt
+                if(failure != null){
+                    throw failure;
+                }
+                return response;
+            }
+            
+            if(retryPolicy != null){
+                retryPolicy.recordAttempt();
+            }
+            
+            response = null;
+            failure = null;
+            long attemptStartMillis = System.currentTimeMillis();
+            try{
+                if(countingStream != null){
+                    response = transport.sendForStreamResponse(request, countingStream);
+                }
+                else if(fileChannel != null){
+                    response = transport.sendForFileResponse(request, fileChannel);
+                }
+                else if(inputStreamResponse){
+                    response = transport.sendForInputStreamResponse(request);
                 }
                 else{
-                   request.getMbeConfig().getLogger().logFine("Response is not GZIP encoded", "MCSRestClient", "handleBinaryArgumentRequest");
-                   responseMessage = getResponse(httpConnection.openInputStream(), false,isSnychHttpConnection);
+                    response = transport.sendForByteResponse(request);
                 }
-                                
-                //set the response status, headers and the returned payload to the context object for
-                //delivery to the requesting client
-                
-                response.setHttpStatusCode(statusCode);                
-                response.setHeaders(restServiceAdapter.getResponseHeaders());
-                
-                request.getMbeConfig().getLogger().logFine("Response form MCS is: "+responseMessage, "MCSRestClient", "handleBinaryArgumentRequest");
-                response.setMessage(responseMessage);
-                response.setOriginalRequestUrl(url);
             }
-            else{
-                request.getMbeConfig().getLogger().logError("Request could not be send to server. No error received.", "RestClient.java", "handleBinaryRequest");
+            catch(Exception e){
+                failure = e;
+            }
+            
+            if(circuitBreaker != null){
+                CircuitBreakerPolicy circuitBreakerPolicy = circuitBreaker.getPolicy();
+                boolean backendFailure = failure != null ? circuitBreakerPolicy.isFailureException(failure) : 
+                                         response != null && circuitBreakerPolicy.isFailureStatusCode(response.getHttpStatusCode());
+                circuitBreaker.onResult(backendFailure, streamedTransfer ? -1 : System.currentTimeMillis() - attemptStartMillis);
+            }
+            
+            boolean transientFailure = retryPolicy != null && 
+                                       (failure != null ? retryPolicy.isRetryableException(failure) : 
+                                        response != null && retryPolicy.isRetryableStatusCode(response.getHttpStatusCode()));
+            
+            //content already written to the caller's stream cannot be taken back
+            boolean retry = retryAllowed && transientFailure && attempt < retryPolicy.getMaxAttempts() && 
+                            (countingStream == null || countingStream.getByteCount() == 0);
             
-            }        
+            if(!retry){
+                if(retryAllowed && transientFailure){
+                    retryPolicy.recordExhausted();
+                    getLogger(request).logWarning("Request to "+request.getRequestURI()+" failed after "+attempt+" attempt(s)", "MCSRestClient", "sendWithRetry");
+                }
+                if(failure != null){
+                    throw failure;
+                }
+                return response;
+            }
+            
+            long delay = retryPolicy.getDelayMillis(attempt, response);
+            retryPolicy.recordRetry();
+            getLogger(request).logWarning("Attempt "+attempt+" of request to "+request.getRequestURI()+" failed with "+
+                                          (failure != null ? failure.getClass().getSimpleName()+": "+failure.getMessage() : "HTTP "+response.getHttpStatusCode())+
+                                          ". Retrying in "+delay+" ms", "MCSRestClient", "sendWithRetry");
+            
+            if(fileChannel != null){
+                if(channelAppends){
+                    fileChannel.truncate(channelStartPosition);
+                }
+                fileChannel.position(channelStartPosition);
+            }
+            
+            try{
+                Thread.sleep(delay);
+            }
+            catch(InterruptedException e){
+                //stop retrying and report the last outcome
+                Thread.currentThread().interrupt();
+                if(failure != null){
+                    throw failure;
+                }
+                return response;
+            }
         }
-        catch(Exception e){
-            //rethrow as in this try/catch block we are only 
-            //intersted in closing the output stream gracefully
-            throw e;
+    }
+
+    /**
+     * Returns the circuit breaker of the MAF REST connection and mobile backend of the MBE configuration. A new circuit
+     * breaker is created if none exists or if the CircuitBreakerPolicy of the configuration has been replaced
+     *
+     * @param mbeConfig MBE configuration
+     * @return CircuitBreaker or null if the circuit breaker is disabled for the MBE
+     */
+    public static CircuitBreaker getCircuitBreaker(MBEConfiguration mbeConfig) {
+        
+        if(mbeConfig == null || mbeConfig.getCircuitBreakerPolicy() == null || !mbeConfig.getCircuitBreakerPolicy().isEnabled()){
+            return null;
         }
-        finally{
-            outputStream.close();
-            httpConnection.close();
+        
+        CircuitBreakerPolicy circuitBreakerPolicy = mbeConfig.getCircuitBreakerPolicy();
+        String circuitBreakerName = mbeConfig.getMafRestConnectionName()+"/"+mbeConfig.getMobileBackendIdentifier();
+        
+        CircuitBreaker circuitBreaker = circuitBreakers.get(circuitBreakerName);
+        while(circuitBreaker == null || circuitBreaker.getPolicy() != circuitBreakerPolicy){
+            CircuitBreaker newCircuitBreaker = new CircuitBreaker(circuitBreakerName, circuitBreakerPolicy);
+            boolean added = circuitBreaker == null ? circuitBreakers.putIfAbsent(circuitBreakerName, newCircuitBreaker) == null : 
+                                                     circuitBreakers.replace(circuitBreakerName, circuitBreaker, newCircuitBreaker);
+            circuitBreaker = added ? newCircuitBreaker : circuitBreakers.get(circuitBreakerName);
         }
-        return response;
+        return circuitBreaker;
     }
-
-
-
+    
     /**
-     * Helper method to copy the payload into the outgoing stream. The method is marked as static as it is called from
-     * a static method
-     * @param input
-     * @param output
-     * @throws IOException
+     * Closes all circuit breakers, e.g. after the device regained network connectivity
      */
-     private static void copyStream(InputStream input, OutputStream output) throws IOException {      
-        byte[] buffer = new byte[1024]; // Adjust if you want
-           
-           int bytesRead;           
-           while ((bytesRead = input.read(buffer)) != -1) {
-               output.write(buffer, 0, bytesRead);
-           }
-       }
-
-       
-     /**
-     * Read the response message to report the result to MAF application
-     * @param is
-     * @return String with the response message (success or error)
+    public static void resetCircuitBreakers() {
+        for(CircuitBreaker circuitBreaker : circuitBreakers.values()){
+            circuitBreaker.reset();
+        }
+    }
+    
+    /**
+     * Creates the exception thrown for requests that are not sent because the circuit is open. The exception carries
+     * an Oracle MCS error message with HTTP status 503 so that it is handled like a server error by the service proxies
      */
-       private static String getResponse(InputStream is, boolean gzipEncoded, boolean isSynchHttpConnection) {
-           Reader reader = null;
-           StringWriter writer = null;
-           String charset = "UTF-8"; //  
-           InputStream response = null;
-        
-         try {
-              
-              /*
-               * If SnychHttpConnection is used then we don't need to handle GZIP as the unzipping 
-               * is handled for us already. If however HttpConnection is used then it needs to be
-               * handled
-               */
-              if(gzipEncoded == true && !isSynchHttpConnection){ 
-                  response = new GZIPInputStream(is);                                      
-               }
-               else{
-                   response = is; 
-               }
-               
-              reader = new InputStreamReader(response, charset);
-              writer = new StringWriter();
-
-              char[] buffer = new char[10240];
-              for (int length = 0; (length = reader.read(buffer)) > 0;) {
-                     writer.write(buffer, 0, length);
-               }           
-               } catch (IOException e) {
-                 
-               }               
-               //housekeeping
-               finally {
-                 try {
-                    writer.close();
-                    reader.close();
-                } catch (IOException e) {
-                    //nothing we can do here. So we leave the dirt and go. 
-                }            
-            }
-            
-            return writer.toString();
-       }
+    private static ServiceProxyException createCircuitOpenException(MCSRequest request, CircuitBreaker circuitBreaker) {
+        String errorJson = OracleMobileErrorHelper.createOracleMobileErrorJson(503, "Service Unavailable", 
+                                                                               "Circuit breaker open for "+circuitBreaker.getName(), 
+                                                                               request.getRequestURI());
+        return new ServiceProxyException(503, errorJson);
+    }
 
     /**
      * Method that returns the HttpConnection object for direct use in cases where the RestServiceAdapter may not
      * provide enough functionality. Use this API by exception. The HttpConnection itself is obtained from the
-     * RestServiceAdapter and thus contains all of the RestServiceAdapter configuration and headerString
+     * RestServiceAdapter and thus contains all of the RestServiceAdapter configuration and headerString. This method 
+     * always uses the MAF RestServiceAdapter, independent of the configured transport
      *
      * @param request MCSRequest with information required by the RestServiceAdapter
      * @return HttpConnection
      */
     public static HttpConnection getHttpConnection(MCSRequest request) throws Exception {
-        RestServiceAdapter restServiceAdapter = prepareRestServiceAdapter(request);
-        String url = restServiceAdapter.getConnectionEndPoint(request.getConnectionName()) + request.getRequestURI();
-        HashMap headerProperties = request.getHttpHeaders();
-        HttpConnection connection = restServiceAdapter.getHttpConnection(request.getHttpMethod().toString(), url, headerProperties);
-        return connection;
+        MCSTransport mcsTransport = transport;
+        MAFRestTransport mafTransport = mcsTransport instanceof MAFRestTransport ? (MAFRestTransport) mcsTransport : new MAFRestTransport();
+        return mafTransport.getHttpConnection(request);
     }
-
+    
     /**
-     * Creates and configures an instance of RestServiceAdapter with information from the request context
-     * @param request
-     * @return RestServiceAdapter
+     * Returns the end point URL of a connection. For the MAF transport end points are resolved once per MAF REST 
+     * connection and then read from cache. Call invalidateConnectionEndPoint if the connection URL is changed at runtime
+     *
+     * @param connectionName connection name
+     * @return end point URL of the REST connection
+     * @throws Exception if the end point cannot be resolved
      */
-    private static RestServiceAdapter prepareRestServiceAdapter(MCSRequest request) {
-        RestServiceAdapter restServiceAdapter = Model.createRestServiceAdapter();
-        restServiceAdapter.clearRequestProperties();
-
-        restServiceAdapter.setConnectionName(request.getConnectionName());
-        restServiceAdapter.setRequestType(request.getHttpMethod().toString());
-        restServiceAdapter.setRequestURI(request.getRequestURI());
-        restServiceAdapter.setRetryLimit(request.getRetryLimit());
+    public static String getConnectionEndPoint(String connectionName) throws Exception {
+        return transport.getConnectionEndPoint(connectionName);
+    }
+    
+    /**
+     * Removes cached information of a connection, like the resolved end point. The end point is resolved again with the 
+     * next request
+     *
+     * @param connectionName connection name
+     */
+    public static void invalidateConnectionEndPoint(String connectionName) {
+        transport.invalidateConnectionEndPoint(connectionName);
+    }
+    
+    /**
+     * Returns usage statistics of the configured transport, e.g. the number of created and reused RestServiceAdapter 
+     * instances and the number of end point lookups and cache hits for the MAF transport, and the number of requests
+     * that shared an identical in-flight request
+     *
+     * @return statistics String for logging
+     */
+    public static String getConnectionStatistics() {
+        return transport.getStatistics() + ", coalescedRequests: " + coalescedRequests.get();
+    }
+    
+    /**
+     * Resolves the headers to send with a request. The map contains default Accept and Content-Type headers 
+     * (application/json), the mobile backend id for basic authentication, the Authorization header for manual 
+     * authentication, the Accept-Encoding header if compression is enabled for the MBE and the headers set on the 
+     * request. Headers set on the request override all other headers
+     *
+     * @param request MCSRequest object
+     * @return HashMap with the header key/value pairs
+     */
+    public static HashMap<String,String> getRequestHeaders(MCSRequest request) {
+        
+        HashMap<String,String> allRequestPropertyMap = new HashMap<String,String>();
 
         //default accept header and content-type header to application/jason. The values
         //are overwritten with the information in the header map of the request context
         //object. If not then they are set at least
-        restServiceAdapter.addRequestProperty("Accept", "application/json");
-        restServiceAdapter.addRequestProperty("Content-Type", "application/json");
+        allRequestPropertyMap.put("Accept", "application/json");
+        allRequestPropertyMap.put("Content-Type", "application/json");
         
         //for basic authentication, requests in Oracle MCS allways happen in the context of a valid Oracle Mobile Backend object. For this 
         //reason it is set here. If the information is contained in the custom headers then this information here gets overwritten with the 
         //information in the headers. If the authentication type is OAUTH then the mobile backend Id is not set
         if(request.getMbeConfig() != null && !request.getMbeConfig().getAuthtype().equalsIgnoreCase(MBEConstants.OAUTH_AUTH)
            && request.getMbeConfig().getMobileBackendIdentifier() != null && !request.getMbeConfig().getMobileBackendIdentifier().isEmpty()){           
-            restServiceAdapter.addRequestProperty(HeaderConstants.ORACLE_MOBILE_BACKEND_ID, request.getMbeConfig().getMobileBackendIdentifier());            
+            allRequestPropertyMap.put(HeaderConstants.ORACLE_MOBILE_BACKEND_ID, request.getMbeConfig().getMobileBackendIdentifier());            
         }
         else{
             //the mobile backend id can also be passed as part of the header map, in which case it would not be 
             //required in the RequestContext object. While this is not an error, at least we will log it here
             
-            getLogger(request).logFine(" Mobile backend ID could not be added to header for request to: "+request.getRequestURI() , "RestClient", "prepareRestServiceAdapter");
+            getLogger(request).logFine(" Mobile backend ID could not be added to header for request to: "+request.getRequestURI() , "RestClient", "getRequestHeaders");
             
         }               
-        
-        HashMap<String,String> allRequestPropertyMap = new HashMap<String,String>();
                       
         //check for authorization headers in case of manual authentication. I authentication is performed by 
         //MAF on the feature level, then the authorization headers are automatically added
-         HashMap<String,String> authMap = addAuthorizationHeaderIfNeeded(request.getMbeConfig());
+        HashMap<String,String> authMap = addAuthorizationHeaderIfNeeded(request.getMbeConfig());
         //if authorization headers need to be added to the request, add them to the request headers
         if (authMap != null && !authMap.isEmpty()){
             allRequestPropertyMap.putAll(authMap);
         }
         
-        Map<String,String> requestHeaderMap = request.getHttpHeaders();
-        if (requestHeaderMap != null && !requestHeaderMap.isEmpty()){
-            allRequestPropertyMap.putAll(requestHeaderMap);
+        //responses are decompressed by the transport while they are read
+        if(request.getMbeConfig() != null && request.getMbeConfig().isCompressionEnabled()){
+            allRequestPropertyMap.put(HeaderConstants.ACCEPT_ENCODING_HEADER, TransportUtils.ACCEPTED_ENCODINGS);
         }
         
-        if (allRequestPropertyMap != null && !allRequestPropertyMap.isEmpty()) {
-            
-            Set keySet = allRequestPropertyMap.keySet();
-            //read the headers passed in the request context
-            for (Object headerParam : keySet) {
-                String paramName = (String) headerParam;                
-                String paramValue = allRequestPropertyMap.get(paramName).toString();
-                restServiceAdapter.addRequestProperty(paramName, paramValue);                 
+        Map<String,String> requestHeaderMap = request.getHttpHeaders();
+        if (requestHeaderMap != null && !requestHeaderMap.isEmpty()){
+            for (Map.Entry<String,String> header : requestHeaderMap.entrySet()) {
+                allRequestPropertyMap.put(header.getKey(), header.getValue() != null ? header.getValue().toString() : null);
             }
         }
-        return restServiceAdapter;
+        return allRequestPropertyMap;
     }
     
     
@@ -362,6 +619,70 @@ public final class MCSRestClient {
         return headers;
     }
     
+    /**
+     * Outcome of a request shared by concurrent identical requests
+     */
+    private static final class InFlightRequest {
+        
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile MCSResponse response = null;
+        private volatile Exception failure = null;
+        
+        void setResponse(MCSResponse response) {
+            this.response = response;
+        }
+        
+        void setFailure(Exception failure) {
+            this.failure = failure;
+        }
+        
+        void complete() {
+            completed.countDown();
+        }
+        
+        /**
+         * Waits for the shared request to complete
+         * @return copy of the shared response or null if the request ended without response
+         * @throws Exception the exception of the shared request
+         */
+        MCSResponse awaitResponse() throws Exception {
+            completed.await();
+            if(failure != null){
+                throw failure;
+            }
+            return response != null ? response.copy() : null;
+        }
+    }
+    
+    /**
+     * Output stream wrapper that counts the bytes written to the target stream. Used to determine whether a streamed 
+     * response can be retried
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        
+        private long byteCount = 0;
+        
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            byteCount++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            byteCount = byteCount + len;
+        }
+        
+        long getByteCount() {
+            return byteCount;
+        }
+    }
+    
     /**
      * Accesses the MBE logger instance for this mobile backend
      * @param request
@@ -0,0 +1,91 @@
+package com.oracle.maf.sample.mcs.shared.mafrest;
+
+import java.io.OutputStream;
+
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Transport used by MCSRestClient to send REST requests to Oracle MCS. By default requests are sent using the MAF
+ * RestServiceAdapter (see MAFRestTransport). Applications that run the MCS service proxies outside of the MAF
+ * container, for example for load tests, can set a different transport implementation using MCSRestClient.setTransport(...).
+ * <p>
+ * Implementations must be thread safe as a single transport instance is shared by all mobile backends and requests.
+ * Implementations obtain the complete set of request headers, including the mobile backend id and the authorization
+ * header, from MCSRestClient.getRequestHeaders(request).
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public interface MCSTransport {
+
+    /**
+     * Sends the request to the server. The request payload can be null, String, byte[] or java.io.InputStream. The
+     * message of the returned MCSResponse is the response body as byte[] or String
+     *
+     * @param request MCSRequest object with the REST call configuration
+     * @return MCSResponse with header information and message body
+     * @throws Exception Exceptions thrown upon invoking the REST call (could be anything)
+     */
+    public MCSResponse sendForByteResponse(MCSRequest request) throws Exception;
+
+    /**
+     * Sends the request to the server and writes the response body of successful requests (HTTP 2XX) to the output
+     * stream. The message of the returned MCSResponse is null for successful requests and holds the error message
+     * String for all other requests. The OutputStream is not closed.
+     *
+     * @param request MCSRequest object with the REST call configuration. Payloads are ignored
+     * @param outputStream the stream to write the response body to
+     * @return MCSResponse with header information and the status code
+     * @throws Exception Exceptions thrown upon invoking the REST call (could be anything)
+     */
+    public MCSResponse sendForStreamResponse(MCSRequest request, OutputStream outputStream) throws Exception;
+
+    /**
+     * Sends the request to the server and transfers the response body of successful requests (HTTP 2XX) into the file
+     * channel, starting at the current channel position. The message of the returned MCSResponse is null for successful
+     * requests and holds the error message String for all other requests. The FileChannel is not closed.
+     *
+     * @param request MCSRequest object with the REST call configuration. Payloads are ignored
+     * @param fileChannel the channel to write the response body to
+     * @return MCSResponse with header information and the status code
+     * @throws Exception Exceptions thrown upon invoking the REST call (could be anything)
+     */
+    public MCSResponse sendForFileResponse(MCSRequest request, FileChannel fileChannel) throws Exception;
+
+    /**
+     * Sends the request to the server and returns the response body of successful requests (HTTP 2XX) as InputStream
+     * in the message of the returned MCSResponse, so that the body can be processed while it is received. The caller
+     * must close the stream, which releases the connection. The message holds the error message String for all other
+     * requests.
+     *
+     * @param request MCSRequest object with the REST call configuration. Payloads are ignored
+     * @return MCSResponse with header information, the status code and the response body stream
+     * @throws Exception Exceptions thrown upon invoking the REST call (could be anything)
+     */
+    public MCSResponse sendForInputStreamResponse(MCSRequest request) throws Exception;
+
+    /**
+     * Returns the base URL for a connection name. For the MAF transport the connection name is the name of a MAF REST
+     * connection
+     *
+     * @param connectionName name of the connection
+     * @return base URL of the connection
+     * @throws Exception if the connection end point cannot be resolved
+     */
+    public String getConnectionEndPoint(String connectionName) throws Exception;
+
+    /**
+     * Discards cached information, like the resolved end point, of a connection
+     *
+     * @param connectionName name of the connection
+     */
+    public void invalidateConnectionEndPoint(String connectionName);
+
+    /**
+     * Usage statistics of the transport for logging
+     *
+     * @return statistics String
+     */
+    public String getStatistics();
+}
@@ -0,0 +1,164 @@
+package com.oracle.maf.sample.mcs.shared.mafrest;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import oracle.adfmf.dc.ws.rest.RestServiceAdapter;
+import oracle.adfmf.framework.api.Model;
+
+
+/**
+ *  *** INTERNAL USE ONLY  ***
+ *
+ * Keeps idle RestServiceAdapter instances per MAF REST connection name for reuse by MCSRestClient and caches the
+ * endpoint URLs resolved for MAF REST connections. A RestServiceAdapter holds the state of a single request and
+ * response. Adapters therefore are handed out exclusively and are returned to the pool after the request completed.
+ * <p>
+ * The resolved endpoint of a connection is cached until invalidate(connectionName) or invalidateAll() is called. The
+ * cache must be invalidated if the URL of a MAF REST connection is changed at runtime.
+ *
+ * @author   Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+final class RestServiceAdapterPool {
+
+    /**
+     * Maximum number of idle adapters kept for a single REST connection. Adapters released while this number of
+     * adapters is idle are discarded
+     */
+    private static final int MAX_IDLE_ADAPTERS_PER_CONNECTION = 8;
+
+    private static final ConcurrentHashMap<String, LinkedBlockingQueue<RestServiceAdapter>> idleAdapters = new ConcurrentHashMap<String, LinkedBlockingQueue<RestServiceAdapter>>();
+    private static final ConcurrentHashMap<String, String> connectionEndpoints = new ConcurrentHashMap<String, String>();
+
+    //statistics
+    private static final AtomicLong adaptersCreated = new AtomicLong();
+    private static final AtomicLong adaptersReused = new AtomicLong();
+    private static final AtomicLong adaptersDiscarded = new AtomicLong();
+    private static final AtomicLong endpointLookups = new AtomicLong();
+    private static final AtomicLong endpointCacheHits = new AtomicLong();
+
+    private RestServiceAdapterPool() {
+    }
+
+    /**
+     * Returns an idle RestServiceAdapter for the connection or creates a new one. The request properties of the returned
+     * adapter are cleared. Adapters obtained from this method must be returned by a call to release(...)
+     * @param connectionName MAF REST connection name
+     * @return RestServiceAdapter for exclusive use by the caller
+     */
+    static RestServiceAdapter acquire(String connectionName) {
+
+        RestServiceAdapter restServiceAdapter = getIdleAdapterQueue(connectionName).poll();
+
+        if (restServiceAdapter != null) {
+            adaptersReused.incrementAndGet();
+        } else {
+            restServiceAdapter = Model.createRestServiceAdapter();
+            adaptersCreated.incrementAndGet();
+        }
+        restServiceAdapter.clearRequestProperties();
+        return restServiceAdapter;
+    }
+
+    /**
+     * Returns an adapter to the pool after the request and the processing of its response completed.
+     * @param connectionName MAF REST connection name the adapter was acquired for
+     * @param restServiceAdapter the adapter. Null values are ignored
+     */
+    static void release(String connectionName, RestServiceAdapter restServiceAdapter) {
+
+        if (restServiceAdapter == null) {
+            return;
+        }
+
+        //don't keep request headers, e.g. the Authorization header, in idle adapters
+        restServiceAdapter.clearRequestProperties();
+
+        //offer() discards the adapter if the maximum number of idle adapters is reached
+        getIdleAdapterQueue(connectionName).offer(restServiceAdapter);
+    }
+
+    /**
+     * Drops an adapter instead of returning it to the pool. Adapters are discarded when their request failed, as the
+     * adapter keeps the response status and headers of the last request and acquire(...) only clears the request
+     * properties
+     * @param restServiceAdapter the adapter. Null values are ignored
+     */
+    static void discard(RestServiceAdapter restServiceAdapter) {
+
+        if (restServiceAdapter == null) {
+            return;
+        }
+        restServiceAdapter.clearRequestProperties();
+        adaptersDiscarded.incrementAndGet();
+    }
+
+    /**
+     * Returns the endpoint URL of a MAF REST connection. The endpoint is resolved once per connection and then read
+     * from cache
+     * @param connectionName MAF REST connection name
+     * @param restServiceAdapter adapter used to resolve the endpoint if it is not cached
+     * @return connection endpoint URL
+     * @throws Exception if the endpoint cannot be resolved
+     */
+    static String getConnectionEndPoint(String connectionName, RestServiceAdapter restServiceAdapter) throws Exception {
+
+        endpointLookups.incrementAndGet();
+
+        String endpoint = connectionEndpoints.get(connectionName);
+        if (endpoint != null) {
+            endpointCacheHits.incrementAndGet();
+            return endpoint;
+        }
+
+        endpoint = restServiceAdapter.getConnectionEndPoint(connectionName);
+        if (endpoint != null) {
+            connectionEndpoints.put(connectionName, endpoint);
+        }
+        return endpoint;
+    }
+
+    /**
+     * Removes the cached endpoint and all idle adapters of a REST connection
+     * @param connectionName MAF REST connection name
+     */
+    static void invalidate(String connectionName) {
+        if (connectionName != null) {
+            connectionEndpoints.remove(connectionName);
+            idleAdapters.remove(connectionName);
+        }
+    }
+
+    /**
+     * Removes all cached endpoints and idle adapters
+     */
+    static void invalidateAll() {
+        connectionEndpoints.clear();
+        idleAdapters.clear();
+    }
+
+    /**
+     * Usage statistics of the adapter pool and the endpoint cache. Compare the number of created adapters and resolved
+     * endpoints with the number of requests to see the per-request setup cost that is saved
+     * @return statistics string for logging
+     */
+    static String getStatistics() {
+        return "adaptersCreated: " + adaptersCreated.get() + ", adaptersReused: " + adaptersReused.get() +
+               ", adaptersDiscarded: " + adaptersDiscarded.get() + ", endpointLookups: " + endpointLookups.get() + ", endpointCacheHits: " + endpointCacheHits.get();
+    }
+
+    private static LinkedBlockingQueue<RestServiceAdapter> getIdleAdapterQueue(String connectionName) {
+
+        LinkedBlockingQueue<RestServiceAdapter> queue = idleAdapters.get(connectionName);
+        if (queue == null) {
+            LinkedBlockingQueue<RestServiceAdapter> newQueue = new LinkedBlockingQueue<RestServiceAdapter>(MAX_IDLE_ADAPTERS_PER_CONNECTION);
+            queue = idleAdapters.putIfAbsent(connectionName, newQueue);
+            if (queue == null) {
+                queue = newQueue;
+            }
+        }
+        return queue;
+    }
+}
@@ -0,0 +1,355 @@
+package com.oracle.maf.sample.mcs.shared.mafrest;
+
+import java.io.IOException;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import oracle.adfmf.framework.exception.IllegalArgumentException;
+import oracle.adfmf.json.JSONException;
+import oracle.adfmf.json.JSONObject;
+
+
+/**
+ * Retry policy applied by MCSRestClient to all requests of a mobile backend (see MBEConfiguration.setRetryPolicy). A
+ * request is retried if it failed with a network error or a retryable HTTP status code (default: 408, 429, 500, 502,
+ * 503, 504) and if the HTTP method is idempotent (default: GET, HEAD, PUT, DELETE). POST requests are not retried by
+ * default as a retry could create duplicate content.
+ * <p>
+ * The delay between attempts grows exponentially from the base delay and is capped by the maximum delay. A random
+ * jitter is subtracted from each delay so that clients that failed at the same time don't retry at the same time. If
+ * the server responds with a Retry-After header (429 and 503 responses) then the server provided delay is used instead,
+ * capped by the maximum delay.
+ * <p>
+ * Requests with InputStream payloads are sent only once as the stream cannot be replayed. The policy also keeps
+ * statistics about requests, attempts and retries for monitoring.
+ *
+ * @author Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+public final class RetryPolicy {
+
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 500;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 30000;
+    public static final double DEFAULT_JITTER_FACTOR = 0.5;
+
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+    private static final Pattern STATUS_CODE_PATTERN = Pattern.compile("\\b([1-5][0-9][0-9])\\b");
+    //status codes that are labeled as such, e.g. "HTTP 304" or "Response code: 304"
+    private static final Pattern LABELED_STATUS_CODE_PATTERN = Pattern.compile("(?i)\\b(?:http|status|response|code)\\b[ :=]{0,3}([1-5][0-9][0-9])\\b");
+
+    private final Random random = new Random();
+
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private volatile long baseDelayMillis = DEFAULT_BASE_DELAY_MILLIS;
+    private volatile long maxDelayMillis = DEFAULT_MAX_DELAY_MILLIS;
+    private volatile double jitterFactor = DEFAULT_JITTER_FACTOR;
+    private volatile Set<Integer> retryableStatusCodes = new HashSet<Integer>();
+    private volatile Set<MCSRequest.HttpMethod> idempotentMethods = new HashSet<MCSRequest.HttpMethod>();
+
+    //statistics
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong attemptCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong exhaustedCount = new AtomicLong();
+
+    /**
+     * Creates a retry policy with default settings
+     */
+    public RetryPolicy() {
+        super();
+        retryableStatusCodes.add(408);
+        retryableStatusCodes.add(429);
+        retryableStatusCodes.add(500);
+        retryableStatusCodes.add(502);
+        retryableStatusCodes.add(503);
+        retryableStatusCodes.add(504);
+
+        idempotentMethods.add(MCSRequest.HttpMethod.GET);
+        idempotentMethods.add(MCSRequest.HttpMethod.HEAD);
+        idempotentMethods.add(MCSRequest.HttpMethod.PUT);
+        idempotentMethods.add(MCSRequest.HttpMethod.DELETE);
+    }
+
+    /**
+     * Creates a policy that sends each request only once
+     * @return RetryPolicy with max attempts of 1
+     */
+    public static RetryPolicy noRetry() {
+        RetryPolicy retryPolicy = new RetryPolicy();
+        retryPolicy.setMaxAttempts(1);
+        return retryPolicy;
+    }
+
+    /**
+     * @param maxAttempts maximum number of attempts per request including the first attempt. 1 disables retries
+     * @throws IllegalArgumentException if maxAttempts is less than 1
+     */
+    public void setMaxAttempts(int maxAttempts) throws IllegalArgumentException {
+        if (maxAttempts < 1) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("maxAttempts must be greater than 0 but is " + maxAttempts);
+            throw illegalArgumentException;
+        }
+        this.maxAttempts = maxAttempts;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * @param baseDelayMillis delay before the first retry. The delay doubles with each retry
+     * @throws IllegalArgumentException if the delay is negative
+     */
+    public void setBaseDelayMillis(long baseDelayMillis) throws IllegalArgumentException {
+        if (baseDelayMillis < 0) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("baseDelayMillis must not be negative but is " + baseDelayMillis);
+            throw illegalArgumentException;
+        }
+        this.baseDelayMillis = baseDelayMillis;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    /**
+     * @param maxDelayMillis upper bound of the delay between two attempts, also applied to Retry-After delays
+     * @throws IllegalArgumentException if the delay is negative
+     */
+    public void setMaxDelayMillis(long maxDelayMillis) throws IllegalArgumentException {
+        if (maxDelayMillis < 0) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("maxDelayMillis must not be negative but is " + maxDelayMillis);
+            throw illegalArgumentException;
+        }
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * @param jitterFactor fraction of the computed delay that is randomly subtracted, between 0 (no jitter) and 1 (full
+     *                     jitter)
+     * @throws IllegalArgumentException if the factor is not between 0 and 1
+     */
+    public void setJitterFactor(double jitterFactor) throws IllegalArgumentException {
+        if (jitterFactor < 0 || jitterFactor > 1) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("jitterFactor must be between 0 and 1 but is " + jitterFactor);
+            throw illegalArgumentException;
+        }
+        this.jitterFactor = jitterFactor;
+    }
+
+    public double getJitterFactor() {
+        return jitterFactor;
+    }
+
+    /**
+     * @param retryableStatusCodes HTTP status codes for which a request is retried
+     */
+    public void setRetryableStatusCodes(Set<Integer> retryableStatusCodes) {
+        this.retryableStatusCodes = retryableStatusCodes != null ? new HashSet<Integer>(retryableStatusCodes) : new HashSet<Integer>();
+    }
+
+    public Set<Integer> getRetryableStatusCodes() {
+        return new HashSet<Integer>(retryableStatusCodes);
+    }
+
+    /**
+     * @param idempotentMethods HTTP methods that are safe to be retried. Add POST only if the service handles duplicate
+     *                          requests
+     */
+    public void setIdempotentMethods(Set<MCSRequest.HttpMethod> idempotentMethods) {
+        this.idempotentMethods = idempotentMethods != null ? new HashSet<MCSRequest.HttpMethod>(idempotentMethods) : new HashSet<MCSRequest.HttpMethod>();
+    }
+
+    public Set<MCSRequest.HttpMethod> getIdempotentMethods() {
+        return new HashSet<MCSRequest.HttpMethod>(idempotentMethods);
+    }
+
+    /**
+     * @param httpMethod HTTP method of the request
+     * @return true if requests with this method may be retried
+     */
+    public boolean isIdempotent(MCSRequest.HttpMethod httpMethod) {
+        return idempotentMethods.contains(httpMethod);
+    }
+
+    /**
+     * @param statusCode HTTP status code of a response
+     * @return true if the status code indicates a transient failure
+     */
+    public boolean isRetryableStatusCode(int statusCode) {
+        return retryableStatusCodes.contains(statusCode);
+    }
+
+    /**
+     * Checks whether a request that failed with an exception can be retried. Network failures (IOException) are
+     * retryable. Failures to read the local payload or to write the response to the local target, e.g. a full disk,
+     * (TransportUtils.LocalIOException) are not. For MAF RestServiceAdapter exceptions the HTTP status code is read from
+     * the Oracle MCS error message or the exception message
+     * @param e the exception thrown by the transport
+     * @return true if the failure is transient
+     */
+    public boolean isRetryableException(Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransportUtils.LocalIOException) {
+                return false;
+            }
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        int statusCode = getStatusCode(e);
+        return statusCode > 0 && isRetryableStatusCode(statusCode);
+    }
+
+    /**
+     * Returns the delay before the next attempt
+     * @param attempt the number of the attempt that failed, starting with 1
+     * @param response the failed response or null if the attempt failed with an exception
+     * @return delay in milliseconds
+     */
+    public long getDelayMillis(int attempt, MCSResponse response) {
+
+        long retryAfterMillis = response != null ? parseRetryAfter(TransportUtils.getHeader(response.getHeaders(), RETRY_AFTER_HEADER)) : -1;
+        if (retryAfterMillis > -1) {
+            return Math.min(retryAfterMillis, maxDelayMillis);
+        }
+
+        //exponential backoff: base * 2^(attempt-1), protected against overflow
+        long delay = baseDelayMillis << Math.min(attempt - 1, 30);
+        if (delay < 0 || delay > maxDelayMillis) {
+            delay = maxDelayMillis;
+        }
+        if (jitterFactor > 0 && delay > 0) {
+            long jitter;
+            synchronized (random) {
+                jitter = (long) (delay * jitterFactor * random.nextDouble());
+            }
+            delay = delay - jitter;
+        }
+        return delay;
+    }
+
+    /**
+     * @return statistics String for logging
+     */
+    public String getStatistics() {
+        return "requests: " + requestCount.get() + ", attempts: " + attemptCount.get() + ", retries: " +
+               retryCount.get() + ", retriesExhausted: " + exhaustedCount.get();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getAttemptCount() {
+        return attemptCount.get();
+    }
+
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+
+    void recordRequest() {
+        requestCount.incrementAndGet();
+    }
+
+    void recordAttempt() {
+        attemptCount.incrementAndGet();
+    }
+
+    void recordRetry() {
+        retryCount.incrementAndGet();
+    }
+
+    void recordExhausted() {
+        exhaustedCount.incrementAndGet();
+    }
+
+    /**
+     * Parses the Retry-After header, which is either a number of seconds or a HTTP date
+     * @param retryAfter header value
+     * @return delay in milliseconds or -1 if the header is missing or cannot be parsed
+     */
+    private static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return -1;
+        }
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            //not a number of seconds, try HTTP date
+        }
+        try {
+            SimpleDateFormat dateFormat = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+            dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+            Date retryDate = dateFormat.parse(value);
+            return Math.max(0, retryDate.getTime() - System.currentTimeMillis());
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the HTTP status code from an exception thrown by the MAF RestServiceAdapter. The status is read from the
+     * Oracle MCS JSON error message if available. Otherwise the exception messages are searched for a status code that
+     * is labeled as such, like "HTTP 304", and then for any error status code (4XX, 5XX)
+     * @param e exception
+     * @return status code or -1 if none is found
+     */
+    public static int getStatusCode(Exception e) {
+
+        String primaryMessage = e.getLocalizedMessage();
+        String secondaryMessage = e.getCause() != null ? e.getCause().getLocalizedMessage() : null;
+
+        if (secondaryMessage != null) {
+            try {
+                int status = new JSONObject(secondaryMessage).optInt("status", 0);
+                if (status > 0) {
+                    return status;
+                }
+            } catch (JSONException jse) {
+                //not an Oracle MCS error message
+            }
+        }
+
+        String combinedMessage = (primaryMessage != null ? primaryMessage : "") + " " + (secondaryMessage != null ? secondaryMessage : "");
+        Matcher labeledMatcher = LABELED_STATUS_CODE_PATTERN.matcher(combinedMessage);
+        if (labeledMatcher.find()) {
+            return Integer.parseInt(labeledMatcher.group(1));
+        }
+        Matcher matcher = STATUS_CODE_PATTERN.matcher(combinedMessage);
+        while (matcher.find()) {
+            int statusCode = Integer.parseInt(matcher.group(1));
+            if (statusCode >= 400) {
+                return statusCode;
+            }
+        }
+        return -1;
+    }
+}
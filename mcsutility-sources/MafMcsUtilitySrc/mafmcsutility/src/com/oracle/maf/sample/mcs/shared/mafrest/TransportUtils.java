@@ -0,0 +1,393 @@
+package com.oracle.maf.sample.mcs.shared.mafrest;
+
+import com.oracle.maf.sample.mcs.shared.headers.HeaderConstants;
+import com.oracle.maf.sample.mcs.shared.mbe.config.base.MBEConfiguration;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+
+/**
+ *  *** INTERNAL USE ONLY  ***
+ *
+ * Stream handling and HTTP compression shared by the MCSTransport implementations
+ *
+ * @author   Frank Nimphius
+ * @copyright Copyright (c) 2015, 2016 Oracle. All rights reserved.
+ */
+final class TransportUtils {
+
+    /**
+     * Size of the buffer used to copy request payloads and response bodies between streams
+     */
+    static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    //copy buffers are reused per thread so that streaming large objects does not allocate a new buffer for each request
+    private static final ThreadLocal<byte[]> STREAM_BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[STREAM_BUFFER_SIZE];
+        }
+    };
+
+    /**
+     * Content encodings accepted for responses
+     */
+    static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+    
+    private static final String GZIP_ENCODING = "gzip";
+    private static final String DEFLATE_ENCODING = "deflate";
+
+    private TransportUtils() {
+    }
+
+    /**
+     * Signals that reading or writing local content failed, e.g. writing a download to a full disk or reading an upload
+     * payload from a file. Local failures say nothing about the availability of the server and are not counted as
+     * failures by the circuit breaker
+     */
+    static final class LocalIOException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LocalIOException(IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Wraps a stream the response body is copied to, e.g. the stream provided by the caller of a download, so that 
+     * write failures are reported as LocalIOException
+     * @param output local stream
+     * @return wrapping stream
+     */
+    static OutputStream localOutput(OutputStream output) {
+        return new FilterOutputStream(output) {
+            @Override
+            public void write(int b) throws IOException {
+                try {
+                    out.write(b);
+                } catch (IOException e) {
+                    throw new LocalIOException(e);
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                try {
+                    out.write(b, off, len);
+                } catch (IOException e) {
+                    throw new LocalIOException(e);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    throw new LocalIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps a stream a request payload is read from, e.g. a file, so that read failures are reported as LocalIOException
+     * @param input local stream
+     * @return wrapping stream
+     */
+    static InputStream localInput(InputStream input) {
+        return new FilterInputStream(input) {
+            @Override
+            public int read() throws IOException {
+                try {
+                    return in.read();
+                } catch (IOException e) {
+                    throw new LocalIOException(e);
+                }
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                try {
+                    return in.read(b, off, len);
+                } catch (IOException e) {
+                    throw new LocalIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Wraps the response stream into a decompressing stream for gzip and deflate encoded responses. Depending on the
+     * connection type used by MAF, responses may already be decompressed by the container although the Content-Encoding
+     * header still reports a compressed body. For this the first bytes of the stream are checked for the gzip or zlib
+     * header before the stream is wrapped. Content is decompressed while it is read, never as a whole.
+     * @param input the response stream
+     * @param contentEncoding value of the Content-Encoding response header, can be null
+     * @return decompressing stream or the (unread) input stream if the content is not compressed
+     * @throws IOException
+     */
+    static InputStream decodeContent(InputStream input, String contentEncoding) throws IOException {
+
+        if (input == null || contentEncoding == null) {
+            return input;
+        }
+        String encoding = contentEncoding.trim();
+        boolean gzip = encoding.equalsIgnoreCase(GZIP_ENCODING) || encoding.equalsIgnoreCase("x-gzip");
+        boolean deflate = encoding.equalsIgnoreCase(DEFLATE_ENCODING);
+        if (!gzip && !deflate) {
+            return input;
+        }
+
+        PushbackInputStream pushbackInput = new PushbackInputStream(input, 2);
+        byte[] header = new byte[2];
+        int headerLength = 0;
+        int bytesRead;
+        while (headerLength < 2 && (bytesRead = pushbackInput.read(header, headerLength, 2 - headerLength)) != -1) {
+            headerLength = headerLength + bytesRead;
+        }
+        if (headerLength == 0) {
+            return pushbackInput;
+        }
+        pushbackInput.unread(header, 0, headerLength);
+        if (headerLength < 2) {
+            return pushbackInput;
+        }
+
+        int b0 = header[0] & 0xFF;
+        int b1 = header[1] & 0xFF;
+
+        if (b0 == 0x1F && b1 == 0x8B) {
+            return new GZIPInputStream(pushbackInput, STREAM_BUFFER_SIZE);
+        }
+        if (deflate) {
+            //"deflate" is meant to be zlib wrapped, but some servers send raw deflate data
+            boolean zlibWrapped = (b0 & 0x0F) == 8 && ((b0 << 8) | b1) % 31 == 0;
+            return new InflaterInputStream(pushbackInput, new Inflater(!zlibWrapped), STREAM_BUFFER_SIZE);
+        }
+        //gzip header is missing: content has been decompressed already
+        return pushbackInput;
+    }
+
+    /**
+     * Decompresses a gzip or deflate encoded response body. Bodies that are not compressed are returned unchanged
+     * @param body response body
+     * @param contentEncoding value of the Content-Encoding response header, can be null
+     * @return decompressed body
+     * @throws IOException
+     */
+    static byte[] decodeContent(byte[] body, String contentEncoding) throws IOException {
+
+        if (body == null || body.length == 0 || contentEncoding == null) {
+            return body;
+        }
+        ByteArrayInputStream bodyStream = new ByteArrayInputStream(body);
+        InputStream decodedStream = decodeContent(bodyStream, contentEncoding);
+        if (!(decodedStream instanceof InflaterInputStream)) {
+            return body;
+        }
+        ByteArrayOutputStream decodedBody = new ByteArrayOutputStream(body.length * 4);
+        try {
+            copyStream(decodedStream, decodedBody, -1);
+        } finally {
+            decodedStream.close();
+        }
+        return decodedBody.toByteArray();
+    }
+
+    /**
+     * Returns true if the stream returned by decodeContent(...) decompresses the response. In this case the
+     * Content-Encoding and Content-Length headers of the response no longer describe the body delivered to the caller
+     * @param decodedStream the stream returned by decodeContent
+     * @return true if the stream decompresses content
+     */
+    static boolean isDecoding(InputStream decodedStream) {
+        return decodedStream instanceof InflaterInputStream;
+    }
+
+    /**
+     * Removes the Content-Encoding and Content-Length response headers after a response has been decompressed
+     * @param headers response headers
+     */
+    static void removeEncodingHeaders(Map<String, String> headers) {
+        if (headers == null) {
+            return;
+        }
+        Iterator<String> keys = headers.keySet().iterator();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            if (HeaderConstants.CONTENT_ENCODING_HEADER.equalsIgnoreCase(key) || HeaderConstants.CONTENT_LENGTH.equalsIgnoreCase(key)) {
+                keys.remove();
+            }
+        }
+    }
+
+    /**
+     * Compresses String payloads (JSON or text) of POST and PUT requests with gzip if compression is enabled for the
+     * MBE and the payload is at least as large as the configured threshold. Binary payloads (byte[] and InputStream)
+     * are not compressed as they usually are stored as is, e.g. storage objects, or are compressed already. If the
+     * payload is compressed, the Content-Encoding header is added to the headers map
+     * @param request MCSRequest object
+     * @param headers the request headers to send
+     * @return the compressed payload or null if the payload is not compressed
+     * @throws IOException
+     */
+    static byte[] compressRequestBody(MCSRequest request, Map<String, String> headers) throws IOException {
+
+        MBEConfiguration mbeConfig = request.getMbeConfig();
+        if (mbeConfig == null || !mbeConfig.isCompressionEnabled() || !(request.getPayload() instanceof String)) {
+            return null;
+        }
+        if (request.getHttpMethod() != MCSRequest.HttpMethod.POST && request.getHttpMethod() != MCSRequest.HttpMethod.PUT) {
+            return null;
+        }
+        //the application set its own encoding
+        if (getHeader(headers, HeaderConstants.CONTENT_ENCODING_HEADER) != null) {
+            return null;
+        }
+
+        byte[] payload = ((String) request.getPayload()).getBytes("UTF-8");
+        if (payload.length == 0 || payload.length < mbeConfig.getRequestCompressionThreshold()) {
+            return null;
+        }
+
+        ByteArrayOutputStream compressedPayload = new ByteArrayOutputStream(Math.max(payload.length / 4, 64));
+        GZIPOutputStream gzipOutput = new GZIPOutputStream(compressedPayload);
+        try {
+            gzipOutput.write(payload);
+        } finally {
+            gzipOutput.close();
+        }
+
+        headers.put(HeaderConstants.CONTENT_ENCODING_HEADER, GZIP_ENCODING);
+        mbeConfig.getLogger().logFine("Request payload compressed from " + payload.length + " to " + compressedPayload.size() + " bytes", "TransportUtils", "compressRequestBody");
+        return compressedPayload.toByteArray();
+    }
+
+    /**
+     * Reads a header value ignoring the case of the header name
+     * @param headers header map
+     * @param name header name
+     * @return header value or null
+     */
+    static String getHeader(Map<String, String> headers, String name) {
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Helper method to copy the payload into the outgoing stream. The copy buffer is reused per thread.
+     * @param input
+     * @param output
+     * @param maxBytes the maximum number of bytes to copy or -1 to copy until the end of the input stream
+     * @return the number of bytes copied
+     * @throws IOException
+     */
+    static long copyStream(InputStream input, OutputStream output, long maxBytes) throws IOException {
+        byte[] buffer = STREAM_BUFFER.get();
+
+        long totalBytes = 0;
+        int bytesRead;
+        while ((maxBytes < 0 || totalBytes < maxBytes) &&
+               (bytesRead = input.read(buffer, 0, maxBytes < 0 ? buffer.length : (int) Math.min(buffer.length, maxBytes - totalBytes))) != -1) {
+            output.write(buffer, 0, bytesRead);
+            totalBytes = totalBytes + bytesRead;
+        }
+        return totalBytes;
+    }
+
+    /**
+     * Transfers the content of the input stream into the file channel, starting at the current position of the channel.
+     * Content is written with positional writes, which, unlike FileChannel.transferFrom, also write at positions beyond 
+     * the current end of the file. The channel position is advanced by the number of bytes transferred, also if the 
+     * transfer fails, so that callers can continue an interrupted transfer at the channel position. Failures to write 
+     * the file are reported as LocalIOException.
+     * @param input
+     * @param fileChannel
+     * @return the number of bytes transferred
+     * @throws IOException
+     */
+    static long transferToChannel(InputStream input, FileChannel fileChannel) throws IOException {
+
+        byte[] buffer = STREAM_BUFFER.get();
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        long position = fileChannel.position();
+        long totalBytes = 0;
+        int bytesRead;
+
+        while ((bytesRead = input.read(buffer, 0, buffer.length)) != -1) {
+            byteBuffer.clear();
+            byteBuffer.limit(bytesRead);
+            try {
+                while (byteBuffer.hasRemaining()) {
+                    totalBytes = totalBytes + fileChannel.write(byteBuffer, position + totalBytes);
+                }
+                fileChannel.position(position + totalBytes);
+            } catch (IOException e) {
+                throw new LocalIOException(e);
+            }
+        }
+        return totalBytes;
+    }
+
+    /**
+     * Reads a UTF-8 encoded stream into a String. The stream is closed by this method
+     * @param is
+     * @return String with the stream content. Read errors are ignored and return the content read until the error
+     */
+    static String readString(InputStream is) {
+        Reader reader = null;
+        StringWriter writer = new StringWriter();
+        String charset = "UTF-8";
+
+        try {
+            reader = new InputStreamReader(is, charset);
+            char[] buffer = new char[10240];
+            for (int length = 0; (length = reader.read(buffer)) > 0;) {
+                writer.write(buffer, 0, length);
+            }
+        } catch (IOException e) {
+            //return what has been read
+        }
+        //housekeeping
+        finally {
+            try {
+                if (reader != null) {
+                    reader.close();
+                } else {
+                    is.close();
+                }
+            } catch (IOException e) {
+                //nothing we can do here. So we leave the dirt and go.
+            }
+        }
+        return writer.toString();
+    }
+}
@@ -23,6 +23,15 @@ import com.oracle.maf.sample.mcs.shared.mbe.error.OracleMobileErrorHelper;
 import com.oracle.maf.sample.mcs.shared.mbe.proxy.MBEServiceProxy;
 
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import oracle.adfmf.framework.api.AdfmfContainerUtilities;
 import oracle.adfmf.framework.api.AdfmfJavaUtilities;
@@ -57,6 +66,12 @@ public final class MBE {
 
     //service proxy instance cache
     private HashMap<String, MBEServiceProxy> mServiceProxies = new HashMap<String, MBEServiceProxy>();
+    
+    //executes the asynchronous (*Async) service proxy calls. Created on first use
+    private ThreadPoolExecutor mAsyncExecutorService = null;
+    
+    //idle threads of the async executor terminate after this time
+    private static final long ASYNC_THREAD_KEEP_ALIVE_SECONDS = 60;
 
 
     /**
@@ -315,6 +330,99 @@ public final class MBE {
     }
     
     
+    /**
+     * Executes a task on the thread pool of this MBE and returns a CompletableFuture that completes with the result of
+     * the task. If the task throws an exception, e.g. a ServiceProxyException, then the future completes exceptionally
+     * with this exception. If the task cannot be queued because all threads are busy and the queue is full, the future
+     * completes exceptionally with a RejectedExecutionException. The pool size and queue capacity are configured in the
+     * MBEConfiguration.
+     * <p>
+     * All *Async methods of the service proxies use this method. Applications can use it to run their own MCS related
+     * work on the same bounded pool.
+     * 
+     * @param task the work to execute
+     * @return CompletableFuture that completes with the result of the task
+     */
+    public <T> CompletableFuture<T> submitAsync(final Callable<T> task) {
+        
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        
+        try {
+            getAsyncExecutorService().execute(new Runnable() {
+                @Override
+                public void run() {
+                    //a future cancelled while the task was queued does not need to be executed
+                    if (future.isDone()) {
+                        return;
+                    }
+                    try {
+                        future.complete(task.call());
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            mLogger.logWarning("Asynchronous task rejected. Thread pool and queue are exhausted: " + e.getMessage(), this.getClass().getSimpleName(), "submitAsync");
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+    
+    /**
+     * Returns the bounded thread pool used by this MBE to execute asynchronous service proxy calls. The pool is created
+     * on first access based on the async thread pool size and queue capacity settings of the MBEConfiguration. Pool
+     * threads are daemon threads and terminate when idle.
+     * 
+     * @return ExecutorService of this MBE
+     */
+    public synchronized ExecutorService getAsyncExecutorService() {
+        
+        if (mAsyncExecutorService == null || mAsyncExecutorService.isShutdown()) {
+            
+            int poolSize = mbeConfiguration.getAsyncThreadPoolSize();
+            int queueCapacity = mbeConfiguration.getAsyncTaskQueueCapacity();
+            
+            mLogger.logFine("Creating async executor with " + poolSize + " threads and a queue capacity of " + queueCapacity, this.getClass().getSimpleName(), "getAsyncExecutorService");
+            
+            final String threadNamePrefix = "MAF MCS Utility (" + mobileBackendName + ") async-";
+            ThreadFactory threadFactory = new ThreadFactory() {
+                
+                private final AtomicInteger threadNumber = new AtomicInteger(1);
+                
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            
+            mAsyncExecutorService = new ThreadPoolExecutor(poolSize, poolSize, ASYNC_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, 
+                                                           new LinkedBlockingQueue<Runnable>(queueCapacity), threadFactory);
+            mAsyncExecutorService.allowCoreThreadTimeOut(true);
+        }
+        return mAsyncExecutorService;
+    }
+    
+    /**
+     * Shuts down the thread pool used for asynchronous service proxy calls. Already submitted calls are completed. The
+     * pool is re-created if another asynchronous call is issued for this MBE. MBEManager calls this method when a MBE 
+     * instance is released or renewed. A background refresh of application policies is stopped as well.
+     */
+    public synchronized void shutdownAsyncExecutorService() {
+        if (mAsyncExecutorService != null) {
+            mLogger.logFine("Shutting down async executor", this.getClass().getSimpleName(), "shutdownAsyncExecutorService");
+            mAsyncExecutorService.shutdown();
+            mAsyncExecutorService = null;
+        }
+        MBEServiceProxy appPolicies = mServiceProxies.get(ProxyClass.POLICY.getCanonicalClassname());
+        if (appPolicies != null) {
+            ((AppPolicies) appPolicies).stopBackgroundRefresh();
+        }
+    }
+    
+    
     /**
      * This method analyzes the exception for instances of AdfInvocationRuntimeException, AdfInvocation-Exception and, 
      * more broadly, AdfExceptions. If none of the two are found, it will look into the exception message for status 
@@ -326,7 +434,12 @@ public final class MBE {
      *             message
      */
     private void handleExceptions(Exception e,String uri) throws ServiceProxyException {
-        
+
+        //ServiceProxyExceptions, e.g. for requests rejected by the circuit breaker, are passed on unchanged
+        if (e instanceof ServiceProxyException) {
+            throw (ServiceProxyException) e;
+        }
+
          //Step 1: Is error AdfInvocationRuntimeException, AdfInvocationException or AdfException?        
         String exceptionPrimaryMessage      = e.getLocalizedMessage();
         String exceptionSecondaryMessage    = e.getCause() != null? e.getCause().getLocalizedMessage() : null;
@@ -1,6 +1,7 @@
 package com.oracle.maf.sample.mcs.shared.mbe;
 
 import com.oracle.maf.sample.mcs.shared.log.LibraryLogger;
+import com.oracle.maf.sample.mcs.shared.mafrest.MCSRestClient;
 
 import com.oracle.maf.sample.mcs.shared.mbe.config.base.MBEConfiguration;
 
@@ -132,8 +133,16 @@ public final class MBEManager {
            throw illegalArgumentException;
         }
 
+        //the REST connection may have been reconfigured. Make sure the end point is resolved again
+        MCSRestClient.invalidateConnectionEndPoint(mbeConfig.getMafRestConnectionName());
+
         MBE mbe = new MBE(name, mbeConfig);
-        backends.put(name, mbe);
+        MBE replacedMbe = backends.put(name, mbe);
+        
+        //release the threads of the instance that is replaced
+        if(replacedMbe != null){
+            replacedMbe.shutdownAsyncExecutorService();
+        }
         return mbe;
     }
     
@@ -142,7 +151,10 @@ public final class MBEManager {
      * @param mobileBackendObjectName the name of a mobile backend object instance provided when creating it
      */
     public void releaseNamedMobileBackend(String mobileBackendObjectName){      
-        this.backends.remove(mobileBackendObjectName);        
+        MBE mbe = this.backends.remove(mobileBackendObjectName);
+        if(mbe != null){
+            mbe.shutdownAsyncExecutorService();
+        }
     }
     
     /**
@@ -150,6 +162,9 @@ public final class MBEManager {
      * if you know that a MAF Feature using these instances is not be used for a longer time
      */
     public void releaseAllMobileBackend(){
+        for (MBE mbe : this.backends.values()) {
+            mbe.shutdownAsyncExecutorService();
+        }
         this.backends.clear();        
     }
 }
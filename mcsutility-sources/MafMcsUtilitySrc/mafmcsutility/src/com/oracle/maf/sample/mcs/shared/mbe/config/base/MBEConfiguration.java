@@ -2,14 +2,15 @@ package com.oracle.maf.sample.mcs.shared.mbe.config.base;
 
 import com.oracle.maf.sample.mcs.shared.exceptions.ServiceProxyException;
 import com.oracle.maf.sample.mcs.shared.log.MBELogger;
+import com.oracle.maf.sample.mcs.shared.mafrest.MCSRestClient;
+import com.oracle.maf.sample.mcs.shared.mafrest.CircuitBreakerPolicy;
+import com.oracle.maf.sample.mcs.shared.mafrest.RetryPolicy;
 import com.oracle.maf.sample.mcs.shared.mbe.constants.MBEConstants;
 
 import oracle.adf.model.datacontrols.device.DeviceManagerFactory;
 
-import oracle.adfmf.dc.ws.rest.RestServiceAdapter;
 import oracle.adfmf.framework.api.AdfmfContainerUtilities;
 import oracle.adfmf.framework.api.AdfmfJavaUtilities;
-import oracle.adfmf.framework.api.Model;
 import oracle.adfmf.framework.exception.IllegalArgumentException;
 import oracle.adfmf.java.beans.PropertyChangeListener;
 import oracle.adfmf.java.beans.PropertyChangeSupport;
@@ -121,6 +122,75 @@ public class MBEConfiguration {
      * feature level authentication by manual authentication using e.g the BasicAuthorization class
      */
     private boolean manualAuthenticationFlag = false;
+    
+    /*
+     * Asynchronous (*Async) service proxy calls are executed on a thread pool owned by the MBE. The pool size and the
+     * number of calls that can be queued are bounded
+     */
+    private int mAsyncThreadPoolSize = MBEConstants.DEFAULT_ASYNC_THREAD_POOL_SIZE;
+    private int mAsyncTaskQueueCapacity = MBEConstants.DEFAULT_ASYNC_TASK_QUEUE_CAPACITY;
+    
+    /*
+     * Requests advertise gzip and deflate response encoding. JSON and text request bodies larger than the threshold 
+     * are sent gzip compressed
+     */
+    private boolean mCompressionEnabled = true;
+    private int mRequestCompressionThreshold = MBEConstants.DEFAULT_REQUEST_COMPRESSION_THRESHOLD;
+    
+    /*
+     * Retry policy MCSRestClient applies to failed requests of this MBE
+     */
+    private RetryPolicy mRetryPolicy = new RetryPolicy();
+    
+    /*
+     * Circuit breaker settings MCSRestClient applies to the MAF REST connection and mobile backend of this MBE
+     */
+    private CircuitBreakerPolicy mCircuitBreakerPolicy = new CircuitBreakerPolicy();
+    
+    /*
+     * Concurrent identical GET and HEAD requests share a single in-flight request
+     */
+    private boolean mRequestCoalescingEnabled = true;
+    
+    /*
+     * Downloaded storage object content is cached on disk and revalidated with its ETag once the freshness time expired
+     */
+    private boolean mContentCacheEnabled = true;
+    private long mContentCacheMaxBytes = MBEConstants.DEFAULT_CONTENT_CACHE_MAX_BYTES;
+    private int mContentCacheFreshnessSeconds = MBEConstants.DEFAULT_CONTENT_CACHE_FRESHNESS_SECONDS;
+    
+    /*
+     * Storage collection lookups are cached in memory. A time-to-live of 0 disables caching
+     */
+    private int mStorageInformationCacheTTLSeconds = MBEConstants.DEFAULT_STORAGE_INFORMATION_CACHE_TTL_SECONDS;
+    private int mCollectionCacheTTLSeconds = MBEConstants.DEFAULT_COLLECTION_CACHE_TTL_SECONDS;
+    private int mObjectExistenceCacheTTLSeconds = MBEConstants.DEFAULT_OBJECT_EXISTENCE_CACHE_TTL_SECONDS;
+    
+    /*
+     * Cached application policies are refreshed after this interval
+     */
+    private int mPolicyRefreshIntervalSeconds = MBEConstants.DEFAULT_POLICY_REFRESH_INTERVAL_SECONDS;
+
+    /*
+     * Size in bytes of the segments sent by StorageCollection.uploadSegmented
+     */
+    private int mUploadSegmentSize = MBEConstants.DEFAULT_UPLOAD_SEGMENT_SIZE;
+
+    /*
+     * Number of concurrent requests of StorageCollection batch operations that don't specify a concurrency
+     */
+    private int mStorageBatchConcurrency = MBEConstants.DEFAULT_STORAGE_BATCH_CONCURRENCY;
+
+    /*
+     * Storage writes and deletes issued while the device is offline are queued in the SQLite outbox and sent later
+     */
+    private boolean mQueueStorageWritesIfOffline = false;
+
+    /*
+     * PUT requests are skipped if the object already holds content with the same SHA-256 hash
+     */
+    private boolean mUploadDeduplicationEnabled = true;
+    
     private PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
 
     public void addPropertyChangeListener(PropertyChangeListener l) {
@@ -222,6 +292,26 @@ public class MBEConfiguration {
         oauthTokenExpiryTimeInMilliSeconds = mbeConfig.getOauthTokenExpiryTimeInMilliSeconds();
         mOauthEndpointConnectionName = mbeConfig.getOauthEndpointConnectionName();
         
+        mAsyncThreadPoolSize = mbeConfig.getAsyncThreadPoolSize();
+        mAsyncTaskQueueCapacity = mbeConfig.getAsyncTaskQueueCapacity();
+        
+        mCompressionEnabled = mbeConfig.isCompressionEnabled();
+        mRequestCompressionThreshold = mbeConfig.getRequestCompressionThreshold();
+        mRetryPolicy = mbeConfig.getRetryPolicy();
+        mCircuitBreakerPolicy = mbeConfig.getCircuitBreakerPolicy();
+        mRequestCoalescingEnabled = mbeConfig.isRequestCoalescingEnabled();
+        mContentCacheEnabled = mbeConfig.isContentCacheEnabled();
+        mContentCacheMaxBytes = mbeConfig.getContentCacheMaxBytes();
+        mContentCacheFreshnessSeconds = mbeConfig.getContentCacheFreshnessSeconds();
+        mStorageInformationCacheTTLSeconds = mbeConfig.getStorageInformationCacheTTLSeconds();
+        mCollectionCacheTTLSeconds = mbeConfig.getCollectionCacheTTLSeconds();
+        mPolicyRefreshIntervalSeconds = mbeConfig.getPolicyRefreshIntervalSeconds();
+        mUploadSegmentSize = mbeConfig.getUploadSegmentSize();
+        mStorageBatchConcurrency = mbeConfig.getStorageBatchConcurrency();
+        mQueueStorageWritesIfOffline = mbeConfig.isQueueStorageWritesIfOffline();
+        mUploadDeduplicationEnabled = mbeConfig.isUploadDeduplicationEnabled();
+        mObjectExistenceCacheTTLSeconds = mbeConfig.getObjectExistenceCacheTTLSeconds();
+        
         this.mLogger.logFine("Protected contructor called", this.getClass().getSimpleName(),
                              "MBEConfiguration(MBEConfiguration mbeConfig)");
     }
@@ -389,15 +479,14 @@ public class MBEConfiguration {
     /**
      * Each mobile backend has its own base URL. The base URL is used within the REST calls to address the MBE. The complete
      * URL for REST calls is composed out of this base URL and the URI with the resource name and query params. The SDK reads
-     * the base URL from the provided MAF REST connection
+     * the base URL from the provided MAF REST connection. The base URL is resolved once per REST connection and then read 
+     * from cache. The cache entry is invalidated when a mobile backend is created or renewed in the MBEManager
      * @return base URL
      */
     public String getMobileBackendBaseURL() {
-        RestServiceAdapter restServiceAdapter = Model.createRestServiceAdapter();
-        restServiceAdapter.setConnectionName(this.getMafRestConnectionName());
         String mobileBackendBaseURL = null;
         try {
-            mobileBackendBaseURL = restServiceAdapter.getConnectionEndPoint(this.getMafRestConnectionName());
+            mobileBackendBaseURL = MCSRestClient.getConnectionEndPoint(this.getMafRestConnectionName());
         } catch (Exception e) {
             this.mLogger.logError("Failure in reading connection endpoint from REST connection: " +
                                         e.getMessage(), this.getClass().getSimpleName(), "getMobileBackend()");
@@ -744,4 +833,375 @@ public class MBEConfiguration {
         return mOauthIdentityDomain;
     }
 
+
+    /**
+     * Number of threads used by the MBE to execute asynchronous (*Async) service proxy calls. The value is read when the 
+     * MBE executes its first asynchronous call. Default is 4.
+     * 
+     * @param asyncThreadPoolSize number of threads, must be greater than 0
+     * @throws IllegalArgumentException if the pool size is less than 1
+     */
+    public void setAsyncThreadPoolSize(int asyncThreadPoolSize) throws IllegalArgumentException {
+        if (asyncThreadPoolSize < 1) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("asyncThreadPoolSize must be greater than 0 but is " + asyncThreadPoolSize);
+            throw illegalArgumentException;
+        }
+        int oldAsyncThreadPoolSize = this.mAsyncThreadPoolSize;
+        this.mAsyncThreadPoolSize = asyncThreadPoolSize;
+        propertyChangeSupport.firePropertyChange("asyncThreadPoolSize", oldAsyncThreadPoolSize, asyncThreadPoolSize);
+    }
+
+    public int getAsyncThreadPoolSize() {
+        return mAsyncThreadPoolSize;
+    }
+
+    /**
+     * Number of asynchronous (*Async) service proxy calls that can wait for execution when all threads of the MBE thread
+     * pool are busy. Calls issued while the queue is full are rejected and their CompletableFuture is completed with a
+     * java.util.concurrent.RejectedExecutionException. The value is read when the MBE executes its first asynchronous call.
+     * Default is 100.
+     * 
+     * @param asyncTaskQueueCapacity maximum number of queued calls, must be greater than 0
+     * @throws IllegalArgumentException if the capacity is less than 1
+     */
+    public void setAsyncTaskQueueCapacity(int asyncTaskQueueCapacity) throws IllegalArgumentException {
+        if (asyncTaskQueueCapacity < 1) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("asyncTaskQueueCapacity must be greater than 0 but is " + asyncTaskQueueCapacity);
+            throw illegalArgumentException;
+        }
+        int oldAsyncTaskQueueCapacity = this.mAsyncTaskQueueCapacity;
+        this.mAsyncTaskQueueCapacity = asyncTaskQueueCapacity;
+        propertyChangeSupport.firePropertyChange("asyncTaskQueueCapacity", oldAsyncTaskQueueCapacity, asyncTaskQueueCapacity);
+    }
+
+    public int getAsyncTaskQueueCapacity() {
+        return mAsyncTaskQueueCapacity;
+    }
+
+    /**
+     * Enables or disables HTTP compression for requests of this MBE. If enabled, requests accept gzip and deflate 
+     * encoded responses, which are decompressed while they are read, and JSON or text request bodies larger than the 
+     * request compression threshold are sent gzip compressed. Binary payloads, like storage objects, are never 
+     * compressed. Default is true.
+     * 
+     * @param compressionEnabled true to enable compression
+     */
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        boolean oldCompressionEnabled = this.mCompressionEnabled;
+        this.mCompressionEnabled = compressionEnabled;
+        propertyChangeSupport.firePropertyChange("compressionEnabled", oldCompressionEnabled, compressionEnabled);
+    }
+
+    public boolean isCompressionEnabled() {
+        return mCompressionEnabled;
+    }
+
+    /**
+     * Minimum size in bytes of a JSON or text request body to be sent gzip compressed. Smaller bodies are sent 
+     * uncompressed as the compression overhead outweighs the savings. Default is 1024.
+     * 
+     * @param requestCompressionThreshold size in bytes, must be 0 or greater
+     * @throws IllegalArgumentException if the threshold is less than 0
+     */
+    public void setRequestCompressionThreshold(int requestCompressionThreshold) throws IllegalArgumentException {
+        if (requestCompressionThreshold < 0) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("requestCompressionThreshold must not be negative but is " + requestCompressionThreshold);
+            throw illegalArgumentException;
+        }
+        int oldRequestCompressionThreshold = this.mRequestCompressionThreshold;
+        this.mRequestCompressionThreshold = requestCompressionThreshold;
+        propertyChangeSupport.firePropertyChange("requestCompressionThreshold", oldRequestCompressionThreshold, requestCompressionThreshold);
+    }
+
+    public int getRequestCompressionThreshold() {
+        return mRequestCompressionThreshold;
+    }
+
+    /**
+     * Retry policy applied to failed requests of this MBE. By default idempotent requests (GET, HEAD, PUT, DELETE) that
+     * failed with a network error or HTTP 408, 429, 500, 502, 503 or 504 are attempted up to 3 times with exponential 
+     * backoff. Use RetryPolicy.noRetry() to disable retries.
+     * 
+     * @param retryPolicy the policy, null disables retries
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        RetryPolicy oldRetryPolicy = this.mRetryPolicy;
+        this.mRetryPolicy = retryPolicy != null ? retryPolicy : RetryPolicy.noRetry();
+        propertyChangeSupport.firePropertyChange("retryPolicy", oldRetryPolicy, this.mRetryPolicy);
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    /**
+     * Circuit breaker settings for the MAF REST connection and mobile backend of this MBE. By default the circuit opens
+     * if 50% of the last 20 requests (at least 10) failed with a network error or HTTP 5XX or 408/429 status, or if all of
+     * them took longer than 10 seconds. While the circuit is open, requests fail fast with HTTP 503 for 30 seconds. Use
+     * CircuitBreakerPolicy.disabled() to turn the circuit breaker off.
+     *
+     * @param circuitBreakerPolicy the policy, null disables the circuit breaker
+     */
+    public void setCircuitBreakerPolicy(CircuitBreakerPolicy circuitBreakerPolicy) {
+        CircuitBreakerPolicy oldCircuitBreakerPolicy = this.mCircuitBreakerPolicy;
+        this.mCircuitBreakerPolicy = circuitBreakerPolicy != null ? circuitBreakerPolicy : CircuitBreakerPolicy.disabled();
+        propertyChangeSupport.firePropertyChange("circuitBreakerPolicy", oldCircuitBreakerPolicy, this.mCircuitBreakerPolicy);
+    }
+
+    public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+        return mCircuitBreakerPolicy;
+    }
+
+    /**
+     * If enabled (default), concurrent GET and HEAD requests for the same URI, connection and user are sent only once
+     * and all callers receive the response of the single request. This avoids duplicate requests if multiple screens
+     * query the same information at the same time, e.g. on application start
+     *
+     * @param requestCoalescingEnabled false to send each request separately
+     */
+    public void setRequestCoalescingEnabled(boolean requestCoalescingEnabled) {
+        boolean oldRequestCoalescingEnabled = this.mRequestCoalescingEnabled;
+        this.mRequestCoalescingEnabled = requestCoalescingEnabled;
+        propertyChangeSupport.firePropertyChange("requestCoalescingEnabled", oldRequestCoalescingEnabled, requestCoalescingEnabled);
+    }
+
+    public boolean isRequestCoalescingEnabled() {
+        return mRequestCoalescingEnabled;
+    }
+
+    /**
+     * If enabled (default), content downloaded with StorageCollection.downloadByteContentForObjectUri is cached in the 
+     * application directory. Cached content is returned without network access within the freshness time and is 
+     * revalidated with its ETag afterwards. Settings are read when the Storage proxy first accesses the cache
+     *
+     * @param contentCacheEnabled false to always download storage object content
+     */
+    public void setContentCacheEnabled(boolean contentCacheEnabled) {
+        boolean oldContentCacheEnabled = this.mContentCacheEnabled;
+        this.mContentCacheEnabled = contentCacheEnabled;
+        propertyChangeSupport.firePropertyChange("contentCacheEnabled", oldContentCacheEnabled, contentCacheEnabled);
+    }
+
+    public boolean isContentCacheEnabled() {
+        return mContentCacheEnabled;
+    }
+
+    /**
+     * Maximum disk space in bytes used by the storage content cache. The least recently used content is removed if
+     * the limit is exceeded
+     *
+     * @param contentCacheMaxBytes maximum size in bytes, must be greater than 0
+     * @throws IllegalArgumentException if the size is less than 1
+     */
+    public void setContentCacheMaxBytes(long contentCacheMaxBytes) throws IllegalArgumentException {
+        if (contentCacheMaxBytes < 1) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("contentCacheMaxBytes must be greater than 0 but is " + contentCacheMaxBytes);
+            throw illegalArgumentException;
+        }
+        long oldContentCacheMaxBytes = this.mContentCacheMaxBytes;
+        this.mContentCacheMaxBytes = contentCacheMaxBytes;
+        propertyChangeSupport.firePropertyChange("contentCacheMaxBytes", oldContentCacheMaxBytes, contentCacheMaxBytes);
+    }
+
+    public long getContentCacheMaxBytes() {
+        return mContentCacheMaxBytes;
+    }
+
+    /**
+     * Time in seconds cached storage object content is returned without checking its ETag with MCS. A value of 0 
+     * revalidates cached content with each request
+     *
+     * @param contentCacheFreshnessSeconds freshness time in seconds
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void setContentCacheFreshnessSeconds(int contentCacheFreshnessSeconds) throws IllegalArgumentException {
+        if (contentCacheFreshnessSeconds < 0) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("contentCacheFreshnessSeconds must not be negative but is " + contentCacheFreshnessSeconds);
+            throw illegalArgumentException;
+        }
+        int oldContentCacheFreshnessSeconds = this.mContentCacheFreshnessSeconds;
+        this.mContentCacheFreshnessSeconds = contentCacheFreshnessSeconds;
+        propertyChangeSupport.firePropertyChange("contentCacheFreshnessSeconds", oldContentCacheFreshnessSeconds, contentCacheFreshnessSeconds);
+    }
+
+    public int getContentCacheFreshnessSeconds() {
+        return mContentCacheFreshnessSeconds;
+    }
+
+    /**
+     * Time in seconds the result of Storage.queryStorageInformation is cached in memory. Cached results are removed
+     * when objects are created, updated or removed through StorageCollection. A value of 0 disables the cache
+     *
+     * @param storageInformationCacheTTLSeconds time-to-live in seconds
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void setStorageInformationCacheTTLSeconds(int storageInformationCacheTTLSeconds) throws IllegalArgumentException {
+        if (storageInformationCacheTTLSeconds < 0) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("storageInformationCacheTTLSeconds must not be negative but is " + storageInformationCacheTTLSeconds);
+            throw illegalArgumentException;
+        }
+        int oldStorageInformationCacheTTLSeconds = this.mStorageInformationCacheTTLSeconds;
+        this.mStorageInformationCacheTTLSeconds = storageInformationCacheTTLSeconds;
+        propertyChangeSupport.firePropertyChange("storageInformationCacheTTLSeconds", oldStorageInformationCacheTTLSeconds, storageInformationCacheTTLSeconds);
+    }
+
+    public int getStorageInformationCacheTTLSeconds() {
+        return mStorageInformationCacheTTLSeconds;
+    }
+
+    /**
+     * Time in seconds the collection metadata returned by Storage.querySingleCollection is cached in memory. Cached 
+     * metadata is removed when objects of the collection are created, updated or removed through StorageCollection. 
+     * A value of 0 disables the cache
+     *
+     * @param collectionCacheTTLSeconds time-to-live in seconds
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void setCollectionCacheTTLSeconds(int collectionCacheTTLSeconds) throws IllegalArgumentException {
+        if (collectionCacheTTLSeconds < 0) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("collectionCacheTTLSeconds must not be negative but is " + collectionCacheTTLSeconds);
+            throw illegalArgumentException;
+        }
+        int oldCollectionCacheTTLSeconds = this.mCollectionCacheTTLSeconds;
+        this.mCollectionCacheTTLSeconds = collectionCacheTTLSeconds;
+        propertyChangeSupport.firePropertyChange("collectionCacheTTLSeconds", oldCollectionCacheTTLSeconds, collectionCacheTTLSeconds);
+    }
+
+    public int getCollectionCacheTTLSeconds() {
+        return mCollectionCacheTTLSeconds;
+    }
+
+    /**
+     * Time in seconds after which application policies cached by the AppPolicies proxy are refreshed. Expired policies
+     * are returned and refreshed in the background. The interval is also used by AppPolicies.startBackgroundRefresh()
+     *
+     * @param policyRefreshIntervalSeconds refresh interval in seconds, must be greater than 0
+     * @throws IllegalArgumentException if the interval is less than 1
+     */
+    public void setPolicyRefreshIntervalSeconds(int policyRefreshIntervalSeconds) throws IllegalArgumentException {
+        if (policyRefreshIntervalSeconds < 1) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("policyRefreshIntervalSeconds must be greater than 0 but is " + policyRefreshIntervalSeconds);
+            throw illegalArgumentException;
+        }
+        int oldPolicyRefreshIntervalSeconds = this.mPolicyRefreshIntervalSeconds;
+        this.mPolicyRefreshIntervalSeconds = policyRefreshIntervalSeconds;
+        propertyChangeSupport.firePropertyChange("policyRefreshIntervalSeconds", oldPolicyRefreshIntervalSeconds, policyRefreshIntervalSeconds);
+    }
+
+    public int getPolicyRefreshIntervalSeconds() {
+        return mPolicyRefreshIntervalSeconds;
+    }
+
+    /**
+     * Size in bytes of the segments a file is split into by StorageCollection.uploadSegmented. Each segment is held in
+     * memory while it is sent and is the amount of content that is sent again when an interrupted upload is resumed
+     *
+     * @param uploadSegmentSize segment size in bytes, must be 64 KB or greater
+     * @throws IllegalArgumentException if the size is less than 64 KB
+     */
+    public void setUploadSegmentSize(int uploadSegmentSize) throws IllegalArgumentException {
+        if (uploadSegmentSize < MBEConstants.MIN_UPLOAD_SEGMENT_SIZE) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("uploadSegmentSize must be " + MBEConstants.MIN_UPLOAD_SEGMENT_SIZE + " or greater but is " + uploadSegmentSize);
+            throw illegalArgumentException;
+        }
+        int oldUploadSegmentSize = this.mUploadSegmentSize;
+        this.mUploadSegmentSize = uploadSegmentSize;
+        propertyChangeSupport.firePropertyChange("uploadSegmentSize", oldUploadSegmentSize, uploadSegmentSize);
+    }
+
+    public int getUploadSegmentSize() {
+        return mUploadSegmentSize;
+    }
+
+    /**
+     * Number of concurrent requests used by the StorageCollection batch operations deleteAll, putAll and createAll if
+     * no concurrency is passed. Requests are executed by the calling thread and the thread pool of the MBE, so that the
+     * effective concurrency is limited by the async thread pool size plus one
+     *
+     * @param storageBatchConcurrency number of concurrent requests, must be greater than 0
+     * @throws IllegalArgumentException if the value is less than 1
+     */
+    public void setStorageBatchConcurrency(int storageBatchConcurrency) throws IllegalArgumentException {
+        if (storageBatchConcurrency < 1) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("storageBatchConcurrency must be greater than 0 but is " + storageBatchConcurrency);
+            throw illegalArgumentException;
+        }
+        int oldStorageBatchConcurrency = this.mStorageBatchConcurrency;
+        this.mStorageBatchConcurrency = storageBatchConcurrency;
+        propertyChangeSupport.firePropertyChange("storageBatchConcurrency", oldStorageBatchConcurrency, storageBatchConcurrency);
+    }
+
+    public int getStorageBatchConcurrency() {
+        return mStorageBatchConcurrency;
+    }
+
+    /**
+     * If enabled, StorageCollection creates, updates and deletes that are issued while the device has no network access
+     * are saved in the outbox of the Storage proxy instead of failing. The outbox is sent when Storage.getOutbox().replay()
+     * is called or with the next storage write that succeeds online. Disabled by default, in which case these calls fail
+     * with a ServiceProxyException
+     *
+     * @param queueStorageWritesIfOffline true to queue storage writes and deletes while offline
+     */
+    public void setQueueStorageWritesIfOffline(boolean queueStorageWritesIfOffline) {
+        boolean oldQueueStorageWritesIfOffline = this.mQueueStorageWritesIfOffline;
+        this.mQueueStorageWritesIfOffline = queueStorageWritesIfOffline;
+        propertyChangeSupport.firePropertyChange("queueStorageWritesIfOffline", oldQueueStorageWritesIfOffline, queueStorageWritesIfOffline);
+    }
+
+    public boolean isQueueStorageWritesIfOffline() {
+        return mQueueStorageWritesIfOffline;
+    }
+
+    /**
+     * If enabled (default), StorageCollection.createOrUpdateObject computes the SHA-256 hash of the content it sends and
+     * saves it with the returned ETag in the SQLite database of the application. Writing content with the same hash,
+     * display name and content type again only sends a HEAD request to verify the object still has this ETag. The PUT
+     * is skipped if it does. Skipped uploads and saved bytes are reported by Storage.getSkippedUploadCount and
+     * Storage.getUploadBytesSaved
+     *
+     * @param uploadDeduplicationEnabled false to always send the content
+     */
+    public void setUploadDeduplicationEnabled(boolean uploadDeduplicationEnabled) {
+        boolean oldUploadDeduplicationEnabled = this.mUploadDeduplicationEnabled;
+        this.mUploadDeduplicationEnabled = uploadDeduplicationEnabled;
+        propertyChangeSupport.firePropertyChange("uploadDeduplicationEnabled", oldUploadDeduplicationEnabled, uploadDeduplicationEnabled);
+    }
+
+    public boolean isUploadDeduplicationEnabled() {
+        return mUploadDeduplicationEnabled;
+    }
+
+    /**
+     * Time in seconds StorageCollection.containsAll uses the result of an earlier existence check, or the objects of an
+     * earlier collection listing, instead of sending a HEAD request. Results are removed when objects are created, 
+     * updated or removed through StorageCollection. A value of 0 disables the cache
+     *
+     * @param objectExistenceCacheTTLSeconds time-to-live in seconds
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public void setObjectExistenceCacheTTLSeconds(int objectExistenceCacheTTLSeconds) throws IllegalArgumentException {
+        if (objectExistenceCacheTTLSeconds < 0) {
+            IllegalArgumentException illegalArgumentException = new IllegalArgumentException();
+            illegalArgumentException.setMessage("objectExistenceCacheTTLSeconds must not be negative but is " + objectExistenceCacheTTLSeconds);
+            throw illegalArgumentException;
+        }
+        int oldObjectExistenceCacheTTLSeconds = this.mObjectExistenceCacheTTLSeconds;
+        this.mObjectExistenceCacheTTLSeconds = objectExistenceCacheTTLSeconds;
+        propertyChangeSupport.firePropertyChange("objectExistenceCacheTTLSeconds", oldObjectExistenceCacheTTLSeconds, objectExistenceCacheTTLSeconds);
+    }
+
+    public int getObjectExistenceCacheTTLSeconds() {
+        return mObjectExistenceCacheTTLSeconds;
+    }
 }
@@ -34,6 +34,70 @@ public final class MBEConstants {
      */
     public final static boolean LOGGING_DISABLED = false;
     
+    /**
+     * Default number of threads that execute asynchronous (*Async) service proxy calls for a MBE
+     */
+    public final static int DEFAULT_ASYNC_THREAD_POOL_SIZE = 4;
+    
+    /**
+     * Default number of asynchronous service proxy calls that can be queued for execution for a MBE before new calls
+     * are rejected
+     */
+    public final static int DEFAULT_ASYNC_TASK_QUEUE_CAPACITY = 100;
+    
+    /**
+     * Default minimum size in bytes of a JSON or text request body to be sent gzip compressed
+     */
+    public final static int DEFAULT_REQUEST_COMPRESSION_THRESHOLD = 1024;
+    
+    /**
+     * Default maximum size in bytes of the on-disk cache for downloaded storage object content (50 MB)
+     */
+    public final static long DEFAULT_CONTENT_CACHE_MAX_BYTES = 50L * 1024 * 1024;
+    
+    /**
+     * Default time in seconds a cached storage object is used without revalidating its ETag with MCS
+     */
+    public final static int DEFAULT_CONTENT_CACHE_FRESHNESS_SECONDS = 60;
+    
+    /**
+     * Default time in seconds the result of Storage.queryStorageInformation is cached. Same as the ExpireAfter value
+     * used for /mobile/platform/storage/collections in the sync-config.xml file of the sample application
+     */
+    public final static int DEFAULT_STORAGE_INFORMATION_CACHE_TTL_SECONDS = 3600;
+    
+    /**
+     * Default time in seconds the collection metadata returned by Storage.querySingleCollection is cached. Same as the 
+     * ExpireAfter value used for /mobile/platform/storage/collections/* in the sync-config.xml file of the sample application
+     */
+    public final static int DEFAULT_COLLECTION_CACHE_TTL_SECONDS = 300;
+    
+    /**
+     * Default time in seconds StorageCollection.containsAll relies on the result of an earlier existence check or 
+     * collection listing
+     */
+    public final static int DEFAULT_OBJECT_EXISTENCE_CACHE_TTL_SECONDS = 30;
+    
+    /**
+     * Default time in seconds after which cached application policies are refreshed
+     */
+    public final static int DEFAULT_POLICY_REFRESH_INTERVAL_SECONDS = 300;
+    
+    /**
+     * Default size of the segments sent by segmented storage uploads (1 MB)
+     */
+    public final static int DEFAULT_UPLOAD_SEGMENT_SIZE = 1024 * 1024;
+    
+    /**
+     * Smallest segment size accepted for segmented storage uploads (64 KB)
+     */
+    public final static int MIN_UPLOAD_SEGMENT_SIZE = 64 * 1024;
+    
+    /**
+     * Default number of concurrent requests of StorageCollection batch operations
+     */
+    public final static int DEFAULT_STORAGE_BATCH_CONCURRENCY = 4;
+    
     //constructor
     private MBEConstants() {}
 }
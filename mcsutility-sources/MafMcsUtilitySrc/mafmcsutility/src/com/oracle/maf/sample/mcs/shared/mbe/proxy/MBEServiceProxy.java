@@ -2,6 +2,9 @@ package com.oracle.maf.sample.mcs.shared.mbe.proxy;
 
 import com.oracle.maf.sample.mcs.shared.mbe.MBE;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
 
 /**
  *
@@ -27,5 +30,14 @@ public abstract class MBEServiceProxy {
     protected void init(MBE mbe){
         this.mbe = mbe;
     }
+    
+    /**
+     * Executes a service proxy call on the bounded thread pool of the MBE this proxy belongs to
+     * @param task the synchronous service proxy call to execute
+     * @return CompletableFuture that completes with the result of the call or exceptionally with the ServiceProxyException thrown by it
+     */
+    protected <T> CompletableFuture<T> executeAsync(Callable<T> task){
+        return this.mbe.submitAsync(task);
+    }
 
 }
@@ -15,6 +15,19 @@ import java.util.TimeZone;
  */
 public class DateUtil {
 
+    /*
+     * SimpleDateFormat is expensive to create and not thread safe. Storage listings parse two dates per object, which is
+     * why each thread keeps its own instance
+     */
+    private static final ThreadLocal<SimpleDateFormat> ISO_DATE_PARSER = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            return format;
+        }
+    };
+
     public static String getISOTimeStamp(Date date) {
         TimeZone tz = TimeZone.getTimeZone("UTC");
         DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
@@ -27,11 +40,9 @@ public class DateUtil {
         if (info == null)
             return null;
 
-        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
-        format.setTimeZone(TimeZone.getTimeZone("GMT"));
         Date date = null;
         try {
-            date = format.parse(info);
+            date = ISO_DATE_PARSER.get().parse(info);
         } catch (ParseException e) {
             e.printStackTrace();
         }